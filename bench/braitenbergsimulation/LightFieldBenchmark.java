@@ -0,0 +1,177 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class times the light field against working out the pulses of the lights exactly, and
+ * measures how far out the light field is. First it builds the light field, then it works out the
+ * pulses of all the lights for a number of sensors placed at random, exactly as a sensor does and by
+ * looking them up. Pulses beyond PULSEMAX are capped at PULSEMAX, as a sensor caps them.
+ *
+ * To run it with 50 lights, cells of 10 pixels and 100000 sensors:
+ *
+ *   ant bench-single -Dbench.class=braitenbergsimulation.LightFieldBenchmark
+ *       -Dbench.single.args="50 10 100000"
+ */
+class LightFieldBenchmark
+{
+	private static final int DEFAULTLIGHTS = 50;
+	private static final int DEFAULTCELLSIZE = 10;
+	private static final int DEFAULTSENSORS = 100000;
+	/* The number of rounds to warm up with before timing */
+	private static final int WARMUPROUNDS = 3;
+
+	private final SimulationConfig config;
+	private final List<LightSource> lstLight;
+	private final Sensor sensor;
+	private final double[] sensorX;
+	private final double[] sensorY;
+	private final double[] sensorDirections;
+
+	/**
+	 * Constructor
+	 *
+	 * @param lightCount the number of lights on the dark plain
+	 * @param cellSize the length of the side of a cell of the light field
+	 * @param sensorCount the number of sensors to work out the pulses of
+	 */
+	LightFieldBenchmark(int lightCount, int cellSize, int sensorCount)
+	{
+		config = new SimulationConfig(new BatchSettings()).withLightFieldCellSize(cellSize);
+		int xMax = config.getDarkPlainWidth();
+		int yMax = config.getDarkPlainHeight();
+
+		/* The same lights and sensors every run */
+		Random random = new Random(1);
+		lstLight = new ArrayList<LightSource>();
+		for (int i = 0; i < lightCount; i++)
+		{
+			lstLight.add(new LightSource(config, new Point2D.Double(random.nextInt(xMax), random.nextInt(yMax))));
+		}
+		sensor = new Sensor(config, null, config.getSensorRangeAngle());
+		sensorX = new double[sensorCount];
+		sensorY = new double[sensorCount];
+		sensorDirections = new double[sensorCount];
+		for (int i = 0; i < sensorCount; i++)
+		{
+			sensorX[i] = random.nextDouble() * xMax;
+			sensorY[i] = random.nextDouble() * yMax;
+			sensorDirections[i] = random.nextDouble() * Vehicle.TWOPI;
+		}
+	}
+
+	/**
+	 * Work out the pulses of all the lights for every sensor exactly
+	 *
+	 * @return the pulses of each sensor
+	 */
+	int[] exactPulses()
+	{
+		LightSource[] lights = lstLight.toArray(new LightSource[lstLight.size()]);
+		int[] pulses = new int[sensorX.length];
+		for (int i = 0; i < sensorX.length; i++)
+		{
+			pulses[i] = Math.min(sensor.determineLightPulses(sensorX[i], sensorY[i], sensorDirections[i], lights),
+					Sensor.PULSEMAX);
+		}
+		return pulses;
+	}
+
+	/**
+	 * Look up the pulses of all the lights for every sensor in a light field
+	 *
+	 * @param lightField the light field
+	 * @return the pulses of each sensor
+	 */
+	int[] fieldPulses(LightField lightField)
+	{
+		int[] pulses = new int[sensorX.length];
+		for (int i = 0; i < sensorX.length; i++)
+		{
+			pulses[i] = Math.min(lightField.getPulses(sensorX[i], sensorY[i], sensorDirections[i]), Sensor.PULSEMAX);
+		}
+		return pulses;
+	}
+
+	/**
+	 * Parse an optional numeric argument
+	 *
+	 * @param args command line arguments
+	 * @param index the index of the argument
+	 * @param defaultValue the value if the argument isn't there
+	 * @return the value of the argument
+	 */
+	private static int getArgument(String[] args, int index, int defaultValue)
+	{
+		return (args.length > index) ? Integer.parseInt(args[index]) : defaultValue;
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the number of lights, the size of the cells and the number of sensors, all optional
+	 */
+	public static void main(String[] args)
+	{
+		int lightCount = getArgument(args, 0, DEFAULTLIGHTS);
+		int cellSize = getArgument(args, 1, DEFAULTCELLSIZE);
+		int sensorCount = getArgument(args, 2, DEFAULTSENSORS);
+		LightFieldBenchmark benchmark = new LightFieldBenchmark(lightCount, cellSize, sensorCount);
+
+		long start = System.nanoTime();
+		LightField lightField = new LightField(benchmark.config, benchmark.lstLight, null);
+		System.out.println(lightCount + " lights, cells of " + cellSize + " pixels: built in "
+				+ ((System.nanoTime() - start) / 1e6) + " ms, " + lightField.getSizeBytes() + " bytes");
+
+		int[] exact = null;
+		int[] looked = null;
+		for (int i = 0; i < WARMUPROUNDS; i++)
+		{
+			exact = benchmark.exactPulses();
+			looked = benchmark.fieldPulses(lightField);
+		}
+		start = System.nanoTime();
+		exact = benchmark.exactPulses();
+		double exactNs = (double) (System.nanoTime() - start) / sensorCount;
+		start = System.nanoTime();
+		looked = benchmark.fieldPulses(lightField);
+		double fieldNs = (double) (System.nanoTime() - start) / sensorCount;
+
+		long totalError = 0;
+		int maxError = 0;
+		int saturatedExact = 0;
+		int saturatedField = 0;
+		for (int i = 0; i < sensorCount; i++)
+		{
+			int error = Math.abs(exact[i] - looked[i]);
+			totalError += error;
+			maxError = Math.max(maxError, error);
+			saturatedExact += (exact[i] == Sensor.PULSEMAX) ? 1 : 0;
+			saturatedField += (looked[i] == Sensor.PULSEMAX) ? 1 : 0;
+		}
+		System.out.println("Exact: " + exactNs + " ns/sensor, " + saturatedExact + " saturated");
+		System.out.println("Light field: " + fieldNs + " ns/sensor, " + saturatedField + " saturated");
+		System.out.println("Mean error " + ((double) totalError / sensorCount) + " pulses, max error " + maxError);
+	}
+}
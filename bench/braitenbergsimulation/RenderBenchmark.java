@@ -0,0 +1,136 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * This class compares drawing vehicles exactly, as polygons, with copying them from sprite atlases
+ * of various numbers of headings. The vehicles are drawn into an image the size of the default dark
+ * plain, as the FrameRenderer does. To run it with 50000 vehicles:
+ *
+ *   ant bench-single -Dbench.class=braitenbergsimulation.RenderBenchmark -Dbench.single.args=50000
+ */
+class RenderBenchmark
+{
+	private static final int DEFAULTVEHICLES = 50000;
+	private static final int[] SPRITEANGLES = {36, 72, 360};
+	private static final int WARMUPFRAMES = 20;
+	private static final int FRAMES = 50;
+	/* The colors of the six vehicle types */
+	private static final Color[] TYPECOLORS = {Color.BLUE, Color.RED, Color.GREEN, Color.ORANGE,
+			Color.MAGENTA, Color.CYAN};
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] direction;
+	private final BufferedImage image;
+
+	/**
+	 * Constructor
+	 *
+	 * @param vehicleCount the number of vehicles to draw
+	 */
+	RenderBenchmark(int vehicleCount)
+	{
+		Random random = new Random(1);
+		x = new double[vehicleCount];
+		y = new double[vehicleCount];
+		direction = new double[vehicleCount];
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			x[i] = random.nextDouble() * MiscSettingsPanel.DEFAULTWIDTH;
+			y[i] = random.nextDouble() * MiscSettingsPanel.DEFAULTHEIGHT;
+			direction[i] = random.nextDouble() * Vehicle.TWOPI;
+		}
+		image = new BufferedImage(MiscSettingsPanel.DEFAULTWIDTH, MiscSettingsPanel.DEFAULTHEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+	}
+
+	/**
+	 * Draw a frame of the vehicles
+	 *
+	 * @param atlas the sprites to draw from, or null to draw the vehicles exactly
+	 */
+	void drawFrame(SpriteAtlas atlas)
+	{
+		int[] xPoints = new int[3];
+		int[] yPoints = new int[3];
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		for (int i = 0; i < x.length; i++)
+		{
+			int type = i % TYPECOLORS.length;
+			if (atlas != null)
+			{
+				atlas.drawVehicle(pixels, image.getWidth(), image.getHeight(), type, x[i], y[i], direction[i]);
+			}
+			else
+			{
+				VehicleRenderer.drawVehicle(g, x[i], y[i], direction[i], TYPECOLORS[type], xPoints, yPoints);
+			}
+		}
+		g.dispose();
+	}
+
+	/**
+	 * Time drawing frames
+	 *
+	 * @param name the name to report the timing under
+	 * @param atlas the sprites to draw from, or null to draw the vehicles exactly
+	 */
+	void timeFrames(String name, SpriteAtlas atlas)
+	{
+		for (int i = 0; i < WARMUPFRAMES; i++)
+		{
+			drawFrame(atlas);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++)
+		{
+			drawFrame(atlas);
+		}
+		double msPerFrame = (System.nanoTime() - start) / 1e6 / FRAMES;
+		System.out.println(name + ": " + msPerFrame + " ms per frame, " + (1000 / msPerFrame) + " frames per second");
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the number of vehicles, optional
+	 */
+	public static void main(String[] args)
+	{
+		int vehicleCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULTVEHICLES;
+
+		RenderBenchmark benchmark = new RenderBenchmark(vehicleCount);
+		benchmark.timeFrames(vehicleCount + " vehicles, exact", null);
+		for (int angles: SPRITEANGLES)
+		{
+			benchmark.timeFrames(vehicleCount + " vehicles, " + angles + " sprite angles",
+					new SpriteAtlas(TYPECOLORS, angles));
+		}
+	}
+}
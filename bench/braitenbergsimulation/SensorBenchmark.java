@@ -0,0 +1,68 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * JMH benchmarks of a single sensor. Each call times one sensor, or one sensor perceiving one item,
+ * taking every sensor and item on the dark plain in turn so the average covers all of them.
+ *
+ * Note that JMH requires this class to be public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SensorBenchmark
+{
+	/**
+	 * Determine the total pulses of a sensor from the items in the grid
+	 *
+	 * @param state the populated dark plain
+	 * @return the number of pulses
+	 */
+	@Benchmark
+	public int determineTotalPulses(SimulationState state)
+	{
+		int sensor = state.nextSensor();
+		return state.sensors[sensor].determineTotalPulses(state.sensorX[sensor], state.sensorY[sensor],
+				state.sensorDirections[sensor], state.grdPerceptible);
+	}
+
+	/**
+	 * Determine the pulses of a sensor from one item, wrapping the item around if need be
+	 *
+	 * @param state the populated dark plain
+	 * @return the number of pulses
+	 */
+	@Benchmark
+	public int determinePulsesWrappedAround(SimulationState state)
+	{
+		int pairing = state.nextPairing();
+		int sensor = pairing / state.lstPerceptible.size();
+		PerceptibleItem curPerceptible = state.lstPerceptible.get(pairing % state.lstPerceptible.size());
+		return state.sensors[sensor].determinePulsesWrappedAround(state.sensorLocations[sensor],
+				state.sensorDirections[sensor], curPerceptible);
+	}
+}
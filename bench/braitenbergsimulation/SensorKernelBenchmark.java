@@ -0,0 +1,271 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class times the sensor kernels against the scalar Sensor. First it totals the pulses of both
+ * sensors of every vehicle from the grid, with the sensors working on one item at a time and then
+ * with a sensor kernel, which must arrive at the same total. Then it sweeps each kernel on its own
+ * over every item for every sensor, the scalar kernel and then the kernel the settings chose, which
+ * must mark exactly the same items unresolved and arrive at the same pulses for the rest.
+ *
+ * The vector kernel is only chosen if it was built and the JVM is run with the Vector API, otherwise
+ * both sweeps use the scalar kernel. To run it with 5000 vehicles, 5 rounds to warm up and 10 timed
+ * rounds, with the vector kernel:
+ *
+ *   ant bench-single -Dbench.class=braitenbergsimulation.SensorKernelBenchmark
+ *       -Dbench.single.args="5000 5 10" -Dbench.jvmargs="--add-modules jdk.incubator.vector"
+ */
+class SensorKernelBenchmark
+{
+	private static final int DEFAULTVEHICLES = 5000;
+	private static final int DEFAULTWARMUPROUNDS = 5;
+	private static final int DEFAULTROUNDS = 10;
+	private static final int LIGHTS = 50;
+
+	private final SimulationConfig config;
+	private final SimulationConfig kernelConfig;
+	private final List<PerceptibleItem> lstPerceptible;
+	private final PerceptibleGrid grdPerceptible;
+
+	/* The location, direction and heading of every sensor of every vehicle */
+	private final double[] sensorX;
+	private final double[] sensorY;
+	private final double[] sensorDirections;
+	private final double[] headingX;
+	private final double[] headingY;
+	/* Every sensor, working on one item at a time and with a sensor kernel */
+	private final Sensor[] sensors;
+	private final Sensor[] kernelSensors;
+
+	private final SensorKernel scalarKernel;
+	/* Where the kernels put the pulses of every item */
+	private final int[] pulses;
+
+	/**
+	 * Constructor
+	 *
+	 * @param vehicleCount the number of vehicles on the dark plain
+	 */
+	SensorKernelBenchmark(int vehicleCount)
+	{
+		BatchSettings settings = new BatchSettings();
+		settings.setPerceptibleVehicles(true);
+		config = new SimulationConfig(settings);
+		kernelConfig = config.withVectorSensors(true);
+		int xMax = config.getDarkPlainWidth();
+		int yMax = config.getDarkPlainHeight();
+
+		/* The same scenario every run */
+		Random random = new Random(1);
+		VehicleStateStore store = new VehicleStateStore();
+		List<Vehicle> lstVehicle = new ArrayList<Vehicle>();
+		lstPerceptible = new ArrayList<PerceptibleItem>();
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			Vehicle aVehicle = Vehicle.createCrossedExcitatoryVehicle(config, store,
+					new Point2D.Double(random.nextInt(xMax), random.nextInt(yMax)),
+					Math.toRadians(random.nextDouble() * 360));
+			lstVehicle.add(aVehicle);
+			lstPerceptible.add(aVehicle);
+		}
+		for (int i = 0; i < LIGHTS; i++)
+		{
+			lstPerceptible.add(new LightSource(config,
+					new Point2D.Double(random.nextInt(xMax), random.nextInt(yMax))));
+		}
+		grdPerceptible = new PerceptibleGrid(xMax, yMax);
+		grdPerceptible.rebuild(lstPerceptible);
+
+		/* Place the two sensors of every vehicle */
+		sensorX = new double[vehicleCount * 2];
+		sensorY = new double[vehicleCount * 2];
+		sensorDirections = new double[vehicleCount * 2];
+		headingX = new double[vehicleCount * 2];
+		headingY = new double[vehicleCount * 2];
+		sensors = new Sensor[vehicleCount * 2];
+		kernelSensors = new Sensor[vehicleCount * 2];
+		Point2D location = new Point2D.Double();
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			location.setLocation(aVehicle.getX(), aVehicle.getY());
+			Point2D[] sensorLocations = {
+				Vehicle.getRightSensorLocation(config.getSensorGap(), location, aVehicle.getDirection()),
+				Vehicle.getLeftSensorLocation(config.getSensorGap(), location, aVehicle.getDirection())};
+			sensorDirections[2 * i] = Vehicle.getRightSensorDirection(aVehicle.getDirection(),
+					config.getSensorSplayAngle());
+			sensorDirections[(2 * i) + 1] = Vehicle.getLeftSensorDirection(aVehicle.getDirection(),
+					config.getSensorSplayAngle());
+			for (int j = 2 * i; j < (2 * i) + 2; j++)
+			{
+				sensorX[j] = sensorLocations[j - (2 * i)].getX();
+				sensorY[j] = sensorLocations[j - (2 * i)].getY();
+				headingX[j] = Math.cos(sensorDirections[j]);
+				headingY[j] = -Math.sin(sensorDirections[j]);
+				sensors[j] = new Sensor(config, aVehicle, config.getSensorRangeAngle());
+				kernelSensors[j] = new Sensor(kernelConfig, aVehicle, config.getSensorRangeAngle());
+			}
+		}
+
+		scalarKernel = new ScalarSensorKernel(config.getLightIntensity(), xMax, yMax);
+		pulses = new int[lstPerceptible.size()];
+	}
+
+	/**
+	 * Total the pulses of every sensor from the grid
+	 *
+	 * @param snsrs the sensors
+	 * @return the total pulses
+	 */
+	long totalPulses(Sensor[] snsrs)
+	{
+		long total = 0;
+		for (int i = 0; i < snsrs.length; i++)
+		{
+			total += snsrs[i].determineTotalPulses(sensorX[i], sensorY[i], sensorDirections[i], grdPerceptible);
+		}
+		return total;
+	}
+
+	/**
+	 * Sweep a kernel over every item for every sensor. Each sensor is given the cosines of a cone of
+	 * the configured range angle, as an ordinary cone would have.
+	 *
+	 * @param kernel the kernel
+	 * @return the total pulses of the items the kernel resolved, less the number it left unresolved
+	 */
+	long sweep(SensorKernel kernel)
+	{
+		double halfAngle = config.getSensorRangeAngle() / 2;
+		double coneCosine = Math.cos(halfAngle) - 1e-9;
+		double acceptCosine = Math.cos(halfAngle) + 1e-9;
+		int count = lstPerceptible.size();
+		long total = 0;
+		for (int i = 0; i < sensorX.length; i++)
+		{
+			kernel.determinePulses(sensorX[i], sensorY[i], headingX[i], headingY[i], coneCosine, acceptCosine,
+					grdPerceptible.getItemXs(), grdPerceptible.getItemYs(), grdPerceptible.getItemIntensities(),
+					0, count, pulses);
+			for (int j = 0; j < count; j++)
+			{
+				total += pulses[j];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Time a number of rounds of totalling the pulses with some sensors
+	 *
+	 * @param snsrs the sensors
+	 * @param warmupRounds the number of untimed rounds to run first
+	 * @param rounds the number of timed rounds
+	 * @param name the name to report the timing under
+	 * @return the total pulses of the last round
+	 */
+	long time(Sensor[] snsrs, int warmupRounds, int rounds, String name)
+	{
+		long total = 0;
+		for (int i = 0; i < warmupRounds; i++)
+		{
+			total = totalPulses(snsrs);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+		{
+			total = totalPulses(snsrs);
+		}
+		double msPerRound = (System.nanoTime() - start) / 1e6 / rounds;
+		System.out.println(name + ": " + msPerRound + " ms/round, total pulses " + total);
+		return total;
+	}
+
+	/**
+	 * Time a number of rounds of sweeping a kernel
+	 *
+	 * @param kernel the kernel
+	 * @param warmupRounds the number of untimed rounds to run first
+	 * @param rounds the number of timed rounds
+	 * @param name the name to report the timing under
+	 * @return the result of the sweep of the last round
+	 */
+	long time(SensorKernel kernel, int warmupRounds, int rounds, String name)
+	{
+		long total = 0;
+		for (int i = 0; i < warmupRounds; i++)
+		{
+			total = sweep(kernel);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+		{
+			total = sweep(kernel);
+		}
+		double msPerRound = (System.nanoTime() - start) / 1e6 / rounds;
+		System.out.println(name + ": " + msPerRound + " ms/round, sweep total " + total);
+		return total;
+	}
+
+	/**
+	 * Parse an optional numeric argument
+	 *
+	 * @param args command line arguments
+	 * @param index the index of the argument
+	 * @param defaultValue the value if the argument isn't there
+	 * @return the value of the argument
+	 */
+	private static int getArgument(String[] args, int index, int defaultValue)
+	{
+		return (args.length > index) ? Integer.parseInt(args[index]) : defaultValue;
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the number of vehicles, warm up rounds and timed rounds, all optional
+	 */
+	public static void main(String[] args)
+	{
+		int vehicleCount = getArgument(args, 0, DEFAULTVEHICLES);
+		int warmupRounds = getArgument(args, 1, DEFAULTWARMUPROUNDS);
+		int rounds = getArgument(args, 2, DEFAULTROUNDS);
+
+		SensorKernelBenchmark benchmark = new SensorKernelBenchmark(vehicleCount);
+		SensorKernel kernel = benchmark.kernelConfig.getSensorKernel();
+		System.out.println(vehicleCount + " vehicles, " + benchmark.lstPerceptible.size()
+				+ " perceptible items, kernel " + kernel);
+		long scalarTotal = benchmark.time(benchmark.sensors, warmupRounds, rounds, "Sensor, one item at a time");
+		long kernelTotal = benchmark.time(benchmark.kernelSensors, warmupRounds, rounds,
+				"Sensor, " + kernel + " kernel");
+		long scalarSweep = benchmark.time(benchmark.scalarKernel, warmupRounds, rounds, "Scalar kernel sweep");
+		long kernelSweep = benchmark.time(kernel, warmupRounds, rounds, kernel + " kernel sweep");
+		if ((scalarTotal != kernelTotal) || (scalarSweep != kernelSweep))
+		{
+			System.out.println("Mismatch! The sensors or the kernels disagree on the pulses.");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class holds a populated dark plain for the JMH benchmarks, set up from the benchmark
+ * parameters. The vehicles are split as evenly as possible between the six vehicle types. Besides
+ * the engine itself, it holds a grid of the perceptible items and a sensor for each side of every
+ * vehicle, so the sensors can be timed on their own.
+ *
+ * Note that JMH requires this class and its parameters to be public.
+ */
+@State(Scope.Thread)
+public class SimulationState
+{
+	/* The number of vehicle types the vehicles are split between */
+	private static final int VEHICLETYPES = 6;
+	/* Every trial starts from the same scenario, so trials and runs can be compared */
+	private static final long SEED = 20100101L;
+
+	@Param({"100", "1000", "5000"})
+	public int vehicleCount;
+
+	@Param({"5", "50"})
+	public int lightCount;
+
+	@Param({"true", "false"})
+	public boolean perceptibleVehicles;
+
+	@Param({"true", "false"})
+	public boolean wrappingPlain;
+
+	SimulationEngine engine;
+	List<PerceptibleItem> lstPerceptible;
+	PerceptibleGrid grdPerceptible;
+
+	/* The location, direction and sensor of both sensors of every vehicle */
+	double[] sensorX;
+	double[] sensorY;
+	Point2D[] sensorLocations;
+	double[] sensorDirections;
+	Sensor[] sensors;
+
+	/* The next sensor, and the next pairing of a sensor and an item, to time */
+	private int nextSensor;
+	private int nextPairing;
+
+	/**
+	 * Populate the dark plain
+	 */
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		BatchSettings settings = new BatchSettings();
+		settings.setLightSourceCount(lightCount);
+		settings.setUncrossedExcitatoryCount(getTypeCount(0));
+		settings.setCrossedExcitatoryCount(getTypeCount(1));
+		settings.setUncrossedInhibitoryCount(getTypeCount(2));
+		settings.setCrossedInhibitoryCount(getTypeCount(3));
+		settings.setUncrossedThresholdCount(getTypeCount(4));
+		settings.setCrossedThresholdCount(getTypeCount(5));
+		settings.setPerceptibleVehicles(perceptibleVehicles);
+		settings.setWrappingPlain(wrappingPlain);
+		settings.setSeed(SEED);
+		SimulationConfig config = new SimulationConfig(settings);
+
+		engine = new SimulationEngine(config);
+		engine.updateSettings(config);
+
+		/* The items the sensors perceive, as the engine gathers them */
+		lstPerceptible = new ArrayList<PerceptibleItem>();
+		if (perceptibleVehicles)
+		{
+			lstPerceptible.addAll(engine.getVehicles());
+		}
+		lstPerceptible.addAll(engine.getLights());
+		grdPerceptible = new PerceptibleGrid(config.getDarkPlainWidth(), config.getDarkPlainHeight());
+		grdPerceptible.rebuild(lstPerceptible);
+
+		/* Place the two sensors of every vehicle */
+		List<Vehicle> lstVehicle = engine.getVehicles();
+		int sensorCount = lstVehicle.size() * 2;
+		sensorX = new double[sensorCount];
+		sensorY = new double[sensorCount];
+		sensorLocations = new Point2D[sensorCount];
+		sensorDirections = new double[sensorCount];
+		sensors = new Sensor[sensorCount];
+		for (int i = 0; i < lstVehicle.size(); i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			Point2D location = new Point2D.Double(aVehicle.getX(), aVehicle.getY());
+			sensorLocations[2 * i] = Vehicle.getRightSensorLocation(config.getSensorGap(), location,
+					aVehicle.getDirection());
+			sensorLocations[(2 * i) + 1] = Vehicle.getLeftSensorLocation(config.getSensorGap(), location,
+					aVehicle.getDirection());
+			sensorDirections[2 * i] = Vehicle.getRightSensorDirection(aVehicle.getDirection(),
+					config.getSensorSplayAngle());
+			sensorDirections[(2 * i) + 1] = Vehicle.getLeftSensorDirection(aVehicle.getDirection(),
+					config.getSensorSplayAngle());
+			for (int j = 2 * i; j < (2 * i) + 2; j++)
+			{
+				sensorX[j] = sensorLocations[j].getX();
+				sensorY[j] = sensorLocations[j].getY();
+				sensors[j] = new Sensor(config, aVehicle, config.getSensorRangeAngle());
+			}
+		}
+	}
+
+	/**
+	 * Release the threads of the engine, if it has any
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		engine.dispose();
+	}
+
+	/**
+	 * Get the number of vehicles of one type
+	 *
+	 * @param type the index of the type
+	 * @return the number of vehicles of the type
+	 */
+	private int getTypeCount(int type)
+	{
+		return (vehicleCount / VEHICLETYPES) + ((type < (vehicleCount % VEHICLETYPES)) ? 1 : 0);
+	}
+
+	/**
+	 * Get the next sensor to time, going round all the sensors in turn
+	 *
+	 * @return the index of the sensor
+	 */
+	int nextSensor()
+	{
+		int sensor = nextSensor;
+		nextSensor = (nextSensor + 1) % sensors.length;
+		return sensor;
+	}
+
+	/**
+	 * Get the next pairing of a sensor and a perceptible item to time, going round every pairing in
+	 * turn. The pairing is numbered so that the sensor is the pairing divided by the number of items,
+	 * and the item is the remainder.
+	 *
+	 * @return the number of the pairing
+	 */
+	int nextPairing()
+	{
+		int pairing = nextPairing;
+		nextPairing = (nextPairing + 1) % (sensors.length * lstPerceptible.size());
+		return pairing;
+	}
+}
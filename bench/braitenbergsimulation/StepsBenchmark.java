@@ -0,0 +1,247 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.geom.Point2D;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH benchmarks of translating the pulses of both sensors to wheel steps. The way it used to be
+ * done, each vehicle type overrode a method that set the steps on a "gypsy wagon" Point2D, which
+ * were then read back off it. Now each type has a table of the steps for every number of pulses,
+ * and the vehicle looks the steps up in it. Each call translates the pulses of a vehicle of every
+ * type, taking the pulses in turn from a set drawn up front so the average covers all of them.
+ *
+ * Note that JMH requires this class and its state to be public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StepsBenchmark
+{
+	/* The number of pairs of pulses to take in turn */
+	private static final int PULSEPAIRS = 4096;
+	/* The pulses are drawn the same way every trial */
+	private static final long SEED = 20100101L;
+
+	/**
+	 * This class holds the pulses to translate, a gypsy wagon translator for each vehicle type,
+	 * and the step table of each type.
+	 */
+	@State(Scope.Thread)
+	public static class PulsesState
+	{
+		int[] rightPulses;
+		int[] leftPulses;
+		GypsyWagonTranslator[] translators;
+		Point2D gypsyWagon;
+		int[][] steps;
+		boolean[] crossed;
+		private int nextPair;
+
+		/**
+		 * Draw the pulses and set up the translators and step tables
+		 */
+		@Setup(Level.Trial)
+		public void setUp()
+		{
+			SplittableRandom random = new SplittableRandom(SEED);
+			rightPulses = new int[PULSEPAIRS];
+			leftPulses = new int[PULSEPAIRS];
+			for (int i = 0; i < PULSEPAIRS; i++)
+			{
+				rightPulses[i] = random.nextInt(1, Sensor.PULSEMAX + 1);
+				leftPulses[i] = random.nextInt(1, Sensor.PULSEMAX + 1);
+			}
+			translators = GypsyWagonTranslator.forEveryType();
+			gypsyWagon = new Point2D.Double();
+			steps = new int[][] {
+				Vehicle.UncrossedExcitatoryVehicle.STEPS,
+				Vehicle.CrossedExcitatoryVehicle.STEPS,
+				Vehicle.UncrossedInhibitoryVehicle.STEPS,
+				Vehicle.CrossedInhibitoryVehicle.STEPS,
+				Vehicle.UncrossedThresholdVehicle.STEPS,
+				Vehicle.CrossedThresholdVehicle.STEPS};
+			crossed = new boolean[] {false, true, false, true, false, true};
+		}
+
+		/**
+		 * Get the next pair of pulses to translate, in turn
+		 *
+		 * @return the index of the pair
+		 */
+		int nextPair()
+		{
+			int pair = nextPair;
+			nextPair = (nextPair + 1) % PULSEPAIRS;
+			return pair;
+		}
+	}
+
+	/**
+	 * Translate the pulses to steps for a vehicle of every type with the gypsy wagon
+	 *
+	 * @param state the pulses and translators
+	 * @return the sum of the steps
+	 */
+	@Benchmark
+	public double gypsyWagon(PulsesState state)
+	{
+		int pair = state.nextPair();
+		double total = 0;
+		for (GypsyWagonTranslator translator: state.translators)
+		{
+			translator.translatePulsesToSteps(state.rightPulses[pair], state.leftPulses[pair], state.gypsyWagon);
+			total += state.gypsyWagon.getX() + state.gypsyWagon.getY();
+		}
+		return total;
+	}
+
+	/**
+	 * Translate the pulses to steps for a vehicle of every type with the step tables
+	 *
+	 * @param state the pulses and step tables
+	 * @return the sum of the steps
+	 */
+	@Benchmark
+	public double stepTables(PulsesState state)
+	{
+		int pair = state.nextPair();
+		double total = 0;
+		for (int i = 0; i < state.steps.length; i++)
+		{
+			int[] stps = state.steps[i];
+			double rightSteps;
+			double leftSteps;
+			if (state.crossed[i])
+			{
+				rightSteps = stps[state.rightPulses[pair]];
+				leftSteps = stps[state.leftPulses[pair]];
+			}
+			else
+			{
+				rightSteps = stps[state.leftPulses[pair]];
+				leftSteps = stps[state.rightPulses[pair]];
+			}
+			total += rightSteps + leftSteps;
+		}
+		return total;
+	}
+
+	/**
+	 * The way the steps used to be translated, with a method overridden by each vehicle type setting
+	 * the right and left wheel steps on a gypsy wagon.
+	 */
+	abstract static class GypsyWagonTranslator
+	{
+		/**
+		 * Translate the light strength to wheel steps.
+		 *
+		 * @param rightPulses the right light strength
+		 * @param leftPulses the left light strength
+		 * @param gypsyWagon a "gypsy wagon" set to the right and left wheel steps
+		 */
+		abstract void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon);
+
+		/**
+		 * Make a translator for each vehicle type, in the order of the step tables
+		 *
+		 * @return the translators
+		 */
+		static GypsyWagonTranslator[] forEveryType()
+		{
+			return new GypsyWagonTranslator[] {
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						gypsyWagon.setLocation(leftPulses, rightPulses);
+					}
+				},
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						gypsyWagon.setLocation(rightPulses, leftPulses);
+					}
+				},
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						gypsyWagon.setLocation(Sensor.PULSEMAX - leftPulses, Sensor.PULSEMAX - rightPulses);
+					}
+				},
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						int rightSteps = Math.max(Sensor.PULSEMAX - rightPulses, 1);
+						int leftSteps = Math.max(Sensor.PULSEMAX - leftPulses, 1);
+						gypsyWagon.setLocation(rightSteps, leftSteps);
+					}
+				},
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						gypsyWagon.setLocation(threshold(leftPulses), threshold(rightPulses));
+					}
+				},
+				new GypsyWagonTranslator()
+				{
+					@Override
+					void translatePulsesToSteps(int rightPulses, int leftPulses, Point2D gypsyWagon)
+					{
+						gypsyWagon.setLocation(threshold(rightPulses), threshold(leftPulses));
+					}
+				}};
+		}
+
+		/**
+		 * Translate light strength to steps that rise to a threshold and then fall
+		 *
+		 * @param pulses the light strength
+		 * @return the steps
+		 */
+		static int threshold(int pulses)
+		{
+			int steps = pulses;
+			if (steps > (Sensor.PULSEMAX / 2))
+			{
+				steps = Sensor.PULSEMAX - steps;
+			}
+			return Math.max(steps, 1);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * JMH benchmarks of the simulation as a whole. A tick is what DarkPlainPanel does each time its
+ * timer fires, less the painting: every vehicle moves, then every vehicle updates its location and
+ * direction. Moving the vehicles times just the first half, against a grid that isn't rebuilt, so
+ * the vehicles move from the same places every time.
+ *
+ * Note that JMH requires this class to be public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TickBenchmark
+{
+	/**
+	 * Run one complete tick of the simulation
+	 *
+	 * @param state the populated dark plain
+	 * @return the number of ticks so far
+	 */
+	@Benchmark
+	public long tick(SimulationState state)
+	{
+		state.engine.tick();
+		return state.engine.getTickCount();
+	}
+
+	/**
+	 * Calculate the new location and direction of every vehicle, without updating them
+	 *
+	 * @param state the populated dark plain
+	 */
+	@Benchmark
+	public void vehicleMove(SimulationState state)
+	{
+		for (Vehicle aVehicle: state.engine.getVehicles())
+		{
+			aVehicle.move(state.grdPerceptible, false);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+
+import java.util.Random;
+
+/**
+ * This class compares tables of sines of various sizes with java.lang.Math. For each size it reports
+ * the largest error of the sine and cosine over a spread of angles a vehicle might face, against the
+ * bound TableTrigonometry claims, and how long a sine and a cosine take. It then times whole ticks of
+ * a simulation with vehicles moved using java.lang.Math and using a table. To run it with 1000
+ * vehicles:
+ *
+ *   ant bench-single -Dbench.class=braitenbergsimulation.TrigBenchmark -Dbench.single.args=1000
+ */
+class TrigBenchmark
+{
+	private static final int DEFAULTVEHICLES = 1000;
+	private static final int[] TABLESIZES = {256, 1024, 4096, 65536};
+	/* The table size used for timing whole ticks */
+	private static final int TICKTABLESIZE = 4096;
+
+	private static final int ERRORSAMPLES = 1000000;
+	private static final int ANGLES = 4096;
+	private static final int ROUNDS = 2000;
+	private static final int TICKS = 200;
+
+	/* Angles from two turns below 0 to two turns above 2 PI */
+	private final double[] angles;
+
+	/**
+	 * Constructor
+	 */
+	TrigBenchmark()
+	{
+		Random random = new Random(1);
+		angles = new double[ANGLES];
+		for (int i = 0; i < ANGLES; i++)
+		{
+			angles[i] = (random.nextDouble() * 6 * Vehicle.TWOPI) - (2 * Vehicle.TWOPI);
+		}
+	}
+
+	/**
+	 * Determine the largest error of the sine and cosine of a table
+	 *
+	 * @param table the table
+	 * @return the largest error
+	 */
+	static double measureError(TableTrigonometry table)
+	{
+		double maxError = 0;
+		for (int i = 0; i < ERRORSAMPLES; i++)
+		{
+			double angle = ((6 * Vehicle.TWOPI * i) / ERRORSAMPLES) - (2 * Vehicle.TWOPI);
+			maxError = Math.max(maxError, Math.abs(table.sin(angle) - Math.sin(angle)));
+			maxError = Math.max(maxError, Math.abs(table.cos(angle) - Math.cos(angle)));
+		}
+		return maxError;
+	}
+
+	/**
+	 * Sum the sines and cosines of all the angles
+	 *
+	 * @param trig the sine and cosine to use
+	 * @return the sum
+	 */
+	double sumSinCos(Trigonometry trig)
+	{
+		double sum = 0;
+		for (double angle: angles)
+		{
+			sum += trig.sin(angle) + trig.cos(angle);
+		}
+		return sum;
+	}
+
+	/**
+	 * Time the sines and cosines of the angles
+	 *
+	 * @param name the name to report the timing under
+	 * @param trig the sine and cosine to use
+	 */
+	void timeSinCos(String name, Trigonometry trig)
+	{
+		double sum = 0;
+		for (int i = 0; i < ROUNDS; i++)
+		{
+			sum += sumSinCos(trig);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++)
+		{
+			sum += sumSinCos(trig);
+		}
+		double nsPerPair = (System.nanoTime() - start) / ((double) ROUNDS * ANGLES);
+		System.out.println(name + ": " + nsPerPair + " ns per sine and cosine (" + sum + ")");
+	}
+
+	/**
+	 * Time whole ticks of a simulation
+	 *
+	 * @param name the name to report the timing under
+	 * @param config the snapshot of the settings
+	 */
+	static void timeTicks(String name, SimulationConfig config)
+	{
+		SimulationEngine engine = new SimulationEngine(config);
+		engine.updateSettings(config);
+		for (int i = 0; i < TICKS; i++)
+		{
+			engine.tick();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < TICKS; i++)
+		{
+			engine.tick();
+		}
+		double msPerTick = (System.nanoTime() - start) / 1e6 / TICKS;
+		System.out.println(name + ": " + msPerTick + " ms per tick");
+		engine.dispose();
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the number of vehicles, optional
+	 */
+	public static void main(String[] args)
+	{
+		int vehicleCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULTVEHICLES;
+
+		TrigBenchmark benchmark = new TrigBenchmark();
+		benchmark.timeSinCos("java.lang.Math", Trigonometry.MATH);
+		for (int size: TABLESIZES)
+		{
+			TableTrigonometry table = new TableTrigonometry(size);
+			System.out.println("Table of " + size + ": largest error " + measureError(table) + ", bound "
+					+ table.getErrorBound());
+			benchmark.timeSinCos("Table of " + size, table);
+		}
+
+		/* Vehicles that don't perceive each other, so moving them is a larger part of a tick */
+		BatchSettings settings = new BatchSettings();
+		settings.setLightSourceCount(5);
+		settings.setCrossedExcitatoryCount(vehicleCount);
+		/* Both timings start from the same scenario */
+		settings.setSeed(20100101L);
+		SimulationConfig config = new SimulationConfig(settings);
+		timeTicks(vehicleCount + " vehicles, java.lang.Math", config);
+		timeTicks(vehicleCount + " vehicles, table of " + TICKTABLESIZE, config.withTrigTableSize(TICKTABLESIZE));
+	}
+}
@@ -0,0 +1,382 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class times the wrapped-around perception in Sensor against the way it used to be done, where
+ * a new Point2D and a new LightSource were created for each of the eight shifted frames, and the light
+ * intensity and the dark plain dimensions were read from the settings for every item. The old way
+ * reads a ConfigurationPanel, as the running application used to, so those reads go through the Swing
+ * spinner models. The current way reads a snapshot of it.
+ *
+ * Both ways examine every perceptible item for both sensors of every vehicle, as a sensor did before
+ * the items were indexed in a grid, and must arrive at the same total number of pulses. To run it
+ * with 1000 vehicles, 5 rounds to warm up and 10 timed rounds:
+ *
+ *   java -Djava.awt.headless=true -cp build/classes:build/bench braitenbergsimulation.WrappedPulsesBenchmark 1000 5 10
+ */
+class WrappedPulsesBenchmark
+{
+	private static final int DEFAULTVEHICLES = 1000;
+	private static final int DEFAULTWARMUPROUNDS = 5;
+	private static final int DEFAULTROUNDS = 10;
+	private static final int LIGHTS = 5;
+
+	private final ConfigurationPanel pnlConfig;
+	private final SimulationConfig config;
+	private final List<Vehicle> lstVehicle;
+	private final List<PerceptibleItem> lstPerceptible;
+
+	/* The location, direction and sensor of every sensor of every vehicle */
+	private final Point2D[] sensorLocations;
+	private final double[] sensorDirections;
+	private final Sensor[] sensors;
+	private final AllocatingSensor[] allocatingSensors;
+
+	/**
+	 * Constructor
+	 *
+	 * @param vehicleCount the number of vehicles on the dark plain
+	 */
+	WrappedPulsesBenchmark(int vehicleCount)
+	{
+		pnlConfig = new ConfigurationPanel();
+		pnlConfig.setPerceptibleVehicles(true);
+		config = new SimulationConfig(pnlConfig);
+		int xMax = pnlConfig.getDarkPlainWidth();
+		int yMax = pnlConfig.getDarkPlainHeight();
+
+		/* The same scenario every run */
+		Random random = new Random(1);
+		VehicleStateStore store = new VehicleStateStore();
+		lstVehicle = new ArrayList<Vehicle>();
+		lstPerceptible = new ArrayList<PerceptibleItem>();
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			Vehicle aVehicle = Vehicle.createCrossedExcitatoryVehicle(config, store,
+					new Point2D.Double(random.nextInt(xMax), random.nextInt(yMax)),
+					Math.toRadians(random.nextDouble() * 360));
+			lstVehicle.add(aVehicle);
+			lstPerceptible.add(aVehicle);
+		}
+		for (int i = 0; i < LIGHTS; i++)
+		{
+			lstPerceptible.add(new LightSource(config,
+					new Point2D.Double(random.nextInt(xMax), random.nextInt(yMax))));
+		}
+
+		/* Place the two sensors of every vehicle */
+		sensorLocations = new Point2D[vehicleCount * 2];
+		sensorDirections = new double[vehicleCount * 2];
+		sensors = new Sensor[vehicleCount * 2];
+		allocatingSensors = new AllocatingSensor[vehicleCount * 2];
+		Point2D location = new Point2D.Double();
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			location.setLocation(aVehicle.getX(), aVehicle.getY());
+			sensorLocations[2 * i] = Vehicle.getRightSensorLocation(pnlConfig.getSensorGap(), location,
+					aVehicle.getDirection());
+			sensorLocations[(2 * i) + 1] = Vehicle.getLeftSensorLocation(pnlConfig.getSensorGap(), location,
+					aVehicle.getDirection());
+			sensorDirections[2 * i] = Vehicle.getRightSensorDirection(aVehicle.getDirection(),
+					pnlConfig.getSensorSplayAngle());
+			sensorDirections[(2 * i) + 1] = Vehicle.getLeftSensorDirection(aVehicle.getDirection(),
+					pnlConfig.getSensorSplayAngle());
+			for (int j = 2 * i; j < (2 * i) + 2; j++)
+			{
+				sensors[j] = new Sensor(config, aVehicle, pnlConfig.getSensorRangeAngle());
+				allocatingSensors[j] = new AllocatingSensor(pnlConfig, pnlConfig.getSensorRangeAngle());
+			}
+		}
+	}
+
+	/**
+	 * Total the pulses of every sensor from every item, the way Sensor does it now
+	 *
+	 * @return the total pulses
+	 */
+	long totalPulses()
+	{
+		long total = 0;
+		for (int i = 0; i < sensors.length; i++)
+		{
+			Vehicle parent = lstVehicle.get(i / 2);
+			for (PerceptibleItem curPerceptible: lstPerceptible)
+			{
+				if (curPerceptible != parent)
+				{
+					total += sensors[i].determinePulsesWrappedAround(sensorLocations[i], sensorDirections[i],
+							curPerceptible);
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Total the pulses of every sensor from every item, the way it used to be done
+	 *
+	 * @return the total pulses
+	 */
+	long totalPulsesAllocating()
+	{
+		long total = 0;
+		for (int i = 0; i < allocatingSensors.length; i++)
+		{
+			Vehicle parent = lstVehicle.get(i / 2);
+			for (PerceptibleItem curPerceptible: lstPerceptible)
+			{
+				if (curPerceptible != parent)
+				{
+					total += allocatingSensors[i].determinePulsesWrappedAround(sensorLocations[i],
+							sensorDirections[i], curPerceptible);
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Time a number of rounds of one way of totalling the pulses
+	 *
+	 * @param allocating true to time the way it used to be done
+	 * @param warmupRounds the number of untimed rounds to run first
+	 * @param rounds the number of timed rounds
+	 * @param name the name to report the timing under
+	 * @return the total pulses of the last round
+	 */
+	long time(boolean allocating, int warmupRounds, int rounds, String name)
+	{
+		long total = 0;
+		for (int i = 0; i < warmupRounds; i++)
+		{
+			total = allocating ? totalPulsesAllocating() : totalPulses();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++)
+		{
+			total = allocating ? totalPulsesAllocating() : totalPulses();
+		}
+		double msPerRound = (System.nanoTime() - start) / 1e6 / rounds;
+		System.out.println(name + ": " + msPerRound + " ms/round, total pulses " + total);
+		return total;
+	}
+
+	/**
+	 * The wrapped-around perception of Sensor as it used to be, kept here for comparison.
+	 */
+	private static class AllocatingSensor
+	{
+		private final double multiplier;
+		private final SimulationSettings settings;
+		private final double halfAngle;
+
+		/**
+		 * Constructor
+		 *
+		 * @param sttngs the configured settings
+		 * @param ang the range angle of the sensor, in radians
+		 */
+		AllocatingSensor(SimulationSettings sttngs, double ang)
+		{
+			settings = sttngs;
+			halfAngle = ang / 2;
+			multiplier = sttngs.getLightIntensity() / 3;
+		}
+
+		/**
+		 * Determine the strength of a light source, wrapping it around into the eight surrounding
+		 * frames if the sensor doesn't perceive it in the current frame
+		 *
+		 * @param sensorLocation the current location of this sensor
+		 * @param sensorDirection the current direction of this sensor
+		 * @param curPerceptible the current perceptible item
+		 * @return the number of pulses generated by the receptor
+		 */
+		int determinePulsesWrappedAround(Point2D sensorLocation, double sensorDirection,
+				PerceptibleItem curPerceptible)
+		{
+			int pulses = determinePulses(sensorLocation, sensorDirection, curPerceptible);
+			if (pulses <= 0)
+			{
+				int maxPulse = 0;
+				Point2D wrappedLocation;
+				AllocatedLight wrappedLightSource;
+				int xMax = settings.getDarkPlainWidth();
+				int yMax = settings.getDarkPlainHeight();
+				for (int x = -xMax; x < (2 * xMax); x = x + xMax)
+				{
+					for (int y = -yMax; y < (2 * yMax); y = y + yMax)
+					{
+						if (!((x == 0) && (y == 0)))
+						{
+							wrappedLocation = new Point2D.Double((curPerceptible.getX() + x),
+									(curPerceptible.getY() + y));
+							wrappedLightSource = new AllocatedLight(settings, wrappedLocation);
+							pulses = determinePulses(sensorLocation, sensorDirection, wrappedLightSource);
+							if (pulses > maxPulse)
+							{
+								maxPulse = pulses;
+							}
+						}
+					}
+				}
+				pulses = maxPulse;
+			}
+
+			return pulses;
+		}
+
+		/**
+		 * Determine the strength of a light source in the current frame
+		 *
+		 * @param sensorLocation the current location of this sensor
+		 * @param sensorDirection the current direction of this sensor
+		 * @param curPerceptible the current perceptible item
+		 * @return the number of pulses generated by the receptor
+		 */
+		private int determinePulses(Point2D sensorLocation, double sensorDirection,
+				PerceptibleItem curPerceptible)
+		{
+			int pulses = 0;
+
+			double angleToLight = Math.PI - Math.atan2(sensorLocation.getY() - curPerceptible.getY(),
+					sensorLocation.getX() - curPerceptible.getX());
+			if (angleToLight < 0)
+			{
+				angleToLight = angleToLight + Vehicle.TWOPI;
+			}
+			double angleUpperRange = sensorDirection + halfAngle;
+			if (angleUpperRange > Vehicle.TWOPI)
+			{
+				angleUpperRange = angleUpperRange - Vehicle.TWOPI;
+			}
+			double angleLowerRange = sensorDirection - halfAngle;
+			if (angleLowerRange < 0)
+			{
+				angleLowerRange = angleLowerRange + Vehicle.TWOPI;
+			}
+
+			boolean inRange;
+			if (angleUpperRange > angleLowerRange)
+			{
+				inRange = (angleToLight >= angleLowerRange) && (angleToLight <= angleUpperRange);
+			}
+			else
+			{
+				inRange = (angleToLight >= angleLowerRange) || (angleToLight <= angleUpperRange);
+			}
+
+			if (inRange)
+			{
+				double distance = sensorLocation.distance(new Point2D.Double(curPerceptible.getX(),
+						curPerceptible.getY()));
+				if (distance < 1)
+				{
+					distance = 1;
+				}
+				double strength = curPerceptible.getIntensity() * (1 / distance);
+				pulses = (int) ((strength / settings.getLightIntensity()) * multiplier);
+			}
+
+			return pulses;
+		}
+	}
+
+	/**
+	 * A light source created the way LightSource used to be, reading its intensity from the settings
+	 */
+	private static class AllocatedLight implements PerceptibleItem
+	{
+		private final Point2D location;
+		private final int intensity;
+
+		/**
+		 * Constructor
+		 *
+		 * @param settings the configured settings
+		 * @param loc the location of the light source
+		 */
+		AllocatedLight(SimulationSettings settings, Point2D loc)
+		{
+			location = loc;
+			intensity = settings.getLightIntensity();
+		}
+
+		@Override
+		public double getX()
+		{
+			return location.getX();
+		}
+
+		@Override
+		public double getY()
+		{
+			return location.getY();
+		}
+
+		@Override
+		public int getIntensity()
+		{
+			return intensity;
+		}
+	}
+
+	/**
+	 * Parse an optional numeric argument
+	 *
+	 * @param args command line arguments
+	 * @param index the index of the argument
+	 * @param defaultValue the value if the argument isn't there
+	 * @return the value of the argument
+	 */
+	private static int getArgument(String[] args, int index, int defaultValue)
+	{
+		return (args.length > index) ? Integer.parseInt(args[index]) : defaultValue;
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the number of vehicles, warm up rounds and timed rounds, all optional
+	 */
+	public static void main(String[] args)
+	{
+		int vehicleCount = getArgument(args, 0, DEFAULTVEHICLES);
+		int warmupRounds = getArgument(args, 1, DEFAULTWARMUPROUNDS);
+		int rounds = getArgument(args, 2, DEFAULTROUNDS);
+
+		WrappedPulsesBenchmark benchmark = new WrappedPulsesBenchmark(vehicleCount);
+		System.out.println(vehicleCount + " vehicles, " + benchmark.lstPerceptible.size()
+				+ " perceptible items");
+		long previous = benchmark.time(true, warmupRounds, rounds, "Previous (allocating)");
+		long current = benchmark.time(false, warmupRounds, rounds, "Current (raw coordinates)");
+		if (previous != current)
+		{
+			System.out.println("Mismatch! The two ways disagree on the total pulses.");
+			System.exit(1);
+		}
+	}
+}
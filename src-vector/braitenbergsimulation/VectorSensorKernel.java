@@ -0,0 +1,136 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class is the sensor kernel that works on as many items at once as the processor has lanes
+ * for, using the incubating JDK Vector API. It needs JDK 16 or later, run with the
+ * jdk.incubator.vector module added. SimulationConfig loads it by name, and falls back to the scalar
+ * kernel if it can't be loaded.
+ *
+ * Each lane does exactly the arithmetic of the scalar kernel. Adding, subtracting, multiplying,
+ * dividing and taking square roots are all exactly rounded, lane by lane, so the pulses are exactly
+ * the same. The items left over at the end of a range are done one at a time by the scalar kernel.
+ */
+final class VectorSensorKernel extends ScalarSensorKernel
+{
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	/*
+	 * Where each thread puts the pulses of a vector of items before truncating them. Storing the
+	 * doubles and casting them one at a time is far quicker than converting them to a vector of
+	 * integers of another shape, which the incubating API mostly does without intrinsics.
+	 */
+	private static final ThreadLocal<double[]> VALUES = new ThreadLocal<double[]>()
+	{
+		@Override
+		protected double[] initialValue()
+		{
+			return new double[SPECIES.length()];
+		}
+	};
+
+	/**
+	 * Constructor
+	 *
+	 * @param lghtIntnsty the configured light intensity
+	 * @param xMx the width of the dark plain
+	 * @param yMx the height of the dark plain
+	 */
+	VectorSensorKernel(int lghtIntnsty, int xMx, int yMx)
+	{
+		super(lghtIntnsty, xMx, yMx);
+	}
+
+	/**
+	 * Determine the pulses a sensor gets from a range of items, a vector of items at a time
+	 */
+	@Override
+	public void determinePulses(double sensorX, double sensorY, double headingX, double headingY,
+			double coneCosine, double acceptCosine, double[] itemX, double[] itemY, double[] itemIntensity,
+			int start, int end, int[] pulses)
+	{
+		boolean isOrdinaryCone = coneCosine != Double.NEGATIVE_INFINITY;
+		int bound = start + SPECIES.loopBound(end - start);
+		double[] values = VALUES.get();
+		int i = start;
+		for (; i < bound; i += SPECIES.length())
+		{
+			DoubleVector deltaX = DoubleVector.fromArray(SPECIES, itemX, i).sub(sensorX);
+			DoubleVector deltaY = DoubleVector.fromArray(SPECIES, itemY, i).sub(sensorY);
+			DoubleVector intensity = DoubleVector.fromArray(SPECIES, itemIntensity, i);
+			DoubleVector distanceSquared = deltaX.mul(deltaX).add(deltaY.mul(deltaY));
+
+			/* Cull items too far away, working out the reach of each intensity as Sensor does */
+			DoubleVector reach = intensity.mul(multiplier).div(lightIntensity).mul(1.000001).add(1);
+			VectorMask<Double> inReach = distanceSquared.compare(VectorOperators.LE, reach.mul(reach));
+
+			/* Cull items outside the range, and accept those well inside it but not right on the sensor */
+			DoubleVector distance = distanceSquared.sqrt();
+			DoubleVector along = deltaX.mul(headingX).add(deltaY.mul(headingY));
+			VectorMask<Double> inCone = inReach.andNot(along.compare(VectorOperators.LT, distance.mul(coneCosine)));
+			VectorMask<Double> accepted = isOrdinaryCone
+					? inCone.and(along.compare(VectorOperators.GE, distance.mul(acceptCosine)))
+							.and(distanceSquared.compare(VectorOperators.GT, 0))
+					: SPECIES.maskAll(false);
+
+			/* The pulses of the accepted items, none for the rest */
+			DoubleVector strength = intensity.mul(DoubleVector.broadcast(SPECIES, 1).div(distance.max(1)));
+			DoubleVector value = strength.div(lightIntensity).mul(multiplier).blend(0, accepted.not());
+
+			/*
+			 * The items near the edges of the range are unresolved, as are those without pulses that
+			 * might have a shifted image within reach. Less than one pulse is no pulses once truncated.
+			 */
+			VectorMask<Double> mayHaveImages = DoubleVector.broadcast(SPECIES, xMax).sub(deltaX.abs())
+					.compare(VectorOperators.LE, imageReach)
+					.or(DoubleVector.broadcast(SPECIES, yMax).sub(deltaY.abs()).compare(VectorOperators.LE, imageReach));
+			VectorMask<Double> unresolved = inCone.andNot(accepted)
+					.or(value.compare(VectorOperators.LT, 1).and(mayHaveImages));
+			value = value.blend(UNRESOLVED, unresolved);
+
+			/* Truncate to whole pulses, as a cast does */
+			value.intoArray(values, 0);
+			for (int lane = 0; lane < values.length; lane++)
+			{
+				pulses[(i - start) + lane] = (int) values[lane];
+			}
+		}
+		for (; i < end; i++)
+		{
+			pulses[i - start] = determinePulses(sensorX, sensorY, headingX, headingY, coneCosine, acceptCosine,
+					itemX[i], itemY[i], itemIntensity[i]);
+		}
+	}
+
+	/**
+	 * Describe the kernel
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString()
+	{
+		return "vector, " + SPECIES.length() + " lanes";
+	}
+}
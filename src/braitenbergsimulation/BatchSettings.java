@@ -0,0 +1,618 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This class holds the simulation settings without any user interface, for running simulations
+ * in batches. The mutators and accessors behave exactly like those of the ConfigurationPanel, so a
+ * batch run configured the same way as the panel behaves the same way. In particular, angles are set
+ * in degrees and returned in radians, rounded down to whole degrees just as the spinners do.
+ *
+ * Unlike the panel, the dimensions of the dark plain aren't limited.
+ */
+class BatchSettings implements SimulationSettings
+{
+	private int lightSourceCount;
+	private int uncrossedExcitatoryCount;
+	private int crossedExcitatoryCount;
+	private int uncrossedInhibitoryCount;
+	private int crossedInhibitoryCount;
+	private int uncrossedThresholdCount;
+	private int crossedThresholdCount;
+
+	private boolean perceptibleVehicles;
+	private boolean displayIds;
+	private boolean displaySensors;
+	private boolean wrappingPlain;
+	/* The angles are kept in degrees, as the spinners keep them */
+	private double sensorRangeAngle;
+	private double sensorSplayAngle;
+	private int sensorGap;
+	private double angleDelta;
+	private int maxSpeed;
+	private double maxAngle;
+
+	private int darkPlainWidth;
+	private int darkPlainHeight;
+	private int lightIntensity;
+	private int timerPause;
+	private int moveThreads;
+	private int tiles;
+	private long seed;
+	private int spriteAngles;
+	private boolean backToBackTicks;
+
+	/**
+	 * Constructor. All the counts are 0 and all the other settings have their default values.
+	 */
+	BatchSettings()
+	{
+		clearConfiguration();
+	}
+
+	/* Mutators */
+
+	/**
+	 * Set all the counts to 0. Set the vehicle and miscellaneous settings to default values.
+	 */
+	void clearConfiguration()
+	{
+		lightSourceCount = 0;
+		uncrossedExcitatoryCount = 0;
+		crossedExcitatoryCount = 0;
+		uncrossedInhibitoryCount = 0;
+		crossedInhibitoryCount = 0;
+		uncrossedThresholdCount = 0;
+		crossedThresholdCount = 0;
+
+		perceptibleVehicles = false;
+		displayIds = false;
+		displaySensors = false;
+		wrappingPlain = true;
+		sensorRangeAngle = VehicleSettingsPanel.RANGEANGLEDEFAULT;
+		sensorSplayAngle = VehicleSettingsPanel.SPLAYANGLEDEFAULT;
+		sensorGap = VehicleSettingsPanel.GAPDEFAULT;
+		angleDelta = VehicleSettingsPanel.ANGLEDELTADEFAULT;
+		maxSpeed = VehicleSettingsPanel.MAXSPEEDDEFAULT;
+		maxAngle = VehicleSettingsPanel.MAXANGLEDEFAULT;
+
+		darkPlainWidth = MiscSettingsPanel.DEFAULTWIDTH;
+		darkPlainHeight = MiscSettingsPanel.DEFAULTHEIGHT;
+		lightIntensity = MiscSettingsPanel.DEFAULTINTENSITY;
+		timerPause = MiscSettingsPanel.DEFAULTSLEEP;
+		moveThreads = MiscSettingsPanel.DEFAULTTHREADS;
+		tiles = MiscSettingsPanel.DEFAULTTILES;
+		seed = MiscSettingsPanel.DEFAULTSEED;
+		spriteAngles = MiscSettingsPanel.DEFAULTSPRITEANGLES;
+		backToBackTicks = false;
+	}
+
+	/**
+	 * Set a setting by name, for configuring a batch run from the command line. The names are the
+	 * names of the mutators without the "set", for instance "crossedExcitatoryCount" or
+	 * "wrappingPlain".
+	 *
+	 * @param name the name of the setting
+	 * @param value the value of the setting
+	 * @throws IllegalArgumentException if there is no setting with the name, or the value is invalid
+	 */
+	void setValue(String name, String value)
+	{
+		if ("lightSourceCount".equals(name))
+		{
+			setLightSourceCount(Integer.parseInt(value));
+		}
+		else if ("uncrossedExcitatoryCount".equals(name))
+		{
+			setUncrossedExcitatoryCount(Integer.parseInt(value));
+		}
+		else if ("crossedExcitatoryCount".equals(name))
+		{
+			setCrossedExcitatoryCount(Integer.parseInt(value));
+		}
+		else if ("uncrossedInhibitoryCount".equals(name))
+		{
+			setUncrossedInhibitoryCount(Integer.parseInt(value));
+		}
+		else if ("crossedInhibitoryCount".equals(name))
+		{
+			setCrossedInhibitoryCount(Integer.parseInt(value));
+		}
+		else if ("uncrossedThresholdCount".equals(name))
+		{
+			setUncrossedThresholdCount(Integer.parseInt(value));
+		}
+		else if ("crossedThresholdCount".equals(name))
+		{
+			setCrossedThresholdCount(Integer.parseInt(value));
+		}
+		else if ("perceptibleVehicles".equals(name))
+		{
+			setPerceptibleVehicles(Boolean.parseBoolean(value));
+		}
+		else if ("displayIds".equals(name))
+		{
+			setDisplayIds(Boolean.parseBoolean(value));
+		}
+		else if ("displaySensors".equals(name))
+		{
+			setDisplaySensors(Boolean.parseBoolean(value));
+		}
+		else if ("wrappingPlain".equals(name))
+		{
+			setWrappingPlain(Boolean.parseBoolean(value));
+		}
+		else if ("sensorRangeAngle".equals(name))
+		{
+			setSensorRangeAngle(Double.parseDouble(value));
+		}
+		else if ("sensorSplayAngle".equals(name))
+		{
+			setSensorSplayAngle(Double.parseDouble(value));
+		}
+		else if ("sensorGap".equals(name))
+		{
+			setSensorGap(Integer.parseInt(value));
+		}
+		else if ("angleDelta".equals(name))
+		{
+			setAngleDelta(Double.parseDouble(value));
+		}
+		else if ("maxSpeed".equals(name))
+		{
+			setMaxSpeed(Integer.parseInt(value));
+		}
+		else if ("maxAngle".equals(name))
+		{
+			setMaxAngle(Double.parseDouble(value));
+		}
+		else if ("darkPlainWidth".equals(name))
+		{
+			setDarkPlainWidth(Integer.parseInt(value));
+		}
+		else if ("darkPlainHeight".equals(name))
+		{
+			setDarkPlainHeight(Integer.parseInt(value));
+		}
+		else if ("lightIntensity".equals(name))
+		{
+			setLightIntensity(Integer.parseInt(value));
+		}
+		else if ("timerPause".equals(name))
+		{
+			setTimerPause(Integer.parseInt(value));
+		}
+		else if ("moveThreads".equals(name))
+		{
+			setMoveThreads(Integer.parseInt(value));
+		}
+		else if ("tiles".equals(name))
+		{
+			setTiles(Integer.parseInt(value));
+		}
+		else if ("seed".equals(name))
+		{
+			setSeed(Long.parseLong(value));
+		}
+		else if ("spriteAngles".equals(name))
+		{
+			setSpriteAngles(Integer.parseInt(value));
+		}
+		else if ("backToBackTicks".equals(name))
+		{
+			setBackToBackTicks(Boolean.parseBoolean(value));
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown setting: " + name);
+		}
+	}
+
+	/**
+	 * Set the light source count
+	 *
+	 * @param count the number of light sources
+	 */
+	void setLightSourceCount(int count)
+	{
+		lightSourceCount = count;
+	}
+
+	/**
+	 * Set the uncrossed excitatory vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setUncrossedExcitatoryCount(int count)
+	{
+		uncrossedExcitatoryCount = count;
+	}
+
+	/**
+	 * Set the crossed excitatory vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setCrossedExcitatoryCount(int count)
+	{
+		crossedExcitatoryCount = count;
+	}
+
+	/**
+	 * Set the uncrossed inhibitory vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setUncrossedInhibitoryCount(int count)
+	{
+		uncrossedInhibitoryCount = count;
+	}
+
+	/**
+	 * Set the crossed inhibitory vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setCrossedInhibitoryCount(int count)
+	{
+		crossedInhibitoryCount = count;
+	}
+
+	/**
+	 * Set the uncrossed threshold vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setUncrossedThresholdCount(int count)
+	{
+		uncrossedThresholdCount = count;
+	}
+
+	/**
+	 * Set the crossed threshold vehicle count
+	 *
+	 * @param count the number of vehicles
+	 */
+	void setCrossedThresholdCount(int count)
+	{
+		crossedThresholdCount = count;
+	}
+
+	/**
+	 * Set if vehicles perceive other vehicles
+	 *
+	 * @param b true if vehicles perceive other vehicles
+	 */
+	void setPerceptibleVehicles(boolean b)
+	{
+		perceptibleVehicles = b;
+	}
+
+	/**
+	 * Set if vehicle ids should be displayed
+	 *
+	 * @param b true if vehicle ids should be displayed
+	 */
+	void setDisplayIds(boolean b)
+	{
+		displayIds = b;
+	}
+
+	/**
+	 * Set if vehicle sensors should be displayed
+	 *
+	 * @param b true if vehicle sensors should be displayed
+	 */
+	void setDisplaySensors(boolean b)
+	{
+		displaySensors = b;
+	}
+
+	/**
+	 * Set if vehicles wrap around the plain, rather than reflect off its walls
+	 *
+	 * @param b true if vehicles wrap around the plain
+	 */
+	void setWrappingPlain(boolean b)
+	{
+		wrappingPlain = b;
+	}
+
+	/**
+	 * Set the range angle of a sensor.
+	 *
+	 * @param angle the sensor range angle, in degrees
+	 */
+	void setSensorRangeAngle(double angle)
+	{
+		sensorRangeAngle = angle;
+	}
+
+	/**
+	 * Set the sensor splay angle.
+	 *
+	 * @param angle the sensor splay angle, in degrees
+	 */
+	void setSensorSplayAngle(double angle)
+	{
+		sensorSplayAngle = angle;
+	}
+
+	/**
+	 * Set the sensor gap, that is, how far apart the two sensors are on a vehicle.
+	 *
+	 * @param gap the gap between the two sensors
+	 */
+	void setSensorGap(int gap)
+	{
+		sensorGap = gap;
+	}
+
+	/**
+	 * Set angle increment, that is, the angle change per wheel step.
+	 *
+	 * @param angle the angle increment, in degrees
+	 */
+	void setAngleDelta(double angle)
+	{
+		angleDelta = angle;
+	}
+
+	/**
+	 * Set the maximum speed, that is, the maximum distance a vehicle can travel in one turn
+	 *
+	 * @param speed the maximum speed
+	 */
+	void setMaxSpeed(int speed)
+	{
+		maxSpeed = speed;
+	}
+
+	/**
+	 * Set the maximum angle, that is, the maximum angle that a vehicle can move in one turn
+	 *
+	 * @param angle the maximum turning angle, in degrees
+	 */
+	void setMaxAngle(double angle)
+	{
+		maxAngle = angle;
+	}
+
+	/**
+	 * Set the width of the dark plain
+	 *
+	 * @param width the width of the dark plain, in pixels
+	 */
+	void setDarkPlainWidth(int width)
+	{
+		darkPlainWidth = width;
+	}
+
+	/**
+	 * Set the height of the dark plain
+	 *
+	 * @param height the height of the dark plain, in pixels
+	 */
+	void setDarkPlainHeight(int height)
+	{
+		darkPlainHeight = height;
+	}
+
+	/**
+	 * Set the light intensity
+	 *
+	 * @param intensity the light intensity
+	 */
+	void setLightIntensity(int intensity)
+	{
+		lightIntensity = intensity;
+	}
+
+	/**
+	 * Set the number of milliseconds the timer sleeps
+	 *
+	 * @param pause the number of milliseconds the timer sleeps
+	 */
+	void setTimerPause(int pause)
+	{
+		timerPause = pause;
+	}
+
+	/**
+	 * Set the number of threads that move the vehicles
+	 *
+	 * @param threads the number of threads that move the vehicles
+	 */
+	void setMoveThreads(int threads)
+	{
+		moveThreads = threads;
+	}
+
+	/**
+	 * Set the number of tiles the dark plain is split into for moving the vehicles
+	 *
+	 * @param tls the number of tiles, or 0 not to split the dark plain
+	 */
+	void setTiles(int tls)
+	{
+		tiles = tls;
+	}
+
+	/**
+	 * Set the seed for generating the starting scenario
+	 *
+	 * @param sd the seed, or 0 for a different scenario every time
+	 */
+	void setSeed(long sd)
+	{
+		seed = sd;
+	}
+
+	/**
+	 * Set the number of headings the vehicles are drawn at
+	 *
+	 * @param angles the number of headings, or 0 to draw every vehicle exactly
+	 */
+	void setSpriteAngles(int angles)
+	{
+		spriteAngles = angles;
+	}
+
+	/**
+	 * Set whether each tick starts as soon as the last one ends
+	 *
+	 * @param b true if the ticks run back to back
+	 */
+	void setBackToBackTicks(boolean b)
+	{
+		backToBackTicks = b;
+	}
+
+	/* Accessors */
+
+	public int getLightSourceCount()
+	{
+		return lightSourceCount;
+	}
+
+	public int getUncrossedExcitatoryCount()
+	{
+		return uncrossedExcitatoryCount;
+	}
+
+	public int getCrossedExcitatoryCount()
+	{
+		return crossedExcitatoryCount;
+	}
+
+	public int getUncrossedInhibitoryCount()
+	{
+		return uncrossedInhibitoryCount;
+	}
+
+	public int getCrossedInhibitoryCount()
+	{
+		return crossedInhibitoryCount;
+	}
+
+	public int getUncrossedThresholdCount()
+	{
+		return uncrossedThresholdCount;
+	}
+
+	public int getCrossedThresholdCount()
+	{
+		return crossedThresholdCount;
+	}
+
+	public boolean isPerceptibleVehicles()
+	{
+		return perceptibleVehicles;
+	}
+
+	public boolean isDisplayIds()
+	{
+		return displayIds;
+	}
+
+	public boolean isWrappingPlain()
+	{
+		return wrappingPlain;
+	}
+
+	public boolean isDisplaySensors()
+	{
+		return displaySensors;
+	}
+
+	public double getSensorRangeAngle()
+	{
+		return Math.toRadians((int) sensorRangeAngle);
+	}
+
+	public double getSensorSplayAngle()
+	{
+		return Math.toRadians((int) sensorSplayAngle);
+	}
+
+	public int getSensorGap()
+	{
+		return sensorGap;
+	}
+
+	public double getAngleDelta()
+	{
+		return Math.toRadians((int) angleDelta);
+	}
+
+	public int getMaxSpeed()
+	{
+		return maxSpeed;
+	}
+
+	public double getMaxAngle()
+	{
+		return Math.toRadians((int) maxAngle);
+	}
+
+	public int getDarkPlainWidth()
+	{
+		return darkPlainWidth;
+	}
+
+	public int getDarkPlainHeight()
+	{
+		return darkPlainHeight;
+	}
+
+	public int getLightIntensity()
+	{
+		return lightIntensity;
+	}
+
+	public int getTimerPause()
+	{
+		return timerPause;
+	}
+
+	public int getMoveThreads()
+	{
+		return moveThreads;
+	}
+
+	public int getTiles()
+	{
+		return tiles;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public int getSpriteAngles()
+	{
+		return spriteAngles;
+	}
+
+	public boolean isBackToBackTicks()
+	{
+		return backToBackTicks;
+	}
+}
@@ -0,0 +1,625 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class runs a simulation without displaying it, as fast as it will go, and reports where
+ * the vehicles ended up along with some summary statistics. There is no timer and no painting, so
+ * nothing holds the simulation back, and no display is needed.
+ *
+ * The simulation is configured from the command line with name=value pairs, using the names
+ * understood by BatchSettings. For instance:
+ *
+ *   java braitenbergsimulation.BatchSimulation ticks=5000 lightSourceCount=5 crossedExcitatoryCount=10
+ *
+ * Besides the settings, "ticks" is the number of ticks to run, "positions" is whether to report
+ * the final location of every vehicle, and "trigTableSize" is the size of the sine table for moving
+ * the vehicles, 0 for java.lang.Math. The summary reports the seed the scenario was generated from,
+ * so passing "seed" with that value replays the run exactly. "trajectory" is a file to record the
+ * trajectories of the vehicles to, every tick, for reading with TrajectoryReader. "vectorSensors"
+ * is whether the sensors use a sensor kernel, the vector kernel if the JVM is run with
+ * --add-modules jdk.incubator.vector and the scalar kernel otherwise; the summary reports which.
+ * "nearestFirst" is whether the sensors examine the cells of the grid nearest first, so they
+ * saturate sooner; the summary reports how often sensors stopped early either way.
+ * "lightFieldCellSize" is the size in pixels of the cells of a light field the sensors look up the
+ * lights in, trading accuracy for speed, or 0, the default, to work out the lights exactly.
+ *
+ * "vehicleTiming" is whether to time how long the vehicles spend sensing and translating, and report
+ * them with the other phases. It reads the clock several times per vehicle every tick, so it's off
+ * unless asked for.
+ *
+ * "analyticsInterval" is the number of ticks between summaries of how each vehicle type behaves,
+ * reported as the run goes, or 0, the default, for none; see BehaviorAnalytics.
+ *
+ * "sharedFrames" is a file to publish where the vehicles are to every tick, in a ring of
+ * "sharedFrameCount" frames, for SharedFrameReader or a visualizer in another process to map and read.
+ *
+ * "checkpoint" is a file to checkpoint the run to, every "checkpointInterval" ticks, and "restore"
+ * is a checkpoint to carry on a run from. A restored run takes all its settings from the
+ * checkpoint, and runs "ticks" more ticks exactly as the checkpointed run would have.
+ */
+class BatchSimulation
+{
+	/* The number of ticks to run, unless told otherwise */
+	private static final int DEFAULTTICKS = 1000;
+	/* The number of ticks between checkpoints, unless told otherwise */
+	private static final int DEFAULTCHECKPOINTINTERVAL = 1000;
+
+	private final SimulationEngine engine;
+	private final SimulationConfig settings;
+	private final int ticks;
+	private final boolean isWrappingPlain;
+
+	/* The running totals for each vehicle type, in the order the types are first seen */
+	private final Map<String, TypeSummary> mapSummary;
+	private long elapsedNs;
+
+	/**
+	 * Constructor
+	 *
+	 * @param config a snapshot of the configured settings
+	 * @param tcks the number of ticks to run
+	 */
+	BatchSimulation(SimulationConfig config, int tcks)
+	{
+		engine = new SimulationEngine(config);
+		engine.updateSettings(config);
+		settings = config;
+		ticks = tcks;
+		isWrappingPlain = config.isWrappingPlain();
+		mapSummary = new LinkedHashMap<String, TypeSummary>();
+	}
+
+	/**
+	 * Constructor, carrying on a run from a checkpoint
+	 *
+	 * @param checkpoint the checkpoint
+	 * @param tcks the number of ticks to run
+	 */
+	BatchSimulation(CheckpointReader checkpoint, int tcks)
+	{
+		SimulationConfig config = checkpoint.getConfig();
+		engine = new SimulationEngine(config);
+		settings = engine.restore(checkpoint);
+		ticks = tcks;
+		isWrappingPlain = settings.isWrappingPlain();
+		mapSummary = new LinkedHashMap<String, TypeSummary>();
+	}
+
+	/**
+	 * Run the simulation for all the ticks, keeping track of how far and how sharply each vehicle
+	 * moves every tick.
+	 */
+	void run()
+	{
+		List<Vehicle> lstVehicle = engine.getVehicles();
+		int count = lstVehicle.size();
+		double[] lastX = new double[count];
+		double[] lastY = new double[count];
+		double[] lastDirection = new double[count];
+		TypeSummary[] summaries = new TypeSummary[count];
+		for (int i = 0; i < count; i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			lastX[i] = aVehicle.getX();
+			lastY[i] = aVehicle.getY();
+			lastDirection[i] = aVehicle.getDirection();
+			summaries[i] = getSummary(aVehicle.getVehicleType());
+			summaries[i].count++;
+		}
+
+		long startNs = System.nanoTime();
+		for (int tick = 0; tick < ticks; tick++)
+		{
+			engine.tick();
+
+			for (int i = 0; i < count; i++)
+			{
+				Vehicle aVehicle = lstVehicle.get(i);
+				double deltaX = aVehicle.getX() - lastX[i];
+				double deltaY = aVehicle.getY() - lastY[i];
+				/* A vehicle that wrapped around an edge only moved a short way */
+				if (isWrappingPlain)
+				{
+					deltaX = Math.IEEEremainder(deltaX, engine.getDarkPlainWidth());
+					deltaY = Math.IEEEremainder(deltaY, engine.getDarkPlainHeight());
+				}
+				double turn = Math.IEEEremainder(aVehicle.getDirection() - lastDirection[i], Vehicle.TWOPI);
+				summaries[i].totalDistance += Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
+				summaries[i].totalTurn += Math.abs(turn);
+
+				lastX[i] = aVehicle.getX();
+				lastY[i] = aVehicle.getY();
+				lastDirection[i] = aVehicle.getDirection();
+			}
+		}
+		elapsedNs = System.nanoTime() - startNs;
+
+		for (int i = 0; i < count; i++)
+		{
+			summaries[i].totalX += lastX[i];
+			summaries[i].totalY += lastY[i];
+		}
+	}
+
+	/**
+	 * Report the final location and direction of every vehicle
+	 *
+	 * @param out where to write the report
+	 */
+	void reportPositions(PrintStream out)
+	{
+		out.println("id,type,x,y,direction");
+		for (Vehicle aVehicle: engine.getVehicles())
+		{
+			out.println(aVehicle.id + "," + aVehicle.getVehicleType() + "," + aVehicle.getX() + ","
+					+ aVehicle.getY() + "," + aVehicle.getDirection());
+		}
+	}
+
+	/**
+	 * Report the summary statistics of the run
+	 *
+	 * @param out where to write the report
+	 */
+	void reportSummary(PrintStream out)
+	{
+		double elapsedMs = elapsedNs / 1e6;
+		out.println("ticks=" + ticks + " vehicles=" + engine.getVehicles().size() + " lights="
+				+ engine.getLights().size() + " seed=" + engine.getSeed() + " elapsedMs=" + elapsedMs + " ticksPerSecond="
+				+ ((elapsedMs > 0) ? (ticks * 1000 / elapsedMs) : 0));
+		out.println("type,count,meanX,meanY,meanSpeed,meanTurnDegrees");
+		reportTypes(out, "");
+
+		/* How long each phase of a tick took */
+		SimulationMetrics metrics = engine.getMetrics();
+		out.println("phase,count,meanMs,p50Ms,p90Ms,p99Ms,maxMs");
+		reportPhase(out, "tick", metrics.getTickLatency());
+		if (metrics.isVehicleTiming())
+		{
+			reportPhase(out, "sense", metrics.getSenseLatency());
+			reportPhase(out, "translate", metrics.getTranslateLatency());
+		}
+		reportPhase(out, "commit", metrics.getCommitLatency());
+		reportPhase(out, "listeners", metrics.getListenersLatency());
+		out.println("itemsExaminedPerSensor=" + metrics.getItemsExaminedPerSensor() + " wrappedImagesPerTick="
+				+ metrics.getWrappedImagesPerTick() + " earlyExitsPerSensor=" + metrics.getEarlyExitsPerSensor());
+		if (settings.getSensorKernel() != null)
+		{
+			out.println("sensorKernel=" + settings.getSensorKernel());
+		}
+		if (settings.getLightFieldCellSize() > 0)
+		{
+			out.println("lightFieldCellSize=" + settings.getLightFieldCellSize() + " lightFieldBytes="
+					+ engine.getLightField().getSizeBytes());
+		}
+	}
+
+	/**
+	 * Report the summary of each vehicle type, one row per type, with the columns type, count, meanX,
+	 * meanY, meanSpeed and meanTurnDegrees
+	 *
+	 * @param out where to write the report
+	 * @param prefix the columns to start every row with, each followed by a comma
+	 */
+	void reportTypes(PrintStream out, String prefix)
+	{
+		for (Map.Entry<String, TypeSummary> entry: mapSummary.entrySet())
+		{
+			TypeSummary summary = entry.getValue();
+			double vehicleTicks = (double) summary.count * ticks;
+			out.println(prefix + entry.getKey() + "," + summary.count + ","
+					+ (summary.totalX / summary.count) + "," + (summary.totalY / summary.count) + ","
+					+ ((vehicleTicks > 0) ? (summary.totalDistance / vehicleTicks) : 0) + ","
+					+ ((vehicleTicks > 0) ? Math.toDegrees(summary.totalTurn / vehicleTicks) : 0));
+		}
+	}
+
+	/**
+	 * Time how long the vehicles spend sensing and translating, to report with the other phases
+	 */
+	void timeVehicles()
+	{
+		engine.getMetrics().setVehicleTiming(true);
+	}
+
+	/**
+	 * Get the seed the scenario was generated from
+	 *
+	 * @return the seed
+	 */
+	long getSeed()
+	{
+		return engine.getSeed();
+	}
+
+	/**
+	 * Get how long the run took, not counting setting it up
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	long getElapsedNs()
+	{
+		return elapsedNs;
+	}
+
+	/**
+	 * Report the latency of one phase of a tick
+	 *
+	 * @param out where to write the report
+	 * @param phase the name of the phase
+	 * @param latency the latency of the phase
+	 */
+	private static void reportPhase(PrintStream out, String phase, PhaseLatency latency)
+	{
+		out.println(phase + "," + latency.getCount() + "," + latency.getMeanMs() + "," + latency.getP50Ms() + ","
+				+ latency.getP90Ms() + "," + latency.getP99Ms() + "," + latency.getMaxMs());
+	}
+
+	/**
+	 * Get the running totals for a vehicle type, creating them if this is the first of the type
+	 *
+	 * @param vehicleType the vehicle type
+	 * @return the running totals
+	 */
+	private TypeSummary getSummary(String vehicleType)
+	{
+		TypeSummary summary = mapSummary.get(vehicleType);
+		if (summary == null)
+		{
+			summary = new TypeSummary();
+			mapSummary.put(vehicleType, summary);
+		}
+		return summary;
+	}
+
+	/**
+	 * Record the trajectories of the vehicles from now on
+	 *
+	 * @param file the file to record the trajectories to
+	 * @return the log, for closing once the run is over
+	 * @throws IOException if the log can't be written
+	 */
+	TrajectoryWriter recordTrajectories(File file) throws IOException
+	{
+		TrajectoryWriter writer = new TrajectoryWriter(file, engine, settings);
+		engine.addTickListener(writer);
+		return writer;
+	}
+
+	/**
+	 * Analyze how the vehicles behave from now on
+	 *
+	 * @param interval the number of ticks between summaries
+	 * @return the analytics, for listening to the summaries
+	 */
+	BehaviorAnalytics analyze(int interval)
+	{
+		BehaviorAnalytics analytics = new BehaviorAnalytics(engine, settings, interval);
+		engine.addTickListener(analytics);
+		return analytics;
+	}
+
+	/**
+	 * Publish where the vehicles are to a memory mapped file from now on
+	 *
+	 * @param file the file to publish to
+	 * @param frames the number of frames in the ring
+	 * @return the writer, for closing once the run is over
+	 * @throws IOException if the file can't be mapped
+	 */
+	SharedFrameWriter shareFrames(File file, int frames) throws IOException
+	{
+		SharedFrameWriter writer = new SharedFrameWriter(file, engine, frames);
+		engine.addTickListener(writer);
+		return writer;
+	}
+
+	/**
+	 * Checkpoint the run from now on
+	 *
+	 * @param file the file to checkpoint the run to
+	 * @param interval the number of ticks between checkpoints
+	 * @return the writer, for closing once the run is over
+	 * @throws IOException if the checkpoints can't be written
+	 */
+	CheckpointWriter checkpoint(File file, int interval) throws IOException
+	{
+		CheckpointWriter writer = new CheckpointWriter(file, engine, settings, interval);
+		engine.addTickListener(writer);
+		return writer;
+	}
+
+	/**
+	 * Release any resources held by the simulation
+	 */
+	void dispose()
+	{
+		engine.dispose();
+	}
+
+	/*
+	 * The running totals for one vehicle type
+	 */
+	private static class TypeSummary
+	{
+		private int count;
+		private double totalX;
+		private double totalY;
+		private double totalDistance;
+		private double totalTurn;
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the settings, as name=value pairs
+	 */
+	public static void main(String[] args)
+	{
+		BatchSettings settings = new BatchSettings();
+		int ticks = DEFAULTTICKS;
+		boolean positions = false;
+		int trigTableSize = 0;
+		boolean vectorSensors = false;
+		boolean nearestFirst = false;
+		boolean vehicleTiming = false;
+		int lightFieldCellSize = 0;
+		int analyticsInterval = 0;
+		String trajectory = null;
+		String sharedFrames = null;
+		int sharedFrameCount = SharedFrameWriter.DEFAULTFRAMES;
+		String checkpoint = null;
+		int checkpointInterval = DEFAULTCHECKPOINTINTERVAL;
+		String restore = null;
+
+		for (String arg: args)
+		{
+			int equals = arg.indexOf('=');
+			if (equals < 0)
+			{
+				System.err.println("Expected name=value, got " + arg);
+				System.exit(1);
+			}
+			String name = arg.substring(0, equals);
+			String value = arg.substring(equals + 1);
+			try
+			{
+				if ("ticks".equals(name))
+				{
+					ticks = Integer.parseInt(value);
+				}
+				else if ("positions".equals(name))
+				{
+					positions = Boolean.parseBoolean(value);
+				}
+				else if ("trigTableSize".equals(name))
+				{
+					trigTableSize = Integer.parseInt(value);
+				}
+				else if ("vectorSensors".equals(name))
+				{
+					vectorSensors = Boolean.parseBoolean(value);
+				}
+				else if ("nearestFirst".equals(name))
+				{
+					nearestFirst = Boolean.parseBoolean(value);
+				}
+				else if ("vehicleTiming".equals(name))
+				{
+					vehicleTiming = Boolean.parseBoolean(value);
+				}
+				else if ("lightFieldCellSize".equals(name))
+				{
+					lightFieldCellSize = Integer.parseInt(value);
+				}
+				else if ("analyticsInterval".equals(name))
+				{
+					analyticsInterval = Integer.parseInt(value);
+				}
+				else if ("trajectory".equals(name))
+				{
+					trajectory = value;
+				}
+				else if ("sharedFrames".equals(name))
+				{
+					sharedFrames = value;
+				}
+				else if ("sharedFrameCount".equals(name))
+				{
+					sharedFrameCount = Integer.parseInt(value);
+				}
+				else if ("checkpoint".equals(name))
+				{
+					checkpoint = value;
+				}
+				else if ("checkpointInterval".equals(name))
+				{
+					checkpointInterval = Integer.parseInt(value);
+				}
+				else if ("restore".equals(name))
+				{
+					restore = value;
+				}
+				else
+				{
+					settings.setValue(name, value);
+				}
+			}
+			catch (IllegalArgumentException iaexc)
+			{
+				System.err.println("Bad setting " + arg + ": " + iaexc.getMessage());
+				System.exit(1);
+			}
+		}
+
+		SimulationConfig config = null;
+		try
+		{
+			config = new SimulationConfig(settings).withTrigTableSize(trigTableSize).withVectorSensors(vectorSensors)
+					.withNearestFirst(nearestFirst).withLightFieldCellSize(lightFieldCellSize);
+		}
+		catch (IllegalArgumentException iaexc)
+		{
+			System.err.println("Bad setting trigTableSize=" + trigTableSize + " or lightFieldCellSize="
+					+ lightFieldCellSize + ": " + iaexc.getMessage());
+			System.exit(1);
+		}
+
+		BatchSimulation simulation = null;
+		if (restore != null)
+		{
+			try
+			{
+				simulation = new BatchSimulation(new CheckpointReader(new File(restore)), ticks);
+			}
+			catch (IOException ioexc)
+			{
+				System.err.println("Can't restore " + restore + ": " + ioexc.getMessage());
+				System.exit(1);
+			}
+			catch (IllegalArgumentException iaexc)
+			{
+				System.err.println("Can't restore " + restore + ": " + iaexc.getMessage());
+				System.exit(1);
+			}
+		}
+		else
+		{
+			simulation = new BatchSimulation(config, ticks);
+		}
+
+		if (vehicleTiming)
+		{
+			simulation.timeVehicles();
+		}
+
+		CheckpointWriter checkpointWriter = null;
+		if (checkpoint != null)
+		{
+			try
+			{
+				checkpointWriter = simulation.checkpoint(new File(checkpoint), checkpointInterval);
+			}
+			catch (IOException ioexc)
+			{
+				System.err.println("Can't checkpoint to " + checkpoint + ": " + ioexc.getMessage());
+				System.exit(1);
+			}
+			catch (IllegalArgumentException iaexc)
+			{
+				System.err.println("Bad setting checkpointInterval=" + checkpointInterval + ": "
+						+ iaexc.getMessage());
+				System.exit(1);
+			}
+		}
+
+		SharedFrameWriter sharedFrameWriter = null;
+		if (sharedFrames != null)
+		{
+			try
+			{
+				sharedFrameWriter = simulation.shareFrames(new File(sharedFrames), sharedFrameCount);
+			}
+			catch (IOException ioexc)
+			{
+				System.err.println("Can't share frames in " + sharedFrames + ": " + ioexc.getMessage());
+				System.exit(1);
+			}
+			catch (IllegalArgumentException iaexc)
+			{
+				System.err.println("Bad setting sharedFrameCount=" + sharedFrameCount + ": " + iaexc.getMessage());
+				System.exit(1);
+			}
+		}
+
+		if (analyticsInterval > 0)
+		{
+			System.out.println("tick,type,count,meanSpeed,meanTurnDegrees,meanNearestLight,meanCloseVehicles,"
+					+ "meanCloseSameType,occupiedFraction");
+			simulation.analyze(analyticsInterval).addSummaryListener(new BehaviorAnalytics.SummaryListener()
+			{
+				@Override
+				public void summaryPublished(BehaviorAnalytics.Summary summary)
+				{
+					summary.report(System.out);
+				}
+			});
+		}
+
+		TrajectoryWriter writer = null;
+		try
+		{
+			if (trajectory != null)
+			{
+				writer = simulation.recordTrajectories(new File(trajectory));
+			}
+			simulation.run();
+			if (writer != null)
+			{
+				writer.close();
+			}
+		}
+		catch (IOException ioexc)
+		{
+			System.err.println("Can't record trajectories to " + trajectory + ": " + ioexc.getMessage());
+			System.exit(1);
+		}
+		if (checkpointWriter != null)
+		{
+			try
+			{
+				checkpointWriter.close();
+			}
+			catch (IOException ioexc)
+			{
+				System.err.println("Can't checkpoint to " + checkpoint + ": " + ioexc.getMessage());
+				System.exit(1);
+			}
+			System.out.println("checkpoints=" + checkpointWriter.getWrittenCheckpoints() + " skippedCheckpoints="
+					+ checkpointWriter.getSkippedCheckpoints());
+		}
+		if (sharedFrameWriter != null)
+		{
+			try
+			{
+				sharedFrameWriter.close();
+			}
+			catch (IOException ioexc)
+			{
+				System.err.println("Can't share frames in " + sharedFrames + ": " + ioexc.getMessage());
+				System.exit(1);
+			}
+			System.out.println("sharedFrames=" + sharedFrameWriter.getPublishedFrames());
+		}
+		if (positions)
+		{
+			simulation.reportPositions(System.out);
+		}
+		simulation.reportSummary(System.out);
+		simulation.dispose();
+	}
+}
@@ -0,0 +1,629 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class watches the vehicles as the simulation runs and keeps running statistics of how each
+ * vehicle type behaves, without storing where the vehicles have been. Every tick, once the vehicles
+ * have committed their new locations, it adds up for each type:
+ *
+ * - how far and how sharply the vehicles moved, for their mean speed and turn rate
+ * - which cell of the grid each vehicle is in, for a heatmap of where the type spends its time
+ * - how far each vehicle is from the nearest light, in a histogram of bins BINWIDTH pixels wide
+ * - how many other vehicles of each type are within PROXIMITY pixels, for how the types cluster
+ *
+ * The cells are those of a PerceptibleGrid, which also indexes the vehicles so only the neighboring
+ * cells are searched for vehicles close by. PROXIMITY is no more than the side of a cell, so the
+ * cells next to a vehicle's own are enough.
+ *
+ * Every interval ticks, a Summary of the statistics so far is published to the listeners, and kept
+ * for reading from any thread. The statistics cover every tick since the analytics were attached, so
+ * they are for one set of lights and vehicles; new analytics are needed whenever the settings change.
+ *
+ * Note that the analytics run on the thread completing the tick, so they add to the time the
+ * metrics give the tick listeners.
+ */
+class BehaviorAnalytics implements TickListener
+{
+	/* The distance within which two vehicles count as close, in pixels */
+	static final double PROXIMITY = PerceptibleGrid.CELLSIZE / 2.0;
+	/* The width of a bin of the nearest light histogram, and the number of bins, the last open ended */
+	static final int BINWIDTH = 25;
+	static final int BINS = 20;
+
+	private final List<Vehicle> lstVehicle;
+	private final int interval;
+	private final boolean isWrappingPlain;
+	private final int xMax;
+	private final int yMax;
+
+	/* The names of the vehicle types, in the order they are first found, and the type of each vehicle */
+	private final List<String> lstType;
+	private final int[] vehicleType;
+	private final Map<PerceptibleItem, Integer> mapVehicleIndex;
+	/* The lights never move, so their locations are taken once */
+	private final double[] lightX;
+	private final double[] lightY;
+	/* Indexes the vehicles for finding those close by, and divides the plain into heatmap cells */
+	private final PerceptibleGrid grdVehicle;
+	private final List<PerceptibleItem> lstItem;
+	private int[] itemType;
+
+	/* Where each vehicle was the tick before */
+	private final double[] lastX;
+	private final double[] lastY;
+	private final double[] lastDirection;
+
+	/* The running totals, by vehicle type */
+	private final int[] typeCount;
+	private final double[] totalDistance;
+	private final double[] totalTurn;
+	private final long[][] occupancy;
+	private final long[][] nearestLightBins;
+	private final double[] totalNearestLight;
+	/* Close pairs by the type of each vehicle, so pairs of different types are counted once each way */
+	private final long[][] closeVehicles;
+	private long ticks;
+
+	private final List<SummaryListener> lstSummaryListener;
+	private volatile Summary latestSummary;
+
+	/**
+	 * Constructor, starting the statistics from where the vehicles are now
+	 *
+	 * @param engine the engine running the simulation
+	 * @param settings a snapshot of the settings the lights and vehicles were created with
+	 * @param ntrvl the number of ticks between summaries
+	 */
+	BehaviorAnalytics(SimulationEngine engine, SimulationConfig settings, int ntrvl)
+	{
+		if (ntrvl < 1)
+		{
+			throw new IllegalArgumentException("The interval must be at least one tick: " + ntrvl);
+		}
+		lstVehicle = engine.getVehicles();
+		interval = ntrvl;
+		isWrappingPlain = settings.isWrappingPlain();
+		xMax = engine.getDarkPlainWidth();
+		yMax = engine.getDarkPlainHeight();
+
+		int count = lstVehicle.size();
+		lstType = new ArrayList<String>();
+		vehicleType = new int[count];
+		mapVehicleIndex = new IdentityHashMap<PerceptibleItem, Integer>();
+		lastX = new double[count];
+		lastY = new double[count];
+		lastDirection = new double[count];
+		for (int i = 0; i < count; i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			int type = lstType.indexOf(aVehicle.getVehicleType());
+			if (type < 0)
+			{
+				type = lstType.size();
+				lstType.add(aVehicle.getVehicleType());
+			}
+			vehicleType[i] = type;
+			mapVehicleIndex.put(aVehicle, i);
+			lastX[i] = aVehicle.getX();
+			lastY[i] = aVehicle.getY();
+			lastDirection[i] = aVehicle.getDirection();
+		}
+
+		List<LightSource> lstLight = engine.getLights();
+		lightX = new double[lstLight.size()];
+		lightY = new double[lstLight.size()];
+		for (int i = 0; i < lightX.length; i++)
+		{
+			lightX[i] = lstLight.get(i).getX();
+			lightY[i] = lstLight.get(i).getY();
+		}
+
+		grdVehicle = new PerceptibleGrid(xMax, yMax);
+		lstItem = new ArrayList<PerceptibleItem>(lstVehicle);
+		itemType = new int[count];
+
+		int types = lstType.size();
+		typeCount = new int[types];
+		for (int i = 0; i < count; i++)
+		{
+			typeCount[vehicleType[i]]++;
+		}
+		totalDistance = new double[types];
+		totalTurn = new double[types];
+		occupancy = new long[types][grdVehicle.getColumns() * grdVehicle.getRows()];
+		nearestLightBins = new long[types][BINS];
+		totalNearestLight = new double[types];
+		closeVehicles = new long[types][types];
+		lstSummaryListener = new CopyOnWriteArrayList<SummaryListener>();
+	}
+
+	/**
+	 * Add up the statistics of the tick just completed, and publish a summary if one is due
+	 *
+	 * @param engine the engine that completed the tick
+	 */
+	@Override
+	public void tickCompleted(SimulationEngine engine)
+	{
+		for (int i = 0; i < lstVehicle.size(); i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(i);
+			int type = vehicleType[i];
+			double x = aVehicle.getX();
+			double y = aVehicle.getY();
+
+			double deltaX = getDeltaX(lastX[i], x);
+			double deltaY = getDeltaY(lastY[i], y);
+			totalDistance[type] += Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
+			totalTurn[type] += Math.abs(Math.IEEEremainder(aVehicle.getDirection() - lastDirection[i], Vehicle.TWOPI));
+			lastX[i] = x;
+			lastY[i] = y;
+			lastDirection[i] = aVehicle.getDirection();
+
+			occupancy[type][(grdVehicle.getRow(y) * grdVehicle.getColumns()) + grdVehicle.getColumn(x)]++;
+			if (lightX.length > 0)
+			{
+				double nearest = getNearestLight(x, y);
+				totalNearestLight[type] += nearest;
+				nearestLightBins[type][Math.min((int) (nearest / BINWIDTH), BINS - 1)]++;
+			}
+		}
+		countCloseVehicles();
+		ticks++;
+
+		if ((ticks % interval) == 0)
+		{
+			Summary summary = new Summary(this, engine.getTickCount());
+			latestSummary = summary;
+			for (SummaryListener aListener: lstSummaryListener)
+			{
+				aListener.summaryPublished(summary);
+			}
+		}
+	}
+
+	/**
+	 * Get the distance to the nearest light. There are few lights, so they are simply all measured.
+	 *
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the distance, in pixels
+	 */
+	private double getNearestLight(double x, double y)
+	{
+		double nearestSquared = Double.MAX_VALUE;
+		for (int i = 0; i < lightX.length; i++)
+		{
+			double deltaX = getDeltaX(x, lightX[i]);
+			double deltaY = getDeltaY(y, lightY[i]);
+			nearestSquared = Math.min(nearestSquared, (deltaX * deltaX) + (deltaY * deltaY));
+		}
+		return Math.sqrt(nearestSquared);
+	}
+
+	/**
+	 * Index the vehicles where they are now, and count the vehicles close to each one, searching only
+	 * its own cell and the cells around it
+	 */
+	private void countCloseVehicles()
+	{
+		grdVehicle.rebuild(lstItem);
+		int itemCount = grdVehicle.getItemCount();
+		if (itemType.length < itemCount)
+		{
+			itemType = new int[itemCount];
+		}
+		for (int i = 0; i < itemCount; i++)
+		{
+			itemType[i] = vehicleType[mapVehicleIndex.get(grdVehicle.getItem(i))];
+		}
+		double[] itemX = grdVehicle.getItemXs();
+		double[] itemY = grdVehicle.getItemYs();
+		double proximitySquared = PROXIMITY * PROXIMITY;
+
+		/* On a grid of fewer than three columns or rows, the cells around would include some twice */
+		int columns = grdVehicle.getColumns();
+		int rows = grdVehicle.getRows();
+		int columnSpan = Math.min(3, columns);
+		int rowSpan = Math.min(3, rows);
+		for (int i = 0; i < itemCount; i++)
+		{
+			int firstColumn = (columns < 3) ? 0 : (grdVehicle.getColumn(itemX[i]) - 1);
+			int firstRow = (rows < 3) ? 0 : (grdVehicle.getRow(itemY[i]) - 1);
+			for (int row = firstRow; row < (firstRow + rowSpan); row++)
+			{
+				for (int column = firstColumn; column < (firstColumn + columnSpan); column++)
+				{
+					int wrappedColumn = Math.floorMod(column, columns);
+					int wrappedRow = Math.floorMod(row, rows);
+					int end = grdVehicle.getCellEnd(wrappedColumn, wrappedRow);
+					for (int j = grdVehicle.getCellStart(wrappedColumn, wrappedRow); j < end; j++)
+					{
+						if (j == i)
+						{
+							continue;
+						}
+						double deltaX = getDeltaX(itemX[i], itemX[j]);
+						double deltaY = getDeltaY(itemY[i], itemY[j]);
+						if (((deltaX * deltaX) + (deltaY * deltaY)) <= proximitySquared)
+						{
+							closeVehicles[itemType[i]][itemType[j]]++;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the distance from one x coordinate to another, the short way around if the plain wraps
+	 *
+	 * @param fromX the x coordinate to measure from
+	 * @param toX the x coordinate to measure to
+	 * @return the distance, negative if toX is to the left
+	 */
+	private double getDeltaX(double fromX, double toX)
+	{
+		double deltaX = toX - fromX;
+		if (isWrappingPlain)
+		{
+			/* Both are on the plain, so at most one width away, and cheaper than Math.IEEEremainder */
+			if (deltaX > (xMax / 2.0))
+			{
+				deltaX -= xMax;
+			}
+			else if (deltaX < (-xMax / 2.0))
+			{
+				deltaX += xMax;
+			}
+		}
+		return deltaX;
+	}
+
+	/**
+	 * Get the distance from one y coordinate to another, the short way around if the plain wraps
+	 *
+	 * @param fromY the y coordinate to measure from
+	 * @param toY the y coordinate to measure to
+	 * @return the distance, negative if toY is above
+	 */
+	private double getDeltaY(double fromY, double toY)
+	{
+		double deltaY = toY - fromY;
+		if (isWrappingPlain)
+		{
+			if (deltaY > (yMax / 2.0))
+			{
+				deltaY -= yMax;
+			}
+			else if (deltaY < (-yMax / 2.0))
+			{
+				deltaY += yMax;
+			}
+		}
+		return deltaY;
+	}
+
+	/**
+	 * Add a listener to be given every summary published from now on
+	 *
+	 * @param listener the listener
+	 */
+	void addSummaryListener(SummaryListener listener)
+	{
+		lstSummaryListener.add(listener);
+	}
+
+	/**
+	 * Remove a listener, so it's no longer given summaries
+	 *
+	 * @param listener the listener
+	 */
+	void removeSummaryListener(SummaryListener listener)
+	{
+		lstSummaryListener.remove(listener);
+	}
+
+	/**
+	 * Get the summary published last
+	 *
+	 * @return the summary, or null if none has been published yet
+	 */
+	Summary getLatestSummary()
+	{
+		return latestSummary;
+	}
+
+	/**
+	 * The interface for anything that wants the summaries as they are published
+	 */
+	interface SummaryListener
+	{
+		/**
+		 * Called on the thread that completed the tick, so anything slow here slows the simulation
+		 * down.
+		 *
+		 * @param summary the summary
+		 */
+		void summaryPublished(Summary summary);
+	}
+
+	/**
+	 * This class holds the statistics of every vehicle type as they were when it was published. It
+	 * is immutable, so it can be read from any thread.
+	 */
+	static final class Summary
+	{
+		private final long tick;
+		private final long ticks;
+		private final String[] types;
+		private final int[] typeCount;
+		private final double[] totalDistance;
+		private final double[] totalTurn;
+		private final int columns;
+		private final int rows;
+		private final long[][] occupancy;
+		private final long[][] nearestLightBins;
+		private final double[] totalNearestLight;
+		private final long[][] closeVehicles;
+		private final boolean hasLights;
+
+		/**
+		 * Constructor, copying the running totals
+		 *
+		 * @param analytics the analytics
+		 * @param tck the tick of the simulation
+		 */
+		private Summary(BehaviorAnalytics analytics, long tck)
+		{
+			tick = tck;
+			ticks = analytics.ticks;
+			types = analytics.lstType.toArray(new String[analytics.lstType.size()]);
+			typeCount = analytics.typeCount.clone();
+			totalDistance = analytics.totalDistance.clone();
+			totalTurn = analytics.totalTurn.clone();
+			columns = analytics.grdVehicle.getColumns();
+			rows = analytics.grdVehicle.getRows();
+			occupancy = copy(analytics.occupancy);
+			nearestLightBins = copy(analytics.nearestLightBins);
+			totalNearestLight = analytics.totalNearestLight.clone();
+			closeVehicles = copy(analytics.closeVehicles);
+			hasLights = (analytics.lightX.length > 0);
+		}
+
+		/**
+		 * Copy a table of totals
+		 *
+		 * @param totals the totals
+		 * @return the copy
+		 */
+		private static long[][] copy(long[][] totals)
+		{
+			long[][] copy = new long[totals.length][];
+			for (int i = 0; i < totals.length; i++)
+			{
+				copy[i] = totals[i].clone();
+			}
+			return copy;
+		}
+
+		/**
+		 * Get the tick of the simulation the summary was published at
+		 *
+		 * @return the tick
+		 */
+		long getTick()
+		{
+			return tick;
+		}
+
+		/**
+		 * Get the number of ticks the statistics cover
+		 *
+		 * @return the number of ticks
+		 */
+		long getTicks()
+		{
+			return ticks;
+		}
+
+		/**
+		 * Get the number of vehicle types
+		 *
+		 * @return the number of types
+		 */
+		int getTypeCount()
+		{
+			return types.length;
+		}
+
+		/**
+		 * Get the name of a vehicle type
+		 *
+		 * @param type the index of the type
+		 * @return the name
+		 */
+		String getType(int type)
+		{
+			return types[type];
+		}
+
+		/**
+		 * Get the number of vehicles of a type
+		 *
+		 * @param type the index of the type
+		 * @return the number of vehicles
+		 */
+		int getVehicleCount(int type)
+		{
+			return typeCount[type];
+		}
+
+		/**
+		 * Get the number of times a vehicle of a type moved, over all the ticks
+		 *
+		 * @param type the index of the type
+		 * @return the number of vehicle ticks
+		 */
+		private double getVehicleTicks(int type)
+		{
+			return (double) typeCount[type] * ticks;
+		}
+
+		/**
+		 * Get how far a vehicle of a type moves in a tick, on average
+		 *
+		 * @param type the index of the type
+		 * @return the mean speed, in pixels per tick
+		 */
+		double getMeanSpeed(int type)
+		{
+			return (getVehicleTicks(type) > 0) ? (totalDistance[type] / getVehicleTicks(type)) : 0;
+		}
+
+		/**
+		 * Get how sharply a vehicle of a type turns in a tick, on average
+		 *
+		 * @param type the index of the type
+		 * @return the mean turn rate, in degrees per tick
+		 */
+		double getMeanTurnDegrees(int type)
+		{
+			return (getVehicleTicks(type) > 0) ? Math.toDegrees(totalTurn[type] / getVehicleTicks(type)) : 0;
+		}
+
+		/**
+		 * Get how far a vehicle of a type is from the nearest light, on average
+		 *
+		 * @param type the index of the type
+		 * @return the mean distance, in pixels, or NaN if there are no lights
+		 */
+		double getMeanNearestLight(int type)
+		{
+			return (hasLights && (getVehicleTicks(type) > 0)) ? (totalNearestLight[type] / getVehicleTicks(type))
+					: Double.NaN;
+		}
+
+		/**
+		 * Get how often a vehicle of a type was within a bin of distances of the nearest light. Bin b
+		 * holds the distances from b * BINWIDTH up to (b + 1) * BINWIDTH, and the last bin every
+		 * distance beyond.
+		 *
+		 * @param type the index of the type
+		 * @param bin the bin
+		 * @return the number of vehicle ticks
+		 */
+		long getNearestLightCount(int type, int bin)
+		{
+			return nearestLightBins[type][bin];
+		}
+
+		/**
+		 * Get how many vehicles of one type are within PROXIMITY of a vehicle of another type, on
+		 * average
+		 *
+		 * @param type the index of the type of the vehicle
+		 * @param otherType the index of the type of the vehicles close by
+		 * @return the mean number of vehicles close by
+		 */
+		double getMeanCloseVehicles(int type, int otherType)
+		{
+			return (getVehicleTicks(type) > 0) ? (closeVehicles[type][otherType] / getVehicleTicks(type)) : 0;
+		}
+
+		/**
+		 * Get the number of columns of the heatmap
+		 *
+		 * @return the number of columns
+		 */
+		int getColumns()
+		{
+			return columns;
+		}
+
+		/**
+		 * Get the number of rows of the heatmap
+		 *
+		 * @return the number of rows
+		 */
+		int getRows()
+		{
+			return rows;
+		}
+
+		/**
+		 * Get how often a vehicle of a type was in a cell of the heatmap
+		 *
+		 * @param type the index of the type
+		 * @param column the column of the cell
+		 * @param row the row of the cell
+		 * @return the number of vehicle ticks
+		 */
+		long getOccupancy(int type, int column, int row)
+		{
+			return occupancy[type][(row * columns) + column];
+		}
+
+		/**
+		 * Get the fraction of the cells of the heatmap a vehicle of a type has ever been in
+		 *
+		 * @param type the index of the type
+		 * @return the fraction, from 0 to 1
+		 */
+		double getOccupiedFraction(int type)
+		{
+			int occupied = 0;
+			for (long cellTicks: occupancy[type])
+			{
+				occupied += (cellTicks > 0) ? 1 : 0;
+			}
+			return (double) occupied / occupancy[type].length;
+		}
+
+		/**
+		 * Report the statistics of each vehicle type, one row per type, with the columns tick, type,
+		 * count, meanSpeed, meanTurnDegrees, meanNearestLight, meanCloseVehicles, meanCloseSameType and
+		 * occupiedFraction
+		 *
+		 * @param out where to write the report
+		 */
+		void report(PrintStream out)
+		{
+			for (int type = 0; type < types.length; type++)
+			{
+				double close = 0;
+				for (int otherType = 0; otherType < types.length; otherType++)
+				{
+					close += getMeanCloseVehicles(type, otherType);
+				}
+				out.println(tick + "," + types[type] + "," + typeCount[type] + "," + getMeanSpeed(type) + ","
+						+ getMeanTurnDegrees(type) + "," + getMeanNearestLight(type) + "," + close + ","
+						+ getMeanCloseVehicles(type, type) + "," + getOccupiedFraction(type));
+			}
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * This class reads a checkpoint written by CheckpointWriter, for SimulationEngine to resume the
+ * simulation from. The whole checkpoint is read and checked against its CRC-32 up front, so a
+ * damaged checkpoint is rejected before anything is restored.
+ */
+class CheckpointReader
+{
+	/* The settings the simulation was started with, including the seed it was generated from */
+	private final BatchSettings settings;
+	private final int trigTableSize;
+	private final boolean vectorSensors;
+	private final int lightFieldCellSize;
+	private final double[] lightX;
+	private final double[] lightY;
+	/* The tick and next vehicle id as of the checkpoint */
+	private final long tick;
+	private final int nextVehicleId;
+	/* The id, location and direction of every vehicle, in the order of the engine */
+	private final int[] vehicleIds;
+	private final double[] vehicleX;
+	private final double[] vehicleY;
+	private final double[] vehicleDirection;
+
+	/**
+	 * Constructor, reading the checkpoint
+	 *
+	 * @param file the checkpoint
+	 * @throws IOException if the checkpoint can't be read, isn't a checkpoint, or is damaged
+	 */
+	CheckpointReader(File file) throws IOException
+	{
+		ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		if ((checkpoint.capacity() < (CheckpointWriter.PREAMBLEBYTES + CheckpointWriter.CRCBYTES))
+				|| (checkpoint.getInt() != CheckpointWriter.MAGIC))
+		{
+			throw new IOException(file + " is not a checkpoint");
+		}
+		int version = checkpoint.getInt();
+		/* Version 1 is the same, but without the light field */
+		if ((version != CheckpointWriter.VERSION) && (version != 1))
+		{
+			throw new IOException(file + " is version " + version + " of the checkpoint");
+		}
+		int crcStart = checkpoint.capacity() - CheckpointWriter.CRCBYTES;
+		if (checkpoint.getLong(crcStart) != checksum(checkpoint, crcStart))
+		{
+			throw new IOException(file + " is damaged");
+		}
+
+		int headerBytes = checkpoint.getInt();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint.array(),
+				CheckpointWriter.PREAMBLEBYTES, headerBytes - CheckpointWriter.PREAMBLEBYTES));
+		settings = new BatchSettings();
+		settings.setLightSourceCount(in.readInt());
+		settings.setUncrossedExcitatoryCount(in.readInt());
+		settings.setCrossedExcitatoryCount(in.readInt());
+		settings.setUncrossedInhibitoryCount(in.readInt());
+		settings.setCrossedInhibitoryCount(in.readInt());
+		settings.setUncrossedThresholdCount(in.readInt());
+		settings.setCrossedThresholdCount(in.readInt());
+		settings.setPerceptibleVehicles(in.readBoolean());
+		settings.setDisplayIds(in.readBoolean());
+		settings.setWrappingPlain(in.readBoolean());
+		settings.setDisplaySensors(in.readBoolean());
+		settings.setSensorRangeAngle(in.readInt());
+		settings.setSensorSplayAngle(in.readInt());
+		settings.setSensorGap(in.readInt());
+		settings.setAngleDelta(in.readInt());
+		settings.setMaxSpeed(in.readInt());
+		settings.setMaxAngle(in.readInt());
+		settings.setDarkPlainWidth(in.readInt());
+		settings.setDarkPlainHeight(in.readInt());
+		settings.setLightIntensity(in.readInt());
+		settings.setTimerPause(in.readInt());
+		settings.setMoveThreads(in.readInt());
+		settings.setTiles(in.readInt());
+		settings.setSpriteAngles(in.readInt());
+		settings.setBackToBackTicks(in.readBoolean());
+		settings.setSeed(in.readLong());
+		trigTableSize = in.readInt();
+		vectorSensors = in.readBoolean();
+		lightFieldCellSize = (version == 1) ? 0 : in.readInt();
+		int lightCount = in.readInt();
+		lightX = new double[lightCount];
+		lightY = new double[lightCount];
+		for (int i = 0; i < lightCount; i++)
+		{
+			lightX[i] = in.readDouble();
+			lightY[i] = in.readDouble();
+		}
+		int vehicleCount = in.readInt();
+
+		checkpoint.position(headerBytes);
+		if (checkpoint.remaining() != (CheckpointWriter.COUNTERBYTES + (vehicleCount * CheckpointWriter.VEHICLEBYTES)
+				+ CheckpointWriter.CRCBYTES))
+		{
+			throw new IOException(file + " is damaged");
+		}
+		tick = checkpoint.getLong();
+		nextVehicleId = checkpoint.getInt();
+		vehicleIds = new int[vehicleCount];
+		vehicleX = new double[vehicleCount];
+		vehicleY = new double[vehicleCount];
+		vehicleDirection = new double[vehicleCount];
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			vehicleIds[i] = checkpoint.getInt();
+			vehicleX[i] = checkpoint.getDouble();
+			vehicleY[i] = checkpoint.getDouble();
+			vehicleDirection[i] = checkpoint.getDouble();
+		}
+	}
+
+	/**
+	 * Work out the CRC-32 of the start of a buffer, leaving the buffer as it is
+	 *
+	 * @param source the buffer
+	 * @param length the number of bytes from the start of the buffer to include
+	 * @return the CRC-32
+	 */
+	static long checksum(ByteBuffer source, int length)
+	{
+		ByteBuffer bytes = source.duplicate();
+		bytes.position(0);
+		bytes.limit(length);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the settings the simulation was started with. The seed is the one the scenario was
+	 * generated from.
+	 *
+	 * @return the settings
+	 */
+	BatchSettings getSettings()
+	{
+		return settings;
+	}
+
+	/**
+	 * Get a snapshot of the settings the simulation was started with, including the size of the
+	 * sine table, whether the sensors used a sensor kernel and the size of the cells of the light field
+	 *
+	 * @return the snapshot
+	 */
+	SimulationConfig getConfig()
+	{
+		return new SimulationConfig(settings).withTrigTableSize(trigTableSize).withVectorSensors(vectorSensors)
+				.withLightFieldCellSize(lightFieldCellSize);
+	}
+
+	/**
+	 * Get the number of ticks completed as of the checkpoint
+	 *
+	 * @return the number of ticks
+	 */
+	long getTick()
+	{
+		return tick;
+	}
+
+	/**
+	 * Get the id the next vehicle created was to be given, as of the checkpoint
+	 *
+	 * @return the next vehicle id
+	 */
+	int getNextVehicleId()
+	{
+		return nextVehicleId;
+	}
+
+	/**
+	 * Get the number of lights
+	 *
+	 * @return the number of lights
+	 */
+	int getLightCount()
+	{
+		return lightX.length;
+	}
+
+	/**
+	 * Get the x coordinate of a light
+	 *
+	 * @param index the index of the light
+	 * @return the x coordinate
+	 */
+	double getLightX(int index)
+	{
+		return lightX[index];
+	}
+
+	/**
+	 * Get the y coordinate of a light
+	 *
+	 * @param index the index of the light
+	 * @return the y coordinate
+	 */
+	double getLightY(int index)
+	{
+		return lightY[index];
+	}
+
+	/**
+	 * Get the number of vehicles
+	 *
+	 * @return the number of vehicles
+	 */
+	int getVehicleCount()
+	{
+		return vehicleIds.length;
+	}
+
+	/**
+	 * Get the id of a vehicle
+	 *
+	 * @param index the index of the vehicle
+	 * @return the id
+	 */
+	int getVehicleId(int index)
+	{
+		return vehicleIds[index];
+	}
+
+	/**
+	 * Get the x coordinate of a vehicle
+	 *
+	 * @param index the index of the vehicle
+	 * @return the x coordinate
+	 */
+	double getVehicleX(int index)
+	{
+		return vehicleX[index];
+	}
+
+	/**
+	 * Get the y coordinate of a vehicle
+	 *
+	 * @param index the index of the vehicle
+	 * @return the y coordinate
+	 */
+	double getVehicleY(int index)
+	{
+		return vehicleY[index];
+	}
+
+	/**
+	 * Get the direction of a vehicle
+	 *
+	 * @param index the index of the vehicle
+	 * @return the direction, in radians
+	 */
+	double getVehicleDirection(int index)
+	{
+		return vehicleDirection[index];
+	}
+}
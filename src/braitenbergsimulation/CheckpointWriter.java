@@ -0,0 +1,359 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class checkpoints a simulation to a file, so a long run can be stopped and later resumed
+ * exactly where it left off with CheckpointReader. Registered as a tick listener, it takes a
+ * checkpoint every so many ticks, replacing the last one.
+ *
+ * A checkpoint holds the settings, including the seed the scenario was generated from, the number
+ * of ticks completed, the next vehicle id, the location of every light, and the id, location and
+ * direction of every vehicle. The vehicles move deterministically and nothing random happens once
+ * the scenario is generated, so that's everything needed to carry on the run bit for bit. The
+ * checkpoint ends with a CRC-32 of everything before it.
+ *
+ * Only copying the locations and directions happens on the thread that runs the ticks. The
+ * checkpoint is written by a thread of its own, to a temporary file that's then moved over the
+ * last checkpoint, so a run killed while writing still has its last checkpoint intact. If the last
+ * checkpoint is still being written when the next is due, the next is skipped rather than holding
+ * up the simulation.
+ */
+class CheckpointWriter implements TickListener, Closeable
+{
+	/* Identifies a checkpoint, "BRCK" */
+	static final int MAGIC = 0x4252434B;
+	static final int VERSION = 2;
+	/* The bytes of the magic number, version and header length */
+	static final int PREAMBLEBYTES = 12;
+	/* The bytes of the tick number and next vehicle id */
+	static final int COUNTERBYTES = 12;
+	/* The bytes of the id, x coordinate, y coordinate and direction of one vehicle */
+	static final int VEHICLEBYTES = 28;
+	/* The bytes of the CRC-32 that ends a checkpoint */
+	static final int CRCBYTES = 8;
+
+	private final File file;
+	private final File tempFile;
+	/* The number of ticks between checkpoints */
+	private final int interval;
+
+	/* The header, which describes everything in the simulation that doesn't move */
+	private final byte[] header;
+	/* The vehicle ids, which never change, and their locations and directions as of the checkpoint */
+	private final int[] vehicleIds;
+	private final double[] x;
+	private final double[] y;
+	private final double[] direction;
+	/* The tick and next vehicle id as of the checkpoint */
+	private long tick;
+	private int nextId;
+	/* Reused for writing the checkpoints */
+	private final ByteBuffer buffer;
+
+	private final ExecutorService writeExecutor;
+	/* Set while a checkpoint is being written, when the locations mustn't be copied over */
+	private final AtomicBoolean writing;
+	private final AtomicLong writtenCheckpoints;
+	private final AtomicLong skippedCheckpoints;
+
+	/* The first failure to write a checkpoint, reported when the writer is closed */
+	private volatile IOException failure;
+
+	/**
+	 * Constructor
+	 *
+	 * @param fl the file to write the checkpoints to, replacing any file already there
+	 * @param engine the engine running the simulation
+	 * @param settings the settings the simulation was started with
+	 * @param ntrvl the number of ticks between checkpoints
+	 * @throws IOException if the header can't be put together
+	 */
+	CheckpointWriter(File fl, SimulationEngine engine, SimulationConfig settings, int ntrvl) throws IOException
+	{
+		if (ntrvl < 1)
+		{
+			throw new IllegalArgumentException("The interval must be at least one tick: " + ntrvl);
+		}
+		file = fl.getAbsoluteFile();
+		tempFile = new File(file.getPath() + ".tmp");
+		interval = ntrvl;
+		header = makeHeader(engine, settings);
+
+		List<Vehicle> lstVehicle = engine.getVehicles();
+		vehicleIds = new int[lstVehicle.size()];
+		for (int i = 0; i < vehicleIds.length; i++)
+		{
+			vehicleIds[i] = lstVehicle.get(i).id;
+		}
+		x = new double[vehicleIds.length];
+		y = new double[vehicleIds.length];
+		direction = new double[vehicleIds.length];
+		buffer = ByteBuffer.allocateDirect(header.length + COUNTERBYTES + (vehicleIds.length * VEHICLEBYTES)
+				+ CRCBYTES);
+
+		writeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "Checkpoint writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		writing = new AtomicBoolean();
+		writtenCheckpoints = new AtomicLong();
+		skippedCheckpoints = new AtomicLong();
+	}
+
+	/**
+	 * Put together the header. The angles are recorded in whole degrees, as the settings take them.
+	 *
+	 * @param engine the engine running the simulation
+	 * @param settings the settings the simulation was started with
+	 * @return the header
+	 * @throws IOException if the header can't be put together
+	 */
+	private static byte[] makeHeader(SimulationEngine engine, SimulationConfig settings) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(settings.getLightSourceCount());
+		out.writeInt(settings.getUncrossedExcitatoryCount());
+		out.writeInt(settings.getCrossedExcitatoryCount());
+		out.writeInt(settings.getUncrossedInhibitoryCount());
+		out.writeInt(settings.getCrossedInhibitoryCount());
+		out.writeInt(settings.getUncrossedThresholdCount());
+		out.writeInt(settings.getCrossedThresholdCount());
+		out.writeBoolean(settings.isPerceptibleVehicles());
+		out.writeBoolean(settings.isDisplayIds());
+		out.writeBoolean(settings.isWrappingPlain());
+		out.writeBoolean(settings.isDisplaySensors());
+		out.writeInt(toDegrees(settings.getSensorRangeAngle()));
+		out.writeInt(toDegrees(settings.getSensorSplayAngle()));
+		out.writeInt(settings.getSensorGap());
+		out.writeInt(toDegrees(settings.getAngleDelta()));
+		out.writeInt(settings.getMaxSpeed());
+		out.writeInt(toDegrees(settings.getMaxAngle()));
+		out.writeInt(settings.getDarkPlainWidth());
+		out.writeInt(settings.getDarkPlainHeight());
+		out.writeInt(settings.getLightIntensity());
+		out.writeInt(settings.getTimerPause());
+		out.writeInt(settings.getMoveThreads());
+		out.writeInt(settings.getTiles());
+		out.writeInt(settings.getSpriteAngles());
+		out.writeBoolean(settings.isBackToBackTicks());
+		/* The seed actually used, for reporting, and the snapshot's own settings */
+		out.writeLong(engine.getSeed());
+		out.writeInt(settings.getTrigTableSize());
+		out.writeBoolean(settings.getSensorKernel() != null);
+		/* The light field changes the pulses, so a restored run must use the same one */
+		out.writeInt(settings.getLightFieldCellSize());
+
+		/* The lights never move */
+		List<LightSource> lstLight = engine.getLights();
+		out.writeInt(lstLight.size());
+		for (LightSource aLight: lstLight)
+		{
+			out.writeDouble(aLight.getX());
+			out.writeDouble(aLight.getY());
+		}
+		out.writeInt(engine.getVehicles().size());
+		out.flush();
+
+		ByteBuffer preamble = ByteBuffer.allocate(PREAMBLEBYTES + bytes.size());
+		preamble.putInt(MAGIC);
+		preamble.putInt(VERSION);
+		preamble.putInt(preamble.capacity());
+		preamble.put(bytes.toByteArray());
+		return preamble.array();
+	}
+
+	/**
+	 * Convert an angle of the settings back to the whole degrees it was configured in
+	 *
+	 * @param angle the angle, in radians
+	 * @return the angle, in degrees
+	 */
+	private static int toDegrees(double angle)
+	{
+		return (int) Math.round(Math.toDegrees(angle));
+	}
+
+	/**
+	 * Take a checkpoint if one is due, unless the last one is still being written
+	 *
+	 * @param engine the engine that completed the tick
+	 */
+	@Override
+	public void tickCompleted(SimulationEngine engine)
+	{
+		if ((engine.getTickCount() % interval) == 0)
+		{
+			checkpoint(engine);
+		}
+	}
+
+	/**
+	 * Take a checkpoint now, unless the last one is still being written. Only call this between
+	 * ticks, on the thread that runs them.
+	 *
+	 * @param engine the engine running the simulation
+	 * @return true if the checkpoint is being written, false if it was skipped
+	 */
+	boolean checkpoint(SimulationEngine engine)
+	{
+		if (!writing.compareAndSet(false, true))
+		{
+			skippedCheckpoints.incrementAndGet();
+			return false;
+		}
+		tick = engine.getTickCount();
+		nextId = Vehicle.getNextId();
+		engine.copyLocationDirection(x, y, direction);
+		writeExecutor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					write();
+					writtenCheckpoints.incrementAndGet();
+				}
+				catch (IOException ioexc)
+				{
+					if (failure == null)
+					{
+						failure = ioexc;
+					}
+				}
+				finally
+				{
+					writing.set(false);
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Write the checkpoint copied last to the temporary file, then move it over the last checkpoint
+	 *
+	 * @throws IOException if the checkpoint can't be written
+	 */
+	private void write() throws IOException
+	{
+		buffer.clear();
+		buffer.put(header);
+		buffer.putLong(tick);
+		buffer.putInt(nextId);
+		for (int i = 0; i < vehicleIds.length; i++)
+		{
+			buffer.putInt(vehicleIds[i]);
+			buffer.putDouble(x[i]);
+			buffer.putDouble(y[i]);
+			buffer.putDouble(direction[i]);
+		}
+		buffer.putLong(CheckpointReader.checksum(buffer, buffer.position()));
+		buffer.flip();
+
+		FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		finally
+		{
+			channel.close();
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Get the number of checkpoints written so far
+	 *
+	 * @return the number of checkpoints
+	 */
+	long getWrittenCheckpoints()
+	{
+		return writtenCheckpoints.get();
+	}
+
+	/**
+	 * Get the number of checkpoints skipped because the one before was still being written
+	 *
+	 * @return the number of checkpoints skipped
+	 */
+	long getSkippedCheckpoints()
+	{
+		return skippedCheckpoints.get();
+	}
+
+	/**
+	 * Wait for the checkpoint being written, if there is one, and stop the thread that writes them.
+	 * Stop the writer being told about ticks first.
+	 *
+	 * @throws IOException if a checkpoint couldn't be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		writeExecutor.shutdown();
+		try
+		{
+			writeExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException iexc)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", iexc);
+		}
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+}
@@ -23,11 +23,11 @@ import javax.swing.JTabbedPane;
 /**
  * This class wraps the three configuration panels in a set of three tabbed panes, and
  * supplies accessors and mutators to the various attributes in the three configuration
- * panels.
+ * panels. The accessors make up the settings the simulation is configured with.
  * 
  * @author Douglas B. Caulkins
  */
-class ConfigurationPanel extends JTabbedPane
+class ConfigurationPanel extends JTabbedPane implements SimulationSettings
 {
 	private static final long serialVersionUID = -8075669938586550214L;
 
@@ -252,6 +252,57 @@ class ConfigurationPanel extends JTabbedPane
 	{
 		pnlMiscSettings.setTimerPause(pause);
 	}
+	
+	/**
+	 * Set the number of threads that move the vehicles. With more than one thread, the vehicles
+	 * are moved in parallel.
+	 * 
+	 * @param threads the number of threads that move the vehicles
+	 */
+	void setMoveThreads(int threads)
+	{
+		pnlMiscSettings.setMoveThreads(threads);
+	}
+	
+	/**
+	 * Set the number of tiles the dark plain is split into for moving the vehicles
+	 * 
+	 * @param tls the number of tiles, or 0 not to split the dark plain
+	 */
+	void setTiles(int tls)
+	{
+		pnlMiscSettings.setTiles(tls);
+	}
+	
+	/**
+	 * Set the seed for generating the starting scenario
+	 * 
+	 * @param seed the seed, or 0 for a different scenario every time
+	 */
+	void setSeed(long seed)
+	{
+		pnlMiscSettings.setSeed(seed);
+	}
+	
+	/**
+	 * Set the number of headings the vehicles are drawn at
+	 * 
+	 * @param angles the number of headings, or 0 to draw every vehicle exactly
+	 */
+	void setSpriteAngles(int angles)
+	{
+		pnlMiscSettings.setSpriteAngles(angles);
+	}
+	
+	/**
+	 * Set whether each tick starts as soon as the last one ends
+	 * 
+	 * @param b true if the ticks run back to back
+	 */
+	void setBackToBackTicks(boolean b)
+	{
+		pnlMiscSettings.setBackToBackTicks(b);
+	}
 
 	/* Accessors */
 
@@ -260,7 +311,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getLightSourceCount()
+	public int getLightSourceCount()
 	{
 		return pnlCountSettings.getLightSourceCount();
 	}
@@ -270,7 +321,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getUncrossedExcitatoryCount()
+	public int getUncrossedExcitatoryCount()
 	{
 		return pnlCountSettings.getUncrossedExcitatoryCount();
 	}
@@ -280,7 +331,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getCrossedExcitatoryCount()
+	public int getCrossedExcitatoryCount()
 	{
 		return pnlCountSettings.getCrossedExcitatoryCount();
 	}
@@ -290,7 +341,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getUncrossedInhibitoryCount()
+	public int getUncrossedInhibitoryCount()
 	{
 		return pnlCountSettings.getUncrossedInhibitoryCount();
 	}
@@ -300,7 +351,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getCrossedInhibitoryCount()
+	public int getCrossedInhibitoryCount()
 	{
 		return pnlCountSettings.getCrossedInhibitoryCount();
 	}
@@ -310,7 +361,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getUncrossedThresholdCount()
+	public int getUncrossedThresholdCount()
 	{
 		return pnlCountSettings.getUncrossedThresholdCount();
 	}
@@ -320,7 +371,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getCrossedThresholdCount()
+	public int getCrossedThresholdCount()
 	{
 		return pnlCountSettings.getCrossedThresholdCount();
 	}
@@ -330,7 +381,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return true if vehicles perceive other vehicles
 	 */
-	boolean isPerceptibleVehicles()
+	public boolean isPerceptibleVehicles()
 	{
 		return pnlVehicleSettings.isPerceptibleVehicles();
 	}
@@ -340,7 +391,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return true if vehicle ids should be displayed
 	 */
-	boolean isDisplayIds()
+	public boolean isDisplayIds()
 	{
 		return pnlVehicleSettings.isDisplayIds();
 	}
@@ -350,7 +401,7 @@ class ConfigurationPanel extends JTabbedPane
          * 
          * @return true if vehicle wraps (vs. reflects) on wall collision
          */
-        boolean isWrappingPlain()
+        public boolean isWrappingPlain()
         {
                 return pnlVehicleSettings.isWrappingPlain();
         }
@@ -360,7 +411,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return true if vehicle sensors should be displayed
 	 */
-	boolean isDisplaySensors()
+	public boolean isDisplaySensors()
 	{
 		return pnlVehicleSettings.isDisplaySensors();
 	}
@@ -371,7 +422,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the sensor range angle, in radians
 	 */
-	double getSensorRangeAngle()
+	public double getSensorRangeAngle()
 	{
 		return pnlVehicleSettings.getSensorRangeAngle();
 	}
@@ -382,7 +433,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the sensor splay angle, in radians
 	 */
-	double getSensorSplayAngle()
+	public double getSensorSplayAngle()
 	{
 		return pnlVehicleSettings.getSensorSplayAngle();
 	}
@@ -392,7 +443,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of vehicles
 	 */
-	int getSensorGap()
+	public int getSensorGap()
 	{
 		return pnlVehicleSettings.getSensorGap();
 	}
@@ -402,7 +453,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the angle increment, in radians
 	 */
-	double getAngleDelta()
+	public double getAngleDelta()
 	{
 		return pnlVehicleSettings.getAngleDelta();
 	}
@@ -412,7 +463,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the maximum speed
 	 */
-	int getMaxSpeed()
+	public int getMaxSpeed()
 	{
 		return pnlVehicleSettings.getMaxSpeed();
 	}
@@ -422,7 +473,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the maximum angle, in radians
 	 */
-	double getMaxAngle()
+	public double getMaxAngle()
 	{
 		return pnlVehicleSettings.getMaxAngle();
 	}
@@ -432,7 +483,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the width of the dark plain, in pixels
 	 */
-	int getDarkPlainWidth()
+	public int getDarkPlainWidth()
 	{
 		return pnlMiscSettings.getDarkPlainWidth();
 	}
@@ -442,7 +493,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the height of the dark plain, in pixels
 	 */
-	int getDarkPlainHeight()
+	public int getDarkPlainHeight()
 	{
 		return pnlMiscSettings.getDarkPlainHeight();
 	}
@@ -452,7 +503,7 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the light intensity
 	 */
-	int getLightIntensity()
+	public int getLightIntensity()
 	{
 		return pnlMiscSettings.getLightIntensity();
 	}
@@ -462,8 +513,58 @@ class ConfigurationPanel extends JTabbedPane
 	 * 
 	 * @return the number of microseconds the timer sleeps
 	 */
-	int getTimerPause()
+	public int getTimerPause()
 	{
 		return pnlMiscSettings.getTimerPause();
 	}
+	
+	/**
+	 * Get the number of threads that move the vehicles
+	 * 
+	 * @return the number of threads that move the vehicles
+	 */
+	public int getMoveThreads()
+	{
+		return pnlMiscSettings.getMoveThreads();
+	}
+	
+	/**
+	 * Get the number of tiles the dark plain is split into for moving the vehicles
+	 * 
+	 * @return the number of tiles, or 0 not to split the dark plain
+	 */
+	public int getTiles()
+	{
+		return pnlMiscSettings.getTiles();
+	}
+	
+	/**
+	 * Get the seed for generating the starting scenario
+	 * 
+	 * @return the seed, or 0 for a different scenario every time
+	 */
+	public long getSeed()
+	{
+		return pnlMiscSettings.getSeed();
+	}
+	
+	/**
+	 * Get the number of headings the vehicles are drawn at
+	 * 
+	 * @return the number of headings, or 0 to draw every vehicle exactly
+	 */
+	public int getSpriteAngles()
+	{
+		return pnlMiscSettings.getSpriteAngles();
+	}
+	
+	/**
+	 * Determine if each tick starts as soon as the last one ends
+	 * 
+	 * @return true if the ticks run back to back
+	 */
+	public boolean isBackToBackTicks()
+	{
+		return pnlMiscSettings.isBackToBackTicks();
+	}
 }
\ No newline at end of file
@@ -21,11 +21,17 @@ package braitenbergsimulation;
 import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.Timer;
 
 /**
  * This panel contains the simulated dark plain where the vehicles roam.
@@ -35,6 +41,8 @@ import javax.swing.JScrollPane;
 class DarkPlainFramePanel extends JPanel
 {
 	private static final long serialVersionUID = -8209612104407716073L;
+	/* How often the rate of the simulation is shown */
+	private static final int RATEUPDATEMS = 500;
 	
 	/* 
 	 * Used for configuring the number of lights, the number of vehicles and whether vehicles perceive
@@ -43,6 +51,21 @@ class DarkPlainFramePanel extends JPanel
 	private final ConfigurationPanel pnlConfiguration;
 	/* This button starts and stops the simulation. */
 	private final JButton btnStartStop;
+	/* This button starts and stops recording the trajectories of the vehicles */
+	private final JButton btnRecord;
+	/* This button starts and stops checkpointing the simulation */
+	private final JButton btnCheckpoint;
+	/* This button restores a checkpointed simulation, and carries on running it */
+	private final JButton btnRestore;
+	/* This label shows the seed of the current scenario, for replaying it */
+	private final JLabel lblSeed;
+	/* This label shows how fast the simulation is running, updated by the timer */
+	private final JLabel lblRate;
+	private final Timer tmrRate;
+	/* This check box shows the metrics of the simulation over the dark plain */
+	private final JCheckBox cbxMetrics;
+	/* This check box analyzes how the vehicles behave, and shows it over the dark plain */
+	private final JCheckBox cbxBehavior;
 	/* This panel contains a key to the colors of the various vehicle types */
 	private final JPanel pnlKey;
 	/* This panel contains the current simulated dark plain */
@@ -60,10 +83,21 @@ class DarkPlainFramePanel extends JPanel
 		pnlDarkPlain = new DarkPlainPanel(pnlConfig);
 		pnlKey = VehicleRenderer.getVehicleKeyPanel();
 		btnStartStop = new JButton("Start");
+		btnRecord = new JButton("Record...");
+		btnRecord.setEnabled(false);
+		btnCheckpoint = new JButton("Checkpoint...");
+		btnCheckpoint.setEnabled(false);
+		btnRestore = new JButton("Restore...");
+		lblSeed = new JLabel();
+		lblRate = new JLabel();
+		tmrRate = new Timer(RATEUPDATEMS, null);
+		cbxMetrics = new JCheckBox("Metrics");
+		cbxBehavior = new JCheckBox("Behavior");
 		
 		/* Layout all the components */
 		layoutComponents();
 		addListeners();
+		tmrRate.start();
 	}
 	
 	/**
@@ -80,6 +114,13 @@ class DarkPlainFramePanel extends JPanel
 		add(spPlainFrame, BorderLayout.CENTER);
 		JPanel pnlButton = new JPanel();
 		pnlButton.add(btnStartStop);
+		pnlButton.add(btnRecord);
+		pnlButton.add(btnCheckpoint);
+		pnlButton.add(btnRestore);
+		pnlButton.add(lblSeed);
+		pnlButton.add(lblRate);
+		pnlButton.add(cbxMetrics);
+		pnlButton.add(cbxBehavior);
 		add(pnlButton, BorderLayout.SOUTH);
 	}
 
@@ -106,11 +147,170 @@ class DarkPlainFramePanel extends JPanel
 				else
 				{
 					pnlDarkPlain.updateSettings(pnlConfiguration);
+					lblSeed.setText("Seed : " + pnlDarkPlain.getSeed());
+					btnRecord.setText("Record...");
+					btnRecord.setEnabled(true);
+					btnCheckpoint.setText("Checkpoint...");
+					btnCheckpoint.setEnabled(true);
 					pnlDarkPlain.start();
 					btnStartStop.setText("Stop");
 				}
 			}
 		});
+
+		/* The timer shows how fast the simulation is running */
+		tmrRate.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = -1787542069950460245L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				lblRate.setText(String.format("Ticks/s : %.1f  Tick : %.2f ms  Late Ticks : %d  Dropped Frames : %d",
+						pnlDarkPlain.getTicksPerSecond(), pnlDarkPlain.getMeanTickMs(),
+						pnlDarkPlain.getLateTicks(), pnlDarkPlain.getDroppedFrames()));
+				/* A tick that fails stops the simulation */
+				if (!pnlDarkPlain.isRunning() && btnStartStop.getText().equals("Stop"))
+				{
+					btnStartStop.setText("Start");
+				}
+			}
+		});
+
+		/* The check box shows or hides the metrics over the dark plain */
+		cbxMetrics.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = 3902714586627230719L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				pnlDarkPlain.setMetricsOverlay(cbxMetrics.isSelected());
+			}
+		});
+
+		/* The check box starts or stops analyzing how the vehicles behave, shown over the dark plain */
+		cbxBehavior.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = -6330471824591837702L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				pnlDarkPlain.setBehaviorOverlay(cbxBehavior.isSelected());
+			}
+		});
+
+		/* The button starts or stops recording the trajectories of the vehicles */
+		btnRecord.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = 6217958842374069213L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				try
+				{
+					/* If the trajectories are being recorded, stop recording them */
+					if (pnlDarkPlain.isRecording())
+					{
+						pnlDarkPlain.stopRecording();
+						btnRecord.setText("Record...");
+					}
+					/* Else ask where to record them, and start recording */
+					else
+					{
+						JFileChooser chooser = new JFileChooser();
+						if (chooser.showSaveDialog(DarkPlainFramePanel.this) == JFileChooser.APPROVE_OPTION)
+						{
+							pnlDarkPlain.startRecording(chooser.getSelectedFile());
+							btnRecord.setText("Stop Recording");
+						}
+					}
+				}
+				catch (IOException ioexc)
+				{
+					btnRecord.setText("Record...");
+					JOptionPane.showMessageDialog(DarkPlainFramePanel.this, ioexc.getMessage(),
+							"Recording Failed", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		});
+
+		/* The button starts or stops checkpointing the simulation */
+		btnCheckpoint.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = -2871062514372290865L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				try
+				{
+					/* If the simulation is being checkpointed, stop checkpointing it */
+					if (pnlDarkPlain.isCheckpointing())
+					{
+						pnlDarkPlain.stopCheckpointing();
+						btnCheckpoint.setText("Checkpoint...");
+					}
+					/* Else ask where to checkpoint it, and start checkpointing */
+					else
+					{
+						JFileChooser chooser = new JFileChooser();
+						if (chooser.showSaveDialog(DarkPlainFramePanel.this) == JFileChooser.APPROVE_OPTION)
+						{
+							pnlDarkPlain.startCheckpointing(chooser.getSelectedFile());
+							btnCheckpoint.setText("Stop Checkpointing");
+						}
+					}
+				}
+				catch (IOException ioexc)
+				{
+					btnCheckpoint.setText("Checkpoint...");
+					JOptionPane.showMessageDialog(DarkPlainFramePanel.this, ioexc.getMessage(),
+							"Checkpointing Failed", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		});
+
+		/* The button restores a checkpointed simulation and carries on running it */
+		btnRestore.addActionListener(new AbstractAction() 
+		{
+			private static final long serialVersionUID = 4633518620297349706L;
+			
+			@Override
+			public void actionPerformed(ActionEvent aevt) 
+			{
+				JFileChooser chooser = new JFileChooser();
+				if (chooser.showOpenDialog(DarkPlainFramePanel.this) != JFileChooser.APPROVE_OPTION)
+				{
+					return;
+				}
+				/* Stop the simulation if it's running */
+				if (pnlDarkPlain.isRunning())
+				{
+					pnlDarkPlain.stop();
+					btnStartStop.setText("Start");
+				}
+				try
+				{
+					pnlDarkPlain.restore(chooser.getSelectedFile());
+				}
+				catch (IOException ioexc)
+				{
+					JOptionPane.showMessageDialog(DarkPlainFramePanel.this, ioexc.getMessage(),
+							"Restore Failed", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				lblSeed.setText("Seed : " + pnlDarkPlain.getSeed());
+				btnRecord.setText("Record...");
+				btnRecord.setEnabled(true);
+				btnCheckpoint.setText("Checkpoint...");
+				btnCheckpoint.setEnabled(true);
+				pnlDarkPlain.start();
+				btnStartStop.setText("Stop");
+			}
+		});
 	}
 	
 	/**
@@ -125,6 +325,11 @@ class DarkPlainFramePanel extends JPanel
 		}
 		/* Start the simulation */
 		pnlDarkPlain.updateSettings(pnlConfiguration);
+		lblSeed.setText("Seed : " + pnlDarkPlain.getSeed());
+		btnRecord.setText("Record...");
+		btnRecord.setEnabled(true);
+		btnCheckpoint.setText("Checkpoint...");
+		btnCheckpoint.setEnabled(true);
 		pnlDarkPlain.start();
 		btnStartStop.setText("Stop");		
 	}
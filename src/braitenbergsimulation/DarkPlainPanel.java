@@ -20,20 +20,24 @@ package braitenbergsimulation;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics;
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ScheduledFuture;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.swing.JPanel;
 
 /**
- * This class simulates the dark plain populated with light sources and the various
- * Braitenberg vehicles.
+ * This class displays the dark plain populated with light sources and the various
+ * Braitenberg vehicles. The simulation itself is run by a SimulationEngine, and the
+ * frames are drawn by a FrameRenderer, so painting only copies the latest frame.
  * 
  * @author Douglas B. Caulkins
  */
@@ -41,18 +45,43 @@ public class DarkPlainPanel extends JPanel implements Runnable
 {
 	private static final long serialVersionUID = -387481773815979595L;
 
+	/* How the metrics are drawn over the dark plain */
+	private static final Font OVERLAYFONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+	private static final Color OVERLAYBACKGROUND = new Color(0, 0, 0, 160);
+	private static final int OVERLAYMARGIN = 4;
+	/* The number of ticks between checkpoints */
+	private static final int CHECKPOINTINTERVAL = 1000;
+	/* The number of ticks between summaries of how the vehicles behave */
+	private static final int ANALYTICSINTERVAL = 100;
+
 	private int xMax;
 	private int yMax;
 
-	private final List<LightSource> lstLight;
-	private final List<Vehicle> lstVehicle;
-	private final List<PerceptibleItem> lstPerceptible;
-	
-	private CountDownLatch paintedGate;
+	/* The engine that simulates the lights and vehicles on this dark plain */
+	private final SimulationEngine engine;
+	/* The settings the current lights and vehicles were created with */
+	private SimulationConfig config;
+	/* The log the trajectories of the vehicles are recorded to, or null if they aren't recorded */
+	private volatile TrajectoryWriter trajectoryWriter;
+	/* Checkpoints the simulation, or null if it isn't checkpointed */
+	private volatile CheckpointWriter checkpointWriter;
 	
-	private final long sleepMs;
+	/* Draws the frames, off both the simulation thread and the event dispatch thread */
+	private final FrameRenderer renderer;
+	/* The lights and vehicles currently on this dark plain, for drawing */
+	private volatile FrameRenderer.Scenario scenario;
+
 	private final ScheduledThreadPoolExecutor moveExecutor;
-	private ScheduledFuture<?> moveTask;
+	/* Runs the ticks on the move executor, at the timer pause or back to back */
+	private final TickScheduler tickScheduler;
+	/* The frames the renderer had dropped when the ticks were last started */
+	private long droppedFramesAtStart;
+	/* Whether the metrics of the simulation are drawn over the dark plain */
+	private volatile boolean metricsOverlay;
+	/* Whether how the vehicles behave is analyzed and drawn over the dark plain */
+	private volatile boolean behaviorOverlay;
+	/* Analyzes how the vehicles behave, or null if they aren't analyzed */
+	private volatile BehaviorAnalytics behaviorAnalytics;
 
 	/**
 	 * Constructor
@@ -61,16 +90,17 @@ public class DarkPlainPanel extends JPanel implements Runnable
 	 */
 	DarkPlainPanel(ConfigurationPanel pnlConfig)
 	{
-		xMax = pnlConfig.getDarkPlainWidth();
-		yMax = pnlConfig.getDarkPlainHeight();
-		sleepMs = pnlConfig.getTimerPause();
+		config = new SimulationConfig(pnlConfig);
+		xMax = config.getDarkPlainWidth();
+		yMax = config.getDarkPlainHeight();
 		
-		/* Create the lists of lights, vehicles and perceptible objects */
-		lstLight = new ArrayList<LightSource>();
-		lstVehicle = new ArrayList<Vehicle>();
-		lstPerceptible = new ArrayList<PerceptibleItem>();
+		/* Create the engine, which holds the lists of lights, vehicles and perceptible objects */
+		engine = new SimulationEngine(config);
 
 		moveExecutor = new ScheduledThreadPoolExecutor(1);
+		tickScheduler = new TickScheduler(moveExecutor, this);
+		renderer = new FrameRenderer(this, engine.getMetrics());
+		registerMetrics(engine.getMetrics());
 
 		/* Set the basic colors of the dark plain */
 		setBackground(Color.BLACK);
@@ -82,6 +112,30 @@ public class DarkPlainPanel extends JPanel implements Runnable
 		setPreferredSize(new Dimension(xMax, yMax));
 	}
 	
+	/**
+	 * Register the metrics of the simulation with the platform MBean server, replacing any metrics
+	 * registered before, so they can be watched from a JMX client
+	 * 
+	 * @param metrics the metrics
+	 */
+	private static void registerMetrics(SimulationMetrics metrics)
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(SimulationMetrics.OBJECTNAME);
+			if (server.isRegistered(name))
+			{
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(metrics, name);
+		}
+		catch (JMException jmexc)
+		{
+			jmexc.printStackTrace();
+		}
+	}
+
 	/**
 	 * Update the various settings of the vehicles in this dark plain
 	 * 
@@ -89,181 +143,505 @@ public class DarkPlainPanel extends JPanel implements Runnable
 	 */
 	void updateSettings(ConfigurationPanel pnlConfiguration)
 	{
-		xMax = pnlConfiguration.getDarkPlainWidth();
-		yMax = pnlConfiguration.getDarkPlainHeight();
+		/*
+		 * Take a snapshot of the settings here, on the event dispatch thread. The simulation only
+		 * ever reads the snapshot, never the Swing components of the configuration panel.
+		 */
+		config = new SimulationConfig(pnlConfiguration);
+		xMax = config.getDarkPlainWidth();
+		yMax = config.getDarkPlainHeight();
+
+		/* A recording or checkpoints are of one set of lights and vehicles, so they end with them */
+		stopRecordingAndCheckpointing();
 		
 		/* Set the size of the dark plain */
 		setMinimumSize(new Dimension(xMax, yMax));			
 		setMaximumSize(new Dimension(xMax, yMax));			
 		setPreferredSize(new Dimension(xMax, yMax));
-		
-		/* Clear out the lists */
-		lstLight.clear();
-		lstVehicle.clear();
-		lstPerceptible.clear();
-		
-		/* Add a number of lights at random locations, based on the light count setting */
-		for (int i = 0; i < pnlConfiguration.getLightSourceCount(); i++)
-		{
-			lstLight.add(new LightSource(pnlConfiguration, createRandomPoint()));				
-		}
 
-		/* 
-		 * Add the various types of Braitenberg vehicles at random locations and 
-		 * facing random directions.
-		 */
-		for (int i = 0; i < pnlConfiguration.getUncrossedExcitatoryCount(); i++)
+		/* Populate the dark plain with new lights and vehicles between ticks, and draw where they start */
+		try
 		{
-			lstVehicle.add(Vehicle.createUncrossedExcitatoryVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			runBetweenTicks(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					engine.updateSettings(config);
+					restartAnalytics();
+					return null;
+				}
+			});
 		}
-		for (int i = 0; i < pnlConfiguration.getCrossedExcitatoryCount(); i++)
+		catch (IOException ioexc)
 		{
-			lstVehicle.add(Vehicle.createCrossedExcitatoryVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			ioexc.printStackTrace();
 		}
-		for (int i = 0; i < pnlConfiguration.getUncrossedInhibitoryCount(); i++)
+		scenario = new FrameRenderer.Scenario(config, engine);
+		renderer.submit(scenario.takeFrame(engine));
+	}
+
+	/**
+	 * Restore the lights and vehicles of this dark plain, and their settings, from a checkpoint. The
+	 * ticks must be stopped first. Once started again, the simulation carries on exactly where the
+	 * checkpointed simulation left off.
+	 * 
+	 * @param file the checkpoint
+	 * @throws IOException if the checkpoint can't be read, or is damaged
+	 */
+	void restore(File file) throws IOException
+	{
+		final CheckpointReader checkpoint = new CheckpointReader(file);
+		stopRecordingAndCheckpointing();
+		runBetweenTicks(new Callable<Void>()
 		{
-			lstVehicle.add(Vehicle.createUncrossedInhibitoryVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			@Override
+			public Void call() throws IOException
+			{
+				try
+				{
+					config = engine.restore(checkpoint);
+				}
+				catch (IllegalArgumentException iaexc)
+				{
+					throw new IOException(iaexc.getMessage(), iaexc);
+				}
+				restartAnalytics();
+				return null;
+			}
+		});
+		xMax = config.getDarkPlainWidth();
+		yMax = config.getDarkPlainHeight();
+
+		/* Set the size of the dark plain */
+		setMinimumSize(new Dimension(xMax, yMax));			
+		setMaximumSize(new Dimension(xMax, yMax));			
+		setPreferredSize(new Dimension(xMax, yMax));
+		revalidate();
+
+		/* Draw where the lights and vehicles are */
+		scenario = new FrameRenderer.Scenario(config, engine);
+		renderer.submit(scenario.takeFrame(engine));
+	}
+
+	/**
+	 * Stop recording the trajectories of the vehicles and checkpointing the simulation, reporting
+	 * any failure to write them
+	 */
+	private void stopRecordingAndCheckpointing()
+	{
+		try
+		{
+			stopRecording();
 		}
-		for (int i = 0; i < pnlConfiguration.getCrossedInhibitoryCount(); i++)
+		catch (IOException ioexc)
 		{
-			lstVehicle.add(Vehicle.createCrossedInhibitoryVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			ioexc.printStackTrace();
 		}
-		for (int i = 0; i < pnlConfiguration.getUncrossedThresholdCount(); i++)
+		try
 		{
-			lstVehicle.add(Vehicle.createUncrossedThresholdVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			stopCheckpointing();
 		}
-		for (int i = 0; i < pnlConfiguration.getCrossedThresholdCount(); i++)
+		catch (IOException ioexc)
 		{
-			lstVehicle.add(Vehicle.createCrossedThresholdVehicle(pnlConfiguration,
-					createRandomPoint(), Math.toRadians(Math.random() * 360)));
+			ioexc.printStackTrace();
 		}
+	}
 
-		/*
-		 * Add lights to the list of perceptible items, and vehicles if they are currently
-		 * perceptible.
-		 */
-		if (pnlConfiguration.isPerceptibleVehicles())
+	/**
+	 * Get the seed the current scenario was generated from. Configuring this seed replays the
+	 * same scenario.
+	 * 
+	 * @return the seed
+	 */
+	long getSeed()
+	{
+		return engine.getSeed();
+	}
+
+	/**
+	 * Start recording the trajectories of the vehicles. The recording is started between ticks, by
+	 * the thread that runs them, and ends when the settings are next updated, if not before.
+	 * 
+	 * @param file the file to record the trajectories to
+	 * @throws IOException if the log can't be written
+	 */
+	void startRecording(final File file) throws IOException
+	{
+		runBetweenTicks(new Callable<Void>()
 		{
-			for (PerceptibleItem aVehicle: lstVehicle)
+			@Override
+			public Void call() throws IOException
 			{
-				lstPerceptible.add(aVehicle);
+				if (trajectoryWriter == null)
+				{
+					trajectoryWriter = new TrajectoryWriter(file, engine, config);
+					engine.addTickListener(trajectoryWriter);
+				}
+				return null;
 			}
+		});
+	}
+
+	/**
+	 * Stop recording the trajectories of the vehicles, if they are being recorded
+	 * 
+	 * @throws IOException if the log couldn't be written
+	 */
+	void stopRecording() throws IOException
+	{
+		runBetweenTicks(new Callable<Void>()
+		{
+			@Override
+			public Void call() throws IOException
+			{
+				if (trajectoryWriter != null)
+				{
+					engine.removeTickListener(trajectoryWriter);
+					TrajectoryWriter writer = trajectoryWriter;
+					trajectoryWriter = null;
+					writer.close();
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Determine if the trajectories of the vehicles are being recorded
+	 * 
+	 * @return true if the trajectories are being recorded
+	 */
+	boolean isRecording()
+	{
+		return (trajectoryWriter != null);
+	}
+
+	/**
+	 * Start checkpointing the simulation, every CHECKPOINTINTERVAL ticks. The first checkpoint is
+	 * taken straight away, between ticks, by the thread that runs them. Checkpointing ends when the
+	 * settings are next updated, if not before.
+	 * 
+	 * @param file the file to checkpoint the simulation to
+	 * @throws IOException if the checkpoints can't be written
+	 */
+	void startCheckpointing(final File file) throws IOException
+	{
+		runBetweenTicks(new Callable<Void>()
+		{
+			@Override
+			public Void call() throws IOException
+			{
+				if (checkpointWriter == null)
+				{
+					checkpointWriter = new CheckpointWriter(file, engine, config, CHECKPOINTINTERVAL);
+					checkpointWriter.checkpoint(engine);
+					engine.addTickListener(checkpointWriter);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Stop checkpointing the simulation, if it's being checkpointed, once the last checkpoint is
+	 * written
+	 * 
+	 * @throws IOException if a checkpoint couldn't be written
+	 */
+	void stopCheckpointing() throws IOException
+	{
+		runBetweenTicks(new Callable<Void>()
+		{
+			@Override
+			public Void call() throws IOException
+			{
+				if (checkpointWriter != null)
+				{
+					engine.removeTickListener(checkpointWriter);
+					CheckpointWriter writer = checkpointWriter;
+					checkpointWriter = null;
+					writer.close();
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Determine if the simulation is being checkpointed
+	 * 
+	 * @return true if the simulation is being checkpointed
+	 */
+	boolean isCheckpointing()
+	{
+		return (checkpointWriter != null);
+	}
+
+	/**
+	 * Run a task on the thread that runs the ticks, between two ticks, and wait for it to finish
+	 * 
+	 * @param task the task
+	 * @throws IOException if the task failed to read or write a file
+	 */
+	private void runBetweenTicks(Callable<Void> task) throws IOException
+	{
+		try
+		{
+			moveExecutor.submit(task).get();
 		}
-		for (PerceptibleItem aLight: lstLight)
+		catch (ExecutionException eexc)
 		{
-			lstPerceptible.add(aLight);
+			if (eexc.getCause() instanceof IOException)
+			{
+				throw (IOException) eexc.getCause();
+			}
+			throw new IllegalStateException(eexc.getCause());
+		}
+		catch (InterruptedException iexc)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", iexc);
 		}
 	}
 
 	/**
-	 * Start the scheduled task that moves all the vehicles based on the input to their sensors.
+	 * Start the ticks that move all the vehicles based on the input to their sensors, at the
+	 * timer pause of the current settings, or back to back.
 	 */
 	void start()
 	{
-		moveTask = moveExecutor.scheduleAtFixedRate(this, 0, sleepMs, TimeUnit.MILLISECONDS);
+		droppedFramesAtStart = renderer.getDroppedFrames();
+		tickScheduler.start(config.getTimerPause(), config.isBackToBackTicks());
 	}
 	
 	/**
-	 * Stop the scheduled task that moves all the vehicles.
+	 * Stop the ticks that move all the vehicles.
 	 */
 	void stop()
 	{
-		moveTask.cancel(false);
+		tickScheduler.stop();
 	}
 	
 	/**
-	 * Determine if the scheduled task is running
+	 * Determine if the ticks are running
 	 * 
-	 * @return true if the scheduled task is running
+	 * @return true if the ticks are running
 	 */
 	boolean isRunning()
 	{
-		return ((moveTask != null) && !moveTask.isDone());
+		return tickScheduler.isRunning();
+	}
+
+	/**
+	 * Get the number of ticks a second achieved over the last second or so
+	 * 
+	 * @return the number of ticks a second
+	 */
+	double getTicksPerSecond()
+	{
+		return tickScheduler.getTicksPerSecond();
+	}
+
+	/**
+	 * Get the average time a tick takes
+	 * 
+	 * @return the average duration, in milliseconds
+	 */
+	double getMeanTickMs()
+	{
+		return tickScheduler.getMeanTickMs();
+	}
+
+	/**
+	 * Get the number of ticks that started late, keeping to the timer pause, because the tick
+	 * before overran
+	 * 
+	 * @return the number of late ticks
+	 */
+	long getLateTicks()
+	{
+		return tickScheduler.getLateTicks();
 	}
 
 	
 	/**
-	 * Move all the vehicles on this dark plain. Note that I use a CountDownLatch as a gate
-	 * so that the paint of all the vehicles occurs before the vehicle locations are updated.
+	 * Move all the vehicles on this dark plain, then hand over where they are now to be drawn.
+	 * This doesn't wait for the drawing, so the vehicles move at the pace the ticks are scheduled
+	 * however long the drawing takes.
 	 */
 	public void run()
 	{
-		/* Calculate new vehicle positions */
-		for (Vehicle aVehicle: lstVehicle)
-		{
-			aVehicle.move(lstPerceptible);
-		}
+		engine.tick();
+		renderer.submit(scenario.takeFrame(engine));
+	}
 
-		/* Create a new gate */
-		paintedGate = new CountDownLatch(1);
+	/**
+	 * Get the number of frames that were never drawn because the vehicles moved again first, since
+	 * the ticks were last started
+	 * 
+	 * @return the number of frames dropped
+	 */
+	long getDroppedFrames()
+	{
+		return renderer.getDroppedFrames() - droppedFramesAtStart;
+	}
 
-		/* This schedules a repaint on the event queue */
+	/**
+	 * Show or hide the metrics of the simulation, drawn over the dark plain. The vehicles are only
+	 * timed while they're shown.
+	 * 
+	 * @param shwMtrcs true to show the metrics
+	 */
+	void setMetricsOverlay(boolean shwMtrcs)
+	{
+		metricsOverlay = shwMtrcs;
+		engine.getMetrics().setVehicleTiming(shwMtrcs);
 		repaint();
+	}
 
-		/* Wait for the paint to occur before proceeding */
+	/**
+	 * Show or hide how the vehicles behave, drawn over the dark plain. The vehicles are only analyzed
+	 * while it's shown, starting afresh every time.
+	 * 
+	 * @param shwBhvr true to show how the vehicles behave
+	 */
+	void setBehaviorOverlay(boolean shwBhvr)
+	{
+		behaviorOverlay = shwBhvr;
 		try
 		{
-			paintedGate.await();
-		} 
-		catch (InterruptedException iexc) 
+			runBetweenTicks(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					restartAnalytics();
+					return null;
+				}
+			});
+		}
+		catch (IOException ioexc)
 		{
-			iexc.printStackTrace();
+			ioexc.printStackTrace();
 		}
+		repaint();
+	}
 
-		/* Discard the old gate */
-		paintedGate = null;
-
-		/* Update all the vehicle positions */
-		for (Vehicle aVehicle: lstVehicle)
+	/**
+	 * Stop analyzing the vehicles, and if how they behave is shown, start analyzing them afresh. The
+	 * analytics are of one set of lights and vehicles, so this is done whenever they change, between
+	 * ticks.
+	 */
+	private void restartAnalytics()
+	{
+		if (behaviorAnalytics != null)
+		{
+			engine.removeTickListener(behaviorAnalytics);
+			behaviorAnalytics = null;
+		}
+		if (behaviorOverlay)
 		{
-			aVehicle.updateLocationDirection();
-		}			
+			BehaviorAnalytics analytics = new BehaviorAnalytics(engine, config, ANALYTICSINTERVAL);
+			engine.addTickListener(analytics);
+			behaviorAnalytics = analytics;
+		}
 	}
 
 	/**
-	 * Paint this component.
+	 * Paint this component, copying the latest frame drawn, and drawing the metrics and how the
+	 * vehicles behave over it if they are shown.
 	 */
 	@Override
 	public void paintComponent(Graphics g)
 	{
 		super.paintComponent(g);
-
-		/* Paint all the lights */
-		for (LightSource aLight: lstLight)
+		renderer.display(g);
+		if (metricsOverlay)
 		{
-			aLight.draw(g);
+			drawMetrics(g);
 		}
-		/* Paint all the vehicles */
-		for (Vehicle aVehicle: lstVehicle)
+		if (behaviorOverlay)
 		{
-			aVehicle.draw(g);
+			drawBehavior(g);
 		}
-		
-		/* 
-		 * Wait for the vehicle move to occur before proceeding.
-		 * This is almost certain to have occurred already, in
-		 * which case all threads waiting on the gate proceed.
-		 */
-		if (paintedGate != null)
+	}
+
+	/**
+	 * Draw the metrics of the simulation in the top left corner of the dark plain
+	 * 
+	 * @param g the graphics
+	 */
+	private void drawMetrics(Graphics g)
+	{
+		SimulationMetrics metrics = engine.getMetrics();
+		String[] lines = {
+				String.format("Ticks/s %.1f  Items/Sensor %.1f  Early Exits/Sensor %.2f  Wrapped Images/Tick %d",
+						metrics.getTicksPerSecond(), metrics.getItemsExaminedPerSensor(),
+						metrics.getEarlyExitsPerSensor(), metrics.getWrappedImagesPerTick()),
+				"Tick      " + metrics.getTickLatency(),
+				"Sense     " + metrics.getSenseLatency(),
+				"Translate " + metrics.getTranslateLatency(),
+				"Commit    " + metrics.getCommitLatency(),
+				"Listeners " + metrics.getListenersLatency(),
+				"Paint     " + metrics.getPaintLatency()};
+		drawOverlay(g, lines, 0);
+	}
+
+	/**
+	 * Draw the latest summary of how the vehicles behave in the bottom left corner of the dark plain
+	 * 
+	 * @param g the graphics
+	 */
+	private void drawBehavior(Graphics g)
+	{
+		BehaviorAnalytics analytics = behaviorAnalytics;
+		BehaviorAnalytics.Summary summary = (analytics != null) ? analytics.getLatestSummary() : null;
+		if (summary == null)
 		{
-			paintedGate.countDown();
+			return;
 		}
+		String[] lines = new String[summary.getTypeCount() + 1];
+		lines[0] = String.format("%-18s %6s %6s %6s %6s %6s", "Tick " + summary.getTick(), "Speed", "Turn",
+				"Light", "Close", "Cells");
+		for (int type = 0; type < summary.getTypeCount(); type++)
+		{
+			double close = 0;
+			for (int otherType = 0; otherType < summary.getTypeCount(); otherType++)
+			{
+				close += summary.getMeanCloseVehicles(type, otherType);
+			}
+			lines[type + 1] = String.format("%-18s %6.2f %6.2f %6.1f %6.2f %5.0f%%", summary.getType(type),
+					summary.getMeanSpeed(type), summary.getMeanTurnDegrees(type), summary.getMeanNearestLight(type),
+					close, summary.getOccupiedFraction(type) * 100);
+		}
+		g.setFont(OVERLAYFONT);
+		drawOverlay(g, lines, getHeight() - ((lines.length * g.getFontMetrics().getHeight()) + (2 * OVERLAYMARGIN)));
 	}
 
 	/**
-	 * Utility for creating a random location somewhere on the dark plain.
+	 * Draw lines of text on a dark background at the left of the dark plain
 	 * 
-	 * @return the random location
+	 * @param g the graphics
+	 * @param lines the lines
+	 * @param top the top of the background
 	 */
-	private Point2D createRandomPoint()
+	private void drawOverlay(Graphics g, String[] lines, int top)
 	{
-		int x = (int) (Math.random() * xMax);
-		int y = (int) (Math.random() * yMax);
-		return new Point2D.Double(x, y);
+		g.setFont(OVERLAYFONT);
+		int lineHeight = g.getFontMetrics().getHeight();
+		int width = 0;
+		for (String line: lines)
+		{
+			width = Math.max(width, g.getFontMetrics().stringWidth(line));
+		}
+		g.setColor(OVERLAYBACKGROUND);
+		g.fillRect(0, top, width + (2 * OVERLAYMARGIN), (lines.length * lineHeight) + (2 * OVERLAYMARGIN));
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < lines.length; i++)
+		{
+			g.drawString(lines[i], OVERLAYMARGIN,
+					top + OVERLAYMARGIN + (i * lineHeight) + g.getFontMetrics().getAscent());
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,370 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class draws the dark plain into an image on a thread of its own, so neither the simulation
+ * nor the event dispatch thread waits for the lights and vehicles to be drawn. The simulation hands
+ * over a frame, a copy of where the vehicles are, and carries on. The frame is drawn into the back
+ * image, then the back and front images are swapped, and the component is asked to repaint, which
+ * only copies the front image to the screen.
+ *
+ * Unless told to draw every vehicle exactly, the vehicles are copied from a SpriteAtlas drawn when
+ * the dark plain is populated.
+ *
+ * If the simulation hands over frames faster than they can be drawn, only the latest frame is
+ * drawn and the ones before it are dropped, so the display shows the simulation as it is now rather
+ * than falling further and further behind.
+ */
+class FrameRenderer
+{
+	/* The component displaying the frames, repainted every time a frame is drawn */
+	private final Component display;
+	/* Told how long each frame takes to draw */
+	private final SimulationMetrics metrics;
+
+	/* The thread the frames are drawn on */
+	private final ExecutorService renderExecutor;
+	/* The latest frame handed over and not yet drawn, or null */
+	private final AtomicReference<Frame> pendingFrame;
+	/* Whether the render thread has been asked to draw the pending frame */
+	private final AtomicBoolean renderScheduled;
+	private final AtomicLong droppedFrames;
+
+	/* The image being displayed, and the image the next frame is drawn into */
+	private BufferedImage frontImage;
+	private BufferedImage backImage;
+	/* Guards swapping the images against displaying the front image */
+	private final Object imageLock;
+
+	/* Only used on the render thread, for the vertices of each vehicle */
+	private final int[] xPoints;
+	private final int[] yPoints;
+
+	/**
+	 * Constructor
+	 *
+	 * @param dsply the component displaying the frames
+	 * @param mtrcs the metrics to record the time taken to draw each frame in
+	 */
+	FrameRenderer(Component dsply, SimulationMetrics mtrcs)
+	{
+		display = dsply;
+		metrics = mtrcs;
+		renderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "Dark plain renderer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		pendingFrame = new AtomicReference<Frame>();
+		renderScheduled = new AtomicBoolean();
+		droppedFrames = new AtomicLong();
+		imageLock = new Object();
+		xPoints = new int[3];
+		yPoints = new int[3];
+	}
+
+	/**
+	 * Hand over a frame to be drawn, replacing any frame handed over but not yet drawn. This
+	 * returns straight away.
+	 *
+	 * @param frame the frame
+	 */
+	void submit(Frame frame)
+	{
+		if (pendingFrame.getAndSet(frame) != null)
+		{
+			droppedFrames.incrementAndGet();
+		}
+		if (renderScheduled.compareAndSet(false, true))
+		{
+			renderExecutor.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					renderPending();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Draw the pending frame, and any frame handed over while drawing it
+	 */
+	private void renderPending()
+	{
+		renderScheduled.set(false);
+		Frame frame = pendingFrame.getAndSet(null);
+		while (frame != null)
+		{
+			render(frame);
+			frame = pendingFrame.getAndSet(null);
+		}
+	}
+
+	/**
+	 * Draw a frame into the back image, swap it to the front, and have it displayed
+	 *
+	 * @param frame the frame
+	 */
+	private void render(Frame frame)
+	{
+		long start = System.nanoTime();
+		Scenario scenario = frame.scenario;
+		int width = scenario.settings.getDarkPlainWidth();
+		int height = scenario.settings.getDarkPlainHeight();
+		if ((backImage == null) || (backImage.getWidth() != width) || (backImage.getHeight() != height))
+		{
+			backImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+
+		Graphics2D g = backImage.createGraphics();
+		try
+		{
+			g.setColor(Color.BLACK);
+			g.fillRect(0, 0, width, height);
+			g.setColor(Color.WHITE);
+
+			/* Draw all the lights */
+			for (LightSource aLight: scenario.lights)
+			{
+				aLight.draw(g);
+			}
+
+			/* Draw all the vehicles */
+			if (scenario.atlas != null)
+			{
+				drawSprites(frame, width, height);
+				if (scenario.settings.isDisplayIds() || scenario.settings.isDisplaySensors())
+				{
+					for (int i = 0; i < frame.x.length; i++)
+					{
+						drawAnnotations(g, scenario, i, frame.x[i], frame.y[i], frame.direction[i]);
+					}
+				}
+			}
+			else
+			{
+				for (int i = 0; i < frame.x.length; i++)
+				{
+					VehicleRenderer.drawVehicle(g, frame.x[i], frame.y[i], frame.direction[i],
+							scenario.colors[i], xPoints, yPoints);
+					drawAnnotations(g, scenario, i, frame.x[i], frame.y[i], frame.direction[i]);
+				}
+			}
+		}
+		finally
+		{
+			g.dispose();
+		}
+
+		synchronized (imageLock)
+		{
+			BufferedImage drawn = backImage;
+			backImage = frontImage;
+			frontImage = drawn;
+		}
+		metrics.recordPaint(System.nanoTime() - start);
+		display.repaint();
+	}
+
+	/**
+	 * Copy the sprites of all the vehicles straight into the pixels of the back image
+	 *
+	 * @param frame the frame
+	 * @param width the width of the back image
+	 * @param height the height of the back image
+	 */
+	private void drawSprites(Frame frame, int width, int height)
+	{
+		Scenario scenario = frame.scenario;
+		int[] pixels = ((DataBufferInt) backImage.getRaster().getDataBuffer()).getData();
+		for (int i = 0; i < frame.x.length; i++)
+		{
+			scenario.atlas.drawVehicle(pixels, width, height, scenario.types[i], frame.x[i], frame.y[i],
+					frame.direction[i]);
+		}
+	}
+
+	/**
+	 * Draw the id and sensors of a vehicle, if they are displayed
+	 *
+	 * @param g the graphics
+	 * @param scenario the lights and vehicles
+	 * @param index the index of the vehicle
+	 * @param x the x coordinate of the vehicle
+	 * @param y the y coordinate of the vehicle
+	 * @param direction the direction of the vehicle
+	 */
+	private void drawAnnotations(Graphics g, Scenario scenario, int index, double x, double y,
+			double direction)
+	{
+		if (scenario.settings.isDisplayIds())
+		{
+			g.drawString(Integer.toString(scenario.ids[index]), (int) x, (int) y);
+		}
+
+		/* Draw the sensors if debugging */
+		if (scenario.settings.isDisplaySensors())
+		{
+			int sensorGap = scenario.settings.getSensorGap();
+			double splayAngle = scenario.settings.getSensorSplayAngle();
+			double rangeAngle = scenario.settings.getSensorRangeAngle();
+			Point2D location = new Point2D.Double(x, y);
+			VehicleRenderer.drawSensor(g, Vehicle.getRightSensorLocation(sensorGap, location, direction),
+					Vehicle.getRightSensorDirection(direction, splayAngle), rangeAngle, Color.WHITE);
+			VehicleRenderer.drawSensor(g, Vehicle.getLeftSensorLocation(sensorGap, location, direction),
+					Vehicle.getLeftSensorDirection(direction, splayAngle), rangeAngle, Color.WHITE);
+		}
+	}
+
+	/**
+	 * Display the latest frame drawn. Nothing is displayed until the first frame is drawn.
+	 *
+	 * @param g the graphics of the displaying component
+	 */
+	void display(Graphics g)
+	{
+		synchronized (imageLock)
+		{
+			if (frontImage != null)
+			{
+				g.drawImage(frontImage, 0, 0, null);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of frames dropped because a newer frame was handed over before they were drawn
+	 *
+	 * @return the number of frames dropped
+	 */
+	long getDroppedFrames()
+	{
+		return droppedFrames.get();
+	}
+
+	/**
+	 * Everything about the lights and vehicles that stays the same from frame to frame, fixed when
+	 * the dark plain is populated
+	 */
+	static final class Scenario
+	{
+		private final SimulationConfig settings;
+		private final List<LightSource> lights;
+		private final Color[] colors;
+		private final int[] ids;
+		/* The index of the type of each vehicle, and the sprites of the types if sprites are drawn */
+		private final int[] types;
+		private final SpriteAtlas atlas;
+
+		/**
+		 * Constructor
+		 *
+		 * @param sttngs the settings the dark plain was populated with
+		 * @param engine the engine holding the lights and vehicles
+		 */
+		Scenario(SimulationConfig sttngs, SimulationEngine engine)
+		{
+			settings = sttngs;
+			lights = new ArrayList<LightSource>(engine.getLights());
+			List<Vehicle> lstVehicle = engine.getVehicles();
+			colors = new Color[lstVehicle.size()];
+			ids = new int[lstVehicle.size()];
+			types = new int[lstVehicle.size()];
+			List<String> lstType = new ArrayList<String>();
+			List<Color> lstTypeColor = new ArrayList<Color>();
+			for (int i = 0; i < colors.length; i++)
+			{
+				Vehicle aVehicle = lstVehicle.get(i);
+				colors[i] = aVehicle.getVehicleColor();
+				ids[i] = aVehicle.id;
+				types[i] = lstType.indexOf(aVehicle.getVehicleType());
+				if (types[i] < 0)
+				{
+					types[i] = lstType.size();
+					lstType.add(aVehicle.getVehicleType());
+					lstTypeColor.add(colors[i]);
+				}
+			}
+			atlas = (settings.getSpriteAngles() > 0)
+					? new SpriteAtlas(lstTypeColor.toArray(new Color[0]), settings.getSpriteAngles()) : null;
+		}
+
+		/**
+		 * Take a frame of where the vehicles are now
+		 *
+		 * @param engine the engine holding the vehicles
+		 * @return the frame
+		 */
+		Frame takeFrame(SimulationEngine engine)
+		{
+			return new Frame(this, engine);
+		}
+	}
+
+	/**
+	 * A copy of the locations and directions of the vehicles at one moment. The simulation carries
+	 * on without changing the copy, so it can be drawn on another thread.
+	 */
+	static final class Frame
+	{
+		private final Scenario scenario;
+		private final double[] x;
+		private final double[] y;
+		private final double[] direction;
+
+		/**
+		 * Constructor
+		 *
+		 * @param scnr the lights and vehicles
+		 * @param engine the engine holding the vehicles
+		 */
+		private Frame(Scenario scnr, SimulationEngine engine)
+		{
+			scenario = scnr;
+			x = new double[scnr.ids.length];
+			y = new double[scnr.ids.length];
+			direction = new double[scnr.ids.length];
+			engine.copyLocationDirection(x, y, direction);
+		}
+	}
+}
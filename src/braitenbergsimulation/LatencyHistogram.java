@@ -0,0 +1,165 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+
+/**
+ * This class counts latencies in a histogram, in the manner of HdrHistogram, so percentiles can be
+ * read off without keeping every latency. Latencies below SUBBUCKETS nanoseconds each get a bucket of
+ * their own. Above that, each power of two is split into SUBBUCKETS buckets of equal width, so a
+ * latency is counted within about 3% of its value, however large, in a fixed, small array.
+ *
+ * Recording takes a lock, but the histograms are only recorded once per tick or frame, so the lock
+ * is almost never contended.
+ */
+class LatencyHistogram
+{
+	/* Each power of two is split into this many buckets */
+	private static final int SUBBUCKETBITS = 5;
+	private static final int SUBBUCKETS = 1 << SUBBUCKETBITS;
+	/* Latencies are counted up to 2 to the power of this many nanoseconds, about 19 hours */
+	private static final int MAXBITS = 46;
+
+	private final long[] counts;
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Constructor
+	 */
+	LatencyHistogram()
+	{
+		counts = new long[(MAXBITS - SUBBUCKETBITS + 1) * SUBBUCKETS];
+	}
+
+	/**
+	 * Count a latency
+	 *
+	 * @param latencyNs the latency, in nanoseconds
+	 */
+	synchronized void record(long latencyNs)
+	{
+		long latency = Math.max(0, latencyNs);
+		counts[getIndex(latency)]++;
+		count++;
+		total += latency;
+		max = Math.max(max, latency);
+	}
+
+	/**
+	 * Determine the bucket a latency is counted in
+	 *
+	 * @param latency the latency, in nanoseconds
+	 * @return the index of the bucket
+	 */
+	private int getIndex(long latency)
+	{
+		if (latency < SUBBUCKETS)
+		{
+			return (int) latency;
+		}
+		/* Shift the latency so its top SUBBUCKETBITS + 1 bits are left, the first of which is 1 */
+		int shift = Math.min(63 - Long.numberOfLeadingZeros(latency), MAXBITS - 1) - SUBBUCKETBITS;
+		int subBucket = (int) Math.min(latency >>> shift, (2 * SUBBUCKETS) - 1);
+		return ((shift + 1) * SUBBUCKETS) + (subBucket - SUBBUCKETS);
+	}
+
+	/**
+	 * Determine the largest latency counted in a bucket
+	 *
+	 * @param index the index of the bucket
+	 * @return the largest latency, in nanoseconds
+	 */
+	private static long getHighestLatency(int index)
+	{
+		if (index < SUBBUCKETS)
+		{
+			return index;
+		}
+		int shift = (index / SUBBUCKETS) - 1;
+		long subBucket = (index % SUBBUCKETS) + SUBBUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Forget every latency counted
+	 */
+	synchronized void reset()
+	{
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the number of latencies counted
+	 *
+	 * @return the number of latencies
+	 */
+	synchronized long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Get the mean latency
+	 *
+	 * @return the mean, in nanoseconds, or 0 if nothing has been counted
+	 */
+	synchronized double getMean()
+	{
+		return (count == 0) ? 0 : ((double) total / count);
+	}
+
+	/**
+	 * Get the largest latency counted
+	 *
+	 * @return the largest latency, in nanoseconds
+	 */
+	synchronized long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Get the latency at a percentile, the largest latency of the bucket the percentile falls in
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the latency, in nanoseconds, or 0 if nothing has been counted
+	 */
+	synchronized long getLatencyAtPercentile(double percentile)
+	{
+		long wanted = Math.max(1, (long) Math.ceil((percentile / 100) * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			seen += counts[i];
+			if (seen >= wanted)
+			{
+				return Math.min(getHighestLatency(i), max);
+			}
+		}
+		return 0;
+	}
+}
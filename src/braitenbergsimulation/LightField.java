@@ -0,0 +1,200 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class holds the pulses the lights generate in a sensor anywhere on the dark plain, worked out
+ * once when the lights are placed. The lights never move, so a sensor can look up the pulses of all
+ * of them at once here, and only has to work out the pulses of the vehicles it perceives.
+ *
+ * The dark plain is divided into square cells, and the directions into a number of headings. For the
+ * middle of every cell and every heading, the pulses of all the lights are added up exactly as a
+ * sensor would, including the lights it perceives around the edges of the plain, and capped just
+ * above PULSEMAX so a lookup still shows a saturated sensor. A sensor looks up the cell it is in and
+ * the heading nearest its direction, so the pulses are only as accurate as the cells are small and
+ * the headings many. A sensor off the edge of the plain looks up the cell it would be in had it
+ * wrapped around, if the plain wraps, or the nearest cell on the edge otherwise.
+ *
+ * Note that this class is immutable once built, so any number of threads can look up pulses at once.
+ */
+class LightField
+{
+	/* The number of headings the directions are divided into */
+	static final int HEADINGS = 128;
+
+	private final boolean isWrappingPlain;
+	/* The number of columns and rows of cells, and their actual dimensions */
+	private final int columns;
+	private final int rows;
+	private final double cellWidth;
+	private final double cellHeight;
+	/* The pulses of every heading of cell (c, r) start at pulses[((r * columns) + c) * HEADINGS] */
+	private final byte[] pulses;
+
+	/**
+	 * Constructor, working out the pulses of the lights everywhere on the dark plain
+	 *
+	 * @param settings a snapshot of the settings the lights were created with
+	 * @param lstLight the lights
+	 * @param pool the pool for working out the pulses in parallel, or null to work them out on the
+	 *            calling thread
+	 */
+	LightField(SimulationConfig settings, List<LightSource> lstLight, ForkJoinPool pool)
+	{
+		int cellSize = settings.getLightFieldCellSize();
+		if (cellSize < 1)
+		{
+			throw new IllegalArgumentException("The cells must be at least one pixel: " + cellSize);
+		}
+		int xMax = settings.getDarkPlainWidth();
+		int yMax = settings.getDarkPlainHeight();
+		isWrappingPlain = settings.isWrappingPlain();
+		columns = Math.max(1, Math.round((float) xMax / cellSize));
+		rows = Math.max(1, Math.round((float) yMax / cellSize));
+		cellWidth = (double) xMax / columns;
+		cellHeight = (double) yMax / rows;
+		pulses = new byte[columns * rows * HEADINGS];
+
+		LightSource[] lights = lstLight.toArray(new LightSource[lstLight.size()]);
+		if (pool != null)
+		{
+			pool.invoke(new BuildAction(settings, lights, 0, rows));
+		}
+		else
+		{
+			build(new Sensor(settings, null, settings.getSensorRangeAngle()), lights, 0, rows);
+		}
+	}
+
+	/**
+	 * Work out the pulses of the lights for every cell of some rows and every heading
+	 *
+	 * @param sensor a sensor of the configured range, belonging to no vehicle
+	 * @param lights the lights
+	 * @param firstRow the first row
+	 * @param endRow the row after the last
+	 */
+	private void build(Sensor sensor, LightSource[] lights, int firstRow, int endRow)
+	{
+		for (int row = firstRow; row < endRow; row++)
+		{
+			double sensorY = (row + 0.5) * cellHeight;
+			for (int column = 0; column < columns; column++)
+			{
+				double sensorX = (column + 0.5) * cellWidth;
+				int start = ((row * columns) + column) * HEADINGS;
+				for (int heading = 0; heading < HEADINGS; heading++)
+				{
+					pulses[start + heading] = (byte) sensor.determineLightPulses(sensorX, sensorY,
+							(heading * Vehicle.TWOPI) / HEADINGS, lights);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Look up the pulses the lights generate in a sensor
+	 *
+	 * @param sensorX the x coordinate of the current location of the sensor
+	 * @param sensorY the y coordinate of the current location of the sensor
+	 * @param sensorDirection the current direction of the sensor, in radians
+	 * @return the pulses, more than PULSEMAX if the sensor is saturated
+	 */
+	int getPulses(double sensorX, double sensorY, double sensorDirection)
+	{
+		int column = (int) Math.floor(sensorX / cellWidth);
+		int row = (int) Math.floor(sensorY / cellHeight);
+		if (isWrappingPlain)
+		{
+			column = Math.floorMod(column, columns);
+			row = Math.floorMod(row, rows);
+		}
+		else
+		{
+			column = Math.min(Math.max(column, 0), columns - 1);
+			row = Math.min(Math.max(row, 0), rows - 1);
+		}
+		int heading = Math.floorMod((int) Math.round((sensorDirection * HEADINGS) / Vehicle.TWOPI), HEADINGS);
+		return pulses[(((row * columns) + column) * HEADINGS) + heading];
+	}
+
+	/**
+	 * Get the number of bytes the pulses take up
+	 *
+	 * @return the number of bytes
+	 */
+	int getSizeBytes()
+	{
+		return pulses.length;
+	}
+
+	/*
+	 * Works out the pulses of some rows, splitting them in half until there are few enough to work
+	 * out directly. Each row is written by exactly one action.
+	 */
+	private class BuildAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4821706395172264113L;
+		/* The number of rows worked out directly */
+		private static final int THRESHOLD = 4;
+
+		private final SimulationConfig settings;
+		private final LightSource[] lights;
+		private final int firstRow;
+		private final int endRow;
+
+		/**
+		 * Constructor
+		 *
+		 * @param sttngs a snapshot of the settings the lights were created with
+		 * @param lghts the lights
+		 * @param frstRw the first row
+		 * @param ndRw the row after the last
+		 */
+		BuildAction(SimulationConfig sttngs, LightSource[] lghts, int frstRw, int ndRw)
+		{
+			settings = sttngs;
+			lights = lghts;
+			firstRow = frstRw;
+			endRow = ndRw;
+		}
+
+		/**
+		 * Work out the pulses of the rows
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((endRow - firstRow) <= THRESHOLD)
+			{
+				build(new Sensor(settings, null, settings.getSensorRangeAngle()), lights, firstRow, endRow);
+			}
+			else
+			{
+				int middle = (firstRow + endRow) >>> 1;
+				invokeAll(new BuildAction(settings, lights, firstRow, middle),
+						new BuildAction(settings, lights, middle, endRow));
+			}
+		}
+	}
+}
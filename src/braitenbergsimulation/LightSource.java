@@ -36,13 +36,13 @@ public class LightSource implements PerceptibleItem
 	/**
 	 * Constructor
 	 * 
-	 * @param pnlConfig the panel containing various configured settings 
+	 * @param settings the configured settings 
 	 * @param loc the location of the light source
 	 */
-	LightSource(ConfigurationPanel pnlConfig, Point2D loc)
+	LightSource(SimulationConfig settings, Point2D loc)
 	{
 		location = loc;
-		intensity = pnlConfig.getLightIntensity();
+		intensity = settings.getLightIntensity();
 	}
 	
 	/**
@@ -23,6 +23,7 @@ import java.awt.event.ActionEvent;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSpinner;
@@ -37,27 +38,48 @@ class MiscSettingsPanel extends GridbagPanel
 {
 	private static final long serialVersionUID = 3690371388344756056L;
 
-	private static final int DEFAULTWIDTH = 900;
+	static final int DEFAULTWIDTH = 900;
 	private static final int MINWIDTH = 100;
 	private static final int MAXWIDTH = 9999;
 	private static final int INCWIDTH = 10;
-	private static final int DEFAULTHEIGHT = 900;
+	static final int DEFAULTHEIGHT = 900;
 	private static final int MINHEIGHT = 100;
 	private static final int MAXHEIGHT = 9999;
 	private static final int INCHEIGHT = 10;
-	private static final int DEFAULTINTENSITY = 5000;
+	static final int DEFAULTINTENSITY = 5000;
 	private static final int MININTENSITY = 100;
 	private static final int MAXINTENSITY = 99999;
 	private static final int INCINTENSITY = 100;
-	private static final int DEFAULTSLEEP = 50;
+	static final int DEFAULTSLEEP = 50;
 	private static final int MINSLEEP = 1;
 	private static final int MAXSLEEP = 99;
 	private static final int INCSLEEP = 1;
+	static final int DEFAULTTHREADS = 1;
+	private static final int MINTHREADS = 1;
+	private static final int MAXTHREADS = 256;
+	private static final int INCTHREADS = 1;
+	static final int DEFAULTTILES = 0;
+	private static final int MINTILES = 0;
+	private static final int MAXTILES = 256;
+	private static final int INCTILES = 1;
+	static final long DEFAULTSEED = 0;
+	private static final long MINSEED = 0;
+	private static final long MAXSEED = Long.MAX_VALUE;
+	private static final long INCSEED = 1;
+	static final int DEFAULTSPRITEANGLES = 72;
+	private static final int MINSPRITEANGLES = 0;
+	private static final int MAXSPRITEANGLES = 360;
+	private static final int INCSPRITEANGLES = 1;
 
 	private final JSpinner spnrDarkPlainWidth;
 	private final JSpinner spnrDarkPlainHeight;
 	private final JSpinner spnrLightIntensity;
 	private final JSpinner spnrTimerPause;
+	private final JSpinner spnrMoveThreads;
+	private final JSpinner spnrTiles;
+	private final JSpinner spnrSeed;
+	private final JSpinner spnrSpriteAngles;
+	private final JCheckBox cbxBackToBackTicks;
 
 	private final JButton btnDefault;
 
@@ -75,6 +97,15 @@ class MiscSettingsPanel extends GridbagPanel
 				MININTENSITY, MAXINTENSITY, INCINTENSITY));
 		spnrTimerPause = new JSpinner(new SpinnerNumberModel(DEFAULTSLEEP,
 				MINSLEEP, MAXSLEEP, INCSLEEP));
+		spnrMoveThreads = new JSpinner(new SpinnerNumberModel(DEFAULTTHREADS,
+				MINTHREADS, MAXTHREADS, INCTHREADS));
+		spnrTiles = new JSpinner(new SpinnerNumberModel(DEFAULTTILES,
+				MINTILES, MAXTILES, INCTILES));
+		spnrSeed = new JSpinner(new SpinnerNumberModel(Long.valueOf(DEFAULTSEED),
+				Long.valueOf(MINSEED), Long.valueOf(MAXSEED), Long.valueOf(INCSEED)));
+		spnrSpriteAngles = new JSpinner(new SpinnerNumberModel(DEFAULTSPRITEANGLES,
+				MINSPRITEANGLES, MAXSPRITEANGLES, INCSPRITEANGLES));
+		cbxBackToBackTicks = new JCheckBox();
 
 		btnDefault = new JButton("Default Values");
 		
@@ -94,20 +125,35 @@ class MiscSettingsPanel extends GridbagPanel
 		JLabel lblDarkPlainHeight = new JLabel("Dark Plain Height :");
 		JLabel lblLightIntensity = new JLabel("Light Intensity :");
 		JLabel lblTimerPause = new JLabel("Timer Pause (ms) :");
+		JLabel lblMoveThreads = new JLabel("Move Threads :");
+		JLabel lblTiles = new JLabel("Tiles (0 = none) :");
+		JLabel lblSeed = new JLabel("Seed (0 = random) :");
+		JLabel lblSpriteAngles = new JLabel("Sprite Angles (0 = exact) :");
+		JLabel lblBackToBackTicks = new JLabel("Ticks Back to Back :");
 		pnlMisc.add(lblDarkPlainWidth, 0, 0, 1, 1, GridBagConstraints.WEST);
 		pnlMisc.add(lblDarkPlainHeight, 0, 1, 1, 1, GridBagConstraints.WEST);
 		pnlMisc.add(lblLightIntensity, 0, 2, 1, 1, GridBagConstraints.WEST);
 		pnlMisc.add(lblTimerPause, 0, 3, 1, 1, GridBagConstraints.WEST);
+		pnlMisc.add(lblMoveThreads, 0, 4, 1, 1, GridBagConstraints.WEST);
+		pnlMisc.add(lblTiles, 0, 5, 1, 1, GridBagConstraints.WEST);
+		pnlMisc.add(lblSeed, 0, 6, 1, 1, GridBagConstraints.WEST);
+		pnlMisc.add(lblSpriteAngles, 0, 7, 1, 1, GridBagConstraints.WEST);
+		pnlMisc.add(lblBackToBackTicks, 0, 8, 1, 1, GridBagConstraints.WEST);
 
 		pnlMisc.add(spnrDarkPlainWidth, 1, 0, 1, 1, GridBagConstraints.EAST);
 		pnlMisc.add(spnrDarkPlainHeight, 1, 1, 1, 1, GridBagConstraints.EAST);
 		pnlMisc.add(spnrLightIntensity, 1, 2, 1, 1, GridBagConstraints.EAST);
 		pnlMisc.add(spnrTimerPause, 1, 3, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(spnrMoveThreads, 1, 4, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(spnrTiles, 1, 5, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(spnrSeed, 1, 6, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(spnrSpriteAngles, 1, 7, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(cbxBackToBackTicks, 1, 8, 1, 1, GridBagConstraints.EAST);
 		
 		JPanel pnlButton = new JPanel();
 		pnlButton.add(btnDefault);
 		
-		pnlMisc.add(pnlButton, 1, 4, 1, 1, GridBagConstraints.EAST);
+		pnlMisc.add(pnlButton, 1, 9, 1, 1, GridBagConstraints.EAST);
 
 		add(pnlMisc, 0, 0, 1, 1, GridBagConstraints.NORTHWEST);
 	}
@@ -140,6 +186,11 @@ class MiscSettingsPanel extends GridbagPanel
 		spnrDarkPlainHeight.setValue(Integer.valueOf(DEFAULTHEIGHT));
 		spnrLightIntensity.setValue(Integer.valueOf(DEFAULTINTENSITY));
 		spnrTimerPause.setValue(Integer.valueOf(DEFAULTSLEEP));
+		spnrMoveThreads.setValue(Integer.valueOf(DEFAULTTHREADS));
+		spnrTiles.setValue(Integer.valueOf(DEFAULTTILES));
+		spnrSeed.setValue(Long.valueOf(DEFAULTSEED));
+		spnrSpriteAngles.setValue(Integer.valueOf(DEFAULTSPRITEANGLES));
+		cbxBackToBackTicks.setSelected(false);
 	}
 	
 	/**
@@ -181,6 +232,56 @@ class MiscSettingsPanel extends GridbagPanel
 	{
 		spnrTimerPause.setValue(Integer.valueOf(pause));
 	}
+	
+	/**
+	 * Set the number of threads that move the vehicles
+	 * 
+	 * @param threads the number of threads that move the vehicles
+	 */
+	void setMoveThreads(int threads)
+	{
+		spnrMoveThreads.setValue(Integer.valueOf(threads));
+	}
+	
+	/**
+	 * Set the number of tiles the dark plain is split into for moving the vehicles
+	 * 
+	 * @param tls the number of tiles, or 0 not to split the dark plain
+	 */
+	void setTiles(int tls)
+	{
+		spnrTiles.setValue(Integer.valueOf(tls));
+	}
+	
+	/**
+	 * Set the seed for generating the starting scenario
+	 * 
+	 * @param seed the seed, or 0 for a different scenario every time
+	 */
+	void setSeed(long seed)
+	{
+		spnrSeed.setValue(Long.valueOf(seed));
+	}
+	
+	/**
+	 * Set the number of headings the vehicles are drawn at
+	 * 
+	 * @param angles the number of headings, or 0 to draw every vehicle exactly
+	 */
+	void setSpriteAngles(int angles)
+	{
+		spnrSpriteAngles.setValue(Integer.valueOf(angles));
+	}
+	
+	/**
+	 * Set whether each tick starts as soon as the last one ends
+	 * 
+	 * @param b true if the ticks run back to back
+	 */
+	void setBackToBackTicks(boolean b)
+	{
+		cbxBackToBackTicks.setSelected(b);
+	}
 
 	/* Accessors */
 	
@@ -223,4 +324,54 @@ class MiscSettingsPanel extends GridbagPanel
 	{
 		return ((Number) spnrTimerPause.getValue()).intValue();
 	}
+	
+	/**
+	 * Get the number of threads that move the vehicles
+	 * 
+	 * @return the number of threads that move the vehicles
+	 */
+	int getMoveThreads()
+	{
+		return ((Number) spnrMoveThreads.getValue()).intValue();
+	}
+	
+	/**
+	 * Get the number of tiles the dark plain is split into for moving the vehicles
+	 * 
+	 * @return the number of tiles, or 0 not to split the dark plain
+	 */
+	int getTiles()
+	{
+		return ((Number) spnrTiles.getValue()).intValue();
+	}
+	
+	/**
+	 * Get the seed for generating the starting scenario
+	 * 
+	 * @return the seed, or 0 for a different scenario every time
+	 */
+	long getSeed()
+	{
+		return ((Number) spnrSeed.getValue()).longValue();
+	}
+	
+	/**
+	 * Get the number of headings the vehicles are drawn at
+	 * 
+	 * @return the number of headings, or 0 to draw every vehicle exactly
+	 */
+	int getSpriteAngles()
+	{
+		return ((Number) spnrSpriteAngles.getValue()).intValue();
+	}
+	
+	/**
+	 * Determine if each tick starts as soon as the last one ends
+	 * 
+	 * @return true if the ticks run back to back
+	 */
+	boolean isBackToBackTicks()
+	{
+		return cbxBackToBackTicks.isSelected();
+	}
 }
\ No newline at end of file
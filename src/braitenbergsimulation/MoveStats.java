@@ -0,0 +1,52 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This class holds the measurements of the latest move of one vehicle, for SimulationMetrics. Each
+ * vehicle has its own, written only by the thread moving it, so measuring needs no locks and creates
+ * no objects. The engine adds them all up once every vehicle has moved.
+ */
+final class MoveStats
+{
+	/*
+	 * The time spent sensing, and translating the pulses into the new location and direction, or 0
+	 * when the vehicles aren't being timed
+	 */
+	long senseNs;
+	long translateNs;
+	/* The perceptible items examined by both sensors */
+	int itemsExamined;
+	/* The shifted images of items evaluated, for items not perceived where they are */
+	int wrappedImages;
+	/* The sensors that stopped examining items early, because they had saturated */
+	int earlyExits;
+
+	/**
+	 * Forget the measurements of the move before
+	 */
+	void clear()
+	{
+		senseNs = 0;
+		translateNs = 0;
+		itemsExamined = 0;
+		wrappedImages = 0;
+		earlyExits = 0;
+	}
+}
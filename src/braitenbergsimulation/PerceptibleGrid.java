@@ -0,0 +1,443 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class indexes the perceptible items on the dark plain in a uniform grid of buckets, so that a
+ * sensor only has to examine the items lying in the cells its cone can reach, rather than every item
+ * on the plain.
+ *
+ * The grid is rebuilt from scratch once per tick, before any vehicle moves, with a counting sort. The
+ * items of each cell end up adjacent in one array, so a rebuild allocates nothing once the arrays have
+ * grown to the number of items. The dark plain is divided into a whole number of columns and rows, so
+ * the cells tile the plain exactly and wrap around its edges, just like the sensors do.
+ *
+ * The locations and intensities of the items are also kept in arrays of their own, in the same order
+ * as the items, for sensor kernels that work on many items at once.
+ *
+ * A grid may cover only a window of the columns, for a tile of a ShardedPlain. Items outside the
+ * window are left out, and the cells outside it read as empty.
+ *
+ * The lights may instead be looked up in a LightField, in which case only the vehicles are indexed.
+ *
+ * Note that the grid is only read while the vehicles move, and only rebuilt between moves.
+ */
+class PerceptibleGrid
+{
+	/* The preferred length of the side of a cell, in pixels */
+	static final int CELLSIZE = 50;
+
+	/* The dimensions of the dark plain */
+	private final int xMax;
+	private final int yMax;
+	/* The number of columns and rows of cells */
+	private final int columns;
+	private final int rows;
+	/* The actual dimensions of a cell, which divide the dark plain exactly */
+	private final double cellWidth;
+	private final double cellHeight;
+	/* The columns the grid holds items for, which wrap around the plain */
+	private final int firstColumn;
+	private final int windowColumns;
+
+	/* The items of cell c are items[cellStart[c]] up to, but not including, items[cellStart[c + 1]] */
+	private final int[] cellStart;
+	/* The next free slot in each cell while the grid is being rebuilt */
+	private final int[] cellFill;
+	private PerceptibleItem[] items;
+	/* The location and intensity of each item, as of the last rebuild */
+	private double[] itemX;
+	private double[] itemY;
+	private double[] itemIntensity;
+	/* The cell of each item in the list the grid was last built from, reused between rebuilds */
+	private int[] itemCell;
+	private int itemCount;
+	/* The greatest intensity of any item, which bounds how far away an item can be sensed */
+	private int maxIntensity;
+	/* The pulses of the lights, if they are looked up there rather than indexed here */
+	private LightField lightField;
+
+	/**
+	 * Constructor
+	 *
+	 * @param width the width of the dark plain
+	 * @param height the height of the dark plain
+	 */
+	PerceptibleGrid(int width, int height)
+	{
+		this(width, height, 0, getColumnCount(width));
+	}
+
+	/**
+	 * Constructor for a grid holding only the items in a window of the columns
+	 *
+	 * @param width the width of the dark plain
+	 * @param height the height of the dark plain
+	 * @param frstClmn the first column of the window, which may be off the grid and is wrapped
+	 * @param wndwClmns the number of columns in the window, capped at the number of columns
+	 */
+	PerceptibleGrid(int width, int height, int frstClmn, int wndwClmns)
+	{
+		xMax = width;
+		yMax = height;
+		columns = getColumnCount(width);
+		rows = Math.max(1, Math.round((float) height / CELLSIZE));
+		cellWidth = (double) width / columns;
+		cellHeight = (double) height / rows;
+		windowColumns = Math.min(wndwClmns, columns);
+		firstColumn = (windowColumns == columns) ? 0 : Math.floorMod(frstClmn, columns);
+
+		cellStart = new int[(windowColumns * rows) + 1];
+		cellFill = new int[windowColumns * rows];
+		items = new PerceptibleItem[0];
+		itemX = new double[0];
+		itemY = new double[0];
+		itemIntensity = new double[0];
+		itemCell = new int[0];
+	}
+
+	/**
+	 * Determine the number of columns of cells a dark plain is divided into
+	 *
+	 * @param width the width of the dark plain
+	 * @return the number of columns
+	 */
+	static int getColumnCount(int width)
+	{
+		return Math.max(1, Math.round((float) width / CELLSIZE));
+	}
+
+	/**
+	 * Rebuild the grid from the current locations of the perceptible items.
+	 *
+	 * @param lstPerceptible the list of perceptible items
+	 */
+	void rebuild(List<PerceptibleItem> lstPerceptible)
+	{
+		rebuild(lstPerceptible, 0);
+	}
+
+	/**
+	 * Rebuild the grid from the current locations of the perceptible items, leaving out any outside
+	 * the window.
+	 *
+	 * @param lstPerceptible the list of perceptible items
+	 * @param mnMxIntensity the least the greatest intensity is taken to be, so that a window can
+	 *            report the greatest intensity on the whole plain
+	 */
+	void rebuild(List<PerceptibleItem> lstPerceptible, int mnMxIntensity)
+	{
+		int count = lstPerceptible.size();
+		if (items.length < count)
+		{
+			items = new PerceptibleItem[count];
+			itemX = new double[count];
+			itemY = new double[count];
+			itemIntensity = new double[count];
+			itemCell = new int[count];
+		}
+
+		/* Count the items in each cell, remembering which cell each item falls in */
+		Arrays.fill(cellStart, 0);
+		maxIntensity = mnMxIntensity;
+		int placed = 0;
+		for (int i = 0; i < count; i++)
+		{
+			PerceptibleItem curPerceptible = lstPerceptible.get(i);
+			int cell = getWindowCell(getColumn(curPerceptible.getX()), getRow(curPerceptible.getY()));
+			itemCell[i] = cell;
+			if (cell < 0)
+			{
+				continue;
+			}
+			placed++;
+			cellStart[cell + 1]++;
+			if (curPerceptible.getIntensity() > maxIntensity)
+			{
+				maxIntensity = curPerceptible.getIntensity();
+			}
+		}
+
+		/* Turn the counts into the index of the first item of each cell */
+		for (int cell = 0; cell < (windowColumns * rows); cell++)
+		{
+			cellStart[cell + 1] = cellStart[cell + 1] + cellStart[cell];
+		}
+
+		/* Place each item in its cell */
+		System.arraycopy(cellStart, 0, cellFill, 0, windowColumns * rows);
+		for (int i = 0; i < count; i++)
+		{
+			if (itemCell[i] >= 0)
+			{
+				PerceptibleItem curPerceptible = lstPerceptible.get(i);
+				int index = cellFill[itemCell[i]]++;
+				items[index] = curPerceptible;
+				itemX[index] = curPerceptible.getX();
+				itemY[index] = curPerceptible.getY();
+				itemIntensity[index] = curPerceptible.getIntensity();
+			}
+		}
+
+		/* Drop references to items that are no longer on the plain */
+		for (int i = placed; i < itemCount; i++)
+		{
+			items[i] = null;
+		}
+		itemCount = placed;
+	}
+
+	/**
+	 * Get the index of a cell within the window
+	 *
+	 * @param column the column of the cell
+	 * @param row the row of the cell
+	 * @return the cell index, or -1 if the cell is outside the window
+	 */
+	private int getWindowCell(int column, int row)
+	{
+		int windowColumn = column - firstColumn;
+		if (windowColumn < 0)
+		{
+			windowColumn = windowColumn + columns;
+		}
+		return (windowColumn < windowColumns) ? ((row * windowColumns) + windowColumn) : -1;
+	}
+
+	/**
+	 * Get the column an x coordinate falls in, wrapping around the plain.
+	 *
+	 * @param x the x coordinate
+	 * @return the column
+	 */
+	int getColumn(double x)
+	{
+		return Math.floorMod((int) Math.floor(x / cellWidth), columns);
+	}
+
+	/**
+	 * Get the row a y coordinate falls in, wrapping around the plain.
+	 *
+	 * @param y the y coordinate
+	 * @return the row
+	 */
+	int getRow(double y)
+	{
+		return Math.floorMod((int) Math.floor(y / cellHeight), rows);
+	}
+
+	/**
+	 * Get the unwrapped column an x coordinate falls in. Used for finding the range of columns that
+	 * overlaps an area which may hang over the edge of the plain.
+	 *
+	 * @param x the x coordinate
+	 * @return the column, possibly off the grid
+	 */
+	int getUnwrappedColumn(double x)
+	{
+		return (int) Math.floor(x / cellWidth);
+	}
+
+	/**
+	 * Get the unwrapped row a y coordinate falls in.
+	 *
+	 * @param y the y coordinate
+	 * @return the row, possibly off the grid
+	 */
+	int getUnwrappedRow(double y)
+	{
+		return (int) Math.floor(y / cellHeight);
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the number of columns of cells
+	 *
+	 * @return the number of columns
+	 */
+	int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Get the number of rows of cells
+	 *
+	 * @return the number of rows
+	 */
+	int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Get the width of a cell
+	 *
+	 * @return the width of a cell, in pixels
+	 */
+	double getCellWidth()
+	{
+		return cellWidth;
+	}
+
+	/**
+	 * Get the height of a cell
+	 *
+	 * @return the height of a cell, in pixels
+	 */
+	double getCellHeight()
+	{
+		return cellHeight;
+	}
+
+	/**
+	 * Get the width of the dark plain this grid covers
+	 *
+	 * @return the width of the dark plain, in pixels
+	 */
+	int getDarkPlainWidth()
+	{
+		return xMax;
+	}
+
+	/**
+	 * Get the height of the dark plain this grid covers
+	 *
+	 * @return the height of the dark plain, in pixels
+	 */
+	int getDarkPlainHeight()
+	{
+		return yMax;
+	}
+
+	/**
+	 * Get the greatest intensity of any item in the grid
+	 *
+	 * @return the greatest intensity
+	 */
+	int getMaxIntensity()
+	{
+		return maxIntensity;
+	}
+
+	/**
+	 * Get the light field the sensors look up the pulses of the lights in
+	 *
+	 * @return the light field, or null if the lights are indexed in the grid like any other item
+	 */
+	LightField getLightField()
+	{
+		return lightField;
+	}
+
+	/**
+	 * Set the light field the sensors look up the pulses of the lights in. The lights must then be
+	 * left out of the items the grid is built from.
+	 *
+	 * @param field the light field, or null if the lights are indexed in the grid
+	 */
+	void setLightField(LightField field)
+	{
+		lightField = field;
+	}
+
+	/**
+	 * Get the number of items in the grid
+	 *
+	 * @return the number of items
+	 */
+	int getItemCount()
+	{
+		return itemCount;
+	}
+
+	/**
+	 * Get the index of the first item in a cell. A cell outside the window is empty.
+	 *
+	 * @param column the column of the cell
+	 * @param row the row of the cell
+	 * @return the index of the first item
+	 */
+	int getCellStart(int column, int row)
+	{
+		int cell = getWindowCell(column, row);
+		return (cell < 0) ? 0 : cellStart[cell];
+	}
+
+	/**
+	 * Get the index just past the last item in a cell
+	 *
+	 * @param column the column of the cell
+	 * @param row the row of the cell
+	 * @return the index just past the last item
+	 */
+	int getCellEnd(int column, int row)
+	{
+		int cell = getWindowCell(column, row);
+		return (cell < 0) ? 0 : cellStart[cell + 1];
+	}
+
+	/**
+	 * Get an item by its index in the grid
+	 *
+	 * @param index the index of the item
+	 * @return the item
+	 */
+	PerceptibleItem getItem(int index)
+	{
+		return items[index];
+	}
+
+	/**
+	 * Get the x coordinates of the items, indexed as the items are. The array may be longer than the
+	 * number of items, and must not be modified.
+	 *
+	 * @return the x coordinates
+	 */
+	double[] getItemXs()
+	{
+		return itemX;
+	}
+
+	/**
+	 * Get the y coordinates of the items, indexed as the items are. The array may be longer than the
+	 * number of items, and must not be modified.
+	 *
+	 * @return the y coordinates
+	 */
+	double[] getItemYs()
+	{
+		return itemY;
+	}
+
+	/**
+	 * Get the intensities of the items, indexed as the items are. The array may be longer than the
+	 * number of items, and must not be modified.
+	 *
+	 * @return the intensities
+	 */
+	double[] getItemIntensities()
+	{
+		return itemIntensity;
+	}
+}
@@ -0,0 +1,144 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.beans.ConstructorProperties;
+
+/**
+ * This class is a snapshot of the latency of one phase of the simulation, as read from a
+ * LatencyHistogram. The percentiles are accurate to within about 3%. It's public only so JMX
+ * clients can read it.
+ */
+public final class PhaseLatency
+{
+	private final long count;
+	private final double meanMs;
+	private final double p50Ms;
+	private final double p90Ms;
+	private final double p99Ms;
+	private final double maxMs;
+
+	/**
+	 * Constructor
+	 *
+	 * @param cnt the number of latencies measured
+	 * @param mnMs the mean latency, in milliseconds
+	 * @param p50 the median latency, in milliseconds
+	 * @param p90 the 90th percentile latency, in milliseconds
+	 * @param p99 the 99th percentile latency, in milliseconds
+	 * @param mxMs the largest latency, in milliseconds
+	 */
+	@ConstructorProperties({"count", "meanMs", "p50Ms", "p90Ms", "p99Ms", "maxMs"})
+	public PhaseLatency(long cnt, double mnMs, double p50, double p90, double p99, double mxMs)
+	{
+		count = cnt;
+		meanMs = mnMs;
+		p50Ms = p50;
+		p90Ms = p90;
+		p99Ms = p99;
+		maxMs = mxMs;
+	}
+
+	/**
+	 * Take a snapshot of a histogram
+	 *
+	 * @param histogram the histogram, in nanoseconds
+	 * @return the snapshot
+	 */
+	static PhaseLatency of(LatencyHistogram histogram)
+	{
+		return new PhaseLatency(histogram.getCount(), histogram.getMean() / 1e6,
+				histogram.getLatencyAtPercentile(50) / 1e6, histogram.getLatencyAtPercentile(90) / 1e6,
+				histogram.getLatencyAtPercentile(99) / 1e6, histogram.getMax() / 1e6);
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the number of latencies measured
+	 *
+	 * @return the number of latencies
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Get the mean latency
+	 *
+	 * @return the mean, in milliseconds
+	 */
+	public double getMeanMs()
+	{
+		return meanMs;
+	}
+
+	/**
+	 * Get the median latency
+	 *
+	 * @return the median, in milliseconds
+	 */
+	public double getP50Ms()
+	{
+		return p50Ms;
+	}
+
+	/**
+	 * Get the 90th percentile latency
+	 *
+	 * @return the latency, in milliseconds
+	 */
+	public double getP90Ms()
+	{
+		return p90Ms;
+	}
+
+	/**
+	 * Get the 99th percentile latency
+	 *
+	 * @return the latency, in milliseconds
+	 */
+	public double getP99Ms()
+	{
+		return p99Ms;
+	}
+
+	/**
+	 * Get the largest latency
+	 *
+	 * @return the largest latency, in milliseconds
+	 */
+	public double getMaxMs()
+	{
+		return maxMs;
+	}
+
+	/**
+	 * Describe the latency in one line
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("mean %.3f  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f ms (%d)", meanMs, p50Ms,
+				p90Ms, p99Ms, maxMs, count);
+	}
+}
@@ -0,0 +1,156 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This class is the sensor kernel that works on one item at a time, in plain Java. It's used
+ * whenever the vector kernel isn't available, and finishes off the items left over by it.
+ *
+ * The arithmetic is exactly that of Sensor.determinePulses, operation for operation, so the pulses
+ * are exactly the same.
+ */
+class ScalarSensorKernel implements SensorKernel
+{
+	/* The configured light intensity, and the light strength to pulse conversion factor of Sensor */
+	final double lightIntensity;
+	final double multiplier;
+	/* The dimensions of the dark plain */
+	final double xMax;
+	final double yMax;
+	/*
+	 * The square of the reach of an item of the configured intensity, and the distance within which
+	 * a shifted image of any item might be perceived
+	 */
+	final double reachSquared;
+	final double imageReach;
+
+	/**
+	 * Constructor
+	 *
+	 * @param lghtIntnsty the configured light intensity
+	 * @param xMx the width of the dark plain
+	 * @param yMx the height of the dark plain
+	 */
+	ScalarSensorKernel(int lghtIntnsty, int xMx, int yMx)
+	{
+		lightIntensity = lghtIntnsty;
+		multiplier = lghtIntnsty / 3;
+		xMax = xMx;
+		yMax = yMx;
+		double reach = Sensor.getReach(lghtIntnsty, lghtIntnsty);
+		reachSquared = reach * reach;
+		/* Shifted images are perceived at the configured intensity. Allow a pixel for rounding. */
+		imageReach = reach + 1;
+	}
+
+	/**
+	 * Determine the pulses a sensor gets from a range of items, one at a time
+	 */
+	@Override
+	public void determinePulses(double sensorX, double sensorY, double headingX, double headingY,
+			double coneCosine, double acceptCosine, double[] itemX, double[] itemY, double[] itemIntensity,
+			int start, int end, int[] pulses)
+	{
+		for (int i = start; i < end; i++)
+		{
+			pulses[i - start] = determinePulses(sensorX, sensorY, headingX, headingY, coneCosine, acceptCosine,
+					itemX[i], itemY[i], itemIntensity[i]);
+		}
+	}
+
+	/**
+	 * Determine the pulses a sensor gets from one item in the current frame, or mark it as unresolved
+	 *
+	 * @param sensorX the x coordinate of the current location of the sensor
+	 * @param sensorY the y coordinate of the current location of the sensor
+	 * @param headingX the x component of the unit vector in the current direction of the sensor
+	 * @param headingY the y component of the unit vector in the current direction of the sensor
+	 * @param coneCosine the cosine for culling items outside the range of the sensor
+	 * @param acceptCosine the cosine for accepting items well inside the range of the sensor
+	 * @param perceptibleX the x coordinate of the item
+	 * @param perceptibleY the y coordinate of the item
+	 * @param intensity the intensity of the item
+	 * @return the number of pulses, or UNRESOLVED
+	 */
+	final int determinePulses(double sensorX, double sensorY, double headingX, double headingY,
+			double coneCosine, double acceptCosine, double perceptibleX, double perceptibleY, double intensity)
+	{
+		int pulses = 0;
+		double deltaX = perceptibleX - sensorX;
+		double deltaY = perceptibleY - sensorY;
+		double distanceSquared = (deltaX * deltaX) + (deltaY * deltaY);
+		if (distanceSquared <= getReachSquared(intensity))
+		{
+			double distance = Math.sqrt(distanceSquared);
+			double along = (headingX * deltaX) + (headingY * deltaY);
+			if (!(along < (coneCosine * distance)))
+			{
+				/*
+				 * Only an item well inside an ordinary cone is certainly within the range. An item right
+				 * on the sensor has no direction, so it needs the exact angle.
+				 */
+				if ((coneCosine == Double.NEGATIVE_INFINITY) || (distanceSquared == 0)
+						|| !(along >= (acceptCosine * distance)))
+				{
+					return UNRESOLVED;
+				}
+				if (distance < 1)
+				{
+					distance = 1;
+				}
+				double strength = intensity * (1 / distance);
+				pulses = (int) ((strength / lightIntensity) * multiplier);
+			}
+		}
+		/* Without pulses in the current frame, a shifted image within reach might still be perceived */
+		if ((pulses <= 0)
+				&& (((xMax - Math.abs(deltaX)) <= imageReach) || ((yMax - Math.abs(deltaY)) <= imageReach)))
+		{
+			return UNRESOLVED;
+		}
+		return pulses;
+	}
+
+	/**
+	 * Determine the square of the reach of an item, exactly as Sensor does
+	 *
+	 * @param intensity the intensity of the item
+	 * @return the square of the reach
+	 */
+	private double getReachSquared(double intensity)
+	{
+		if (intensity == lightIntensity)
+		{
+			return reachSquared;
+		}
+		double reach = ((intensity * multiplier) / lightIntensity) * 1.000001 + 1;
+		return reach * reach;
+	}
+
+	/**
+	 * Describe the kernel
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString()
+	{
+		return "scalar";
+	}
+}
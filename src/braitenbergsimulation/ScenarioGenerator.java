@@ -0,0 +1,190 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class generates the starting locations and directions of the lights and vehicles on a dark
+ * plain from a seed. The same seed always generates the same scenario, and since the vehicles move
+ * deterministically, the same seed always replays the same simulation.
+ *
+ * The seed is split into a separate stream of random numbers for the lights and for each type of
+ * vehicle, so that changing the number of one type of vehicle doesn't move any of the others. Each
+ * stream is split again into chunks of CHUNKSIZE items, each with a generator of its own. The
+ * chunks can be generated in parallel without the threads sharing a generator, and without the
+ * scenario depending on the number of threads.
+ */
+class ScenarioGenerator
+{
+	/* The streams of random numbers */
+	static final int LIGHTSTREAM = 0;
+	static final int UNCROSSEDEXCITATORYSTREAM = 1;
+	static final int CROSSEDEXCITATORYSTREAM = 2;
+	static final int UNCROSSEDINHIBITORYSTREAM = 3;
+	static final int CROSSEDINHIBITORYSTREAM = 4;
+	static final int UNCROSSEDTHRESHOLDSTREAM = 5;
+	static final int CROSSEDTHRESHOLDSTREAM = 6;
+	private static final int STREAMCOUNT = 7;
+
+	/* The number of items generated by each generator */
+	static final int CHUNKSIZE = 4096;
+
+	private final int xMax;
+	private final int yMax;
+
+	/* The generator each stream is split from */
+	private final SplittableRandom[] streams;
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed the seed for the scenario
+	 * @param xMx the width of the dark plain
+	 * @param yMx the height of the dark plain
+	 */
+	ScenarioGenerator(long seed, int xMx, int yMx)
+	{
+		xMax = xMx;
+		yMax = yMx;
+
+		SplittableRandom root = new SplittableRandom(seed);
+		streams = new SplittableRandom[STREAMCOUNT];
+		for (int i = 0; i < STREAMCOUNT; i++)
+		{
+			streams[i] = root.split();
+		}
+	}
+
+	/**
+	 * Generate the starting locations and directions of the items of a stream. The locations are on
+	 * whole pixels. Each stream should only be generated once per scenario.
+	 *
+	 * @param stream the stream for the type of item
+	 * @param x the array to fill with the x coordinates
+	 * @param y the array to fill with the y coordinates
+	 * @param direction the array to fill with the directions, in radians
+	 * @param pool the pool for generating the chunks in parallel, or null to generate them on the
+	 *            calling thread
+	 */
+	void generate(int stream, double[] x, double[] y, double[] direction, ForkJoinPool pool)
+	{
+		/* Split off the generators in order, so each chunk gets the same one whatever the threads */
+		int count = x.length;
+		SplittableRandom[] chunkRandoms = new SplittableRandom[(count + CHUNKSIZE - 1) / CHUNKSIZE];
+		for (int i = 0; i < chunkRandoms.length; i++)
+		{
+			chunkRandoms[i] = streams[stream].split();
+		}
+
+		if ((pool != null) && (chunkRandoms.length > 1))
+		{
+			pool.invoke(new GenerateAction(this, chunkRandoms, x, y, direction, 0, chunkRandoms.length));
+		}
+		else
+		{
+			for (int i = 0; i < chunkRandoms.length; i++)
+			{
+				generateChunk(chunkRandoms[i], x, y, direction, i);
+			}
+		}
+	}
+
+	/**
+	 * Generate the starting locations and directions of one chunk of items
+	 *
+	 * @param random the generator for the chunk
+	 * @param x the array to fill with the x coordinates
+	 * @param y the array to fill with the y coordinates
+	 * @param direction the array to fill with the directions, in radians
+	 * @param chunk the index of the chunk
+	 */
+	private void generateChunk(SplittableRandom random, double[] x, double[] y, double[] direction,
+			int chunk)
+	{
+		int start = chunk * CHUNKSIZE;
+		int end = Math.min(start + CHUNKSIZE, x.length);
+		for (int i = start; i < end; i++)
+		{
+			x[i] = (int) (random.nextDouble() * xMax);
+			y[i] = (int) (random.nextDouble() * yMax);
+			direction[i] = Math.toRadians(random.nextDouble() * 360);
+		}
+	}
+
+	/**
+	 * This task generates a range of chunks, splitting the range in half and generating each half
+	 * in parallel until only one chunk is left.
+	 */
+	private static class GenerateAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = -5370823165521880541L;
+
+		private final ScenarioGenerator generator;
+		private final SplittableRandom[] chunkRandoms;
+		private final double[] x;
+		private final double[] y;
+		private final double[] direction;
+		private final int start;
+		private final int end;
+
+		/**
+		 * Constructor
+		 *
+		 * @param gnrtr the scenario generator
+		 * @param chnkRndms the generators for all the chunks
+		 * @param xs the array to fill with the x coordinates
+		 * @param ys the array to fill with the y coordinates
+		 * @param drctn the array to fill with the directions
+		 * @param strt the index of the first chunk to generate
+		 * @param nd the index just past the last chunk to generate
+		 */
+		GenerateAction(ScenarioGenerator gnrtr, SplittableRandom[] chnkRndms, double[] xs, double[] ys,
+				double[] drctn, int strt, int nd)
+		{
+			generator = gnrtr;
+			chunkRandoms = chnkRndms;
+			x = xs;
+			y = ys;
+			direction = drctn;
+			start = strt;
+			end = nd;
+		}
+
+		/**
+		 * Generate the chunks in the range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((end - start) == 1)
+			{
+				generator.generateChunk(chunkRandoms[start], x, y, direction, start);
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new GenerateAction(generator, chunkRandoms, x, y, direction, start, middle),
+						new GenerateAction(generator, chunkRandoms, x, y, direction, middle, end));
+			}
+		}
+	}
+}
@@ -45,29 +45,70 @@ class Sensor
 	private final double multiplier;
 	/* The maximum number of pulses this receptor can generate per unit time period */
 	static final int PULSEMAX = 100;
+	/*
+	 * How much the cosine of the angle to an item may be out by through rounding. Items are only culled
+	 * as outside the range if they are outside by more than this.
+	 */
+	private static final double CONEMARGIN = 1e-9;
+	/* How much looser the quick test for a shifted item being within range is, relatively */
+	private static final double IMAGEMARGIN = 1e-9;
 
-	/* The configuration panel */
-	private final ConfigurationPanel pnlConfiguration;
+	/*
+	 * The configured light intensity and dark plain dimensions, read once here rather than from the
+	 * settings for every item
+	 */
+	private final int lightIntensity;
+	private final int xMax;
+	private final int yMax;
 	/* The parent vehicle */
 	private final Vehicle parentVehicle;
 	/* The range angle, in radians */
 	private final double halfAngle;
+	/* The cosine of the range angle, less the margin, for culling items outside the range */
+	private final double cullCosine;
+	/* The cosine of the range angle, plus the margin, for accepting items well inside the range */
+	private final double acceptCosine;
+	/* The square of the distance beyond which an item of the configured intensity generates no pulses */
+	private final double reachSquared;
+	/* The kernel for working out the pulses of a cell of items at once, or null to do one at a time */
+	private final SensorKernel kernel;
+	/* Whether to examine the cells of the grid nearest first, rather than row by row */
+	private final boolean nearestFirst;
+
+	/* Where each thread's sensors put the pulses a kernel works out, grown to the largest cell */
+	private static final ThreadLocal<int[]> KERNELPULSES = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[PerceptibleGrid.CELLSIZE];
+		}
+	};
 	
 	/**
 	 * Constructor
 	 * 
-	 * @param pnlConfig the panel containing various configured settings 
+	 * @param sttngs the configured settings 
 	 * @param parnt the parent vehicle
 	 * @param ang the range angle of the sensor, in radians
 	 */
-	Sensor(ConfigurationPanel pnlConfig, Vehicle parnt, double ang)
+	Sensor(SimulationConfig sttngs, Vehicle parnt, double ang)
 	{
-		pnlConfiguration = pnlConfig;
+		lightIntensity = sttngs.getLightIntensity();
+		xMax = sttngs.getDarkPlainWidth();
+		yMax = sttngs.getDarkPlainHeight();
 		parentVehicle = parnt;
 		halfAngle = ang/2;
 
 		/* Light strength to pulse conversion factors. I determined these from experimentation. */
-		multiplier = pnlConfig.getLightIntensity() / 3;
+		multiplier = lightIntensity / 3;
+
+		cullCosine = Math.cos(halfAngle) - CONEMARGIN;
+		acceptCosine = Math.cos(halfAngle) + CONEMARGIN;
+		double reach = getReach(lightIntensity);
+		reachSquared = reach * reach;
+		kernel = sttngs.getSensorKernel();
+		nearestFirst = sttngs.isNearestFirst();
 	}
 
 	/**
@@ -83,6 +124,9 @@ class Sensor
 			List<PerceptibleItem> lstPerceptible)
 	{
 		int pulses = 0;
+		double headingX = Math.cos(sensorDirection);
+		double headingY = -Math.sin(sensorDirection);
+		double coneCosine = getConeCosine(sensorDirection);
 
 		/* 
 		 * Determine the number of pulses this sensor generates for each light source. Accumulate
@@ -93,7 +137,8 @@ class Sensor
 			/* Don't count pulses from yourself */
 			if (!curPerceptible.equals(parentVehicle))
 			{
-				pulses = determinePulsesWrappedAround(sensorLocation, sensorDirection, curPerceptible) + pulses;
+				pulses = determinePulsesWrappedAround(sensorLocation.getX(), sensorLocation.getY(),
+						sensorDirection, headingX, headingY, coneCosine, curPerceptible, null) + pulses;
 				/* If the pulses exceed the pulse max, we're done! */
 				if (pulses > PULSEMAX)
 				{
@@ -112,7 +157,402 @@ class Sensor
 	}
 
 	/**
-	 * Determine the strength of a light source for this current location, wrapping around the 
+	 * Determine the number of pulses this sensor generates from some lights alone, for a LightField.
+	 * Unlike the total pulses, there is no ambient light, and the pulses are capped just above
+	 * PULSEMAX, so a saturated sensor can be told apart.
+	 *
+	 * @param sensorX the x coordinate of the location of this sensor
+	 * @param sensorY the y coordinate of the location of this sensor
+	 * @param sensorDirection the direction of this sensor
+	 * @param lights the lights
+	 * @return the number of pulses, PULSEMAX + 1 if the sensor is saturated
+	 */
+	int determineLightPulses(double sensorX, double sensorY, double sensorDirection, LightSource[] lights)
+	{
+		double headingX = Math.cos(sensorDirection);
+		double headingY = -Math.sin(sensorDirection);
+		double coneCosine = getConeCosine(sensorDirection);
+		int pulses = 0;
+		for (LightSource aLight: lights)
+		{
+			pulses = determinePulsesWrappedAround(sensorX, sensorY, sensorDirection, headingX, headingY,
+					coneCosine, aLight, null) + pulses;
+			if (pulses > PULSEMAX)
+			{
+				return PULSEMAX + 1;
+			}
+		}
+		return pulses;
+	}
+
+	/**
+	 * Given the perceptible items indexed in a grid, determine the number of pulses this sensor
+	 * generates. Only the items in the cells overlapping the area this sensor can perceive are
+	 * examined.
+	 *
+	 * Pulses are never negative and the total is capped at PULSEMAX, so the order the items are
+	 * examined in doesn't change the total. This gives exactly the same result as examining every
+	 * item in the list. The sensor stops as soon as the total exceeds PULSEMAX, so if the settings
+	 * say to examine the cells nearest first, a sensor in a dense field stops after only a few items.
+	 *
+	 * If the grid has a light field, the pulses of all the lights are looked up there instead, which
+	 * is quicker but only approximate, and only the vehicles in the grid are examined.
+	 *
+	 * If the settings configure a sensor kernel, the kernel works out the pulses of all the items in
+	 * a cell at once. Only the items it leaves unresolved, near the edges of the range or possibly
+	 * perceived in a shifted frame, are worked out one at a time here.
+	 *
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param grid the grid of perceptible items
+	 * @return the number of pulses generated by the receptor
+	 */
+	int determineTotalPulses(double sensorX, double sensorY, double sensorDirection, PerceptibleGrid grid)
+	{
+		return determineTotalPulses(sensorX, sensorY, sensorDirection, grid, null);
+	}
+
+	/**
+	 * Determine the total number of pulses generated, as above, adding the number of items examined,
+	 * the number of shifted images evaluated and whether the sensor stopped early because it had
+	 * saturated to the measurements of a move.
+	 *
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param grid the grid of perceptible items
+	 * @param stats the measurements of the move, or null not to measure
+	 * @return the number of pulses generated by the receptor
+	 */
+	int determineTotalPulses(double sensorX, double sensorY, double sensorDirection, PerceptibleGrid grid,
+			MoveStats stats)
+	{
+		/*
+		 * If the pulses of the lights were worked out ahead of time, look them up. The grid then holds
+		 * only the vehicles.
+		 */
+		LightField lightField = grid.getLightField();
+		int pulses = (lightField != null) ? lightField.getPulses(sensorX, sensorY, sensorDirection) : 0;
+
+		/* Items further away than this can't generate a single pulse, not even from a wrapped frame */
+		double reach = getReach(grid.getMaxIntensity());
+
+		/*
+		 * Determine the bounding box of the area this sensor perceives. If the sensor range is an
+		 * ordinary cone, the box holds the sensor and the arc of the cone. Otherwise, settle for the
+		 * box around the whole circle of the reach.
+		 */
+		double minX = sensorX;
+		double maxX = sensorX;
+		double minY = sensorY;
+		double maxY = sensorY;
+		boolean isOrdinaryCone = isOrdinaryCone(sensorDirection);
+		if (isOrdinaryCone)
+		{
+			/* The two edges of the cone */
+			double[] edges = {sensorDirection - halfAngle, sensorDirection + halfAngle};
+			for (double edge: edges)
+			{
+				double edgeX = sensorX + (Math.cos(edge) * reach);
+				double edgeY = sensorY - (Math.sin(edge) * reach);
+				minX = Math.min(minX, edgeX);
+				maxX = Math.max(maxX, edgeX);
+				minY = Math.min(minY, edgeY);
+				maxY = Math.max(maxY, edgeY);
+			}
+			/* The arc bulges out to the full reach wherever it crosses one of the four compass points */
+			if (isWithinCone(0, sensorDirection))
+			{
+				maxX = sensorX + reach;
+			}
+			if (isWithinCone(Vehicle.HALFPI, sensorDirection))
+			{
+				minY = sensorY - reach;
+			}
+			if (isWithinCone(Math.PI, sensorDirection))
+			{
+				minX = sensorX - reach;
+			}
+			if (isWithinCone(Math.PI + Vehicle.HALFPI, sensorDirection))
+			{
+				maxY = sensorY + reach;
+			}
+		}
+		else
+		{
+			minX = sensorX - reach;
+			maxX = sensorX + reach;
+			minY = sensorY - reach;
+			maxY = sensorY + reach;
+		}
+
+		/* The heading of the sensor, and the cosine for culling items outside an ordinary cone */
+		double headingX = Math.cos(sensorDirection);
+		double headingY = -Math.sin(sensorDirection);
+		double coneCosine = isOrdinaryCone ? cullCosine : Double.NEGATIVE_INFINITY;
+
+		/*
+		 * Pad the box by a cell on every side to allow for rounding. The box may hang over the edges
+		 * of the plain, in which case the cells wrap around, but no cell is visited twice.
+		 */
+		int firstColumn = grid.getUnwrappedColumn(minX) - 1;
+		int columnCount = Math.min((grid.getUnwrappedColumn(maxX) + 1) - firstColumn + 1, grid.getColumns());
+		int firstRow = grid.getUnwrappedRow(minY) - 1;
+		int rowCount = Math.min((grid.getUnwrappedRow(maxY) + 1) - firstRow + 1, grid.getRows());
+
+		if (nearestFirst)
+		{
+			/*
+			 * Examine the cells ring by ring outward from the cell the sensor is in, so the nearest
+			 * items, which generate the most pulses, are examined first
+			 */
+			int sensorColumn = grid.getUnwrappedColumn(sensorX);
+			int sensorRow = grid.getUnwrappedRow(sensorY);
+			int lastColumn = firstColumn + columnCount - 1;
+			int lastRow = firstRow + rowCount - 1;
+			int rings = Math.max(Math.max(Math.abs(sensorColumn - firstColumn), Math.abs(lastColumn - sensorColumn)),
+					Math.max(Math.abs(sensorRow - firstRow), Math.abs(lastRow - sensorRow)));
+			for (int ring = 0; (ring <= rings) && (pulses <= PULSEMAX); ring++)
+			{
+				int top = Math.max(sensorRow - ring, firstRow);
+				int bottom = Math.min(sensorRow + ring, lastRow);
+				for (int r = top; (r <= bottom) && (pulses <= PULSEMAX); r++)
+				{
+					int row = Math.floorMod(r, grid.getRows());
+					if ((r == (sensorRow - ring)) || (r == (sensorRow + ring)))
+					{
+						/* The top or bottom of the ring, every column of it */
+						int left = Math.max(sensorColumn - ring, firstColumn);
+						int right = Math.min(sensorColumn + ring, lastColumn);
+						for (int c = left; (c <= right) && (pulses <= PULSEMAX); c++)
+						{
+							pulses = examineCell(pulses, sensorX, sensorY, sensorDirection, headingX, headingY,
+									coneCosine, grid, Math.floorMod(c, grid.getColumns()), row, stats);
+						}
+					}
+					else
+					{
+						/* The sides of the ring, only its first and last columns */
+						if ((sensorColumn - ring) >= firstColumn)
+						{
+							pulses = examineCell(pulses, sensorX, sensorY, sensorDirection, headingX, headingY,
+									coneCosine, grid, Math.floorMod(sensorColumn - ring, grid.getColumns()), row, stats);
+						}
+						if (((sensorColumn + ring) <= lastColumn) && (pulses <= PULSEMAX))
+						{
+							pulses = examineCell(pulses, sensorX, sensorY, sensorDirection, headingX, headingY,
+									coneCosine, grid, Math.floorMod(sensorColumn + ring, grid.getColumns()), row, stats);
+						}
+					}
+				}
+			}
+		}
+		else
+		{
+			for (int r = 0; (r < rowCount) && (pulses <= PULSEMAX); r++)
+			{
+				int row = Math.floorMod(firstRow + r, grid.getRows());
+				for (int c = 0; (c < columnCount) && (pulses <= PULSEMAX); c++)
+				{
+					pulses = examineCell(pulses, sensorX, sensorY, sensorDirection, headingX, headingY, coneCosine,
+							grid, Math.floorMod(firstColumn + c, grid.getColumns()), row, stats);
+				}
+			}
+		}
+
+		/* If the pulses exceed the pulse max, we stopped early */
+		if (pulses > PULSEMAX)
+		{
+			if (stats != null)
+			{
+				stats.earlyExits++;
+			}
+			return PULSEMAX;
+		}
+		/* There is always at least some ambient light, enough to generate one pulse */
+		if (pulses == 0)
+		{
+			pulses = 1;
+		}
+
+		return pulses;
+	}
+
+	/**
+	 * Add the pulses generated by the items in one cell of the grid to the pulses so far, stopping as
+	 * soon as the total exceeds PULSEMAX.
+	 *
+	 * @param pulses the pulses so far
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param headingX the x component of the heading of this sensor
+	 * @param headingY the y component of the heading of this sensor
+	 * @param coneCosine the cosine for culling items outside the range
+	 * @param grid the grid of perceptible items
+	 * @param column the column of the cell
+	 * @param row the row of the cell
+	 * @param stats the measurements of the move, or null not to measure
+	 * @return the pulses so far, including the cell
+	 */
+	private int examineCell(int pulses, double sensorX, double sensorY, double sensorDirection, double headingX,
+			double headingY, double coneCosine, PerceptibleGrid grid, int column, int row, MoveStats stats)
+	{
+		int start = grid.getCellStart(column, row);
+		int end = grid.getCellEnd(column, row);
+		if (start == end)
+		{
+			return pulses;
+		}
+
+		/* Have the kernel, if there is one, work out the pulses of the whole cell at once */
+		int[] kernelPulses = null;
+		if (kernel != null)
+		{
+			kernelPulses = KERNELPULSES.get();
+			if (kernelPulses.length < (end - start))
+			{
+				kernelPulses = new int[2 * (end - start)];
+				KERNELPULSES.set(kernelPulses);
+			}
+			kernel.determinePulses(sensorX, sensorY, headingX, headingY, coneCosine, acceptCosine,
+					grid.getItemXs(), grid.getItemYs(), grid.getItemIntensities(), start, end, kernelPulses);
+		}
+
+		int total = pulses;
+		int itemsExamined = 0;
+		for (int i = start; (i < end) && (total <= PULSEMAX); i++)
+		{
+			PerceptibleItem curPerceptible = grid.getItem(i);
+			/* Don't count pulses from yourself. Vehicles are unique, so identity is enough. */
+			if (curPerceptible != parentVehicle)
+			{
+				itemsExamined++;
+				int itemPulses = (kernelPulses != null) ? kernelPulses[i - start] : SensorKernel.UNRESOLVED;
+				if (itemPulses == SensorKernel.UNRESOLVED)
+				{
+					itemPulses = determinePulsesWrappedAround(sensorX, sensorY, sensorDirection, headingX,
+							headingY, coneCosine, curPerceptible, stats);
+				}
+				total = itemPulses + total;
+			}
+		}
+		if (stats != null)
+		{
+			stats.itemsExamined += itemsExamined;
+		}
+		return total;
+	}
+
+	/**
+	 * Determine the distance beyond which an item of a given intensity can't generate a single pulse.
+	 * The distance is padded slightly, so it's safe to use as a cut off despite rounding.
+	 *
+	 * @param intensity the intensity of the item
+	 * @return the reach of the item
+	 */
+	private double getReach(int intensity)
+	{
+		return getReach(intensity, lightIntensity);
+	}
+
+	/**
+	 * Determine the distance beyond which an item of a given intensity can't generate a single pulse
+	 * in any sensor, given the configured light intensity.
+	 *
+	 * @param intensity the intensity of the item
+	 * @param lghtIntnsty the configured light intensity
+	 * @return the reach of the item
+	 */
+	static double getReach(int intensity, int lghtIntnsty)
+	{
+		/* The inverse of the pulse formula in determinePulses, solved for a single pulse */
+		double mltplr = lghtIntnsty / 3;
+		return ((intensity * mltplr) / lghtIntnsty) * 1.000001 + 1;
+	}
+
+	/**
+	 * Determine the square of the distance beyond which an item of a given intensity can't generate
+	 * a single pulse.
+	 *
+	 * @param intensity the intensity of the item
+	 * @return the square of the reach of the item
+	 */
+	private double getReachSquared(int intensity)
+	{
+		double reachSq = reachSquared;
+		/* Every item normally has the configured intensity */
+		if (intensity != lightIntensity)
+		{
+			double reach = getReach(intensity);
+			reachSq = reach * reach;
+		}
+		return reachSq;
+	}
+
+	/**
+	 * Determine the cosine for culling items outside the range of this sensor. Only ordinary cones are
+	 * culled. For any other range the cosine is negative infinity, which culls nothing.
+	 *
+	 * @param sensorDirection the current direction of this sensor
+	 * @return the cosine for culling items
+	 */
+	private double getConeCosine(double sensorDirection)
+	{
+		return isOrdinaryCone(sensorDirection) ? cullCosine : Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Determine if the range of this sensor is an ordinary cone, narrower than a half circle either side
+	 * of the sensor direction, and pointing in a direction for which determinePulses works out the
+	 * angle range in the usual way. Very wide ranges and directions well outside 0 to 2 PI are left to
+	 * the general case.
+	 *
+	 * @param sensorDirection the current direction of this sensor
+	 * @return true if the range of this sensor is an ordinary cone
+	 */
+	private boolean isOrdinaryCone(double sensorDirection)
+	{
+		/* Work out the angle range exactly as determinePulses does */
+		double angleUpperRange = sensorDirection + halfAngle;
+		boolean wrapped = false;
+		if (angleUpperRange > Vehicle.TWOPI)
+		{
+			angleUpperRange = angleUpperRange - Vehicle.TWOPI;
+			wrapped = true;
+		}
+		double angleLowerRange = sensorDirection - halfAngle;
+		if (angleLowerRange < 0)
+		{
+			angleLowerRange = angleLowerRange + Vehicle.TWOPI;
+			wrapped = true;
+		}
+		/*
+		 * The range is an ordinary cone if both ends fall between 0 and 2 PI, and the range only
+		 * straddles 0 degrees when one of the ends was wrapped. Note that a range of no width at all
+		 * is treated by determinePulses as covering every angle.
+		 */
+		return (halfAngle < Math.PI)
+				&& (angleUpperRange >= 0) && (angleUpperRange <= Vehicle.TWOPI)
+				&& (angleLowerRange >= 0) && (angleLowerRange <= Vehicle.TWOPI)
+				&& ((angleUpperRange > angleLowerRange) != wrapped);
+	}
+
+	/**
+	 * Determine if an angle lies within the range of this sensor.
+	 *
+	 * @param angle the angle, in radians
+	 * @param sensorDirection the current direction of this sensor
+	 * @return true if the angle is within the range
+	 */
+	private boolean isWithinCone(double angle, double sensorDirection)
+	{
+		return Math.abs(Math.IEEEremainder(angle - sensorDirection, Vehicle.TWOPI)) <= halfAngle;
+	}
+
+	/**
+	 * Determine the strength of a light source for this current location, wrapping around the
 	 * light source relative to the frame. In other words, if this sensor is pointing towards the
 	 * right side of the frame, wrap over the edge to the left side of the frame, and possibly
 	 * generate pulses for a light source located there.
@@ -124,70 +564,157 @@ class Sensor
 	 */
 	int determinePulsesWrappedAround(Point2D sensorLocation, double sensorDirection, 
 			PerceptibleItem curPerceptible)
+	{
+		return determinePulsesWrappedAround(sensorLocation.getX(), sensorLocation.getY(), sensorDirection,
+				Math.cos(sensorDirection), -Math.sin(sensorDirection), getConeCosine(sensorDirection),
+				curPerceptible, null);
+	}
+
+	/**
+	 * Determine the strength of a light source for this current location, wrapping around the
+	 * light source relative to the frame.
+	 * 
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param headingX the x component of the unit vector in the current direction of this sensor
+	 * @param headingY the y component of the unit vector in the current direction of this sensor
+	 * @param coneCosine the cosine for culling items outside the range of this sensor
+	 * @param curPerceptible the current perceptible item
+	 * @param stats the measurements of the move, or null not to measure
+	 * @return the number of pulses generated by the receptor
+	 */
+	private int determinePulsesWrappedAround(double sensorX, double sensorY, double sensorDirection,
+			double headingX, double headingY, double coneCosine, PerceptibleItem curPerceptible,
+			MoveStats stats)
 	{
 		/* 
 		 * If the sensor receives pulses from the light source in the current frame, no need to look any
 		 * further, we're done.
 		 */
-		int pulses = determinePulses(sensorLocation, sensorDirection, curPerceptible);
+		double perceptibleX = curPerceptible.getX();
+		double perceptibleY = curPerceptible.getY();
+		int pulses = determinePulses(sensorX, sensorY, sensorDirection, headingX, headingY, coneCosine,
+				perceptibleX, perceptibleY, curPerceptible.getIntensity());
 		if (pulses <= 0)
 		{
-			int maxPulse = 0;
-			/* 
-			 * Determine if the sensor receives pulses from the light source when it is placed in the
-			 * corresponding location in each of the eight frames surrounding the current frame. The eight
-			 * frames are offset by the various combinations of the current frame dimensions. 
-			 */
-			Point2D wrappedLocation;
-			LightSource wrappedLightSource;
-			int xMax = pnlConfiguration.getDarkPlainWidth();
-			int yMax = pnlConfiguration.getDarkPlainHeight();
-			for (int x = -xMax; x < (2 * xMax); x = x + xMax)
+			pulses = determinePulsesOfImages(sensorX, sensorY, sensorDirection, headingX, headingY,
+					coneCosine, perceptibleX, perceptibleY, stats);
+		}
+
+		return pulses;
+	}
+
+	/**
+	 * Determine if the sensor receives pulses from a light source when it is placed in the
+	 * corresponding location in each of the eight frames surrounding the current frame. The eight
+	 * frames are offset by the various combinations of the current frame dimensions. If the sensor
+	 * angle is large, it may sense the light source from more than one frame, in which case the
+	 * closest, which generates the most pulses, counts.
+	 *
+	 * Rather than trying all eight frames in full, the offset to the light source along each axis is
+	 * worked out once per column and row of frames, and a frame is only tried if it passes a cheap
+	 * test that it could be within reach and range. A column or row out of reach along its axis alone
+	 * is skipped entirely, so when the reach is under half the frame, only the nearest image along
+	 * each axis, the minimum image, is ever considered. Otherwise the frames are culled by comparing
+	 * squares instead of taking square roots, with a margin so that no frame determinePulses would
+	 * accept is ever skipped. The pulses are exactly the same as trying every frame.
+	 *
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param headingX the x component of the unit vector in the current direction of this sensor
+	 * @param headingY the y component of the unit vector in the current direction of this sensor
+	 * @param coneCosine the cosine for culling items outside the range of this sensor
+	 * @param perceptibleX the x coordinate of the light source in the current frame
+	 * @param perceptibleY the y coordinate of the light source in the current frame
+	 * @param stats the measurements of the move, or null not to measure
+	 * @return the number of pulses generated by the receptor
+	 */
+	private int determinePulsesOfImages(double sensorX, double sensorY, double sensorDirection,
+			double headingX, double headingY, double coneCosine, double perceptibleX, double perceptibleY,
+			MoveStats stats)
+	{
+		int maxPulse = 0;
+		for (int x = -xMax; x < (2 * xMax); x = x + xMax)
+		{
+			/* The offset along the x axis, worked out just as determinePulses does */
+			double shiftedX = perceptibleX + x;
+			double deltaX = shiftedX - sensorX;
+			double deltaXSquared = deltaX * deltaX;
+			if (deltaXSquared > reachSquared)
+			{
+				continue;
+			}
+			double alongX = headingX * deltaX;
+			for (int y = -yMax; y < (2 * yMax); y = y + yMax)
 			{
-				for (int y = -yMax; y < (2 * yMax); y = y + yMax)
+				double shiftedY = perceptibleY + y;
+				double deltaY = shiftedY - sensorY;
+				double distanceSquared = deltaXSquared + (deltaY * deltaY);
+				/* We've already tried the current frame, so skip doing it */
+				if (((x == 0) && (y == 0)) || (distanceSquared > reachSquared)
+						|| !isPossiblyWithinCone(alongX + (headingY * deltaY), distanceSquared, coneCosine))
 				{
-					/* We've already tried the current frame, so skip doing it */
-					if (!((x == 0) && (y == 0)))
-					{
-						wrappedLocation = new Point2D.Double((curPerceptible.getX() + x), (curPerceptible.getY() + y));
-						/* This is an adequate substitute for any type of perceptible item */
-						wrappedLightSource = new LightSource(pnlConfiguration, wrappedLocation);
-						pulses = determinePulses(sensorLocation, sensorDirection, wrappedLightSource);
-
-						/* 
-						 * If the sensor angle is large, it may sense the light source from multiple
-						 * shifted frames. I want the closest one, which will generate the most pulses.
-						 */
-						if (pulses > maxPulse)
-						{
-							maxPulse = pulses;
-						}
-					}
+					continue;
+				}
+
+				if (stats != null)
+				{
+					stats.wrappedImages++;
+				}
+				/*
+				 * The shifted item is perceived as a light source of the configured intensity, an
+				 * adequate substitute for any type of perceptible item
+				 */
+				int pulses = determinePulses(sensorX, sensorY, sensorDirection, headingX, headingY,
+						coneCosine, shiftedX, shiftedY, lightIntensity);
+				if (pulses > maxPulse)
+				{
+					maxPulse = pulses;
 				}
 			}
-			pulses = maxPulse;
 		}
+		return maxPulse;
+	}
 
-		return pulses;
+	/**
+	 * Determine if an item might be within the range of this sensor, without taking a square root.
+	 * The test is looser than the cone cosine culling in determinePulses by IMAGEMARGIN, far more
+	 * than any rounding, so it never rejects an item determinePulses would accept.
+	 *
+	 * @param along the dot product of the heading of this sensor with the offset to the item
+	 * @param distanceSquared the square of the distance to the item
+	 * @param coneCosine the cosine for culling items outside the range of this sensor
+	 * @return false if the item is certainly outside the range
+	 */
+	private static boolean isPossiblyWithinCone(double along, double distanceSquared, double coneCosine)
+	{
+		/* The test is whether along >= coneCosine * distance, squared on both sides */
+		double bound = coneCosine * coneCosine * distanceSquared;
+		if (coneCosine > 0)
+		{
+			return (along >= 0) && ((along * along) >= (bound * (1 - IMAGEMARGIN)));
+		}
+		return (along >= 0) || ((along * along) <= (bound * (1 + IMAGEMARGIN)));
 	}
 
 	/**
-	 * For a given light source, determine the strength of the light given the distance from this
-	 * sensor. This is returned as a number of pulses. The more light a sensor receives, the more
-	 * pulses the sensor generates.
-	 * 
-	 * @param sensorLocation the current location of this sensor
+	 * Determine if a light source is within the range of this sensor, comparing the angle to it with
+	 * the angle range.
+	 *
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
 	 * @param sensorDirection the current direction of this sensor
-	 * @param curPerceptible the current perceptible item
-	 * @return the number of pulses generated by the receptor
+	 * @param perceptibleX the x coordinate of the light source
+	 * @param perceptibleY the y coordinate of the light source
+	 * @return true if the light source is within the range
 	 */
-	private int determinePulses(Point2D sensorLocation, double sensorDirection, PerceptibleItem curPerceptible)
+	private boolean isWithinRange(double sensorX, double sensorY, double sensorDirection, double perceptibleX,
+			double perceptibleY)
 	{
-		int pulses = 0;
-
 		/* Calculate the angle from the current location to the light source */
-		double angleToLight = Math.PI - Math.atan2(sensorLocation.getY() - curPerceptible.getY(), 
-				sensorLocation.getX() - curPerceptible.getX());
+		double angleToLight = Math.PI - Math.atan2(sensorY - perceptibleY, sensorX - perceptibleX);
 		if (angleToLight < 0)
 		{
 			angleToLight = angleToLight + Vehicle.TWOPI;
@@ -205,7 +732,7 @@ class Sensor
 		}
 
 		/* Compare the light source angle with the angle range */
-		boolean inRange;			
+		boolean inRange;
 		if (angleUpperRange > angleLowerRange)
 		{
 			inRange = (angleToLight >= angleLowerRange) && (angleToLight <= angleUpperRange);
@@ -216,23 +743,77 @@ class Sensor
 			inRange = (angleToLight >= angleLowerRange) || (angleToLight <= angleUpperRange);
 		}
 
+		return inRange;
+	}
+
+	/**
+	 * For a given light source, determine the strength of the light given the distance from this
+	 * sensor. This is returned as a number of pulses. The more light a sensor receives, the more
+	 * pulses the sensor generates.
+	 *
+	 * Items that can't possibly generate a pulse are culled first, without any trigonometry. An item
+	 * beyond the reach of its intensity is too far away, whatever its direction. An item whose
+	 * direction, as a unit vector, has a dot product with the sensor heading less than the cone cosine
+	 * is outside the range of the sensor. The cone cosine has a margin for rounding, so no item the
+	 * exact angle comparison would accept is ever culled. Likewise, an item inside an ordinary cone by
+	 * more than the margin is accepted without working out its angle, which only the few items near
+	 * the edges of the range need.
+	 * 
+	 * @param sensorX the x coordinate of the current location of this sensor
+	 * @param sensorY the y coordinate of the current location of this sensor
+	 * @param sensorDirection the current direction of this sensor
+	 * @param headingX the x component of the unit vector in the current direction of this sensor
+	 * @param headingY the y component of the unit vector in the current direction of this sensor
+	 * @param coneCosine the cosine for culling items outside the range of this sensor
+	 * @param perceptibleX the x coordinate of the light source
+	 * @param perceptibleY the y coordinate of the light source
+	 * @param intensity the intensity of the light source
+	 * @return the number of pulses generated by the receptor
+	 */
+	private int determinePulses(double sensorX, double sensorY, double sensorDirection, double headingX,
+			double headingY, double coneCosine, double perceptibleX, double perceptibleY, int intensity)
+	{
+		int pulses = 0;
+
+		/* Cull items too far away to generate a pulse */
+		double deltaX = perceptibleX - sensorX;
+		double deltaY = perceptibleY - sensorY;
+		double distanceSquared = (deltaX * deltaX) + (deltaY * deltaY);
+		if (distanceSquared > getReachSquared(intensity))
+		{
+			return pulses;
+		}
+		/* Cull items outside the range */
+		double distance = Math.sqrt(distanceSquared);
+		double along = (headingX * deltaX) + (headingY * deltaY);
+		if (along < (coneCosine * distance))
+		{
+			return pulses;
+		}
+
+		/*
+		 * An item inside an ordinary cone by more than the margin is certainly within the range, so
+		 * its angle needn't be worked out. Only items near the edges of the range need the exact angle,
+		 * as do items right on the sensor, which have no direction to be inside the cone by.
+		 */
+		boolean inRange = ((coneCosine > Double.NEGATIVE_INFINITY) && (distanceSquared > 0)
+				&& (along >= (acceptCosine * distance)))
+				|| isWithinRange(sensorX, sensorY, sensorDirection, perceptibleX, perceptibleY);
+
 		if (inRange)
 		{
-			/* Get the distance of the sensor from the light source */
-			double distance = sensorLocation.distance(new Point2D.Double(curPerceptible.getX(), 
-					curPerceptible.getY()));
 			/* Adjust the distance for very close distances, which can be problematic */
 			if (distance < 1)
 			{
 				distance = 1;
 			}
 			/* Light strength decreases inversely as the distance from the light increases */
-			double strength = curPerceptible.getIntensity() * (1 / distance);
+			double strength = intensity * (1 / distance);
 			/* 
 			 * Translate the light strength into a number of pulses. The following formula is derived
 			 * from experimentation with different values, and seems to work well. 
 			 */
-			pulses = (int) ((strength / pnlConfiguration.getLightIntensity()) * multiplier);
+			pulses = (int) ((strength / lightIntensity) * multiplier);
 		}
 
 		return pulses;
@@ -248,7 +829,7 @@ class Sensor
 		
 		private static final int LIGHTSIZE = 3;
 
-		private final ConfigurationPanel pnlConfig;
+		private final SimulationConfig config;
 		private final Sensor testSensor;
 		private final Point2D sensorLocation;
 		private final double sensorDirection;
@@ -266,8 +847,8 @@ class Sensor
 			setForeground(Color.WHITE);			
 
 			/* Create the test sensor */
-			pnlConfig = new ConfigurationPanel();
-			testSensor = new Sensor(pnlConfig, null, Math.toRadians(45)); //!!! bogus
+			config = new SimulationConfig(new ConfigurationPanel());
+			testSensor = new Sensor(config, null, Math.toRadians(45)); //!!! bogus
 			sensorLocation = new Point2D.Double(100, 100);
 			sensorDirection = Math.toRadians(0);
 		}
@@ -282,52 +863,52 @@ class Sensor
 			switch (test)
 			{
 			case 0:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(105, 101));
+				lightSource = new LightSource(config, new Point2D.Double(105, 101));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 1:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(105, 99));
+				lightSource = new LightSource(config, new Point2D.Double(105, 99));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 2:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(95, 101));
+				lightSource = new LightSource(config, new Point2D.Double(95, 101));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 3:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(95, 99));
+				lightSource = new LightSource(config, new Point2D.Double(95, 99));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 4:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(101, 105));
+				lightSource = new LightSource(config, new Point2D.Double(101, 105));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 5:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(99, 105));
+				lightSource = new LightSource(config, new Point2D.Double(99, 105));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 6:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(101, 95));
+				lightSource = new LightSource(config, new Point2D.Double(101, 95));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 7:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(99, 95));
+				lightSource = new LightSource(config, new Point2D.Double(99, 95));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 8:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(120, 99));
+				lightSource = new LightSource(config, new Point2D.Double(120, 99));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
 			case 9:
-				lightSource = new LightSource(pnlConfig, new Point2D.Double(99, 120));
+				lightSource = new LightSource(config, new Point2D.Double(99, 120));
 				inRange = testSensor.determinePulsesWrappedAround(sensorLocation, sensorDirection, lightSource) > 1;
 				System.out.println("Point: " + lightSource + " In range:" + inRange);
 				break;
@@ -349,7 +930,7 @@ class Sensor
 			super.paintComponent(g);
 			
 			/* Draw the sensor */
-			VehicleRenderer.drawSensor(g, sensorLocation, sensorDirection, pnlConfig.getSensorRangeAngle(),
+			VehicleRenderer.drawSensor(g, sensorLocation, sensorDirection, config.getSensorRangeAngle(),
 					Color.WHITE);
 			if (lightSource != null)
 			{
@@ -0,0 +1,54 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This interface specifies a kernel that works out the pulses a sensor gets from many perceptible
+ * items at once, from their locations and intensities in primitive arrays. A kernel handles the usual
+ * case of an item plainly within or outside the range of the sensor, and leaves the rest to the
+ * sensor, marking them as unresolved. It must give exactly the pulses the sensor would.
+ */
+interface SensorKernel
+{
+	/* The pulses of an item the kernel leaves to the sensor to work out */
+	int UNRESOLVED = -1;
+
+	/**
+	 * Determine the pulses a sensor gets from a range of items in the current frame, or mark them as
+	 * unresolved. An item the sensor might perceive in one of the shifted frames around the current
+	 * frame, but not in the current frame, is always unresolved, as is an item near the edges of
+	 * the range of the sensor.
+	 *
+	 * @param sensorX the x coordinate of the current location of the sensor
+	 * @param sensorY the y coordinate of the current location of the sensor
+	 * @param headingX the x component of the unit vector in the current direction of the sensor
+	 * @param headingY the y component of the unit vector in the current direction of the sensor
+	 * @param coneCosine the cosine for culling items outside the range of the sensor
+	 * @param acceptCosine the cosine for accepting items well inside the range of the sensor
+	 * @param itemX the x coordinates of the items
+	 * @param itemY the y coordinates of the items
+	 * @param itemIntensity the intensities of the items
+	 * @param start the index of the first item
+	 * @param end the index just past the last item
+	 * @param pulses where to put the pulses of each item, or UNRESOLVED, starting from index 0
+	 */
+	void determinePulses(double sensorX, double sensorY, double headingX, double headingY,
+			double coneCosine, double acceptCosine, double[] itemX, double[] itemY, double[] itemIntensity,
+			int start, int end, int[] pulses);
+}
@@ -0,0 +1,546 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class splits a dark plain into tiles for moving very large numbers of vehicles. The tiles
+ * are vertical strips of the columns of cells of a PerceptibleGrid. Each tile owns the vehicles on
+ * it, and each tick it indexes, in a grid of its own, only the perceptible items on it and in the
+ * halo around it, the columns on either side that its vehicles' sensors can reach. The tiles are
+ * worked on in parallel in every phase of a tick: indexing the items and moving the vehicles, then
+ * updating the vehicles' locations and directions, then handing the vehicles that moved off a tile
+ * over to the tile they moved onto. Nothing is shared between the tiles but the vehicles each tile
+ * reads from the tiles around it while they stand still.
+ *
+ * A sensor totals the pulses of the items it perceives, and the total doesn't depend on the order
+ * the items are examined in, so the vehicles move exactly as they would on an unsplit plain.
+ *
+ * Note that the halo is as wide as the reach of the most intense item, so tiles much narrower than
+ * that reach each index most of the plain and there is little to gain from splitting it.
+ */
+class ShardedPlain
+{
+	/* The phases of a tick that are worked on tile by tile */
+	private static final int MOVEPHASE = 0;
+	private static final int COMMITPHASE = 1;
+	private static final int HANDOVERPHASE = 2;
+
+	private final List<Vehicle> lstVehicle;
+	private final List<LightSource> lstLight;
+	private final boolean isPerceptibleVehicles;
+	/* The greatest intensity of any perceptible item on the whole plain */
+	private final int maxIntensity;
+
+	private final Tile[] tiles;
+	/* The tile that owns each column of cells */
+	private final int[] columnTile;
+
+	/* The totals of the measurements of the vehicles in the latest move */
+	private long senseNs;
+	private long translateNs;
+	private long itemsExamined;
+	private long wrappedImages;
+	private long earlyExits;
+	/* Whether the vehicles are timed in the latest move, set before the tiles are moved */
+	private boolean timed;
+	/* The number of vehicles handed over to another tile in the latest tick */
+	private int handovers;
+
+	/**
+	 * Constructor, splitting the plain and handing each vehicle to the tile it's on
+	 *
+	 * @param settings the settings the lights and vehicles were created with
+	 * @param lstLght the lights on the dark plain, empty if they are looked up in the light field
+	 * @param lstVhcl the vehicles on the dark plain
+	 * @param lightField the light field the sensors look up the pulses of the lights in, or null
+	 */
+	ShardedPlain(SimulationConfig settings, List<LightSource> lstLght, List<Vehicle> lstVhcl, LightField lightField)
+	{
+		lstLight = lstLght;
+		lstVehicle = lstVhcl;
+		isPerceptibleVehicles = settings.isPerceptibleVehicles();
+
+		int intensity = 0;
+		for (LightSource aLight: lstLight)
+		{
+			intensity = Math.max(intensity, aLight.getIntensity());
+		}
+		if (isPerceptibleVehicles)
+		{
+			for (Vehicle aVehicle: lstVehicle)
+			{
+				intensity = Math.max(intensity, aVehicle.getIntensity());
+			}
+		}
+		maxIntensity = intensity;
+
+		/*
+		 * A sensor examines the cells within reach of the most intense item, padded by a cell on
+		 * either side, and may be up to half the sensor gap away from its vehicle. Allow one more cell
+		 * on either side for rounding.
+		 */
+		int xMax = settings.getDarkPlainWidth();
+		int yMax = settings.getDarkPlainHeight();
+		int columns = PerceptibleGrid.getColumnCount(xMax);
+		double cellWidth = (double) xMax / columns;
+		double halo = Sensor.getReach(maxIntensity, settings.getLightIntensity()) + (settings.getSensorGap() / 2);
+		int haloColumns = (int) Math.ceil(halo / cellWidth) + 2;
+
+		/* Split the columns as evenly as possible, at least one column to a tile */
+		int tileCount = Math.max(1, Math.min(settings.getTiles(), columns));
+		tiles = new Tile[tileCount];
+		columnTile = new int[columns];
+		for (int t = 0; t < tileCount; t++)
+		{
+			int firstColumn = (t * columns) / tileCount;
+			int endColumn = ((t + 1) * columns) / tileCount;
+			Arrays.fill(columnTile, firstColumn, endColumn, t);
+			tiles[t] = new Tile(t, new PerceptibleGrid(xMax, yMax, firstColumn - haloColumns,
+					(endColumn - firstColumn) + (2 * haloColumns)), tileCount);
+			tiles[t].grid.setLightField(lightField);
+		}
+
+		/* The tiles whose vehicles can be within the window of each tile's grid */
+		for (int t = 0; t < tileCount; t++)
+		{
+			int firstColumn = (t * columns) / tileCount;
+			int windowColumns = Math.min((((t + 1) * columns) / tileCount) - firstColumn + (2 * haloColumns),
+					columns);
+			boolean[] isNeighbour = new boolean[tileCount];
+			for (int c = 0; c < windowColumns; c++)
+			{
+				isNeighbour[columnTile[Math.floorMod(firstColumn - haloColumns + c, columns)]] = true;
+			}
+			for (int n = 0; n < tileCount; n++)
+			{
+				if (isNeighbour[n])
+				{
+					tiles[t].lstNeighbour.add(tiles[n]);
+				}
+			}
+		}
+
+		for (int i = 0; i < lstVehicle.size(); i++)
+		{
+			tiles[getTile(lstVehicle.get(i))].members.add(i);
+		}
+	}
+
+	/**
+	 * Determine the tile a vehicle is on
+	 *
+	 * @param aVehicle the vehicle
+	 * @return the index of the tile
+	 */
+	private int getTile(Vehicle aVehicle)
+	{
+		return columnTile[tiles[0].grid.getColumn(aVehicle.getX())];
+	}
+
+	/**
+	 * Calculate the new location and direction of every vehicle, tile by tile
+	 *
+	 * @param pool the pool for working on the tiles in parallel, or null to work on them on the
+	 *            calling thread
+	 * @param tmd true to time how long each vehicle spends sensing and translating
+	 */
+	void move(ForkJoinPool pool, boolean tmd)
+	{
+		timed = tmd;
+		runPhase(MOVEPHASE, pool);
+
+		senseNs = 0;
+		translateNs = 0;
+		itemsExamined = 0;
+		wrappedImages = 0;
+		earlyExits = 0;
+		for (Tile aTile: tiles)
+		{
+			senseNs += aTile.senseNs;
+			translateNs += aTile.translateNs;
+			itemsExamined += aTile.itemsExamined;
+			wrappedImages += aTile.wrappedImages;
+			earlyExits += aTile.earlyExits;
+		}
+	}
+
+	/**
+	 * Update all the vehicle locations and directions to the newly calculated ones, tile by tile,
+	 * then hand the vehicles that moved off a tile over to the tile they moved onto
+	 *
+	 * @param pool the pool for working on the tiles in parallel, or null to work on them on the
+	 *            calling thread
+	 */
+	void updateLocationDirection(ForkJoinPool pool)
+	{
+		runPhase(COMMITPHASE, pool);
+		runPhase(HANDOVERPHASE, pool);
+
+		handovers = 0;
+		for (Tile aTile: tiles)
+		{
+			handovers += aTile.handovers;
+		}
+	}
+
+	/**
+	 * Work on one phase of a tick for every tile, returning once every tile is done
+	 *
+	 * @param phase the phase
+	 * @param pool the pool for working on the tiles in parallel, or null to work on them on the
+	 *            calling thread
+	 */
+	private void runPhase(int phase, ForkJoinPool pool)
+	{
+		if (pool != null)
+		{
+			pool.invoke(new TileAction(this, phase, 0, tiles.length));
+		}
+		else
+		{
+			for (Tile aTile: tiles)
+			{
+				runPhase(phase, aTile);
+			}
+		}
+	}
+
+	/**
+	 * Work on one phase of a tick for one tile
+	 *
+	 * @param phase the phase
+	 * @param aTile the tile
+	 */
+	private void runPhase(int phase, Tile aTile)
+	{
+		switch (phase)
+		{
+		case MOVEPHASE:
+			moveTile(aTile);
+			break;
+		case COMMITPHASE:
+			commitTile(aTile);
+			break;
+		default:
+			handOverTo(aTile);
+			break;
+		}
+	}
+
+	/**
+	 * Index the items a tile's vehicles can perceive, and calculate the new location and direction of
+	 * each of its vehicles
+	 *
+	 * @param aTile the tile
+	 */
+	private void moveTile(Tile aTile)
+	{
+		/* Gather the items on this tile and the tiles around it; the grid leaves out the rest */
+		List<PerceptibleItem> lstPerceptible = aTile.lstPerceptible;
+		lstPerceptible.clear();
+		if (isPerceptibleVehicles)
+		{
+			for (Tile aNeighbour: aTile.lstNeighbour)
+			{
+				for (int i = 0; i < aNeighbour.members.size; i++)
+				{
+					lstPerceptible.add(lstVehicle.get(aNeighbour.members.indices[i]));
+				}
+			}
+		}
+		lstPerceptible.addAll(lstLight);
+		aTile.grid.rebuild(lstPerceptible, maxIntensity);
+
+		aTile.senseNs = 0;
+		aTile.translateNs = 0;
+		aTile.itemsExamined = 0;
+		aTile.wrappedImages = 0;
+		aTile.earlyExits = 0;
+		for (int i = 0; i < aTile.members.size; i++)
+		{
+			Vehicle aVehicle = lstVehicle.get(aTile.members.indices[i]);
+			aVehicle.move(aTile.grid, timed);
+			MoveStats stats = aVehicle.getMoveStats();
+			aTile.senseNs += stats.senseNs;
+			aTile.translateNs += stats.translateNs;
+			aTile.itemsExamined += stats.itemsExamined;
+			aTile.wrappedImages += stats.wrappedImages;
+			aTile.earlyExits += stats.earlyExits;
+		}
+	}
+
+	/**
+	 * Update the locations and directions of a tile's vehicles, setting aside any that moved off
+	 * the tile for the tile they moved onto
+	 *
+	 * @param aTile the tile
+	 */
+	private void commitTile(Tile aTile)
+	{
+		VehicleList members = aTile.members;
+		int kept = 0;
+		aTile.handovers = 0;
+		for (int i = 0; i < members.size; i++)
+		{
+			int index = members.indices[i];
+			Vehicle aVehicle = lstVehicle.get(index);
+			aVehicle.updateLocationDirection();
+			int tile = getTile(aVehicle);
+			if (tile == aTile.index)
+			{
+				members.indices[kept++] = index;
+			}
+			else
+			{
+				aTile.outbox[tile].add(index);
+				aTile.handovers++;
+			}
+		}
+		members.size = kept;
+	}
+
+	/**
+	 * Take over the vehicles the other tiles set aside for a tile
+	 *
+	 * @param aTile the tile
+	 */
+	private void handOverTo(Tile aTile)
+	{
+		for (Tile aSource: tiles)
+		{
+			VehicleList outbox = aSource.outbox[aTile.index];
+			for (int i = 0; i < outbox.size; i++)
+			{
+				aTile.members.add(outbox.indices[i]);
+			}
+			outbox.size = 0;
+		}
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the number of tiles the plain is split into
+	 *
+	 * @return the number of tiles
+	 */
+	int getTileCount()
+	{
+		return tiles.length;
+	}
+
+	/**
+	 * Get the number of vehicles on a tile
+	 *
+	 * @param tile the index of the tile
+	 * @return the number of vehicles
+	 */
+	int getVehicleCount(int tile)
+	{
+		return tiles[tile].members.size;
+	}
+
+	/**
+	 * Get the number of vehicles handed over to another tile in the latest tick
+	 *
+	 * @return the number of vehicles
+	 */
+	int getHandovers()
+	{
+		return handovers;
+	}
+
+	/**
+	 * Get the time spent sensing in the latest move, added up over all the vehicles
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	long getSenseNs()
+	{
+		return senseNs;
+	}
+
+	/**
+	 * Get the time spent translating in the latest move, added up over all the vehicles
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	long getTranslateNs()
+	{
+		return translateNs;
+	}
+
+	/**
+	 * Get the number of perceptible items examined in the latest move, by all the sensors
+	 *
+	 * @return the number of items
+	 */
+	long getItemsExamined()
+	{
+		return itemsExamined;
+	}
+
+	/**
+	 * Get the number of shifted images of items evaluated in the latest move
+	 *
+	 * @return the number of shifted images
+	 */
+	long getWrappedImages()
+	{
+		return wrappedImages;
+	}
+
+	/**
+	 * Get the number of sensors that stopped examining items early in the latest move, because they
+	 * had saturated
+	 *
+	 * @return the number of sensors
+	 */
+	long getEarlyExits()
+	{
+		return earlyExits;
+	}
+
+	/**
+	 * One strip of the plain, the vehicles on it and the grid of the items they can perceive. Only
+	 * the thread working on the tile writes to it.
+	 */
+	private static final class Tile
+	{
+		private final int index;
+		private final PerceptibleGrid grid;
+		/* The tiles whose vehicles can be within the window of the grid, including this one */
+		private final List<Tile> lstNeighbour;
+		/* The indices of the vehicles on this tile */
+		private final VehicleList members;
+		/* The vehicles that moved off this tile, by the tile they moved onto */
+		private final VehicleList[] outbox;
+		/* Reused for gathering the items to index */
+		private final List<PerceptibleItem> lstPerceptible;
+
+		/* The totals of the measurements of this tile's vehicles in the latest move */
+		private long senseNs;
+		private long translateNs;
+		private long itemsExamined;
+		private long wrappedImages;
+		private long earlyExits;
+		private int handovers;
+
+		/**
+		 * Constructor
+		 *
+		 * @param indx the index of the tile
+		 * @param grd the grid of the items the tile's vehicles can perceive
+		 * @param tileCount the number of tiles
+		 */
+		Tile(int indx, PerceptibleGrid grd, int tileCount)
+		{
+			index = indx;
+			grid = grd;
+			lstNeighbour = new ArrayList<Tile>();
+			members = new VehicleList();
+			outbox = new VehicleList[tileCount];
+			for (int t = 0; t < tileCount; t++)
+			{
+				outbox[t] = new VehicleList();
+			}
+			lstPerceptible = new ArrayList<PerceptibleItem>();
+		}
+	}
+
+	/**
+	 * A growable list of the indices of vehicles, which creates no objects once it has grown
+	 */
+	private static final class VehicleList
+	{
+		/* The number of indices to start with */
+		private static final int INITIALCAPACITY = 16;
+
+		private int[] indices = new int[INITIALCAPACITY];
+		private int size;
+
+		/**
+		 * Add the index of a vehicle
+		 *
+		 * @param index the index
+		 */
+		void add(int index)
+		{
+			if (size == indices.length)
+			{
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+			indices[size++] = index;
+		}
+	}
+
+	/**
+	 * This task works on one phase of a tick for a range of tiles, splitting the range in half and
+	 * working on each half in parallel until only one tile is left. The task completes only once
+	 * every tile in the range is done, so it acts as a barrier between the phases.
+	 */
+	private static class TileAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4418093565238950723L;
+
+		private final ShardedPlain plain;
+		private final int phase;
+		private final int start;
+		private final int end;
+
+		/**
+		 * Constructor
+		 *
+		 * @param pln the sharded plain
+		 * @param phs the phase of the tick
+		 * @param strt the index of the first tile
+		 * @param nd the index just past the last tile
+		 */
+		TileAction(ShardedPlain pln, int phs, int strt, int nd)
+		{
+			plain = pln;
+			phase = phs;
+			start = strt;
+			end = nd;
+		}
+
+		/**
+		 * Work on the tiles in the range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((end - start) == 1)
+			{
+				plain.runPhase(phase, plain.tiles[start]);
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new TileAction(plain, phase, start, middle), new TileAction(plain, phase, middle, end));
+			}
+		}
+	}
+}
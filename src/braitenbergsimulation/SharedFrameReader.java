@@ -0,0 +1,324 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads the frames a SharedFrameWriter publishes, from another process. It maps the file
+ * and reads the latest complete frame straight out of the mapping, trying again whenever the writer
+ * overwrote the frame while it was being read. The reader never holds up the writer, so a slow reader
+ * just skips frames.
+ *
+ * It can also be run to watch a simulation for a number of seconds, printing every second the tick
+ * of the latest frame, how many frames were seen and how many reads had to be tried again:
+ *
+ *   java braitenbergsimulation.SharedFrameReader frames.shm 10
+ */
+class SharedFrameReader implements Closeable
+{
+	/* The number of seconds to watch, unless told otherwise */
+	private static final int DEFAULTSECONDS = 5;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer mapped;
+	private final int vehicleCount;
+	private final int frames;
+	private final int headerBytes;
+	private final int frameBytes;
+	private final int darkPlainWidth;
+	private final int darkPlainHeight;
+	private final String[] types;
+	private final byte[] vehicleTypes;
+
+	/* Views of where the locations and directions are in each slot */
+	private final DoubleBuffer[] slotX;
+	private final DoubleBuffer[] slotY;
+	private final DoubleBuffer[] slotDirection;
+
+	/* The number of reads tried again because the frame was overwritten */
+	private long retries;
+
+	/**
+	 * Constructor, mapping the file and reading its header
+	 *
+	 * @param file the file
+	 * @throws IOException if the file can't be mapped, or isn't a shared frame file
+	 */
+	SharedFrameReader(File file) throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			if (channel.size() < SharedFrameWriter.HEADERBYTES)
+			{
+				throw new IOException(file + " is not a shared frame file");
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			if (mapped.getInt(0) != SharedFrameWriter.MAGIC)
+			{
+				throw new IOException(file + " is not a shared frame file");
+			}
+			SharedFrameWriter.fence();
+			int version = mapped.getInt(4);
+			if (version != SharedFrameWriter.VERSION)
+			{
+				throw new IOException(file + " is version " + version + ", expected "
+						+ SharedFrameWriter.VERSION);
+			}
+		}
+		catch (IOException ioexc)
+		{
+			channel.close();
+			throw ioexc;
+		}
+
+		headerBytes = mapped.getInt(SharedFrameWriter.HEADERBYTESOFFSET);
+		frames = mapped.getInt(SharedFrameWriter.FRAMESOFFSET);
+		vehicleCount = mapped.getInt(SharedFrameWriter.VEHICLESOFFSET);
+		frameBytes = mapped.getInt(SharedFrameWriter.FRAMEBYTESOFFSET);
+		darkPlainWidth = mapped.getInt(SharedFrameWriter.WIDTHOFFSET);
+		darkPlainHeight = mapped.getInt(SharedFrameWriter.HEIGHTOFFSET);
+
+		types = new String[mapped.getInt(SharedFrameWriter.TYPESOFFSET)];
+		byte[] name = new byte[SharedFrameWriter.TYPENAMEBYTES];
+		for (int i = 0; i < types.length; i++)
+		{
+			int offset = SharedFrameWriter.HEADERBYTES + (i * SharedFrameWriter.TYPENAMEBYTES);
+			int length = 0;
+			while ((length < name.length) && (mapped.get(offset + length) != 0))
+			{
+				name[length] = mapped.get(offset + length);
+				length++;
+			}
+			types[i] = new String(name, 0, length, StandardCharsets.UTF_8);
+		}
+		int typesStart = SharedFrameWriter.HEADERBYTES + (types.length * SharedFrameWriter.TYPENAMEBYTES);
+		vehicleTypes = new byte[vehicleCount];
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			vehicleTypes[i] = mapped.get(typesStart + i);
+		}
+
+		slotX = new DoubleBuffer[frames];
+		slotY = new DoubleBuffer[frames];
+		slotDirection = new DoubleBuffer[frames];
+		for (int slot = 0; slot < frames; slot++)
+		{
+			int start = headerBytes + (slot * frameBytes) + SharedFrameWriter.FRAMEHEADERBYTES;
+			slotX[slot] = SharedFrameWriter.getDoubles(mapped, start, vehicleCount);
+			slotY[slot] = SharedFrameWriter.getDoubles(mapped, start + (vehicleCount * 8), vehicleCount);
+			slotDirection[slot] = SharedFrameWriter.getDoubles(mapped, start + (vehicleCount * 16), vehicleCount);
+		}
+	}
+
+	/**
+	 * Read the locations and directions of the vehicles in the latest complete frame. The arrays must
+	 * be at least as long as the number of vehicles.
+	 *
+	 * @param x the array to read the x coordinates into
+	 * @param y the array to read the y coordinates into
+	 * @param direction the array to read the directions into, in radians
+	 * @return the tick of the frame, or -1 if no frame has been published yet
+	 */
+	long readLatest(double[] x, double[] y, double[] direction)
+	{
+		while (true)
+		{
+			long latest = mapped.getLong(SharedFrameWriter.LATESTOFFSET);
+			if (latest < 0)
+			{
+				return -1;
+			}
+			SharedFrameWriter.fence();
+			int slot = (int) (latest % frames);
+			int start = headerBytes + (slot * frameBytes);
+			long sequence = mapped.getLong(start);
+			/* A newer frame is being written over it already */
+			if (sequence != ((2 * latest) + 2))
+			{
+				retries++;
+				continue;
+			}
+			SharedFrameWriter.fence();
+			long tick = mapped.getLong(start + 8);
+			slotX[slot].clear();
+			slotX[slot].get(x, 0, vehicleCount);
+			slotY[slot].clear();
+			slotY[slot].get(y, 0, vehicleCount);
+			slotDirection[slot].clear();
+			slotDirection[slot].get(direction, 0, vehicleCount);
+			SharedFrameWriter.fence();
+			if (mapped.getLong(start) == sequence)
+			{
+				return tick;
+			}
+			retries++;
+		}
+	}
+
+	/**
+	 * Determine if the simulation is still publishing frames
+	 *
+	 * @return true if frames are still being published
+	 */
+	boolean isPublishing()
+	{
+		return (mapped.getInt(SharedFrameWriter.PUBLISHINGOFFSET) != 0);
+	}
+
+	/**
+	 * Get the number of reads tried again because the frame was overwritten while it was read
+	 *
+	 * @return the number of reads tried again
+	 */
+	long getRetries()
+	{
+		return retries;
+	}
+
+	/**
+	 * Get the number of vehicles in every frame
+	 *
+	 * @return the number of vehicles
+	 */
+	int getVehicleCount()
+	{
+		return vehicleCount;
+	}
+
+	/**
+	 * Get the type of a vehicle
+	 *
+	 * @param index the index of the vehicle in the frames
+	 * @return the type of the vehicle
+	 */
+	String getVehicleType(int index)
+	{
+		return types[vehicleTypes[index]];
+	}
+
+	/**
+	 * Get the width of the dark plain
+	 *
+	 * @return the width of the dark plain, in pixels
+	 */
+	int getDarkPlainWidth()
+	{
+		return darkPlainWidth;
+	}
+
+	/**
+	 * Get the height of the dark plain
+	 *
+	 * @return the height of the dark plain, in pixels
+	 */
+	int getDarkPlainHeight()
+	{
+		return darkPlainHeight;
+	}
+
+	/**
+	 * Close the file. The mapping is released once the reader is no longer referenced.
+	 *
+	 * @throws IOException if the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the file, and the number of seconds to watch for
+	 */
+	public static void main(String[] args)
+	{
+		if ((args.length < 1) || (args.length > 2))
+		{
+			System.err.println("Expected a shared frame file, and optionally a number of seconds");
+			System.exit(1);
+		}
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULTSECONDS;
+
+		SharedFrameReader reader = null;
+		try
+		{
+			reader = new SharedFrameReader(new File(args[0]));
+		}
+		catch (IOException ioexc)
+		{
+			System.err.println("Can't read " + args[0] + ": " + ioexc.getMessage());
+			System.exit(1);
+		}
+		int count = reader.getVehicleCount();
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] direction = new double[count];
+		System.out.println("vehicles=" + count + " width=" + reader.getDarkPlainWidth() + " height="
+				+ reader.getDarkPlainHeight());
+		System.out.println("second,tick,framesSeen,reads,retries");
+
+		long lastTick = -1;
+		for (int second = 1; second <= seconds; second++)
+		{
+			long endNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+			long framesSeen = 0;
+			long reads = 0;
+			long retriesBefore = reader.getRetries();
+			while (System.nanoTime() < endNs)
+			{
+				long tick = reader.readLatest(x, y, direction);
+				reads++;
+				if (tick != lastTick)
+				{
+					framesSeen++;
+					lastTick = tick;
+				}
+			}
+			System.out.println(second + "," + lastTick + "," + framesSeen + "," + reads + ","
+					+ (reader.getRetries() - retriesBefore));
+			if (!reader.isPublishing())
+			{
+				break;
+			}
+		}
+		try
+		{
+			reader.close();
+		}
+		catch (IOException ioexc)
+		{
+			System.err.println("Can't close " + args[0] + ": " + ioexc.getMessage());
+			System.exit(1);
+		}
+	}
+}
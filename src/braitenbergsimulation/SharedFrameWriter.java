@@ -0,0 +1,332 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class publishes where the vehicles are to a memory mapped file, for a visualizer in another
+ * process to draw. Registered as a tick listener, it writes the location and direction of every
+ * vehicle into a ring of frames after every tick. A reader maps the same file and reads the latest
+ * frame whenever it likes, without a socket and without holding up the simulation, which never waits
+ * for a reader. SharedFrameReader reads the frames in Java, but the layout is simple enough to read
+ * from any language. Everything is little endian.
+ *
+ * The file starts with a header of HEADERBYTES:
+ *
+ *   0  int     MAGIC
+ *   4  int     VERSION
+ *   8  int     the bytes of the header, type names and vehicle types, where the first frame starts
+ *   12 int     the number of frames in the ring
+ *   16 int     the number of vehicles
+ *   20 int     the bytes of a frame
+ *   24 int     the width of the dark plain
+ *   28 int     the height of the dark plain
+ *   32 long    the number of the latest complete frame, counting from 0, or -1 before the first
+ *   40 int     the number of vehicle types
+ *   44 int     1 while the simulation is publishing frames, 0 once it has stopped
+ *
+ * Then the name of every vehicle type, in UTF-8 padded with zeros to TYPENAMEBYTES, and the index of
+ * the type of every vehicle, a byte each, padded to a multiple of 8 bytes. The types never change, so
+ * they aren't repeated in the frames. Frame n is in slot n modulo the number of frames, and holds:
+ *
+ *   0  long    the sequence, 2n + 1 while the frame is being written and 2n + 2 once it's complete
+ *   8  long    the tick of the simulation
+ *   16 double  the x coordinate of every vehicle, then the y coordinate of every vehicle, then the
+ *              direction of every vehicle, in radians
+ *
+ * The sequence makes each frame a seqlock. A reader takes the number n of the latest frame, checks
+ * its sequence is 2n + 2, reads what it needs, and checks the sequence again. If it changed, the
+ * writer came round the ring and overwrote the frame meanwhile, and the reader tries again. With more
+ * frames in the ring, a reader has longer to read a frame before it's overwritten.
+ *
+ * The writes and reads of a mapped buffer are plain, and Java 8 has no fences for them outside its
+ * internal API. So the writer and the reader each fence their accesses to the frame with an atomic
+ * update of a counter, which is a full fence.
+ *
+ * A file already there is reused rather than truncated, since a reader may still have it mapped and
+ * would crash reading past the end of a shorter file. It grows if it has to, and its header is set up
+ * again in place, with the magic number cleared while that happens.
+ */
+class SharedFrameWriter implements TickListener, Closeable
+{
+	/* Identifies a shared frame file, "BRSF" */
+	static final int MAGIC = 0x42525346;
+	static final int VERSION = 1;
+	/* The bytes of the fixed part of the header */
+	static final int HEADERBYTES = 64;
+	/* The bytes of the name of a vehicle type */
+	static final int TYPENAMEBYTES = 32;
+	/* The bytes of the sequence and the tick that start every frame */
+	static final int FRAMEHEADERBYTES = 16;
+	/* The number of frames in the ring, unless told otherwise */
+	static final int DEFAULTFRAMES = 4;
+
+	/* Updated atomically between the accesses to the mapped file, to keep them in order */
+	private static final AtomicLong FENCE = new AtomicLong();
+
+	/* Where the fields of the header are */
+	static final int HEADERBYTESOFFSET = 8;
+	static final int FRAMESOFFSET = 12;
+	static final int VEHICLESOFFSET = 16;
+	static final int FRAMEBYTESOFFSET = 20;
+	static final int WIDTHOFFSET = 24;
+	static final int HEIGHTOFFSET = 28;
+	static final int LATESTOFFSET = 32;
+	static final int TYPESOFFSET = 40;
+	static final int PUBLISHINGOFFSET = 44;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer mapped;
+	private final SimulationEngine engine;
+	private final int vehicleCount;
+	private final int frames;
+	private final int headerBytes;
+	private final int frameBytes;
+
+	/* The locations and directions are copied here first, then into the frame in one go each */
+	private final double[] x;
+	private final double[] y;
+	private final double[] direction;
+	/* Views of where the locations and directions go in each slot */
+	private final DoubleBuffer[] slotX;
+	private final DoubleBuffer[] slotY;
+	private final DoubleBuffer[] slotDirection;
+
+	/* The number of the next frame */
+	private long nextFrame;
+
+	/**
+	 * Constructor, creating or reusing the file and publishing the current locations and directions of the
+	 * vehicles as the first frame
+	 *
+	 * @param file the file to map, reusing any shared frame file already there
+	 * @param ngn the engine running the simulation
+	 * @param frms the number of frames in the ring
+	 * @throws IOException if the file can't be mapped
+	 * @throws IllegalArgumentException if there are fewer than two frames, or the ring would be too big
+	 *             to map
+	 */
+	SharedFrameWriter(File file, SimulationEngine ngn, int frms) throws IOException
+	{
+		if (frms < 2)
+		{
+			throw new IllegalArgumentException("There must be at least two frames: " + frms);
+		}
+		engine = ngn;
+		frames = frms;
+		List<Vehicle> lstVehicle = engine.getVehicles();
+		vehicleCount = lstVehicle.size();
+
+		/* The vehicle types, then the index of the type of every vehicle */
+		List<String> lstType = new ArrayList<String>();
+		byte[] vehicleTypes = new byte[vehicleCount];
+		for (int i = 0; i < vehicleCount; i++)
+		{
+			String type = lstVehicle.get(i).getVehicleType();
+			if (!lstType.contains(type))
+			{
+				lstType.add(type);
+			}
+			vehicleTypes[i] = (byte) lstType.indexOf(type);
+		}
+		headerBytes = HEADERBYTES + (lstType.size() * TYPENAMEBYTES) + (((vehicleCount + 7) / 8) * 8);
+		frameBytes = FRAMEHEADERBYTES + (vehicleCount * 24);
+		long fileBytes = headerBytes + ((long) frames * frameBytes);
+		if (fileBytes > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("A ring of " + frames + " frames of " + vehicleCount
+					+ " vehicles is too big to map");
+		}
+
+		/* Never truncated, since a reader may have it mapped. Mapping more than is there grows it. */
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try
+		{
+			mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+		}
+		catch (IOException ioexc)
+		{
+			channel.close();
+			throw ioexc;
+		}
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+		/*
+		 * Clear the magic number first, so no new reader takes the file while it's set up, and make
+		 * sure a reader that already has it mapped finds no complete frame
+		 */
+		mapped.putInt(0, 0);
+		mapped.putLong(LATESTOFFSET, -1);
+		fence();
+		for (int slot = 0; slot < frames; slot++)
+		{
+			mapped.putLong(headerBytes + (slot * frameBytes), 0);
+		}
+
+		mapped.putInt(4, VERSION);
+		mapped.putInt(HEADERBYTESOFFSET, headerBytes);
+		mapped.putInt(FRAMESOFFSET, frames);
+		mapped.putInt(VEHICLESOFFSET, vehicleCount);
+		mapped.putInt(FRAMEBYTESOFFSET, frameBytes);
+		mapped.putInt(WIDTHOFFSET, engine.getDarkPlainWidth());
+		mapped.putInt(HEIGHTOFFSET, engine.getDarkPlainHeight());
+		mapped.putLong(LATESTOFFSET, -1);
+		mapped.putInt(TYPESOFFSET, lstType.size());
+		mapped.putInt(PUBLISHINGOFFSET, 1);
+		for (int i = 0; i < lstType.size(); i++)
+		{
+			byte[] name = lstType.get(i).getBytes(StandardCharsets.UTF_8);
+			int offset = HEADERBYTES + (i * TYPENAMEBYTES);
+			/* Padded with zeros, over whatever a file already there held */
+			for (int j = 0; j < TYPENAMEBYTES; j++)
+			{
+				mapped.put(offset + j, (j < Math.min(name.length, TYPENAMEBYTES - 1)) ? name[j] : 0);
+			}
+		}
+		int typesStart = HEADERBYTES + (lstType.size() * TYPENAMEBYTES);
+		for (int i = typesStart; i < headerBytes; i++)
+		{
+			mapped.put(i, ((i - typesStart) < vehicleCount) ? vehicleTypes[i - typesStart] : 0);
+		}
+		/* The magic number last, so a reader never sees a file half set up */
+		fence();
+		mapped.putInt(0, MAGIC);
+
+		x = new double[vehicleCount];
+		y = new double[vehicleCount];
+		direction = new double[vehicleCount];
+		slotX = new DoubleBuffer[frames];
+		slotY = new DoubleBuffer[frames];
+		slotDirection = new DoubleBuffer[frames];
+		for (int slot = 0; slot < frames; slot++)
+		{
+			int start = headerBytes + (slot * frameBytes) + FRAMEHEADERBYTES;
+			slotX[slot] = getDoubles(mapped, start, vehicleCount);
+			slotY[slot] = getDoubles(mapped, start + (vehicleCount * 8), vehicleCount);
+			slotDirection[slot] = getDoubles(mapped, start + (vehicleCount * 16), vehicleCount);
+		}
+
+		publishFrame(engine.getTickCount());
+	}
+
+	/**
+	 * Get a view of some doubles in a mapped file
+	 *
+	 * @param buffer the mapped file
+	 * @param offset where the doubles start
+	 * @param count the number of doubles
+	 * @return the view
+	 */
+	static DoubleBuffer getDoubles(ByteBuffer buffer, int offset, int count)
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + (count * 8));
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+
+	/**
+	 * Publish the locations and directions of the vehicles after a tick
+	 *
+	 * @param ngn the engine that completed the tick
+	 */
+	@Override
+	public void tickCompleted(SimulationEngine ngn)
+	{
+		publishFrame(ngn.getTickCount());
+	}
+
+	/**
+	 * Write the current locations and directions of the vehicles into the next slot of the ring, and
+	 * make it the latest frame
+	 *
+	 * @param tick the number of the tick
+	 */
+	private void publishFrame(long tick)
+	{
+		engine.copyLocationDirection(x, y, direction);
+		int slot = (int) (nextFrame % frames);
+		int start = headerBytes + (slot * frameBytes);
+
+		/* Mark the frame as being written before writing any of it */
+		mapped.putLong(start, (2 * nextFrame) + 1);
+		fence();
+		mapped.putLong(start + 8, tick);
+		slotX[slot].clear();
+		slotX[slot].put(x);
+		slotY[slot].clear();
+		slotY[slot].put(y);
+		slotDirection[slot].clear();
+		slotDirection[slot].put(direction);
+
+		/* Then mark it complete, and only then make it the latest */
+		fence();
+		mapped.putLong(start, (2 * nextFrame) + 2);
+		fence();
+		mapped.putLong(LATESTOFFSET, nextFrame);
+		nextFrame++;
+	}
+
+	/**
+	 * Keep the reads and writes of the mapped file before this from being reordered with those after
+	 * it
+	 */
+	static void fence()
+	{
+		FENCE.getAndIncrement();
+	}
+
+	/**
+	 * Get the number of frames published so far
+	 *
+	 * @return the number of frames
+	 */
+	long getPublishedFrames()
+	{
+		return nextFrame;
+	}
+
+	/**
+	 * Mark the file as no longer being published to, and close it. Stop it being told about ticks
+	 * first. The latest frame stays readable.
+	 *
+	 * @throws IOException if the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		fence();
+		mapped.putInt(PUBLISHINGOFFSET, 0);
+		channel.close();
+	}
+}
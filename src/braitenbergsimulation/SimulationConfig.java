@@ -0,0 +1,549 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ * 
+ * This file is part of the Braitenberg Simulation Java package.
+ *     
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This class is a snapshot of the settings a simulation is configured with, taken at the moment the
+ * simulation is set up. The snapshot never changes, so the vehicles, sensors and lights can read it
+ * from any thread without going back to the Swing components of the ConfigurationPanel.
+ *
+ * Besides the settings, the snapshot holds options for tuning how the simulation runs, which aren't
+ * part of the user interface. A snapshot with a different option is made by one of the with methods.
+ */
+final class SimulationConfig implements SimulationSettings
+{
+	private final int lightSourceCount;
+	private final int uncrossedExcitatoryCount;
+	private final int crossedExcitatoryCount;
+	private final int uncrossedInhibitoryCount;
+	private final int crossedInhibitoryCount;
+	private final int uncrossedThresholdCount;
+	private final int crossedThresholdCount;
+	private final boolean perceptibleVehicles;
+	private final boolean displayIds;
+	private final boolean wrappingPlain;
+	private final boolean displaySensors;
+	private final double sensorRangeAngle;
+	private final double sensorSplayAngle;
+	private final int sensorGap;
+	private final double angleDelta;
+	private final int maxSpeed;
+	private final double maxAngle;
+	private final int darkPlainWidth;
+	private final int darkPlainHeight;
+	private final int lightIntensity;
+	private final int timerPause;
+	private final int moveThreads;
+	private final int tiles;
+	private final long seed;
+	private final int spriteAngles;
+	private final boolean backToBackTicks;
+
+	/* The number of entries in the sine table for moving the vehicles, or 0 to use java.lang.Math */
+	private final int trigTableSize;
+	private final Trigonometry trigonometry;
+	/* The kernel sensors work out the pulses of many items at once with, or null if they don't */
+	private final SensorKernel sensorKernel;
+	/* Whether sensors examine the cells of the grid nearest first, so they saturate sooner */
+	private final boolean nearestFirst;
+	/* The size of the cells of the light field sensors look up the lights in, or 0 if they don't */
+	private final int lightFieldCellSize;
+
+	/**
+	 * Constructor, taking a snapshot of the current settings
+	 * 
+	 * @param settings the configured settings
+	 */
+	SimulationConfig(SimulationSettings settings)
+	{
+		this(settings, 0, false, false, 0);
+	}
+
+	/**
+	 * Constructor, taking a snapshot of the current settings with the given tuning options
+	 * 
+	 * @param settings the configured settings
+	 * @param trgTblSz the number of entries in the sine table, or 0 to use java.lang.Math
+	 * @param vctrSnsrs true for the sensors to use the vector kernel if it's available
+	 * @param nrstFrst true for the sensors to examine the cells of the grid nearest first
+	 * @param lghtFldCllSz the size of the cells of the light field, or 0 for no light field
+	 */
+	private SimulationConfig(SimulationSettings settings, int trgTblSz, boolean vctrSnsrs, boolean nrstFrst,
+			int lghtFldCllSz)
+	{
+		lightSourceCount = settings.getLightSourceCount();
+		uncrossedExcitatoryCount = settings.getUncrossedExcitatoryCount();
+		crossedExcitatoryCount = settings.getCrossedExcitatoryCount();
+		uncrossedInhibitoryCount = settings.getUncrossedInhibitoryCount();
+		crossedInhibitoryCount = settings.getCrossedInhibitoryCount();
+		uncrossedThresholdCount = settings.getUncrossedThresholdCount();
+		crossedThresholdCount = settings.getCrossedThresholdCount();
+		perceptibleVehicles = settings.isPerceptibleVehicles();
+		displayIds = settings.isDisplayIds();
+		wrappingPlain = settings.isWrappingPlain();
+		displaySensors = settings.isDisplaySensors();
+		sensorRangeAngle = settings.getSensorRangeAngle();
+		sensorSplayAngle = settings.getSensorSplayAngle();
+		sensorGap = settings.getSensorGap();
+		angleDelta = settings.getAngleDelta();
+		maxSpeed = settings.getMaxSpeed();
+		maxAngle = settings.getMaxAngle();
+		darkPlainWidth = settings.getDarkPlainWidth();
+		darkPlainHeight = settings.getDarkPlainHeight();
+		lightIntensity = settings.getLightIntensity();
+		timerPause = settings.getTimerPause();
+		moveThreads = settings.getMoveThreads();
+		tiles = settings.getTiles();
+		seed = settings.getSeed();
+		spriteAngles = settings.getSpriteAngles();
+		backToBackTicks = settings.isBackToBackTicks();
+
+		trigTableSize = trgTblSz;
+		trigonometry = (trgTblSz == 0) ? Trigonometry.MATH : new TableTrigonometry(trgTblSz);
+		sensorKernel = vctrSnsrs ? loadVectorSensorKernel(lightIntensity, darkPlainWidth, darkPlainHeight) : null;
+		nearestFirst = nrstFrst;
+		if (lghtFldCllSz < 0)
+		{
+			throw new IllegalArgumentException("The light field cell size can't be negative: " + lghtFldCllSz);
+		}
+		lightFieldCellSize = lghtFldCllSz;
+	}
+
+	/**
+	 * Load the vector sensor kernel. It's built separately, only with JDK 16 or later, and needs the
+	 * jdk.incubator.vector module at run time, so it's loaded by name. If it can't be loaded for any
+	 * reason, the scalar kernel is used instead.
+	 *
+	 * @param lghtIntnsty the configured light intensity
+	 * @param xMx the width of the dark plain
+	 * @param yMx the height of the dark plain
+	 * @return the vector kernel, or the scalar kernel if the vector kernel isn't available
+	 */
+	private static SensorKernel loadVectorSensorKernel(int lghtIntnsty, int xMx, int yMx)
+	{
+		try
+		{
+			return (SensorKernel) Class.forName("braitenbergsimulation.VectorSensorKernel")
+					.getDeclaredConstructor(int.class, int.class, int.class).newInstance(lghtIntnsty, xMx, yMx);
+		}
+		catch (ReflectiveOperationException roexc)
+		{
+			return new ScalarSensorKernel(lghtIntnsty, xMx, yMx);
+		}
+		catch (LinkageError lerr)
+		{
+			/* The class is there, but the Vector API isn't */
+			return new ScalarSensorKernel(lghtIntnsty, xMx, yMx);
+		}
+	}
+
+	/**
+	 * Make a copy of this snapshot that moves the vehicles using a table of sines, trading a little
+	 * accuracy for speed. See TableTrigonometry for how accurate the table is.
+	 * 
+	 * @param size the number of entries in the table, a power of two, or 0 to use java.lang.Math
+	 * @return the copy
+	 * @throws IllegalArgumentException if the size isn't 0 or a power of two of at least 4
+	 */
+	SimulationConfig withTrigTableSize(int size)
+	{
+		return new SimulationConfig(this, size, sensorKernel != null, nearestFirst, lightFieldCellSize);
+	}
+
+	/**
+	 * Make a copy of this snapshot whose sensors work out the pulses of many items at once with a
+	 * sensor kernel. The vector kernel is used if it's available, and the scalar kernel otherwise.
+	 * Either way, the pulses are exactly the same.
+	 *
+	 * @param vectorSensors true to use a sensor kernel, false for the sensors to work on one item at a
+	 *            time as usual
+	 * @return the copy
+	 */
+	SimulationConfig withVectorSensors(boolean vectorSensors)
+	{
+		return new SimulationConfig(this, trigTableSize, vectorSensors, nearestFirst, lightFieldCellSize);
+	}
+
+	/**
+	 * Make a copy of this snapshot whose sensors examine the cells of the grid nearest first, ring by
+	 * ring outward from the cell the sensor is in, rather than row by row. The nearest items generate
+	 * the most pulses, so in a dense field a sensor saturates after examining only a few of them.
+	 * Either way, the pulses are exactly the same.
+	 *
+	 * @param nrstFrst true to examine the cells nearest first, false to examine them row by row
+	 * @return the copy
+	 */
+	SimulationConfig withNearestFirst(boolean nrstFrst)
+	{
+		return new SimulationConfig(this, trigTableSize, sensorKernel != null, nrstFrst, lightFieldCellSize);
+	}
+
+	/**
+	 * Make a copy of this snapshot whose sensors look up the pulses of the lights in a light field,
+	 * worked out once when the lights are placed, and only work out the pulses of the vehicles. The
+	 * pulses are approximate, as accurate as the cells are small. See LightField.
+	 *
+	 * @param cellSize the length of the side of a cell of the light field, in pixels, or 0 for the
+	 *            sensors to work out the pulses of the lights exactly
+	 * @return the copy
+	 * @throws IllegalArgumentException if the size is negative
+	 */
+	SimulationConfig withLightFieldCellSize(int cellSize)
+	{
+		return new SimulationConfig(this, trigTableSize, sensorKernel != null, nearestFirst, cellSize);
+	}
+
+	/**
+	 * Get the light source count
+	 * 
+	 * @return the number of light sources
+	 */
+	@Override
+	public int getLightSourceCount()
+	{
+		return lightSourceCount;
+	}
+
+	/**
+	 * Get the uncrossed excitatory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getUncrossedExcitatoryCount()
+	{
+		return uncrossedExcitatoryCount;
+	}
+
+	/**
+	 * Get the crossed excitatory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getCrossedExcitatoryCount()
+	{
+		return crossedExcitatoryCount;
+	}
+
+	/**
+	 * Get the uncrossed inhibitory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getUncrossedInhibitoryCount()
+	{
+		return uncrossedInhibitoryCount;
+	}
+
+	/**
+	 * Get the crossed inhibitory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getCrossedInhibitoryCount()
+	{
+		return crossedInhibitoryCount;
+	}
+
+	/**
+	 * Get the uncrossed threshold vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getUncrossedThresholdCount()
+	{
+		return uncrossedThresholdCount;
+	}
+
+	/**
+	 * Get the crossed threshold vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	@Override
+	public int getCrossedThresholdCount()
+	{
+		return crossedThresholdCount;
+	}
+
+	/**
+	 * Get if vehicles perceive other vehicles
+	 * 
+	 * @return true if vehicles perceive other vehicles
+	 */
+	@Override
+	public boolean isPerceptibleVehicles()
+	{
+		return perceptibleVehicles;
+	}
+
+	/**
+	 * Get if vehicle ids should be displayed
+	 * 
+	 * @return true if vehicle ids should be displayed
+	 */
+	@Override
+	public boolean isDisplayIds()
+	{
+		return displayIds;
+	}
+
+	/**
+	 * Get if vehicle wraps when it collides with plain wall
+	 * 
+	 * @return true if vehicle wraps (vs. reflects) on wall collision
+	 */
+	@Override
+	public boolean isWrappingPlain()
+	{
+		return wrappingPlain;
+	}
+
+	/**
+	 * Get if vehicle sensors should be displayed
+	 * 
+	 * @return true if vehicle sensors should be displayed
+	 */
+	@Override
+	public boolean isDisplaySensors()
+	{
+		return displaySensors;
+	}
+
+	/**
+	 * Get the range angle of a sensor. This is the angle relative to the direction the sensor is
+	 * facing. Perceptible objects outside of this range are not perceived by the sensor.
+	 * 
+	 * @return the sensor range angle, in radians
+	 */
+	@Override
+	public double getSensorRangeAngle()
+	{
+		return sensorRangeAngle;
+	}
+
+	/**
+	 * Get the sensor splay angle, that is, the angle that the sensor differs from the direction
+	 * the vehicle is facing.
+	 * 
+	 * @return the sensor splay angle, in radians
+	 */
+	@Override
+	public double getSensorSplayAngle()
+	{
+		return sensorSplayAngle;
+	}
+
+	/**
+	 * Get the sensor gap, that is, how far apart the two sensors are on a vehicle.
+	 * 
+	 * @return the gap between the two sensors
+	 */
+	@Override
+	public int getSensorGap()
+	{
+		return sensorGap;
+	}
+
+	/**
+	 * Get angle increment, that is, the angle change per wheel step, in radians.
+	 * 
+	 * @return the angle increment, in radians
+	 */
+	@Override
+	public double getAngleDelta()
+	{
+		return angleDelta;
+	}
+
+	/**
+	 * Get the maximum speed, that is, the maximum distance a vehicle can travel in one turn
+	 * 
+	 * @return the maximum speed
+	 */
+	@Override
+	public int getMaxSpeed()
+	{
+		return maxSpeed;
+	}
+
+	/**
+	 * Get the maximum angle, that is, the maximum angle that a vehicle can move in one turn
+	 * 
+	 * @return the maximum angle, in radians
+	 */
+	@Override
+	public double getMaxAngle()
+	{
+		return maxAngle;
+	}
+
+	/**
+	 * Get the width of the dark plain
+	 * 
+	 * @return the width of the dark plain, in pixels
+	 */
+	@Override
+	public int getDarkPlainWidth()
+	{
+		return darkPlainWidth;
+	}
+
+	/**
+	 * Get the height of the dark plain
+	 * 
+	 * @return the height of the dark plain, in pixels
+	 */
+	@Override
+	public int getDarkPlainHeight()
+	{
+		return darkPlainHeight;
+	}
+
+	/**
+	 * Get the light intensity
+	 * 
+	 * @return the light intensity
+	 */
+	@Override
+	public int getLightIntensity()
+	{
+		return lightIntensity;
+	}
+
+	/**
+	 * Get the number of milliseconds the timer sleeps
+	 * 
+	 * @return the number of milliseconds the timer sleeps
+	 */
+	@Override
+	public int getTimerPause()
+	{
+		return timerPause;
+	}
+
+	/**
+	 * Get the number of threads that move the vehicles
+	 * 
+	 * @return the number of threads that move the vehicles
+	 */
+	@Override
+	public int getMoveThreads()
+	{
+		return moveThreads;
+	}
+
+	/**
+	 * Get the number of tiles the dark plain is split into for moving the vehicles
+	 * 
+	 * @return the number of tiles, or 0 not to split the dark plain
+	 */
+	@Override
+	public int getTiles()
+	{
+		return tiles;
+	}
+
+	/**
+	 * Get the seed for generating the starting scenario
+	 * 
+	 * @return the seed, or 0 for a different scenario every time
+	 */
+	@Override
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Get the number of headings the vehicles are drawn at
+	 * 
+	 * @return the number of headings, or 0 to draw every vehicle exactly
+	 */
+	@Override
+	public int getSpriteAngles()
+	{
+		return spriteAngles;
+	}
+
+	/**
+	 * Determine if each tick starts as soon as the last one ends
+	 * 
+	 * @return true if the ticks run back to back
+	 */
+	@Override
+	public boolean isBackToBackTicks()
+	{
+		return backToBackTicks;
+	}
+
+	/**
+	 * Get the number of entries in the sine table for moving the vehicles
+	 * 
+	 * @return the number of entries, or 0 if java.lang.Math is used
+	 */
+	int getTrigTableSize()
+	{
+		return trigTableSize;
+	}
+
+	/**
+	 * Get the sine and cosine for moving the vehicles
+	 * 
+	 * @return the sine and cosine
+	 */
+	Trigonometry getTrigonometry()
+	{
+		return trigonometry;
+	}
+
+	/**
+	 * Get the kernel sensors work out the pulses of many items at once with
+	 *
+	 * @return the kernel, or null if the sensors work on one item at a time
+	 */
+	SensorKernel getSensorKernel()
+	{
+		return sensorKernel;
+	}
+
+	/**
+	 * Get if sensors examine the cells of the grid nearest first
+	 *
+	 * @return true if the cells are examined nearest first, false if row by row
+	 */
+	boolean isNearestFirst()
+	{
+		return nearestFirst;
+	}
+
+	/**
+	 * Get the size of the cells of the light field sensors look up the lights in
+	 *
+	 * @return the length of the side of a cell, in pixels, or 0 if there is no light field
+	 */
+	int getLightFieldCellSize()
+	{
+		return lightFieldCellSize;
+	}
+}
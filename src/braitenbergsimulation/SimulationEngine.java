@@ -0,0 +1,595 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class simulates the dark plain populated with light sources and the various Braitenberg
+ * vehicles, without displaying it. The DarkPlainPanel displays a simulation run by this engine, and
+ * batch runs use it directly.
+ *
+ * A tick of the simulation has two phases. First every vehicle moves, calculating its new location
+ * and direction from the current locations of everything it perceives. Then every vehicle updates
+ * its location and direction. The engine does nothing between the two phases, so the caller is
+ * free to, say, paint the vehicles at their current locations. Once the locations are updated, the
+ * engine tells its tick listeners that the tick is complete.
+ *
+ * For very large numbers of vehicles, the dark plain can be split into tiles, each moving its own
+ * vehicles in both phases. See ShardedPlain.
+ *
+ * The lights never move, so the pulses they generate can be worked out everywhere on the plain when
+ * they are placed, and looked up by the sensors. See LightField.
+ *
+ * A simulation can be checkpointed with a CheckpointWriter, and later restored from the checkpoint
+ * to carry on exactly where it left off.
+ */
+class SimulationEngine
+{
+	private int xMax;
+	private int yMax;
+
+	private final List<LightSource> lstLight;
+	private final List<Vehicle> lstVehicle;
+	private final List<PerceptibleItem> lstPerceptible;
+	/* The locations and directions of the vehicles */
+	private final VehicleStateStore vehicleState;
+	/* An index of the perceptible items by location, rebuilt every move */
+	private PerceptibleGrid grdPerceptible;
+	/* The pulses of the lights, worked out when they are placed, or null if they are indexed too */
+	private LightField lightField;
+	/* The tiles the dark plain is split into, or null if it isn't split */
+	private ShardedPlain shardedPlain;
+
+	/* The pool that moves the vehicles in parallel, or null if they are moved by the calling thread */
+	private ForkJoinPool movePool;
+
+	/* The number of ticks completed since the settings were last updated */
+	private long tickCount;
+
+	/* The seed the current scenario was generated from */
+	private long seed;
+
+	/* Told about every completed tick. Listeners stay registered when the settings are updated. */
+	private final List<TickListener> lstTickListener;
+
+	/* The measurements of the running simulation, reset when the settings are updated */
+	private final SimulationMetrics metrics;
+
+	/**
+	 * Constructor
+	 *
+	 * @param settings a snapshot of the configured settings
+	 */
+	SimulationEngine(SimulationConfig settings)
+	{
+		xMax = settings.getDarkPlainWidth();
+		yMax = settings.getDarkPlainHeight();
+
+		/* Create the lists of lights, vehicles and perceptible objects */
+		lstLight = new ArrayList<LightSource>();
+		lstVehicle = new ArrayList<Vehicle>();
+		lstPerceptible = new ArrayList<PerceptibleItem>();
+		vehicleState = new VehicleStateStore();
+		lstTickListener = new CopyOnWriteArrayList<TickListener>();
+		metrics = new SimulationMetrics();
+		grdPerceptible = new PerceptibleGrid(xMax, yMax);
+	}
+
+	/**
+	 * Update the settings of this simulation, and populate the dark plain with new lights and
+	 * vehicles.
+	 *
+	 * @param settings a snapshot of the number of various vehicles and lights, and the other settings
+	 */
+	void updateSettings(SimulationConfig settings)
+	{
+		clear(settings);
+
+		/* Use the configured seed, or pick one so this scenario can be replayed */
+		seed = settings.getSeed();
+		if (seed == 0)
+		{
+			seed = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+		}
+		ScenarioGenerator scenario = new ScenarioGenerator(seed, xMax, yMax);
+
+		/* Add a number of lights at random locations, based on the light count setting */
+		int count = settings.getLightSourceCount();
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] direction = new double[count];
+		scenario.generate(ScenarioGenerator.LIGHTSTREAM, x, y, direction, movePool);
+		for (int i = 0; i < count; i++)
+		{
+			lstLight.add(new LightSource(settings, new Point2D.Double(x[i], y[i])));
+		}
+
+		/*
+		 * Add the various types of Braitenberg vehicles at random locations and
+		 * facing random directions.
+		 */
+		for (int stream = ScenarioGenerator.UNCROSSEDEXCITATORYSTREAM;
+				stream <= ScenarioGenerator.CROSSEDTHRESHOLDSTREAM; stream++)
+		{
+			count = getVehicleCount(settings, stream);
+			x = new double[count];
+			y = new double[count];
+			direction = new double[count];
+			scenario.generate(stream, x, y, direction, movePool);
+			for (int i = 0; i < count; i++)
+			{
+				lstVehicle.add(createVehicle(settings, stream, new Point2D.Double(x[i], y[i]),
+						direction[i]));
+			}
+		}
+
+		addPerceptibles(settings);
+	}
+
+	/**
+	 * Restore a simulation from a checkpoint, populating the dark plain with the lights and vehicles
+	 * exactly as they were. Running on from here gives exactly the same ticks the checkpointed
+	 * simulation went on to run.
+	 *
+	 * @param checkpoint the checkpoint
+	 * @return a snapshot of the settings the checkpointed simulation was started with
+	 * @throws IllegalArgumentException if the checkpoint doesn't hold the lights and vehicles of its
+	 *             settings
+	 */
+	SimulationConfig restore(CheckpointReader checkpoint)
+	{
+		SimulationConfig settings = checkpoint.getConfig();
+		int vehicleCount = 0;
+		for (int stream = ScenarioGenerator.UNCROSSEDEXCITATORYSTREAM;
+				stream <= ScenarioGenerator.CROSSEDTHRESHOLDSTREAM; stream++)
+		{
+			vehicleCount += getVehicleCount(settings, stream);
+		}
+		if ((vehicleCount != checkpoint.getVehicleCount())
+				|| (settings.getLightSourceCount() != checkpoint.getLightCount()))
+		{
+			throw new IllegalArgumentException("The checkpoint doesn't hold the lights and vehicles of its settings");
+		}
+		clear(settings);
+		seed = checkpoint.getSettings().getSeed();
+		tickCount = checkpoint.getTick();
+
+		for (int i = 0; i < checkpoint.getLightCount(); i++)
+		{
+			lstLight.add(new LightSource(settings, new Point2D.Double(checkpoint.getLightX(i),
+					checkpoint.getLightY(i))));
+		}
+
+		/* The vehicles were created type by type, so the counts give the type of each */
+		int index = 0;
+		for (int stream = ScenarioGenerator.UNCROSSEDEXCITATORYSTREAM;
+				stream <= ScenarioGenerator.CROSSEDTHRESHOLDSTREAM; stream++)
+		{
+			int count = getVehicleCount(settings, stream);
+			for (int i = 0; i < count; i++, index++)
+			{
+				Vehicle aVehicle = createVehicle(settings, stream, new Point2D.Double(checkpoint.getVehicleX(index),
+						checkpoint.getVehicleY(index)), checkpoint.getVehicleDirection(index));
+				aVehicle.restoreId(checkpoint.getVehicleId(index));
+				lstVehicle.add(aVehicle);
+			}
+		}
+		Vehicle.continueIdsFrom(checkpoint.getNextVehicleId());
+
+		addPerceptibles(settings);
+		return settings;
+	}
+
+	/**
+	 * Clear the dark plain of lights and vehicles, ready to populate it under new settings
+	 *
+	 * @param settings a snapshot of the new settings
+	 */
+	private void clear(SimulationConfig settings)
+	{
+		xMax = settings.getDarkPlainWidth();
+		yMax = settings.getDarkPlainHeight();
+		grdPerceptible = new PerceptibleGrid(xMax, yMax);
+		lightField = null;
+		tickCount = 0;
+		metrics.reset();
+
+		/* Set up the pool for moving the vehicles in parallel, if more than one thread is wanted */
+		if (movePool != null)
+		{
+			movePool.shutdown();
+			movePool = null;
+		}
+		if (settings.getMoveThreads() > 1)
+		{
+			movePool = new ForkJoinPool(settings.getMoveThreads());
+		}
+
+		/* Clear out the lists */
+		lstLight.clear();
+		lstVehicle.clear();
+		lstPerceptible.clear();
+		vehicleState.clear();
+	}
+
+	/**
+	 * Add the lights and vehicles just populated to the list of perceptible items, and split the
+	 * dark plain into tiles if the settings ask for it. If the settings ask for a light field, the
+	 * pulses of the lights are worked out now, and the lights are left out of the perceptible items.
+	 *
+	 * @param settings a snapshot of the settings
+	 */
+	private void addPerceptibles(SimulationConfig settings)
+	{
+		/*
+		 * Add lights to the list of perceptible items, and vehicles if they are currently
+		 * perceptible.
+		 */
+		if (settings.isPerceptibleVehicles())
+		{
+			for (PerceptibleItem aVehicle: lstVehicle)
+			{
+				lstPerceptible.add(aVehicle);
+			}
+		}
+		List<LightSource> lstIndexedLight = lstLight;
+		if (settings.getLightFieldCellSize() > 0)
+		{
+			lightField = new LightField(settings, lstLight, movePool);
+			grdPerceptible.setLightField(lightField);
+			lstIndexedLight = Collections.<LightSource>emptyList();
+		}
+		for (PerceptibleItem aLight: lstIndexedLight)
+		{
+			lstPerceptible.add(aLight);
+		}
+
+		/* Split the dark plain into tiles, if more than one is wanted */
+		shardedPlain = (settings.getTiles() > 1)
+				? new ShardedPlain(settings, lstIndexedLight, lstVehicle, lightField) : null;
+	}
+
+	/**
+	 * Calculate the new location and direction of every vehicle. The vehicles don't actually go
+	 * anywhere until their locations are updated.
+	 */
+	void move()
+	{
+		/* Time the vehicles, or not, for the whole move */
+		boolean timed = metrics.isVehicleTiming();
+
+		/* Move the vehicles tile by tile, if the dark plain is split into tiles */
+		if (shardedPlain != null)
+		{
+			shardedPlain.move(movePool, timed);
+			metrics.recordMoves(shardedPlain.getSenseNs(), shardedPlain.getTranslateNs(),
+					shardedPlain.getItemsExamined(), shardedPlain.getWrappedImages(), shardedPlain.getEarlyExits(),
+					lstVehicle.size(), timed);
+			return;
+		}
+
+		/* Index the perceptible items where they are now, before any of them move */
+		grdPerceptible.rebuild(lstPerceptible);
+
+		/*
+		 * Calculate new vehicle positions. Each vehicle only reads the current locations and only
+		 * writes its own new location, so the vehicles can be moved in parallel and in any order.
+		 */
+		if (movePool != null)
+		{
+			movePool.invoke(new MoveAction(lstVehicle, grdPerceptible, timed, 0, lstVehicle.size()));
+		}
+		else
+		{
+			for (Vehicle aVehicle: lstVehicle)
+			{
+				aVehicle.move(grdPerceptible, timed);
+			}
+		}
+		metrics.recordMoves(lstVehicle, timed);
+	}
+
+	/**
+	 * Update all the vehicle locations and directions to the newly calculated ones, completing a tick.
+	 */
+	void updateLocationDirection()
+	{
+		long start = System.nanoTime();
+		if (shardedPlain != null)
+		{
+			shardedPlain.updateLocationDirection(movePool);
+		}
+		else
+		{
+			vehicleState.updateLocationDirection();
+		}
+		tickCount++;
+		long end = System.nanoTime();
+		metrics.recordCommit(end - start);
+
+		for (TickListener aListener: lstTickListener)
+		{
+			aListener.tickCompleted(this);
+		}
+		metrics.recordListeners(System.nanoTime() - end);
+	}
+
+	/**
+	 * Copy the current locations and directions of the vehicles into arrays, in the order of the
+	 * list of vehicles. The arrays must be at least as long as the list.
+	 *
+	 * @param x the array to copy the x coordinates into
+	 * @param y the array to copy the y coordinates into
+	 * @param direction the array to copy the directions into, in radians
+	 */
+	void copyLocationDirection(double[] x, double[] y, double[] direction)
+	{
+		vehicleState.copyLocationDirection(lstVehicle.size(), x, y, direction);
+	}
+
+	/**
+	 * Add a listener to be told about every completed tick
+	 *
+	 * @param listener the listener
+	 */
+	void addTickListener(TickListener listener)
+	{
+		lstTickListener.add(listener);
+	}
+
+	/**
+	 * Remove a listener, so it's no longer told about completed ticks
+	 *
+	 * @param listener the listener
+	 */
+	void removeTickListener(TickListener listener)
+	{
+		lstTickListener.remove(listener);
+	}
+
+	/**
+	 * Run one complete tick of the simulation
+	 */
+	void tick()
+	{
+		long start = System.nanoTime();
+		move();
+		updateLocationDirection();
+		metrics.recordTick(start, System.nanoTime());
+	}
+
+	/**
+	 * Release the threads used for moving the vehicles. The engine moves the vehicles on the
+	 * calling thread from then on, until the settings are next updated.
+	 */
+	void dispose()
+	{
+		if (movePool != null)
+		{
+			movePool.shutdown();
+			movePool = null;
+		}
+	}
+
+	/**
+	 * Get the lights on the dark plain
+	 *
+	 * @return the lights, which may not be modified
+	 */
+	List<LightSource> getLights()
+	{
+		return Collections.unmodifiableList(lstLight);
+	}
+
+	/**
+	 * Get the vehicles on the dark plain
+	 *
+	 * @return the vehicles, which may not be modified
+	 */
+	List<Vehicle> getVehicles()
+	{
+		return Collections.unmodifiableList(lstVehicle);
+	}
+
+	/**
+	 * Get the number of ticks completed since the settings were last updated
+	 *
+	 * @return the number of ticks
+	 */
+	long getTickCount()
+	{
+		return tickCount;
+	}
+
+	/**
+	 * Get the light field the sensors look up the pulses of the lights in
+	 *
+	 * @return the light field, or null if the sensors work out the pulses of the lights exactly
+	 */
+	LightField getLightField()
+	{
+		return lightField;
+	}
+
+	/**
+	 * Get the measurements of this simulation. The same metrics are kept for the life of the engine,
+	 * and reset whenever the settings are updated.
+	 *
+	 * @return the metrics
+	 */
+	SimulationMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Get the seed the current scenario was generated from. Configuring this seed replays the
+	 * same scenario.
+	 *
+	 * @return the seed, never 0
+	 */
+	long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Get the width of the dark plain
+	 *
+	 * @return the width of the dark plain, in pixels
+	 */
+	int getDarkPlainWidth()
+	{
+		return xMax;
+	}
+
+	/**
+	 * Get the height of the dark plain
+	 *
+	 * @return the height of the dark plain, in pixels
+	 */
+	int getDarkPlainHeight()
+	{
+		return yMax;
+	}
+
+	/**
+	 * This task moves a range of vehicles, splitting the range in half and moving each half in
+	 * parallel until the ranges are small enough to move directly. The task completes only once
+	 * every vehicle in the range has moved, so it acts as a barrier before the locations are updated.
+	 */
+	private static class MoveAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 2206937431962364437L;
+
+		/* Ranges of no more than this many vehicles are moved directly */
+		private static final int MOVETHRESHOLD = 64;
+
+		private final List<Vehicle> lstVehicle;
+		private final PerceptibleGrid grdPerceptible;
+		private final boolean timed;
+		private final int start;
+		private final int end;
+
+		/**
+		 * Constructor
+		 *
+		 * @param lstVhcl the list of all vehicles
+		 * @param grdPrcptbl the grid of perceptible items
+		 * @param tmd true to time how long each vehicle spends sensing and translating
+		 * @param strt the index of the first vehicle to move
+		 * @param nd the index just past the last vehicle to move
+		 */
+		MoveAction(List<Vehicle> lstVhcl, PerceptibleGrid grdPrcptbl, boolean tmd, int strt, int nd)
+		{
+			lstVehicle = lstVhcl;
+			grdPerceptible = grdPrcptbl;
+			timed = tmd;
+			start = strt;
+			end = nd;
+		}
+
+		/**
+		 * Move the vehicles in the range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((end - start) <= MOVETHRESHOLD)
+			{
+				for (int i = start; i < end; i++)
+				{
+					lstVehicle.get(i).move(grdPerceptible, timed);
+				}
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new MoveAction(lstVehicle, grdPerceptible, timed, start, middle),
+						new MoveAction(lstVehicle, grdPerceptible, timed, middle, end));
+			}
+		}
+	}
+
+	/**
+	 * Get the number of vehicles of the type of a stream
+	 *
+	 * @param settings the settings
+	 * @param stream the stream for the type of vehicle
+	 * @return the number of vehicles of that type
+	 */
+	private static int getVehicleCount(SimulationConfig settings, int stream)
+	{
+		switch (stream)
+		{
+		case ScenarioGenerator.UNCROSSEDEXCITATORYSTREAM:
+			return settings.getUncrossedExcitatoryCount();
+		case ScenarioGenerator.CROSSEDEXCITATORYSTREAM:
+			return settings.getCrossedExcitatoryCount();
+		case ScenarioGenerator.UNCROSSEDINHIBITORYSTREAM:
+			return settings.getUncrossedInhibitoryCount();
+		case ScenarioGenerator.CROSSEDINHIBITORYSTREAM:
+			return settings.getCrossedInhibitoryCount();
+		case ScenarioGenerator.UNCROSSEDTHRESHOLDSTREAM:
+			return settings.getUncrossedThresholdCount();
+		case ScenarioGenerator.CROSSEDTHRESHOLDSTREAM:
+			return settings.getCrossedThresholdCount();
+		default:
+			throw new IllegalArgumentException("Not a vehicle stream: " + stream);
+		}
+	}
+
+	/**
+	 * Create a vehicle of the type of a stream
+	 *
+	 * @param settings the settings
+	 * @param stream the stream for the type of vehicle
+	 * @param loc the starting location
+	 * @param dir the starting direction, in radians
+	 * @return the new vehicle
+	 */
+	private Vehicle createVehicle(SimulationConfig settings, int stream, Point2D loc, double dir)
+	{
+		switch (stream)
+		{
+		case ScenarioGenerator.UNCROSSEDEXCITATORYSTREAM:
+			return Vehicle.createUncrossedExcitatoryVehicle(settings, vehicleState, loc, dir);
+		case ScenarioGenerator.CROSSEDEXCITATORYSTREAM:
+			return Vehicle.createCrossedExcitatoryVehicle(settings, vehicleState, loc, dir);
+		case ScenarioGenerator.UNCROSSEDINHIBITORYSTREAM:
+			return Vehicle.createUncrossedInhibitoryVehicle(settings, vehicleState, loc, dir);
+		case ScenarioGenerator.CROSSEDINHIBITORYSTREAM:
+			return Vehicle.createCrossedInhibitoryVehicle(settings, vehicleState, loc, dir);
+		case ScenarioGenerator.UNCROSSEDTHRESHOLDSTREAM:
+			return Vehicle.createUncrossedThresholdVehicle(settings, vehicleState, loc, dir);
+		case ScenarioGenerator.CROSSEDTHRESHOLDSTREAM:
+			return Vehicle.createCrossedThresholdVehicle(settings, vehicleState, loc, dir);
+		default:
+			throw new IllegalArgumentException("Not a vehicle stream: " + stream);
+		}
+	}
+}
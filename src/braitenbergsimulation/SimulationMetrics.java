@@ -0,0 +1,354 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class measures a running simulation: how many ticks a second it achieves, how long each
+ * phase of a tick takes, how many perceptible items each sensor examines, how often a sensor stops
+ * early because it has saturated, and how many shifted images of items are evaluated for the
+ * wrapping plain. It is registered as an MXBean, so it can be watched from any JMX client, and the
+ * dark plain can show it as an overlay.
+ *
+ * The phases are sensing and translating, measured by each vehicle as it moves and added up over all
+ * the vehicles, committing the new locations and directions, telling the tick listeners, and drawing
+ * a frame. Added up over the vehicles, sensing and translating can take longer than the whole tick
+ * when the vehicles are moved by several threads. Timing them reads the clock three times per vehicle
+ * every tick, so the vehicles are only timed while vehicle timing is switched on, by the overlay or
+ * from a JMX client. The other phases are timed once per tick, so they always are.
+ *
+ * Only the thread running the ticks records the ticks, so the counters need no locks. The
+ * histograms are recorded once per tick or frame, so their locks are almost never contended.
+ */
+class SimulationMetrics implements SimulationMetricsMXBean
+{
+	/* The name the metrics are registered under */
+	static final String OBJECTNAME = "braitenbergsimulation:type=SimulationMetrics";
+
+	/* How often the rate of ticks is measured */
+	private static final long RATEWINDOWNS = TimeUnit.SECONDS.toNanos(1);
+
+	private final LatencyHistogram tickLatency;
+	private final LatencyHistogram senseLatency;
+	private final LatencyHistogram translateLatency;
+	private final LatencyHistogram commitLatency;
+	private final LatencyHistogram listenersLatency;
+	private final LatencyHistogram paintLatency;
+
+	private volatile boolean vehicleTiming;
+	private volatile long ticks;
+	private volatile double ticksPerSecond;
+	private volatile double itemsExaminedPerSensor;
+	private volatile long wrappedImagesPerTick;
+	private volatile double earlyExitsPerSensor;
+	/* Guarded by this, so resetting can't leave the window half cleared */
+	private long windowStartNs;
+	private long windowTicks;
+
+	/**
+	 * Constructor
+	 */
+	SimulationMetrics()
+	{
+		tickLatency = new LatencyHistogram();
+		senseLatency = new LatencyHistogram();
+		translateLatency = new LatencyHistogram();
+		commitLatency = new LatencyHistogram();
+		listenersLatency = new LatencyHistogram();
+		paintLatency = new LatencyHistogram();
+		windowStartNs = System.nanoTime();
+	}
+
+	/**
+	 * Add up the measurements of every vehicle, once they have all moved
+	 *
+	 * @param lstVehicle the vehicles
+	 * @param timed true if the vehicles were timed
+	 */
+	void recordMoves(List<Vehicle> lstVehicle, boolean timed)
+	{
+		long senseNs = 0;
+		long translateNs = 0;
+		long itemsExamined = 0;
+		long wrappedImages = 0;
+		long earlyExits = 0;
+		for (Vehicle aVehicle: lstVehicle)
+		{
+			MoveStats stats = aVehicle.getMoveStats();
+			senseNs += stats.senseNs;
+			translateNs += stats.translateNs;
+			itemsExamined += stats.itemsExamined;
+			wrappedImages += stats.wrappedImages;
+			earlyExits += stats.earlyExits;
+		}
+		recordMoves(senseNs, translateNs, itemsExamined, wrappedImages, earlyExits, lstVehicle.size(), timed);
+	}
+
+	/**
+	 * Record the measurements of a move, already added up over every vehicle. The times are only
+	 * recorded if the vehicles were timed.
+	 *
+	 * @param senseNs the time spent sensing, in nanoseconds
+	 * @param translateNs the time spent translating, in nanoseconds
+	 * @param itemsExamined the number of perceptible items examined by all the sensors
+	 * @param wrappedImages the number of shifted images of items evaluated
+	 * @param earlyExits the number of sensors that stopped early because they had saturated
+	 * @param vehicleCount the number of vehicles
+	 * @param timed true if the vehicles were timed
+	 */
+	void recordMoves(long senseNs, long translateNs, long itemsExamined, long wrappedImages, long earlyExits,
+			int vehicleCount, boolean timed)
+	{
+		if (timed)
+		{
+			senseLatency.record(senseNs);
+			translateLatency.record(translateNs);
+		}
+		/* Every vehicle has two sensors */
+		itemsExaminedPerSensor = (vehicleCount == 0) ? 0 : ((double) itemsExamined / (2 * vehicleCount));
+		wrappedImagesPerTick = wrappedImages;
+		earlyExitsPerSensor = (vehicleCount == 0) ? 0 : ((double) earlyExits / (2 * vehicleCount));
+	}
+
+	/**
+	 * Record the time taken to commit the new locations and directions of the vehicles
+	 *
+	 * @param latencyNs the time taken, in nanoseconds
+	 */
+	void recordCommit(long latencyNs)
+	{
+		commitLatency.record(latencyNs);
+	}
+
+	/**
+	 * Record the time taken to tell the tick listeners about a completed tick
+	 *
+	 * @param latencyNs the time taken, in nanoseconds
+	 */
+	void recordListeners(long latencyNs)
+	{
+		listenersLatency.record(latencyNs);
+	}
+
+	/**
+	 * Record a whole tick
+	 *
+	 * @param startNs when the tick started
+	 * @param endNs when the tick ended
+	 */
+	void recordTick(long startNs, long endNs)
+	{
+		tickLatency.record(endNs - startNs);
+		ticks++;
+
+		synchronized (this)
+		{
+			windowTicks++;
+			long windowNs = endNs - windowStartNs;
+			if (windowNs >= RATEWINDOWNS)
+			{
+				ticksPerSecond = (windowTicks * 1e9) / windowNs;
+				windowStartNs = endNs;
+				windowTicks = 0;
+			}
+		}
+	}
+
+	/**
+	 * Record the time taken to draw a frame
+	 *
+	 * @param latencyNs the time taken, in nanoseconds
+	 */
+	void recordPaint(long latencyNs)
+	{
+		paintLatency.record(latencyNs);
+	}
+
+	/**
+	 * Forget everything measured so far
+	 */
+	@Override
+	public void reset()
+	{
+		tickLatency.reset();
+		senseLatency.reset();
+		translateLatency.reset();
+		commitLatency.reset();
+		listenersLatency.reset();
+		paintLatency.reset();
+		ticks = 0;
+		ticksPerSecond = 0;
+		itemsExaminedPerSensor = 0;
+		wrappedImagesPerTick = 0;
+		earlyExitsPerSensor = 0;
+		synchronized (this)
+		{
+			windowStartNs = System.nanoTime();
+			windowTicks = 0;
+		}
+	}
+
+	/* Accessors */
+
+	/**
+	 * Determine if the vehicles time how long they spend sensing and translating
+	 *
+	 * @return true if the vehicles are timed
+	 */
+	@Override
+	public boolean isVehicleTiming()
+	{
+		return vehicleTiming;
+	}
+
+	/**
+	 * Switch timing the vehicles on or off. It's off to start with.
+	 *
+	 * @param vhclTmng true to time how long the vehicles spend sensing and translating
+	 */
+	@Override
+	public void setVehicleTiming(boolean vhclTmng)
+	{
+		vehicleTiming = vhclTmng;
+	}
+
+	/**
+	 * Get the number of ticks measured
+	 *
+	 * @return the number of ticks
+	 */
+	@Override
+	public long getTickCount()
+	{
+		return ticks;
+	}
+
+	/**
+	 * Get the number of ticks a second achieved over the last second or so
+	 *
+	 * @return the number of ticks a second, or 0 until it has been measured
+	 */
+	@Override
+	public double getTicksPerSecond()
+	{
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Get the average number of perceptible items each sensor examined in the latest tick
+	 *
+	 * @return the number of items examined per sensor
+	 */
+	@Override
+	public double getItemsExaminedPerSensor()
+	{
+		return itemsExaminedPerSensor;
+	}
+
+	/**
+	 * Get the number of shifted images of items evaluated in the latest tick
+	 *
+	 * @return the number of shifted images
+	 */
+	@Override
+	public long getWrappedImagesPerTick()
+	{
+		return wrappedImagesPerTick;
+	}
+
+	/**
+	 * Get the share of sensors that stopped examining items early in the latest tick, because they
+	 * had saturated
+	 *
+	 * @return the share of sensors, from 0 to 1
+	 */
+	@Override
+	public double getEarlyExitsPerSensor()
+	{
+		return earlyExitsPerSensor;
+	}
+
+	/**
+	 * Get the latency of whole ticks
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getTickLatency()
+	{
+		return PhaseLatency.of(tickLatency);
+	}
+
+	/**
+	 * Get the time spent sensing per tick, added up over all the vehicles
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getSenseLatency()
+	{
+		return PhaseLatency.of(senseLatency);
+	}
+
+	/**
+	 * Get the time spent translating per tick, added up over all the vehicles
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getTranslateLatency()
+	{
+		return PhaseLatency.of(translateLatency);
+	}
+
+	/**
+	 * Get the latency of committing the new locations and directions
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getCommitLatency()
+	{
+		return PhaseLatency.of(commitLatency);
+	}
+
+	/**
+	 * Get the latency of telling the tick listeners about a completed tick
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getListenersLatency()
+	{
+		return PhaseLatency.of(listenersLatency);
+	}
+
+	/**
+	 * Get the latency of drawing a frame
+	 *
+	 * @return the latency
+	 */
+	@Override
+	public PhaseLatency getPaintLatency()
+	{
+		return PhaseLatency.of(paintLatency);
+	}
+}
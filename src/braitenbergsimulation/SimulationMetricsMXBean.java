@@ -0,0 +1,127 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * The management interface of SimulationMetrics, so the metrics of a running simulation can be
+ * watched from JConsole, VisualVM or any other JMX client.
+ */
+public interface SimulationMetricsMXBean
+{
+	/**
+	 * Get the number of ticks measured
+	 *
+	 * @return the number of ticks
+	 */
+	long getTickCount();
+
+	/**
+	 * Get the number of ticks a second achieved over the last second or so
+	 *
+	 * @return the number of ticks a second, or 0 until it has been measured
+	 */
+	double getTicksPerSecond();
+
+	/**
+	 * Get the average number of perceptible items each sensor examined in the latest tick
+	 *
+	 * @return the number of items examined per sensor
+	 */
+	double getItemsExaminedPerSensor();
+
+	/**
+	 * Get the number of shifted images of items evaluated in the latest tick, for items not perceived
+	 * where they are
+	 *
+	 * @return the number of shifted images
+	 */
+	long getWrappedImagesPerTick();
+
+	/**
+	 * Get the share of sensors that stopped examining items early in the latest tick, because they
+	 * had saturated
+	 *
+	 * @return the share of sensors, from 0 to 1
+	 */
+	double getEarlyExitsPerSensor();
+
+	/**
+	 * Determine if the vehicles time how long they spend sensing and translating
+	 *
+	 * @return true if the vehicles are timed
+	 */
+	boolean isVehicleTiming();
+
+	/**
+	 * Switch timing the vehicles on or off. Sensing and translating are only measured while it's on,
+	 * since it reads the clock several times per vehicle every tick.
+	 *
+	 * @param vhclTmng true to time how long the vehicles spend sensing and translating
+	 */
+	void setVehicleTiming(boolean vhclTmng);
+
+	/**
+	 * Get the latency of whole ticks
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getTickLatency();
+
+	/**
+	 * Get the time spent sensing per tick, added up over all the vehicles
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getSenseLatency();
+
+	/**
+	 * Get the time spent translating pulses into new locations and directions per tick, added up over
+	 * all the vehicles
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getTranslateLatency();
+
+	/**
+	 * Get the latency of updating the locations and directions
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getCommitLatency();
+
+	/**
+	 * Get the latency of telling the tick listeners about a completed tick, such as the trajectory
+	 * log, the checkpoints and the behavior analytics
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getListenersLatency();
+
+	/**
+	 * Get the latency of drawing a frame
+	 *
+	 * @return the latency
+	 */
+	PhaseLatency getPaintLatency();
+
+	/**
+	 * Forget everything measured so far
+	 */
+	void reset();
+}
@@ -0,0 +1,97 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds the preset configurations of the PresetPanel, for applying to batch settings
+ * without any user interface. Each preset clears the configuration and then sets a few settings,
+ * exactly as choosing it in the PresetPanel does.
+ */
+final class SimulationPresets
+{
+	/* The settings of each preset, as name=value pairs, in the order of the PresetPanel */
+	private static final Map<String, String[]> PRESETS = new LinkedHashMap<String, String[]>();
+	static
+	{
+		PRESETS.put("Mixed", new String[] {"perceptibleVehicles=true", "uncrossedExcitatoryCount=5",
+			"crossedExcitatoryCount=5", "uncrossedInhibitoryCount=5", "crossedInhibitoryCount=5",
+			"uncrossedThresholdCount=5", "crossedThresholdCount=5"});
+		PRESETS.put("Fearful", new String[] {"perceptibleVehicles=true", "uncrossedExcitatoryCount=10"});
+		PRESETS.put("Aggressive", new String[] {"perceptibleVehicles=true", "crossedExcitatoryCount=10"});
+		PRESETS.put("Adoring", new String[] {"perceptibleVehicles=true", "uncrossedInhibitoryCount=10"});
+		PRESETS.put("Exploring", new String[] {"perceptibleVehicles=true", "crossedInhibitoryCount=10"});
+		PRESETS.put("DecidingUnX", new String[] {"perceptibleVehicles=true", "uncrossedThresholdCount=27"});
+		PRESETS.put("DecidingX", new String[] {"perceptibleVehicles=true", "crossedThresholdCount=10"});
+		PRESETS.put("WhirligigAggressive", new String[] {"perceptibleVehicles=true", "crossedExcitatoryCount=9",
+			"sensorRangeAngle=210", "sensorSplayAngle=30", "maxAngle=30"});
+		PRESETS.put("MixedLights", new String[] {"lightSourceCount=5", "uncrossedExcitatoryCount=5",
+			"crossedExcitatoryCount=5", "uncrossedInhibitoryCount=5", "crossedInhibitoryCount=5",
+			"uncrossedThresholdCount=5", "crossedThresholdCount=5"});
+		PRESETS.put("FearfulLights", new String[] {"lightSourceCount=5", "uncrossedExcitatoryCount=10"});
+		PRESETS.put("AggressiveLights", new String[] {"lightSourceCount=5", "crossedExcitatoryCount=10"});
+		PRESETS.put("AdoringLights", new String[] {"lightSourceCount=5", "uncrossedInhibitoryCount=10"});
+		PRESETS.put("ExploringLights", new String[] {"lightSourceCount=5", "crossedInhibitoryCount=10"});
+		PRESETS.put("DecidingUnXLights", new String[] {"lightSourceCount=5", "uncrossedThresholdCount=10"});
+		PRESETS.put("DecidingXLights", new String[] {"lightSourceCount=5", "crossedThresholdCount=10"});
+	}
+
+	/**
+	 * Constructor, never called
+	 */
+	private SimulationPresets()
+	{
+	}
+
+	/**
+	 * Get the names of all the presets
+	 *
+	 * @return the names, in the order of the PresetPanel
+	 */
+	static List<String> getNames()
+	{
+		return new ArrayList<String>(PRESETS.keySet());
+	}
+
+	/**
+	 * Apply a preset to some settings, clearing the configuration first
+	 *
+	 * @param name the name of the preset
+	 * @param settings the settings
+	 * @throws IllegalArgumentException if there is no preset with the name
+	 */
+	static void apply(String name, BatchSettings settings)
+	{
+		String[] preset = PRESETS.get(name);
+		if (preset == null)
+		{
+			throw new IllegalArgumentException("Unknown preset: " + name + ", expected one of " + PRESETS.keySet());
+		}
+		settings.clearConfiguration();
+		for (String setting: preset)
+		{
+			int equals = setting.indexOf('=');
+			settings.setValue(setting.substring(0, equals), setting.substring(equals + 1));
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ * 
+ * This file is part of the Braitenberg Simulation Java package.
+ *     
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This interface specifies the settings a simulation is configured with. The settings are
+ * normally supplied by the ConfigurationPanel, but may also be supplied without any user
+ * interface at all, for running simulations in batches.
+ */
+interface SimulationSettings
+{
+	/**
+	 * Get the light source count
+	 * 
+	 * @return the number of light sources
+	 */
+	int getLightSourceCount();
+
+	/**
+	 * Get the uncrossed excitatory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getUncrossedExcitatoryCount();
+
+	/**
+	 * Get the crossed excitatory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getCrossedExcitatoryCount();
+
+	/**
+	 * Get the uncrossed inhibitory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getUncrossedInhibitoryCount();
+
+	/**
+	 * Get the crossed inhibitory vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getCrossedInhibitoryCount();
+
+	/**
+	 * Get the uncrossed threshold vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getUncrossedThresholdCount();
+
+	/**
+	 * Get the crossed threshold vehicle count
+	 * 
+	 * @return the number of vehicles
+	 */
+	int getCrossedThresholdCount();
+
+	/**
+	 * Get if vehicles perceive other vehicles
+	 * 
+	 * @return true if vehicles perceive other vehicles
+	 */
+	boolean isPerceptibleVehicles();
+
+	/**
+	 * Get if vehicle ids should be displayed
+	 * 
+	 * @return true if vehicle ids should be displayed
+	 */
+	boolean isDisplayIds();
+
+	/**
+	 * Get if vehicle wraps when it collides with plain wall
+	 * 
+	 * @return true if vehicle wraps (vs. reflects) on wall collision
+	 */
+	boolean isWrappingPlain();
+
+	/**
+	 * Get if vehicle sensors should be displayed
+	 * 
+	 * @return true if vehicle sensors should be displayed
+	 */
+	boolean isDisplaySensors();
+
+	/**
+	 * Get the range angle of a sensor. This is the angle relative to the direction the sensor is
+	 * facing. Perceptible objects outside of this range are not perceived by the sensor.
+	 * 
+	 * @return the sensor range angle, in radians
+	 */
+	double getSensorRangeAngle();
+
+	/**
+	 * Get the sensor splay angle, that is, the angle that the sensor differs from the direction
+	 * the vehicle is facing.
+	 * 
+	 * @return the sensor splay angle, in radians
+	 */
+	double getSensorSplayAngle();
+
+	/**
+	 * Get the sensor gap, that is, how far apart the two sensors are on a vehicle.
+	 * 
+	 * @return the gap between the two sensors
+	 */
+	int getSensorGap();
+
+	/**
+	 * Get angle increment, that is, the angle change per wheel step, in radians.
+	 * 
+	 * @return the angle increment, in radians
+	 */
+	double getAngleDelta();
+
+	/**
+	 * Get the maximum speed, that is, the maximum distance a vehicle can travel in one turn
+	 * 
+	 * @return the maximum speed
+	 */
+	int getMaxSpeed();
+
+	/**
+	 * Get the maximum angle, that is, the maximum angle that a vehicle can move in one turn
+	 * 
+	 * @return the maximum angle, in radians
+	 */
+	double getMaxAngle();
+
+	/**
+	 * Get the width of the dark plain
+	 * 
+	 * @return the width of the dark plain, in pixels
+	 */
+	int getDarkPlainWidth();
+
+	/**
+	 * Get the height of the dark plain
+	 * 
+	 * @return the height of the dark plain, in pixels
+	 */
+	int getDarkPlainHeight();
+
+	/**
+	 * Get the light intensity
+	 * 
+	 * @return the light intensity
+	 */
+	int getLightIntensity();
+
+	/**
+	 * Get the number of milliseconds the timer sleeps
+	 * 
+	 * @return the number of milliseconds the timer sleeps
+	 */
+	int getTimerPause();
+
+	/**
+	 * Get the number of threads that move the vehicles
+	 * 
+	 * @return the number of threads that move the vehicles
+	 */
+	int getMoveThreads();
+
+	/**
+	 * Get the number of tiles the dark plain is split into for moving the vehicles. Each tile owns
+	 * the vehicles on it and indexes only the items it can perceive, so very large plains scale with
+	 * the move threads. The vehicles move exactly as they would on one tile.
+	 * 
+	 * @return the number of tiles, or 0 not to split the dark plain
+	 */
+	int getTiles();
+
+	/**
+	 * Get the seed for generating the starting locations and directions of the lights and vehicles.
+	 * The same seed always generates the same scenario.
+	 * 
+	 * @return the seed, or 0 for a different scenario every time
+	 */
+	long getSeed();
+
+	/**
+	 * Get the number of headings the vehicles are drawn at. Each vehicle is drawn from a sprite at the
+	 * nearest of these headings, rather than drawn exactly.
+	 * 
+	 * @return the number of headings, or 0 to draw every vehicle exactly
+	 */
+	int getSpriteAngles();
+
+	/**
+	 * Determine if each tick starts as soon as the last one ends, rather than keeping to the timer
+	 * pause. Frames are dropped when the ticks come faster than they can be drawn.
+	 * 
+	 * @return true if the ticks run back to back
+	 */
+	boolean isBackToBackTicks();
+}
@@ -0,0 +1,196 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * This class holds every vehicle type drawn ahead of time at a fixed number of headings, evenly
+ * spaced around the circle. Drawing a vehicle is then just copying the sprite of its type at the
+ * heading nearest its direction, with no trigonometry and no polygon to fill in.
+ *
+ * The sprites are all drawn into one image, a row per vehicle type and a column per heading, each
+ * in a square cell with the apex of the vehicle in the middle. A vehicle is only an outline, so
+ * most of a cell is empty, and blending the whole cell into a frame costs more than drawing the
+ * outline. Instead each sprite keeps just the pixels the outline covers, and those are copied
+ * straight into the pixels of the frame.
+ */
+class SpriteAtlas
+{
+	/* The distance from the apex of a vehicle to the edge of its cell */
+	private static final int HALFCELL = VehicleRenderer.VEHICLELENGTH + 1;
+	private static final int CELLSIZE = (HALFCELL * 2) + 1;
+
+	private final int angles;
+	/* Converts a direction into a fraction of the number of headings */
+	private final double scale;
+	/*
+	 * The pixels of the sprites, by vehicle type and heading. The offsets are from the apex of the
+	 * vehicle, and the colors are RGB.
+	 */
+	private final int[][][] spriteX;
+	private final int[][][] spriteY;
+	private final int[][][] spriteRGB;
+
+	/**
+	 * Constructor, drawing the sprites
+	 *
+	 * @param typeColors the color of each vehicle type
+	 * @param ngls the number of headings, at least 1
+	 */
+	SpriteAtlas(Color[] typeColors, int ngls)
+	{
+		angles = ngls;
+		scale = angles / Vehicle.TWOPI;
+
+		BufferedImage atlas = new BufferedImage(CELLSIZE * angles, CELLSIZE * Math.max(1, typeColors.length),
+				BufferedImage.TYPE_INT_ARGB);
+		int[] xPoints = new int[3];
+		int[] yPoints = new int[3];
+		Graphics2D g = atlas.createGraphics();
+		try
+		{
+			for (int type = 0; type < typeColors.length; type++)
+			{
+				for (int heading = 0; heading < angles; heading++)
+				{
+					VehicleRenderer.drawVehicle(g, (heading * CELLSIZE) + HALFCELL, (type * CELLSIZE) + HALFCELL,
+							heading / scale, typeColors[type], xPoints, yPoints);
+				}
+			}
+		}
+		finally
+		{
+			g.dispose();
+		}
+
+		spriteX = new int[typeColors.length][angles][];
+		spriteY = new int[typeColors.length][angles][];
+		spriteRGB = new int[typeColors.length][angles][];
+		for (int type = 0; type < typeColors.length; type++)
+		{
+			for (int heading = 0; heading < angles; heading++)
+			{
+				extractSprite(atlas, type, heading);
+			}
+		}
+	}
+
+	/**
+	 * Keep the pixels a sprite covers in its cell of the atlas
+	 *
+	 * @param atlas the atlas
+	 * @param type the index of the vehicle type
+	 * @param heading the index of the heading
+	 */
+	private void extractSprite(BufferedImage atlas, int type, int heading)
+	{
+		int cellX = heading * CELLSIZE;
+		int cellY = type * CELLSIZE;
+		int[] cell = atlas.getRGB(cellX, cellY, CELLSIZE, CELLSIZE, null, 0, CELLSIZE);
+
+		int count = 0;
+		for (int argb: cell)
+		{
+			if ((argb >>> 24) != 0)
+			{
+				count++;
+			}
+		}
+
+		int[] xs = new int[count];
+		int[] ys = new int[count];
+		int[] rgbs = new int[count];
+		int pixel = 0;
+		for (int i = 0; i < cell.length; i++)
+		{
+			if ((cell[i] >>> 24) != 0)
+			{
+				xs[pixel] = (i % CELLSIZE) - HALFCELL;
+				ys[pixel] = (i / CELLSIZE) - HALFCELL;
+				rgbs[pixel] = cell[i] & 0xFFFFFF;
+				pixel++;
+			}
+		}
+		spriteX[type][heading] = xs;
+		spriteY[type][heading] = ys;
+		spriteRGB[type][heading] = rgbs;
+	}
+
+	/**
+	 * Draw a vehicle with its apex at a location, at the heading nearest its direction. Any part of
+	 * the vehicle off the edge of the frame is left out.
+	 *
+	 * @param pixels the RGB pixels of the frame, a row after another
+	 * @param width the width of the frame
+	 * @param height the height of the frame
+	 * @param type the index of the vehicle type
+	 * @param x the x coordinate of the vehicle
+	 * @param y the y coordinate of the vehicle
+	 * @param direction the direction of the vehicle, in radians
+	 */
+	void drawVehicle(int[] pixels, int width, int height, int type, double x, double y, double direction)
+	{
+		int heading = (int) Math.floor((direction * scale) + 0.5) % angles;
+		if (heading < 0)
+		{
+			heading += angles;
+		}
+		int[] xs = spriteX[type][heading];
+		int[] ys = spriteY[type][heading];
+		int[] rgbs = spriteRGB[type][heading];
+		int apexX = (int) x;
+		int apexY = (int) y;
+
+		/* Only check each pixel against the edges if the cell crosses an edge */
+		if ((apexX >= HALFCELL) && (apexY >= HALFCELL) && (apexX < (width - HALFCELL))
+				&& (apexY < (height - HALFCELL)))
+		{
+			int apex = (apexY * width) + apexX;
+			for (int i = 0; i < xs.length; i++)
+			{
+				pixels[apex + (ys[i] * width) + xs[i]] = rgbs[i];
+			}
+		}
+		else
+		{
+			for (int i = 0; i < xs.length; i++)
+			{
+				int pixelX = apexX + xs[i];
+				int pixelY = apexY + ys[i];
+				if ((pixelX >= 0) && (pixelY >= 0) && (pixelX < width) && (pixelY < height))
+				{
+					pixels[(pixelY * width) + pixelX] = rgbs[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of headings the vehicles are drawn at
+	 *
+	 * @return the number of headings
+	 */
+	int getAngles()
+	{
+		return angles;
+	}
+}
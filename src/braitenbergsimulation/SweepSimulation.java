@@ -0,0 +1,555 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class sweeps a grid of settings, running a batch simulation for every combination on a pool
+ * of worker threads, and writes the summary of every vehicle type of every run to a CSV file. The
+ * grid is given on the command line with name=value pairs, as for BatchSimulation, except that a
+ * value may be a comma separated list, which makes the setting an axis of the grid. For instance:
+ *
+ *   java braitenbergsimulation.SweepSimulation preset=Aggressive,Fearful sensorRangeAngle=45,75,105
+ *       maxSpeed=10,20 seed=1 ticks=2000 out=sweep.csv
+ *
+ * runs 12 simulations. "preset" is one of the presets of the PresetPanel, see SimulationPresets,
+ * applied before any other setting. Each run moves its vehicles on one thread unless "moveThreads"
+ * says otherwise, since the runs themselves are spread over "workers" threads, by default one per
+ * processor. "ticks" is the number of ticks of every run. Without a seed, every run picks its own,
+ * and the CSV records it.
+ *
+ * The CSV has a row for each vehicle type of each run, with the columns run, one for each axis,
+ * seed, elapsedMs, type, count, meanX, meanY, meanSpeed and meanTurnDegrees. Runs are numbered
+ * through the grid with the last axis varying fastest, and finish in any order.
+ *
+ * The runs still to do form a work queue, checkpointed to the CSV file with ".queue" on the end. The
+ * number of every run is added to it once the rows of the run are safely in the CSV. A sweep that is
+ * stopped and started again with the same settings skips the runs already done, dropping any rows of
+ * runs that were cut short, and carries on appending to the same CSV.
+ */
+class SweepSimulation
+{
+	/* The number of ticks of every run, unless told otherwise */
+	private static final int DEFAULTTICKS = 1000;
+	/* The setting that applies a preset */
+	private static final String PRESET = "preset";
+	/* The columns of the CSV after the axes */
+	private static final String COLUMNS = "seed,elapsedMs,type,count,meanX,meanY,meanSpeed,meanTurnDegrees";
+
+	/* The settings with a single value, and the axes of the grid with all their values */
+	private final Map<String, String> mapFixed;
+	private final Map<String, String[]> mapAxis;
+	private final int ticks;
+	private final int runCount;
+	/* Identifies the sweep in its work queue, so a different sweep can't resume it */
+	private final String description;
+
+	private final File csvFile;
+	private final File queueFile;
+	/* Open while the sweep runs. Only written while holding the lock of this sweep. */
+	private Writer csvWriter;
+	private Writer queueWriter;
+
+	/* The number of runs done earlier, done now, and failed */
+	private int resumedRuns;
+	private final AtomicInteger completedRuns;
+	private final AtomicInteger failedRuns;
+
+	/**
+	 * Constructor
+	 *
+	 * @param mpFxd the settings with a single value
+	 * @param mpAxs the axes of the grid, each with all its values
+	 * @param tcks the number of ticks of every run
+	 * @param csvFl the CSV file to write the summaries to
+	 * @param dscrptn a description identifying the sweep
+	 * @throws IllegalArgumentException if a setting or value is invalid
+	 */
+	SweepSimulation(Map<String, String> mpFxd, Map<String, String[]> mpAxs, int tcks, File csvFl, String dscrptn)
+	{
+		mapFixed = mpFxd;
+		mapAxis = mpAxs;
+		ticks = tcks;
+		csvFile = csvFl;
+		queueFile = new File(csvFl.getPath() + ".queue");
+		description = dscrptn;
+		completedRuns = new AtomicInteger();
+		failedRuns = new AtomicInteger();
+
+		/* Check every value up front, rather than finding a bad one halfway through the sweep */
+		long count = 1;
+		for (Map.Entry<String, String[]> entry: mapAxis.entrySet())
+		{
+			for (String value: entry.getValue())
+			{
+				check(entry.getKey(), value);
+			}
+			count *= entry.getValue().length;
+		}
+		for (Map.Entry<String, String> entry: mapFixed.entrySet())
+		{
+			check(entry.getKey(), entry.getValue());
+		}
+		if (count > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Too many combinations: " + count);
+		}
+		runCount = (int) count;
+	}
+
+	/**
+	 * Check that a setting can be given a value
+	 *
+	 * @param name the name of the setting
+	 * @param value the value
+	 * @throws IllegalArgumentException if there is no setting with the name, or the value is invalid
+	 */
+	private static void check(String name, String value)
+	{
+		BatchSettings scratch = new BatchSettings();
+		if (PRESET.equals(name))
+		{
+			SimulationPresets.apply(value, scratch);
+		}
+		else
+		{
+			scratch.setValue(name, value);
+		}
+	}
+
+	/**
+	 * Put together the settings of a run
+	 *
+	 * @param run the number of the run
+	 * @return the settings
+	 */
+	BatchSettings getSettings(int run)
+	{
+		String[] values = getAxisValues(run);
+		List<String> lstName = new ArrayList<String>(mapAxis.keySet());
+		BatchSettings settings = new BatchSettings();
+
+		/* The preset first, since it clears the configuration */
+		String preset = mapFixed.get(PRESET);
+		int presetAxis = lstName.indexOf(PRESET);
+		if (presetAxis >= 0)
+		{
+			preset = values[presetAxis];
+		}
+		if (preset != null)
+		{
+			SimulationPresets.apply(preset, settings);
+		}
+
+		/* The runs are already spread over the processors */
+		settings.setMoveThreads(1);
+		for (Map.Entry<String, String> entry: mapFixed.entrySet())
+		{
+			if (!PRESET.equals(entry.getKey()))
+			{
+				settings.setValue(entry.getKey(), entry.getValue());
+			}
+		}
+		for (int i = 0; i < values.length; i++)
+		{
+			if (i != presetAxis)
+			{
+				settings.setValue(lstName.get(i), values[i]);
+			}
+		}
+		return settings;
+	}
+
+	/**
+	 * Get the value of every axis for a run, the last axis varying fastest
+	 *
+	 * @param run the number of the run
+	 * @return the values, in the order of the axes
+	 */
+	private String[] getAxisValues(int run)
+	{
+		List<String[]> lstValues = new ArrayList<String[]>(mapAxis.values());
+		String[] values = new String[lstValues.size()];
+		int rest = run;
+		for (int i = values.length - 1; i >= 0; i--)
+		{
+			String[] axis = lstValues.get(i);
+			values[i] = axis[rest % axis.length];
+			rest = rest / axis.length;
+		}
+		return values;
+	}
+
+	/**
+	 * Run every combination not already done, spread over a number of worker threads
+	 *
+	 * @param workers the number of worker threads
+	 * @throws IOException if the CSV or the work queue can't be read or written
+	 */
+	void run(int workers) throws IOException
+	{
+		final List<Integer> lstPending = openQueue();
+		final AtomicInteger nextPending = new AtomicInteger();
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers, new ThreadFactory()
+		{
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "Sweep worker " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try
+		{
+			/* Each worker takes the next run from the queue until there are none left */
+			for (int i = 0; i < workers; i++)
+			{
+				pool.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						int next;
+						while ((next = nextPending.getAndIncrement()) < lstPending.size())
+						{
+							runOne(lstPending.get(next));
+						}
+					}
+				});
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException iexc)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", iexc);
+		}
+		finally
+		{
+			pool.shutdownNow();
+			synchronized (this)
+			{
+				csvWriter.close();
+				queueWriter.close();
+			}
+		}
+	}
+
+	/**
+	 * Open the CSV and the work queue, starting them afresh or resuming them
+	 *
+	 * @return the numbers of the runs still to do
+	 * @throws IOException if the CSV or the work queue can't be read or written, or the work queue
+	 *             belongs to a different sweep
+	 */
+	private List<Integer> openQueue() throws IOException
+	{
+		Set<Integer> setDone = new HashSet<Integer>();
+		if (queueFile.exists() && csvFile.exists())
+		{
+			BufferedReader queueReader = new BufferedReader(new FileReader(queueFile));
+			try
+			{
+				if (!description.equals(queueReader.readLine()))
+				{
+					throw new IOException(queueFile + " is the work queue of a different sweep");
+				}
+				String line;
+				while ((line = queueReader.readLine()) != null)
+				{
+					/* A number cut short when the sweep stopped doesn't count */
+					if (line.endsWith(";"))
+					{
+						setDone.add(Integer.valueOf(line.substring(0, line.length() - 1)));
+					}
+				}
+			}
+			finally
+			{
+				queueReader.close();
+			}
+			dropUnfinishedRows(setDone);
+			csvWriter = new BufferedWriter(new FileWriter(csvFile, true));
+		}
+		else
+		{
+			csvWriter = new BufferedWriter(new FileWriter(csvFile));
+			csvWriter.write(getHeader());
+			csvWriter.write(System.lineSeparator());
+			csvWriter.flush();
+		}
+
+		/* Start the work queue again with just the runs done, so nothing cut short is left on the end */
+		queueWriter = new BufferedWriter(new FileWriter(queueFile));
+		queueWriter.write(description);
+		queueWriter.write(System.lineSeparator());
+		for (Integer run: setDone)
+		{
+			queueWriter.write(run + ";" + System.lineSeparator());
+		}
+		queueWriter.flush();
+
+		resumedRuns = setDone.size();
+		List<Integer> lstPending = new ArrayList<Integer>();
+		for (int run = 0; run < runCount; run++)
+		{
+			if (!setDone.contains(run))
+			{
+				lstPending.add(run);
+			}
+		}
+		return lstPending;
+	}
+
+	/**
+	 * Drop the rows of any run not done from the CSV, since the run will be done again
+	 *
+	 * @param setDone the numbers of the runs done
+	 * @throws IOException if the CSV can't be rewritten
+	 */
+	private void dropUnfinishedRows(Set<Integer> setDone) throws IOException
+	{
+		File tempFile = new File(csvFile.getPath() + ".tmp");
+		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+		Writer writer = new BufferedWriter(new FileWriter(tempFile));
+		try
+		{
+			String line = reader.readLine();
+			writer.write((line != null) ? line : getHeader());
+			writer.write(System.lineSeparator());
+			while ((line = reader.readLine()) != null)
+			{
+				int comma = line.indexOf(',');
+				if ((comma > 0) && setDone.contains(Integer.valueOf(line.substring(0, comma))))
+				{
+					writer.write(line);
+					writer.write(System.lineSeparator());
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+			writer.close();
+		}
+		Files.move(tempFile.toPath(), csvFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Get the header of the CSV
+	 *
+	 * @return the names of the columns
+	 */
+	private String getHeader()
+	{
+		StringBuilder header = new StringBuilder("run,");
+		for (String name: mapAxis.keySet())
+		{
+			header.append(name).append(',');
+		}
+		return header.append(COLUMNS).toString();
+	}
+
+	/**
+	 * Run one combination and record its summary
+	 *
+	 * @param run the number of the run
+	 */
+	private void runOne(int run)
+	{
+		BatchSimulation simulation = null;
+		try
+		{
+			simulation = new BatchSimulation(new SimulationConfig(getSettings(run)), ticks);
+			simulation.run();
+
+			StringBuilder prefix = new StringBuilder().append(run).append(',');
+			for (String value: getAxisValues(run))
+			{
+				prefix.append(value).append(',');
+			}
+			prefix.append(simulation.getSeed()).append(',').append(simulation.getElapsedNs() / 1e6).append(',');
+			ByteArrayOutputStream rows = new ByteArrayOutputStream();
+			PrintStream out = new PrintStream(rows);
+			simulation.reportTypes(out, prefix.toString());
+			out.flush();
+			record(run, rows.toString());
+			completedRuns.incrementAndGet();
+		}
+		catch (IOException ioexc)
+		{
+			failedRuns.incrementAndGet();
+			System.err.println("Run " + run + " couldn't be recorded: " + ioexc.getMessage());
+		}
+		catch (RuntimeException rexc)
+		{
+			failedRuns.incrementAndGet();
+			System.err.println("Run " + run + " failed: " + rexc);
+		}
+		finally
+		{
+			if (simulation != null)
+			{
+				simulation.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Add the rows of a run to the CSV, and only once they are written, the run to the work queue
+	 *
+	 * @param run the number of the run
+	 * @param rows the rows
+	 * @throws IOException if the CSV or the work queue can't be written
+	 */
+	private synchronized void record(int run, String rows) throws IOException
+	{
+		csvWriter.write(rows);
+		csvWriter.flush();
+		/* The semicolon marks the number as complete */
+		queueWriter.write(run + ";" + System.lineSeparator());
+		queueWriter.flush();
+	}
+
+	/**
+	 * Get the number of combinations in the grid
+	 *
+	 * @return the number of runs
+	 */
+	int getRunCount()
+	{
+		return runCount;
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the settings, as name=value pairs, with a comma separated list of values for each
+	 *            axis of the grid
+	 */
+	public static void main(String[] args)
+	{
+		Map<String, String> mapFixed = new LinkedHashMap<String, String>();
+		Map<String, String[]> mapAxis = new LinkedHashMap<String, String[]>();
+		int ticks = DEFAULTTICKS;
+		int workers = Runtime.getRuntime().availableProcessors();
+		String out = "sweep.csv";
+		StringBuilder description = new StringBuilder();
+
+		for (String arg: args)
+		{
+			int equals = arg.indexOf('=');
+			if (equals < 0)
+			{
+				System.err.println("Expected name=value, got " + arg);
+				System.exit(1);
+			}
+			String name = arg.substring(0, equals);
+			String value = arg.substring(equals + 1);
+			try
+			{
+				if ("workers".equals(name))
+				{
+					workers = Integer.parseInt(value);
+					if (workers < 1)
+					{
+						throw new IllegalArgumentException("There must be at least one worker");
+					}
+					/* The number of workers doesn't change the sweep, so it can change on resuming */
+					continue;
+				}
+				else if ("ticks".equals(name))
+				{
+					ticks = Integer.parseInt(value);
+				}
+				else if ("out".equals(name))
+				{
+					out = value;
+				}
+				else if (value.indexOf(',') >= 0)
+				{
+					mapAxis.put(name, value.split(","));
+				}
+				else
+				{
+					mapFixed.put(name, value);
+				}
+			}
+			catch (IllegalArgumentException iaexc)
+			{
+				System.err.println("Bad setting " + arg + ": " + iaexc.getMessage());
+				System.exit(1);
+			}
+			description.append(arg).append(' ');
+		}
+
+		SweepSimulation sweep = null;
+		try
+		{
+			sweep = new SweepSimulation(mapFixed, mapAxis, ticks, new File(out), description.toString().trim());
+		}
+		catch (IllegalArgumentException iaexc)
+		{
+			System.err.println("Bad setting: " + iaexc.getMessage());
+			System.exit(1);
+		}
+
+		long startNs = System.nanoTime();
+		try
+		{
+			sweep.run(workers);
+		}
+		catch (IOException ioexc)
+		{
+			System.err.println("Can't sweep to " + out + ": " + ioexc.getMessage());
+			System.exit(1);
+		}
+		System.out.println("runs=" + sweep.getRunCount() + " resumed=" + sweep.resumedRuns + " completed="
+				+ sweep.completedRuns.get() + " failed=" + sweep.failedRuns.get() + " workers=" + workers
+				+ " elapsedMs=" + ((System.nanoTime() - startNs) / 1e6));
+		System.exit((sweep.failedRuns.get() == 0) ? 0 : 1);
+	}
+}
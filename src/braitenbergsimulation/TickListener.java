@@ -0,0 +1,35 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * The interface for anything that wants to know when a SimulationEngine completes a tick, for
+ * instance to record where the vehicles went.
+ */
+interface TickListener
+{
+	/**
+	 * Called once every vehicle has updated its location and direction, on the thread that
+	 * completed the tick. The next tick doesn't start until this returns, so the vehicles can be
+	 * read without them moving, but anything slow here slows the simulation down.
+	 * 
+	 * @param engine the engine that completed the tick
+	 */
+	void tickCompleted(SimulationEngine engine);
+}
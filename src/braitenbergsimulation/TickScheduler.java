@@ -0,0 +1,274 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class runs the ticks of a simulation on a single-threaded executor, measuring how long
+ * each tick takes and how many ticks a second are achieved.
+ *
+ * Each tick schedules the next one when it finishes, rather than being scheduled at a fixed rate,
+ * so a tick that overruns never leaves a backlog of ticks to run one after another. Keeping to a
+ * target rate, the next tick starts when it's due, or straight away if it's already late, and
+ * the missed start is counted. Running back to back, the next tick starts as soon as the last one
+ * ends. Either way, anything else submitted to the executor runs between two ticks. A tick that
+ * throws stops the ticks, and the ticks can then be started again.
+ */
+class TickScheduler
+{
+	/* How often the rate of ticks is measured */
+	private static final long RATEWINDOWNS = TimeUnit.SECONDS.toNanos(1);
+	/* The weight of the latest tick in the average tick duration */
+	private static final double DURATIONWEIGHT = 0.1;
+
+	private final ScheduledExecutorService executor;
+	private final Runnable tick;
+
+	/* Whether ticks are running, and the next tick scheduled */
+	private volatile boolean running;
+	private ScheduledFuture<?> nextTick;
+	/* Counts the starts, so a tick still running from before a restart schedules no more ticks */
+	private long generation;
+
+	/* The time between the starts of the ticks, and whether the ticks run back to back instead */
+	private long periodNs;
+	private boolean backToBack;
+	/* When the next tick is due, keeping to the target rate */
+	private long dueNs;
+
+	/* The measurements */
+	private volatile double ticksPerSecond;
+	private volatile double meanTickNs;
+	private volatile long lateTicks;
+	private long windowStartNs;
+	private long windowTicks;
+
+	/**
+	 * Constructor
+	 *
+	 * @param xctr the single-threaded executor to run the ticks on
+	 * @param tck the tick
+	 */
+	TickScheduler(ScheduledExecutorService xctr, Runnable tck)
+	{
+		executor = xctr;
+		tick = tck;
+	}
+
+	/**
+	 * Start running the ticks
+	 *
+	 * @param periodMs the time between the starts of the ticks, in milliseconds
+	 * @param bckTBck true to start each tick as soon as the last one ends instead
+	 */
+	synchronized void start(long periodMs, boolean bckTBck)
+	{
+		periodNs = TimeUnit.MILLISECONDS.toNanos(periodMs);
+		backToBack = bckTBck;
+		ticksPerSecond = 0;
+		meanTickNs = 0;
+		lateTicks = 0;
+		windowStartNs = System.nanoTime();
+		windowTicks = 0;
+		dueNs = windowStartNs;
+
+		running = true;
+		generation++;
+		nextTick = executor.schedule(new ScheduledTick(generation), 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stop running the ticks. A tick already running is allowed to finish.
+	 */
+	synchronized void stop()
+	{
+		running = false;
+		if (nextTick != null)
+		{
+			nextTick.cancel(false);
+			nextTick = null;
+		}
+	}
+
+	/**
+	 * Determine if the ticks are running
+	 *
+	 * @return true if the ticks are running
+	 */
+	boolean isRunning()
+	{
+		return running;
+	}
+
+	/**
+	 * Run a tick, measure it, and schedule the next one
+	 *
+	 * @param scheduledTick the tick being run
+	 */
+	private void runTick(ScheduledTick scheduledTick)
+	{
+		synchronized (this)
+		{
+			if (!running || (scheduledTick.generation != generation))
+			{
+				return;
+			}
+		}
+
+		long startNs = System.nanoTime();
+		try
+		{
+			tick.run();
+		}
+		catch (RuntimeException rexc)
+		{
+			stopAfterFailure(scheduledTick);
+			rexc.printStackTrace();
+			return;
+		}
+		catch (Error err)
+		{
+			stopAfterFailure(scheduledTick);
+			throw err;
+		}
+		long endNs = System.nanoTime();
+
+		synchronized (this)
+		{
+			if (running && (scheduledTick.generation == generation))
+			{
+				measure(startNs, endNs);
+
+				long delayNs = 0;
+				if (!backToBack)
+				{
+					dueNs += periodNs;
+					delayNs = dueNs - endNs;
+					if (delayNs < 0)
+					{
+						/* Start late rather than try to catch up */
+						lateTicks++;
+						dueNs = endNs;
+						delayNs = 0;
+					}
+				}
+				nextTick = executor.schedule(scheduledTick, delayNs, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Stop running the ticks because a tick failed, so they can be started again
+	 *
+	 * @param scheduledTick the tick that failed
+	 */
+	private synchronized void stopAfterFailure(ScheduledTick scheduledTick)
+	{
+		if (scheduledTick.generation == generation)
+		{
+			running = false;
+			nextTick = null;
+		}
+	}
+
+	/**
+	 * Measure a tick
+	 *
+	 * @param startNs when the tick started
+	 * @param endNs when the tick ended
+	 */
+	private void measure(long startNs, long endNs)
+	{
+		long durationNs = endNs - startNs;
+		meanTickNs = (meanTickNs == 0) ? durationNs
+				: (meanTickNs + (DURATIONWEIGHT * (durationNs - meanTickNs)));
+
+		windowTicks++;
+		long windowNs = endNs - windowStartNs;
+		if (windowNs >= RATEWINDOWNS)
+		{
+			ticksPerSecond = (windowTicks * 1e9) / windowNs;
+			windowStartNs = endNs;
+			windowTicks = 0;
+		}
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the number of ticks a second achieved over the last second or so
+	 *
+	 * @return the number of ticks a second, or 0 until it has been measured
+	 */
+	double getTicksPerSecond()
+	{
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Get the average time a tick takes, weighted towards the latest ticks
+	 *
+	 * @return the average duration, in milliseconds
+	 */
+	double getMeanTickMs()
+	{
+		return meanTickNs / 1e6;
+	}
+
+	/**
+	 * Get the number of ticks that started late because the tick before overran, since the ticks
+	 * were started
+	 *
+	 * @return the number of late ticks
+	 */
+	long getLateTicks()
+	{
+		return lateTicks;
+	}
+
+	/**
+	 * A tick scheduled on the executor, from one start of the ticks
+	 */
+	private class ScheduledTick implements Runnable
+	{
+		private final long generation;
+
+		/**
+		 * Constructor
+		 *
+		 * @param gnrtn the start of the ticks this tick is from
+		 */
+		ScheduledTick(long gnrtn)
+		{
+			generation = gnrtn;
+		}
+
+		/**
+		 * Run the tick
+		 */
+		@Override
+		public void run()
+		{
+			runTick(this);
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads a trajectory log written by TrajectoryWriter. Every frame of the log is the same
+ * size, so the frame of any tick is read straight from where it must be in the file, without reading
+ * any of the frames before it. A frame cut short, say because the simulation was killed while
+ * recording, is ignored.
+ *
+ * It can also be run to print the locations of the vehicles at one tick:
+ *
+ *   java braitenbergsimulation.TrajectoryReader trajectory.log 500
+ */
+class TrajectoryReader implements Closeable
+{
+	private final FileChannel channel;
+
+	/* The settings the simulation was started with, including the seed it was generated from */
+	private final BatchSettings settings;
+	private final int trigTableSize;
+
+	private final String[] types;
+	private final int[] vehicleIds;
+	private final byte[] vehicleTypes;
+	private final double[] lightX;
+	private final double[] lightY;
+
+	/* Where the frames start, how big they are, and the tick of the first one */
+	private final long framesStart;
+	private final int frameBytes;
+	private final long firstTick;
+
+	/* Reused for reading the frames */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Constructor, reading the header of the log
+	 *
+	 * @param file the log
+	 * @throws IOException if the log can't be read, or isn't a trajectory log
+	 */
+	TrajectoryReader(File file) throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			ByteBuffer preamble = ByteBuffer.allocate(TrajectoryWriter.PREAMBLEBYTES);
+			readFully(preamble, 0);
+			if (preamble.getInt() != TrajectoryWriter.MAGIC)
+			{
+				throw new IOException(file + " is not a trajectory log");
+			}
+			int version = preamble.getInt();
+			if (version != TrajectoryWriter.VERSION)
+			{
+				throw new IOException(file + " is version " + version + " of the trajectory log");
+			}
+			framesStart = preamble.getInt();
+
+			ByteBuffer header = ByteBuffer.allocate((int) framesStart - TrajectoryWriter.PREAMBLEBYTES);
+			readFully(header, TrajectoryWriter.PREAMBLEBYTES);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+
+			settings = new BatchSettings();
+			settings.setLightSourceCount(in.readInt());
+			settings.setUncrossedExcitatoryCount(in.readInt());
+			settings.setCrossedExcitatoryCount(in.readInt());
+			settings.setUncrossedInhibitoryCount(in.readInt());
+			settings.setCrossedInhibitoryCount(in.readInt());
+			settings.setUncrossedThresholdCount(in.readInt());
+			settings.setCrossedThresholdCount(in.readInt());
+			settings.setPerceptibleVehicles(in.readBoolean());
+			settings.setDisplayIds(in.readBoolean());
+			settings.setWrappingPlain(in.readBoolean());
+			settings.setDisplaySensors(in.readBoolean());
+			settings.setSensorRangeAngle(in.readDouble());
+			settings.setSensorSplayAngle(in.readDouble());
+			settings.setSensorGap(in.readInt());
+			settings.setAngleDelta(in.readDouble());
+			settings.setMaxSpeed(in.readInt());
+			settings.setMaxAngle(in.readDouble());
+			settings.setDarkPlainWidth(in.readInt());
+			settings.setDarkPlainHeight(in.readInt());
+			settings.setLightIntensity(in.readInt());
+			settings.setTimerPause(in.readInt());
+			settings.setMoveThreads(in.readInt());
+			settings.setSeed(in.readLong());
+			trigTableSize = in.readInt();
+
+			types = new String[in.readInt()];
+			for (int i = 0; i < types.length; i++)
+			{
+				types[i] = in.readUTF();
+			}
+			int vehicleCount = in.readInt();
+			vehicleIds = new int[vehicleCount];
+			vehicleTypes = new byte[vehicleCount];
+			for (int i = 0; i < vehicleCount; i++)
+			{
+				vehicleIds[i] = in.readInt();
+				vehicleTypes[i] = in.readByte();
+			}
+			int lightCount = in.readInt();
+			lightX = new double[lightCount];
+			lightY = new double[lightCount];
+			for (int i = 0; i < lightCount; i++)
+			{
+				lightX[i] = in.readDouble();
+				lightY[i] = in.readDouble();
+			}
+
+			frameBytes = TrajectoryWriter.TICKBYTES + (vehicleCount * TrajectoryWriter.VEHICLEBYTES);
+			buffer = ByteBuffer.allocateDirect(frameBytes);
+			if (getFrameCount() > 0)
+			{
+				ByteBuffer tick = ByteBuffer.allocate(TrajectoryWriter.TICKBYTES);
+				readFully(tick, framesStart);
+				firstTick = tick.getLong();
+			}
+			else
+			{
+				firstTick = 0;
+			}
+		}
+		catch (IOException ioexc)
+		{
+			channel.close();
+			throw ioexc;
+		}
+	}
+
+	/**
+	 * Read the locations and directions of the vehicles at a tick, in the order of the header
+	 *
+	 * @param tick the number of the tick
+	 * @param x the array to fill with the x coordinates
+	 * @param y the array to fill with the y coordinates
+	 * @param direction the array to fill with the directions, in radians
+	 * @throws IllegalArgumentException if the log has no frame for the tick
+	 * @throws IOException if the frame can't be read
+	 */
+	void readTick(long tick, double[] x, double[] y, double[] direction) throws IOException
+	{
+		long frame = tick - firstTick;
+		if ((frame < 0) || (frame >= getFrameCount()))
+		{
+			throw new IllegalArgumentException("No frame for tick " + tick + ", the log has ticks "
+					+ firstTick + " to " + (firstTick + getFrameCount() - 1));
+		}
+
+		buffer.clear();
+		readFully(buffer, framesStart + (frame * frameBytes));
+		if (buffer.getLong() != tick)
+		{
+			throw new IOException("The frame for tick " + tick + " is corrupt");
+		}
+		for (int i = 0; i < vehicleIds.length; i++)
+		{
+			x[i] = buffer.getDouble();
+			y[i] = buffer.getDouble();
+			direction[i] = buffer.getDouble();
+		}
+	}
+
+	/**
+	 * Fill a buffer from the log, then flip it for reading
+	 *
+	 * @param destination the buffer
+	 * @param position where in the log to read from
+	 * @throws IOException if the buffer can't be filled
+	 */
+	private void readFully(ByteBuffer destination, long position) throws IOException
+	{
+		long at = position;
+		while (destination.hasRemaining())
+		{
+			int read = channel.read(destination, at);
+			if (read < 0)
+			{
+				throw new EOFException("The trajectory log ends early");
+			}
+			at += read;
+		}
+		destination.flip();
+	}
+
+	/**
+	 * Close the log
+	 *
+	 * @throws IOException if the log can't be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the settings the simulation was started with. The seed is the one the scenario was
+	 * actually generated from, so running with these settings replays the simulation.
+	 *
+	 * @return the settings
+	 */
+	BatchSettings getSettings()
+	{
+		return settings;
+	}
+
+	/**
+	 * Get the size of the sine table the vehicles were moved with
+	 *
+	 * @return the number of entries in the table, or 0 if java.lang.Math was used
+	 */
+	int getTrigTableSize()
+	{
+		return trigTableSize;
+	}
+
+	/**
+	 * Get the number of complete frames in the log
+	 *
+	 * @return the number of frames
+	 * @throws IOException if the size of the log can't be read
+	 */
+	long getFrameCount() throws IOException
+	{
+		return (channel.size() - framesStart) / frameBytes;
+	}
+
+	/**
+	 * Get the tick of the first frame, which is when the recording started
+	 *
+	 * @return the number of the tick
+	 */
+	long getFirstTick()
+	{
+		return firstTick;
+	}
+
+	/**
+	 * Get the number of vehicles recorded
+	 *
+	 * @return the number of vehicles
+	 */
+	int getVehicleCount()
+	{
+		return vehicleIds.length;
+	}
+
+	/**
+	 * Get the id of a vehicle
+	 *
+	 * @param index the index of the vehicle, in the order of the header
+	 * @return the id
+	 */
+	int getVehicleId(int index)
+	{
+		return vehicleIds[index];
+	}
+
+	/**
+	 * Get the type of a vehicle
+	 *
+	 * @param index the index of the vehicle, in the order of the header
+	 * @return the vehicle type
+	 */
+	String getVehicleType(int index)
+	{
+		return types[vehicleTypes[index]];
+	}
+
+	/**
+	 * Get the number of lights recorded
+	 *
+	 * @return the number of lights
+	 */
+	int getLightCount()
+	{
+		return lightX.length;
+	}
+
+	/**
+	 * Get the x coordinate of a light
+	 *
+	 * @param index the index of the light
+	 * @return the x coordinate
+	 */
+	double getLightX(int index)
+	{
+		return lightX[index];
+	}
+
+	/**
+	 * Get the y coordinate of a light
+	 *
+	 * @param index the index of the light
+	 * @return the y coordinate
+	 */
+	double getLightY(int index)
+	{
+		return lightY[index];
+	}
+
+	/**
+	 * Application entry point
+	 *
+	 * @param args the log, and the tick to print
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length != 2)
+		{
+			System.err.println("Expected a trajectory log and a tick");
+			System.exit(1);
+		}
+
+		TrajectoryReader reader = null;
+		try
+		{
+			reader = new TrajectoryReader(new File(args[0]));
+			int count = reader.getVehicleCount();
+			double[] x = new double[count];
+			double[] y = new double[count];
+			double[] direction = new double[count];
+			reader.readTick(Long.parseLong(args[1]), x, y, direction);
+
+			System.out.println("id,type,x,y,direction");
+			for (int i = 0; i < count; i++)
+			{
+				System.out.println(reader.getVehicleId(i) + "," + reader.getVehicleType(i) + "," + x[i] + ","
+						+ y[i] + "," + direction[i]);
+			}
+			reader.close();
+		}
+		catch (IOException ioexc)
+		{
+			System.err.println("Can't read " + args[0] + ": " + ioexc.getMessage());
+			System.exit(1);
+		}
+		catch (IllegalArgumentException iaexc)
+		{
+			System.err.println(iaexc.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class records the trajectories of the vehicles on a dark plain to a binary log, for analysis
+ * once the simulation is over. Registered as a tick listener, it writes the location and direction
+ * of every vehicle after every tick.
+ *
+ * The log starts with a header holding the settings, the type and id of every vehicle and the
+ * location of every light. Then comes a frame per tick: the tick number followed by the x
+ * coordinate, y coordinate and direction of every vehicle, in the order of the header, all as
+ * doubles. Every frame is the same size, so TrajectoryReader can go straight to any tick.
+ *
+ * The frames are written through a FileChannel from one reused buffer, so recording creates no
+ * objects. The first frame holds the locations and directions when the recording starts.
+ */
+class TrajectoryWriter implements TickListener, Closeable
+{
+	/* Identifies a trajectory log, "BRTJ" */
+	static final int MAGIC = 0x4252544A;
+	static final int VERSION = 1;
+	/* The bytes of the magic number, version and header length */
+	static final int PREAMBLEBYTES = 12;
+	/* The bytes of the tick number that starts every frame */
+	static final int TICKBYTES = 8;
+	/* The bytes of the x coordinate, y coordinate and direction of one vehicle */
+	static final int VEHICLEBYTES = 24;
+
+	/* The size of the buffer frames are written through */
+	private static final int BUFFERSIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	/* The vehicles, in the order they are recorded */
+	private final Vehicle[] vehicles;
+
+	/* The first failure to write a frame, reported when the log is closed */
+	private IOException failure;
+
+	/**
+	 * Constructor, creating the log and recording the current locations and directions of the
+	 * vehicles as the first frame
+	 *
+	 * @param file the file to write the log to, replacing any file already there
+	 * @param engine the engine running the simulation
+	 * @param settings the settings the simulation was started with
+	 * @throws IOException if the log can't be written
+	 */
+	TrajectoryWriter(File file, SimulationEngine engine, SimulationConfig settings) throws IOException
+	{
+		vehicles = engine.getVehicles().toArray(new Vehicle[0]);
+		buffer = ByteBuffer.allocateDirect(BUFFERSIZE);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			writeHeader(engine, settings);
+			writeFrame(engine.getTickCount());
+		}
+		catch (IOException ioexc)
+		{
+			channel.close();
+			throw ioexc;
+		}
+	}
+
+	/**
+	 * Write the header, which describes everything in the simulation that doesn't move
+	 *
+	 * @param engine the engine running the simulation
+	 * @param settings the settings the simulation was started with
+	 * @throws IOException if the header can't be written
+	 */
+	private void writeHeader(SimulationEngine engine, SimulationConfig settings) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(settings.getLightSourceCount());
+		out.writeInt(settings.getUncrossedExcitatoryCount());
+		out.writeInt(settings.getCrossedExcitatoryCount());
+		out.writeInt(settings.getUncrossedInhibitoryCount());
+		out.writeInt(settings.getCrossedInhibitoryCount());
+		out.writeInt(settings.getUncrossedThresholdCount());
+		out.writeInt(settings.getCrossedThresholdCount());
+		out.writeBoolean(settings.isPerceptibleVehicles());
+		out.writeBoolean(settings.isDisplayIds());
+		out.writeBoolean(settings.isWrappingPlain());
+		out.writeBoolean(settings.isDisplaySensors());
+		out.writeDouble(settings.getSensorRangeAngle());
+		out.writeDouble(settings.getSensorSplayAngle());
+		out.writeInt(settings.getSensorGap());
+		out.writeDouble(settings.getAngleDelta());
+		out.writeInt(settings.getMaxSpeed());
+		out.writeDouble(settings.getMaxAngle());
+		out.writeInt(settings.getDarkPlainWidth());
+		out.writeInt(settings.getDarkPlainHeight());
+		out.writeInt(settings.getLightIntensity());
+		out.writeInt(settings.getTimerPause());
+		out.writeInt(settings.getMoveThreads());
+		/* The seed actually used, so the log records a scenario that can be replayed */
+		out.writeLong(engine.getSeed());
+		out.writeInt(settings.getTrigTableSize());
+
+		/* The vehicle types, then the id and the index of the type of every vehicle */
+		List<String> lstType = new ArrayList<String>();
+		for (Vehicle aVehicle: vehicles)
+		{
+			if (!lstType.contains(aVehicle.getVehicleType()))
+			{
+				lstType.add(aVehicle.getVehicleType());
+			}
+		}
+		out.writeInt(lstType.size());
+		for (String type: lstType)
+		{
+			out.writeUTF(type);
+		}
+		out.writeInt(vehicles.length);
+		for (Vehicle aVehicle: vehicles)
+		{
+			out.writeInt(aVehicle.id);
+			out.writeByte(lstType.indexOf(aVehicle.getVehicleType()));
+		}
+
+		/* The lights never move */
+		List<LightSource> lstLight = engine.getLights();
+		out.writeInt(lstLight.size());
+		for (LightSource aLight: lstLight)
+		{
+			out.writeDouble(aLight.getX());
+			out.writeDouble(aLight.getY());
+		}
+		out.flush();
+
+		ByteBuffer header = ByteBuffer.allocate(PREAMBLEBYTES + bytes.size());
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(header.capacity());
+		header.put(bytes.toByteArray());
+		header.flip();
+		writeFully(header);
+	}
+
+	/**
+	 * Record the locations and directions of the vehicles after a tick. If the frame can't be
+	 * written, recording stops and the failure is reported when the log is closed.
+	 *
+	 * @param engine the engine that completed the tick
+	 */
+	@Override
+	public void tickCompleted(SimulationEngine engine)
+	{
+		if (failure == null)
+		{
+			try
+			{
+				writeFrame(engine.getTickCount());
+			}
+			catch (IOException ioexc)
+			{
+				failure = ioexc;
+			}
+		}
+	}
+
+	/**
+	 * Write a frame holding the current locations and directions of the vehicles
+	 *
+	 * @param tick the number of the tick
+	 * @throws IOException if the frame can't be written
+	 */
+	private void writeFrame(long tick) throws IOException
+	{
+		buffer.clear();
+		buffer.putLong(tick);
+		for (Vehicle aVehicle: vehicles)
+		{
+			if (buffer.remaining() < VEHICLEBYTES)
+			{
+				buffer.flip();
+				writeFully(buffer);
+				buffer.clear();
+			}
+			buffer.putDouble(aVehicle.getX());
+			buffer.putDouble(aVehicle.getY());
+			buffer.putDouble(aVehicle.getDirection());
+		}
+		buffer.flip();
+		writeFully(buffer);
+	}
+
+	/**
+	 * Write everything left in a buffer to the log
+	 *
+	 * @param source the buffer
+	 * @throws IOException if the buffer can't be written
+	 */
+	private void writeFully(ByteBuffer source) throws IOException
+	{
+		while (source.hasRemaining())
+		{
+			channel.write(source);
+		}
+	}
+
+	/**
+	 * Close the log. Stop it being told about ticks first.
+	 *
+	 * @throws IOException if the log can't be closed, or a frame couldn't be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+}
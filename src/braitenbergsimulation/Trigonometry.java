@@ -0,0 +1,75 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * This interface specifies the sine and cosine used to move the vehicles. Normally these are
+ * java.lang.Math, but a faster approximation may be configured instead.
+ */
+interface Trigonometry
+{
+	/* The exact sine and cosine of java.lang.Math */
+	Trigonometry MATH = new MathTrigonometry();
+
+	/**
+	 * Get the sine of an angle
+	 *
+	 * @param angle the angle, in radians
+	 * @return the sine of the angle
+	 */
+	double sin(double angle);
+
+	/**
+	 * Get the cosine of an angle
+	 *
+	 * @param angle the angle, in radians
+	 * @return the cosine of the angle
+	 */
+	double cos(double angle);
+
+	/**
+	 * The sine and cosine of java.lang.Math
+	 */
+	final class MathTrigonometry implements Trigonometry
+	{
+		/**
+		 * Get the sine of an angle
+		 *
+		 * @param angle the angle, in radians
+		 * @return the sine of the angle
+		 */
+		@Override
+		public double sin(double angle)
+		{
+			return Math.sin(angle);
+		}
+
+		/**
+		 * Get the cosine of an angle
+		 *
+		 * @param angle the angle, in radians
+		 * @return the cosine of the angle
+		 */
+		@Override
+		public double cos(double angle)
+		{
+			return Math.cos(angle);
+		}
+	}
+}
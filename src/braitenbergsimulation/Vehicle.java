@@ -21,7 +21,7 @@ package braitenbergsimulation;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.geom.Point2D;
-import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 /**
  * This class simulates a Braitenberg vehicle, a simple vehicle with two sensors
@@ -71,6 +71,9 @@ abstract class Vehicle implements PerceptibleItem {
     /* wrapping around plain (vs. reflecting) */
     private final boolean isWrappingPlain;
 
+    /* The sine and cosine used to move the vehicle */
+    private final Trigonometry trigonometry;
+
     /* The vehicle identifier */
     protected int id;
 
@@ -81,27 +84,37 @@ abstract class Vehicle implements PerceptibleItem {
     /* How bright this vehicle is, in other words, how easily it is perceived */
     private final int intensity;
 
-    /* The current location and direction */
-    private Point2D currentLocation;
-    private double currentDirection;
+    /*
+     * The store holding the current and the newly calculated location and direction, and the slot
+     * this vehicle has in the store
+     */
+    private final VehicleStateStore store;
+    private final int slot;
+
+    /*
+     * The wheel steps for every number of pulses a sensor can generate, and whether the right sensor
+     * steps the left wheel and the left sensor the right wheel
+     */
+    private final int[] steps;
+    private final boolean isCrossed;
 
-    /* The newly calculate location and direction */
-    private Point2D newLocation;
-    private double newDirection;
+    /* The measurements of the latest move */
+    private final MoveStats moveStats = new MoveStats();
 
     /**
      * Braitenberg vehicle 2a Create a vehicle where the right sensor steps the
      * right wheel, the left sensor steps the left wheel. Excitatory - wheel
      * steps increase as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createUncrossedExcitatoryVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new UncrossedExcitatoryVehicle(pnlConfig, loc, dir);
+    static Vehicle createUncrossedExcitatoryVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new UncrossedExcitatoryVehicle(settings, store, loc, dir);
     }
 
     /**
@@ -109,14 +122,15 @@ abstract class Vehicle implements PerceptibleItem {
      * left wheel, the left sensor steps the right wheel. Excitatory - wheel
      * steps increase as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createCrossedExcitatoryVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new CrossedExcitatoryVehicle(pnlConfig, loc, dir);
+    static Vehicle createCrossedExcitatoryVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new CrossedExcitatoryVehicle(settings, store, loc, dir);
     }
 
     /**
@@ -124,14 +138,15 @@ abstract class Vehicle implements PerceptibleItem {
      * right wheel, the left sensor steps the left wheel. Inhibitory - wheel
      * steps decrease as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createUncrossedInhibitoryVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new UncrossedInhibitoryVehicle(pnlConfig, loc, dir);
+    static Vehicle createUncrossedInhibitoryVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new UncrossedInhibitoryVehicle(settings, store, loc, dir);
     }
 
     /**
@@ -139,14 +154,15 @@ abstract class Vehicle implements PerceptibleItem {
      * left wheel, the left sensor steps the right wheel. Inhibitory - wheel
      * steps decrease as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createCrossedInhibitoryVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new CrossedInhibitoryVehicle(pnlConfig, loc, dir);
+    static Vehicle createCrossedInhibitoryVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new CrossedInhibitoryVehicle(settings, store, loc, dir);
     }
 
     /**
@@ -155,14 +171,15 @@ abstract class Vehicle implements PerceptibleItem {
      * steps increase as light strength increases until a threshold is met, then
      * wheel steps decrease as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createUncrossedThresholdVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new UncrossedThresholdVehicle(pnlConfig, loc, dir);
+    static Vehicle createUncrossedThresholdVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new UncrossedThresholdVehicle(settings, store, loc, dir);
     }
 
     /**
@@ -171,70 +188,118 @@ abstract class Vehicle implements PerceptibleItem {
      * steps increase as light strength increases until a threshold is met, then
      * wheel steps decrease as light strength increases.
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
      * @return the created vehicle
      */
-    static Vehicle createCrossedThresholdVehicle(ConfigurationPanel pnlConfig,
-            Point2D loc, double dir) {
-        return new CrossedThresholdVehicle(pnlConfig, loc, dir);
+    static Vehicle createCrossedThresholdVehicle(SimulationConfig settings,
+            VehicleStateStore store, Point2D loc, double dir) {
+        return new CrossedThresholdVehicle(settings, store, loc, dir);
     }
 
     /**
      * Constructor
      *
-     * @param pnlConfig the panel containing various configured settings
+     * @param settings the configured settings
+     * @param store the store holding the vehicle locations and directions
      * @param loc the starting location
      * @param dir the starting direction
+     * @param stps the wheel steps for every number of pulses, shared by every vehicle of the type
+     * @param crssd true if the right sensor steps the left wheel and the left sensor the right wheel
      */
-    protected Vehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-        sensorRangeAngle = pnlConfig.getSensorRangeAngle();
-        sensorSplayAngle = pnlConfig.getSensorSplayAngle();
-        sensorGap = pnlConfig.getSensorGap();
-        angleIncrement = pnlConfig.getAngleDelta();
-        maxSpeed = pnlConfig.getMaxSpeed();
-        maxAngle = pnlConfig.getMaxAngle();
-        displayID = pnlConfig.isDisplayIds();
-        displaySensors = pnlConfig.isDisplaySensors();
-        intensity = pnlConfig.getLightIntensity();
-        xMax = pnlConfig.getDarkPlainWidth();
-        yMax = pnlConfig.getDarkPlainHeight();
-
-        currentLocation = loc;
-        currentDirection = dir;
-
-        isWrappingPlain = pnlConfig.isWrappingPlain(); /* for now, vehicles wrap around plain */
+    protected Vehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc, double dir, int[] stps,
+            boolean crssd) {
+        sensorRangeAngle = settings.getSensorRangeAngle();
+        sensorSplayAngle = settings.getSensorSplayAngle();
+        sensorGap = settings.getSensorGap();
+        angleIncrement = settings.getAngleDelta();
+        maxSpeed = settings.getMaxSpeed();
+        maxAngle = settings.getMaxAngle();
+        displayID = settings.isDisplayIds();
+        displaySensors = settings.isDisplaySensors();
+        intensity = settings.getLightIntensity();
+        xMax = settings.getDarkPlainWidth();
+        yMax = settings.getDarkPlainHeight();
+
+        this.store = store;
+        slot = store.add(loc.getX(), loc.getY(), dir);
+
+        isWrappingPlain = settings.isWrappingPlain(); /* for now, vehicles wrap around plain */
+        trigonometry = settings.getTrigonometry();
 
         id = idgenerator++;
-        rightSensor = new Sensor(pnlConfig, this, sensorRangeAngle);
-        leftSensor = new Sensor(pnlConfig, this, sensorRangeAngle);
+        steps = stps;
+        isCrossed = crssd;
+        rightSensor = new Sensor(settings, this, sensorRangeAngle);
+        leftSensor = new Sensor(settings, this, sensorRangeAngle);
+    }
+
+    /**
+     * Build the table of wheel steps of a vehicle type
+     *
+     * @param translate translates a number of pulses to wheel steps
+     * @return the wheel steps for every number of pulses, from 0 to PULSEMAX
+     */
+    protected static int[] buildSteps(IntUnaryOperator translate) {
+        int[] stps = new int[Sensor.PULSEMAX + 1];
+        for (int pulses = 0; pulses <= Sensor.PULSEMAX; pulses++) {
+            stps[pulses] = translate.applyAsInt(pulses);
+        }
+        return stps;
     }
 
     /**
      * Move the vehicle forward based on pulses from the two sensors.
      *
-     * @param lstPerceptible the list of perceptible items
+     * @param grid the grid of perceptible items
+     * @param timed true to time sensing and translating, which reads the clock three times
      */
-    void move(List<PerceptibleItem> lstPerceptible) {
+    void move(PerceptibleGrid grid, boolean timed) {
+        long senseStart = timed ? System.nanoTime() : 0;
+        moveStats.clear();
+        double currentX = store.getX(slot);
+        double currentY = store.getY(slot);
+        double currentDirection = store.getDirection(slot);
+
         /* 
          * Determine the current location and direction of the sensors and accumulate the light
          * strength gathered by each sensor
          */
-        Point2D rightSensorLocation = getRightSensorLocation(sensorGap, currentLocation, currentDirection);
-        Point2D leftSensorLocation = getLeftSensorLocation(sensorGap, currentLocation, currentDirection);
+        double rightSensorX = currentX;
+        double rightSensorY = currentY;
+        double leftSensorX = currentX;
+        double leftSensorY = currentY;
+        if (sensorGap != 0) {
+            rightSensorX = getNewX(trigonometry, currentX, (sensorGap / 2), (currentDirection + HALFPI));
+            rightSensorY = getNewY(trigonometry, currentY, (sensorGap / 2), (currentDirection + HALFPI));
+            leftSensorX = getNewX(trigonometry, currentX, (sensorGap / 2), (currentDirection - HALFPI));
+            leftSensorY = getNewY(trigonometry, currentY, (sensorGap / 2), (currentDirection - HALFPI));
+        }
         double rightSensorDirection = getRightSensorDirection(currentDirection, sensorSplayAngle);
         double leftSensorDirection = getLeftSensorDirection(currentDirection, sensorSplayAngle);
-        int rightLightPulses = rightSensor.determineTotalPulses(rightSensorLocation,
-                rightSensorDirection, lstPerceptible);
-        int leftLightPulses = leftSensor.determineTotalPulses(leftSensorLocation,
-                leftSensorDirection, lstPerceptible);
+        int rightLightPulses = rightSensor.determineTotalPulses(rightSensorX, rightSensorY,
+                rightSensorDirection, grid, moveStats);
+        int leftLightPulses = leftSensor.determineTotalPulses(leftSensorX, leftSensorY,
+                leftSensorDirection, grid, moveStats);
+        long translateStart = 0;
+        if (timed) {
+            translateStart = System.nanoTime();
+            moveStats.senseNs = translateStart - senseStart;
+        }
 
-        /* Translate the sensor strengths to wheel steps */
-        Point2D steps = translatePulsesToSteps(rightLightPulses, leftLightPulses);
-        /* Get the results from the "gypsy wagon" */
-        double rightSteps = steps.getX();
-        double leftSteps = steps.getY();
+        /* Translate the sensor strengths to wheel steps, looking them up in the table of the type */
+        double rightSteps;
+        double leftSteps;
+        if (isCrossed) {
+            rightSteps = steps[rightLightPulses];
+            leftSteps = steps[leftLightPulses];
+        }
+        else {
+            rightSteps = steps[leftLightPulses];
+            leftSteps = steps[rightLightPulses];
+        }
 
         /*
          * Braitenberg vehicles move forward by stepping the left wheel and the right wheel forward
@@ -257,26 +322,31 @@ abstract class Vehicle implements PerceptibleItem {
         }
 
         /* Set the new location and new direction */
-        newLocation = getNewLocation(currentLocation, distanceTraveled,
+        double newX = getNewX(trigonometry, currentX, distanceTraveled,
                 (currentDirection + (deltaAngle / 2)));
+        double newY = getNewY(trigonometry, currentY, distanceTraveled,
+                (currentDirection + (deltaAngle / 2)));
+        double newDirection;
         
-        if (!isWrappingPlain && isOffBoundingPlain(newLocation, xMax, yMax)) {
+        if (!isWrappingPlain && isOffBoundingPlain(newX, newY, xMax, yMax)) {
             // wrapping and hit a boundary... reset the location and compute the reflecting angle
             //
-            double deltaX = newLocation.getX() - currentLocation.getX();
-            double deltaY = newLocation.getY() - currentLocation.getY();
-            if (newLocation.getX() < 0.0 || newLocation.getX() > xMax)
+            double deltaX = newX - currentX;
+            double deltaY = newY - currentY;
+            if (newX < 0.0 || newX > xMax)
                 deltaX = -deltaX;
             else
                 deltaY = -deltaY;
 
-            newLocation = currentLocation;
+            newX = currentX;
+            newY = currentY;
             newDirection = Math.atan2 (-deltaY, deltaX);
         }
         else {
             // either not wrapping or not on at a wall...
             //
-            newLocation = wrapAroundLocation(newLocation, yMax, xMax);
+            newX = wrapAround(newX, xMax);
+            newY = wrapAround(newY, yMax);
             newDirection = currentDirection + deltaAngle;
         }
         
@@ -286,16 +356,50 @@ abstract class Vehicle implements PerceptibleItem {
         if (currentDirection < 0) {
             newDirection = currentDirection + TWOPI;
         }
+
+        store.setNew(slot, newX, newY, newDirection);
+        if (timed) {
+            moveStats.translateNs = System.nanoTime() - translateStart;
+        }
+    }
+
+    /**
+     * Get the measurements of the latest move, valid once every vehicle has moved
+     *
+     * @return the measurements, reused every move
+     */
+    MoveStats getMoveStats() {
+        return moveStats;
+    }
+
+    /**
+     * Get the identifier the next vehicle created will be given
+     *
+     * @return the next identifier
+     */
+    static int getNextId() {
+        return idgenerator;
+    }
+
+    /**
+     * Carry on the vehicle identifiers of a restored simulation. The next vehicle created is given
+     * the next identifier of the restored simulation, unless vehicles created since this process
+     * started have already used it, so no two vehicles ever share an identifier.
+     *
+     * @param nextId the identifier the restored simulation was to give its next vehicle
+     */
+    static void continueIdsFrom(int nextId) {
+        idgenerator = Math.max(idgenerator, nextId);
     }
 
     /**
-     * Translate the light strength to wheel steps.
+     * Give this vehicle the identifier it had in a restored simulation
      *
-     * @param rightPulses the right light strength
-     * @param leftPulses the left light strength
-     * @return a "gypsy wagon" holding the right and left wheel steps
+     * @param restoredId the identifier
      */
-    protected abstract Point2D translatePulsesToSteps(int rightPulses, int leftPulses);
+    void restoreId(int restoredId) {
+        id = restoredId;
+    }
 
     /**
      * Render the vehicle as a triangle pointing in the direction of travel.
@@ -304,6 +408,9 @@ abstract class Vehicle implements PerceptibleItem {
      * @param g the graphics object
      */
     void draw(Graphics g) {
+        Point2D currentLocation = new Point2D.Double(getX(), getY());
+        double currentDirection = getDirection();
+
         VehicleRenderer.drawVehicle(g, currentLocation, currentDirection, getVehicleColor());
 
         if (displayID) {
@@ -403,7 +510,7 @@ abstract class Vehicle implements PerceptibleItem {
      * @return the x coordinate of the current position
      */
     public double getX() {
-        return currentLocation.getX();
+        return store.getX(slot);
     }
 
     /**
@@ -412,7 +519,16 @@ abstract class Vehicle implements PerceptibleItem {
      * @return the y coordinate of the current position
      */
     public double getY() {
-        return currentLocation.getY();
+        return store.getY(slot);
+    }
+
+    /**
+     * Get the current direction
+     *
+     * @return the current direction, in radians
+     */
+    double getDirection() {
+        return store.getDirection(slot);
     }
 
     /**
@@ -428,8 +544,7 @@ abstract class Vehicle implements PerceptibleItem {
      * Update the location and the direction
      */
     void updateLocationDirection() {
-        currentLocation = newLocation;
-        currentDirection = newDirection;
+        store.updateLocationDirection(slot);
     }
 
     /**
@@ -442,51 +557,93 @@ abstract class Vehicle implements PerceptibleItem {
      * @return the new location
      */
     static Point2D getNewLocation(Point2D currentPoint, double distance, double direction) {
-        double deltaX = (Math.sin(direction + HALFPI) * distance);
-        double deltaY = (Math.cos(direction + HALFPI) * distance);
+        return new Point2D.Double(getNewX(currentPoint.getX(), distance, direction),
+                getNewY(currentPoint.getY(), distance, direction));
+    }
 
-        double newX = currentPoint.getX() + deltaX;
-        double newY = currentPoint.getY() + deltaY;
+    /**
+     * Utility program for generating the x coordinate of a new location given the x coordinate of a
+     * current location, a direction and a distance to travel.
+     *
+     * @param currentX the x coordinate of the current location
+     * @param distance the distance to travel
+     * @param direction the direction to travel in
+     * @return the x coordinate of the new location
+     */
+    static double getNewX(double currentX, double distance, double direction) {
+        return getNewX(Trigonometry.MATH, currentX, distance, direction);
+    }
 
-        return new Point2D.Double(newX, newY);
+    /**
+     * Utility program for generating the x coordinate of a new location, using the given sine.
+     *
+     * @param trig the sine and cosine to use
+     * @param currentX the x coordinate of the current location
+     * @param distance the distance to travel
+     * @param direction the direction to travel in
+     * @return the x coordinate of the new location
+     */
+    static double getNewX(Trigonometry trig, double currentX, double distance, double direction) {
+        double deltaX = (trig.sin(direction + HALFPI) * distance);
+
+        return currentX + deltaX;
     }
 
     /**
-     * Wrap around the current point if it's gone off the edge of the dark
-     * plain.
+     * Utility program for generating the y coordinate of a new location given the y coordinate of a
+     * current location, a direction and a distance to travel.
      *
-     * @param currentPoint the current location
-     * @return the wrapped location, which may be the same as the original if it
-     * wasn't wrapped
+     * @param currentY the y coordinate of the current location
+     * @param distance the distance to travel
+     * @param direction the direction to travel in
+     * @return the y coordinate of the new location
      */
-    static private Point2D wrapAroundLocation(Point2D currentPoint, int height, int width) {
-        double newX = currentPoint.getX();
-        /* Beyond the east side */
-        if (newX > width) {
-            newX = newX - width;
-        } /* Beyond the west side */ else if (newX < 0.0) {
-            newX = width + newX;
-        }
+    static double getNewY(double currentY, double distance, double direction) {
+        return getNewY(Trigonometry.MATH, currentY, distance, direction);
+    }
 
-        double newY = currentPoint.getY();
-        /* Beyond the south side */
-        if (newY > height) {
-            newY = newY - height;
-        } /* Beyond the north side */ else if (newY < 0.00) {
-            newY = height + newY;
+    /**
+     * Utility program for generating the y coordinate of a new location, using the given cosine.
+     *
+     * @param trig the sine and cosine to use
+     * @param currentY the y coordinate of the current location
+     * @param distance the distance to travel
+     * @param direction the direction to travel in
+     * @return the y coordinate of the new location
+     */
+    static double getNewY(Trigonometry trig, double currentY, double distance, double direction) {
+        double deltaY = (trig.cos(direction + HALFPI) * distance);
+
+        return currentY + deltaY;
+    }
+
+    /**
+     * Wrap around a coordinate if it's gone off the edge of the dark plain.
+     *
+     * @param coordinate the x or y coordinate of the current location
+     * @param extent the width or height of the dark plain
+     * @return the wrapped coordinate, which may be the same as the original if
+     * it wasn't wrapped
+     */
+    static private double wrapAround(double coordinate, int extent) {
+        double newCoordinate = coordinate;
+        /* Beyond the east or south side */
+        if (newCoordinate > extent) {
+            newCoordinate = newCoordinate - extent;
+        } /* Beyond the west or north side */ else if (newCoordinate < 0.0) {
+            newCoordinate = extent + newCoordinate;
         }
 
-        return new Point2D.Double(newX, newY);
+        return newCoordinate;
     }
 
     /**
      *
-     * @param currentPoint computed "next" location...
-     * @return true if the currentPoint is outside of bounding plain
+     * @param aX computed "next" x coordinate...
+     * @param aY computed "next" y coordinate...
+     * @return true if the point is outside of bounding plain
      */
-    static private boolean isOffBoundingPlain(Point2D aPoint, int width, int height) {
-        double aX = aPoint.getX();
-        double aY = aPoint.getY();
+    static private boolean isOffBoundingPlain(double aX, double aY, int width, int height) {
         return (aX < 0.0 || aX > width || aY < 0.0 || aY > height);
     }
 
@@ -495,8 +652,8 @@ abstract class Vehicle implements PerceptibleItem {
      */
     @Override
     public String toString() {
-        return "ID: " + id + "Type: " + getVehicleType() + " Location: " + currentLocation + " Direction: "
-                + Math.toDegrees(currentDirection);
+        return "ID: " + id + "Type: " + getVehicleType() + " Location: " + new Point2D.Double(getX(), getY())
+                + " Direction: " + Math.toDegrees(getDirection());
     }
 
     /**
@@ -544,35 +701,39 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class UncrossedExcitatoryVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        UncrossedExcitatoryVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        UncrossedExcitatoryVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, false);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the right wheel, the left sensor steps the left wheel.
              * Wheel steps increase as light strength increases.
              */
-            gypsyWagon = new Point2D.Double(leftPulses, rightPulses);
-
-            return gypsyWagon;
+            return pulses;
         }
 
         /**
@@ -610,35 +771,39 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class CrossedExcitatoryVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        CrossedExcitatoryVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        CrossedExcitatoryVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, true);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the left wheel, the left sensor steps the right wheel 
              * Wheel steps increase as light strength increases.
              */
-            gypsyWagon = new Point2D.Double(rightPulses, leftPulses);
-
-            return gypsyWagon;
+            return pulses;
         }
 
         /**
@@ -677,39 +842,39 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class UncrossedInhibitoryVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        UncrossedInhibitoryVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        UncrossedInhibitoryVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, false);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            int rightLightPulses = rightPulses;
-            int leftLightPulses = leftPulses;
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the right wheel, the left sensor steps the left wheel.
              * Wheel steps decrease as light strength increases.
              */
-            rightLightPulses = Sensor.PULSEMAX - rightLightPulses;
-            leftLightPulses = Sensor.PULSEMAX - leftLightPulses;
-            gypsyWagon = new Point2D.Double(leftLightPulses, rightLightPulses);
-
-            return gypsyWagon;
+            return Sensor.PULSEMAX - pulses;
         }
 
         /**
@@ -747,45 +912,43 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class CrossedInhibitoryVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        CrossedInhibitoryVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        CrossedInhibitoryVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, true);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            int rightLightPulses = rightPulses;
-            int leftLightPulses = leftPulses;
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the left wheel, the left sensor steps the right wheel.
              * Wheel steps decrease as light strength increases.
              */
-            rightLightPulses = Sensor.PULSEMAX - rightLightPulses;
-            leftLightPulses = Sensor.PULSEMAX - leftLightPulses;
-            if (rightLightPulses < 1) {
-                rightLightPulses = 1;
+            int steps = Sensor.PULSEMAX - pulses;
+            if (steps < 1) {
+                steps = 1;
             }
-            if (leftLightPulses < 1) {
-                leftLightPulses = 1;
-            }
-            gypsyWagon = new Point2D.Double(rightLightPulses, leftLightPulses);
-
-            return gypsyWagon;
+            return steps;
         }
 
         /**
@@ -823,50 +986,47 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class UncrossedThresholdVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        UncrossedThresholdVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        UncrossedThresholdVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, false);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            int rightLightPulses = rightPulses;
-            int leftLightPulses = leftPulses;
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the right wheel, the left sensor steps the left wheel.
              * Threshold - wheel steps increase as light strength increases until a threshold is met, then
              * wheel steps decrease as light strength increases.
              */
-            if (rightLightPulses > (Sensor.PULSEMAX / 2)) {
-                rightLightPulses = Sensor.PULSEMAX - rightLightPulses;
-            }
-            if (leftLightPulses > (Sensor.PULSEMAX / 2)) {
-                leftLightPulses = Sensor.PULSEMAX - leftLightPulses;
+            int steps = pulses;
+            if (steps > (Sensor.PULSEMAX / 2)) {
+                steps = Sensor.PULSEMAX - steps;
             }
-            if (rightLightPulses < 1) {
-                rightLightPulses = 1;
+            if (steps < 1) {
+                steps = 1;
             }
-            if (leftLightPulses < 1) {
-                leftLightPulses = 1;
-            }
-            gypsyWagon = new Point2D.Double(leftLightPulses, rightLightPulses);
-
-            return gypsyWagon;
+            return steps;
         }
 
         /**
@@ -904,50 +1064,47 @@ abstract class Vehicle implements PerceptibleItem {
      */
     static class CrossedThresholdVehicle extends Vehicle {
 
+        /* The wheel steps for every number of pulses */
+        static final int[] STEPS = buildSteps(new IntUnaryOperator() {
+            @Override
+            public int applyAsInt(int pulses) {
+                return translatePulsesToSteps(pulses);
+            }
+        });
+
         /**
          * Constructor
          *
-         * @param pnlConfig the panel containing various configured settings
+         * @param settings the configured settings
+         * @param store the store holding the vehicle locations and directions
          * @param loc the starting location
          * @param dir the starting direction
          */
-        CrossedThresholdVehicle(ConfigurationPanel pnlConfig, Point2D loc, double dir) {
-            super(pnlConfig, loc, dir);
+        CrossedThresholdVehicle(SimulationConfig settings, VehicleStateStore store, Point2D loc,
+                double dir) {
+            super(settings, store, loc, dir, STEPS, true);
         }
 
         /**
-         * Translate the light strength to wheel steps.
+         * Translate the light strength of a sensor to the steps of the wheel it steps.
          *
-         * @param rightPulses the right light strength
-         * @param leftPulses the left light strength
-         * @return a "gypsy wagon" holding the right and left wheel steps
+         * @param pulses the light strength
+         * @return the wheel steps
          */
-        @Override
-        protected Point2D translatePulsesToSteps(int rightPulses, int leftPulses) {
-            int rightLightPulses = rightPulses;
-            int leftLightPulses = leftPulses;
-            Point2D gypsyWagon;
-
+        static int translatePulsesToSteps(int pulses) {
             /* 
              * The right sensor steps the left wheel, the left sensor steps the right wheel.
              * Threshold - wheel steps increase as light strength increases until a threshold is met, then
              * wheel steps decrease as light strength increases.
              */
-            if (rightLightPulses > (Sensor.PULSEMAX / 2)) {
-                rightLightPulses = Sensor.PULSEMAX - rightLightPulses;
+            int steps = pulses;
+            if (steps > (Sensor.PULSEMAX / 2)) {
+                steps = Sensor.PULSEMAX - steps;
             }
-            if (leftLightPulses > (Sensor.PULSEMAX / 2)) {
-                leftLightPulses = Sensor.PULSEMAX - leftLightPulses;
+            if (steps < 1) {
+                steps = 1;
             }
-            if (rightLightPulses < 1) {
-                rightLightPulses = 1;
-            }
-            if (leftLightPulses < 1) {
-                leftLightPulses = 1;
-            }
-            gypsyWagon = new Point2D.Double(rightLightPulses, leftLightPulses);
-
-            return gypsyWagon;
+            return steps;
         }
 
         /**
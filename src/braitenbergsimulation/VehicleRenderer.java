@@ -58,7 +58,7 @@ public class VehicleRenderer
 	/* Point the vehicles west in the icons */
 	private static final double STANDARDDIRECTION = Math.PI;
 	/* The rendered length of a vehicle */
-	private static final int VEHICLELENGTH = 15;
+	static final int VEHICLELENGTH = 15;
 	/* The rendered angle of the vehicle apex */
 	private static final double VEHICLEANGLE  = Math.toRadians(15);
 	/* The range of a sensor, for rendering the sensor */
@@ -150,27 +150,44 @@ public class VehicleRenderer
 	 */
 	static void drawVehicle(Graphics g, Point2D location, double direction, Color vehicleColor)
 	{
-		/* Create the triangle */
-		Polygon triangle = new Polygon();
-		
-		/* Add the vertex, the current location of the sensor */
-		triangle.addPoint((int) location.getX(), (int) location.getY());
+		drawVehicle(g, location.getX(), location.getY(), direction, vehicleColor, new int[3], new int[3]);
+	}
+
+	/**
+	 * Render the vehicle as a colored triangle pointing in the direction of travel, without creating
+	 * any objects. The vertices are worked out in arrays supplied by the caller, so a caller drawing
+	 * many vehicles can reuse the same arrays for all of them.
+	 * 
+	 * @param g the graphics
+	 * @param x the x coordinate of the vehicle location
+	 * @param y the y coordinate of the vehicle location
+	 * @param direction the current direction of the vehicle
+	 * @param vehicleColor the vehicle color
+	 * @param xPoints an array of at least three elements for the x coordinates of the vertices
+	 * @param yPoints an array of at least three elements for the y coordinates of the vertices
+	 */
+	static void drawVehicle(Graphics g, double x, double y, double direction, Color vehicleColor,
+			int[] xPoints, int[] yPoints)
+	{
+		/* The vertex, the current location of the sensor */
+		xPoints[0] = (int) x;
+		yPoints[0] = (int) y;
 
-		/* Add the vertex of the upper range point */
+		/* The vertex of the upper range point */
 		double angleUpperRange = direction + VEHICLEANGLE + Math.PI;
-		Point2D newVertex = Vehicle.getNewLocation(location, VEHICLELENGTH, angleUpperRange);
-		triangle.addPoint((int) newVertex.getX(), (int) newVertex.getY());
+		xPoints[1] = (int) Vehicle.getNewX(x, VEHICLELENGTH, angleUpperRange);
+		yPoints[1] = (int) Vehicle.getNewY(y, VEHICLELENGTH, angleUpperRange);
 
-		/* Add the vertex of the lower range point */
+		/* The vertex of the lower range point */
 		double angleLowerRange = direction - VEHICLEANGLE + Math.PI;
-		newVertex = Vehicle.getNewLocation(location, VEHICLELENGTH, angleLowerRange);
-		triangle.addPoint((int) newVertex.getX(), (int) newVertex.getY());
+		xPoints[2] = (int) Vehicle.getNewX(x, VEHICLELENGTH, angleLowerRange);
+		yPoints[2] = (int) Vehicle.getNewY(y, VEHICLELENGTH, angleLowerRange);
 
 		Color savedForeground = g.getColor();
 		g.setColor(vehicleColor);
 
 		/* Draw the triangle */
-		g.drawPolygon(triangle);
+		g.drawPolygon(xPoints, yPoints, 3);
 
 		g.setColor(savedForeground);
 	}
@@ -19,20 +19,20 @@ import javax.swing.event.ChangeListener;
 public class VehicleSettingsPanel extends GridbagPanel
 {
 	private static final long serialVersionUID = 4359479573832200713L;
-	private static final int RANGEANGLEDEFAULT = 75;
+	static final int RANGEANGLEDEFAULT = 75;
 	/* The angle a sensor splays out from the vehicle direction */
-	private static final int SPLAYANGLEDEFAULT = 30;
+	static final int SPLAYANGLEDEFAULT = 30;
 	/* The gap between the two sensors */
-	private static final int GAPDEFAULT = 0;
+	static final int GAPDEFAULT = 0;
 	/* The angle increment is the angle change per wheel step */
-	private static final double ANGLEDELTADEFAULT = 1.0;
+	static final double ANGLEDELTADEFAULT = 1.0;
 	private static final double ANGLEDELTA_MIN = 0.1;
 	private static final double ANGLEDELTA_MAX = 9.0;
 	private static final double ANGLEDELTA_INCREMENT = 0.1;
 	/* The maximum speed is the maximum distance a vehicle can move in one turn */
-	private static final int MAXSPEEDDEFAULT = 20;
+	static final int MAXSPEEDDEFAULT = 20;
 	/* The maximum angle is the maximum amount the vehicle direction can change in one turn */
-	private static final int MAXANGLEDEFAULT = 15;
+	static final int MAXANGLEDEFAULT = 15;
 	
 	/* Increments, max and mins */
 	private static final int SPINNER_INCREMENT = 1;
@@ -0,0 +1,233 @@
+package braitenbergsimulation;
+/*
+ * Copyright 2010 Douglas B. Caulkins
+ *
+ * This file is part of the Braitenberg Simulation Java package.
+ *
+ * The Braitenberg Simulation Java package is free software: you can
+ * redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * The Braitenberg Simulation Java package is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with the Braitenberg Simulation Java package.  If not,
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+
+/**
+ * This class holds the location and direction of every vehicle on a dark plain, along with the new
+ * location and direction each vehicle calculates when it moves. Rather than each vehicle keeping
+ * its own Point2D objects, the values are kept in arrays of doubles, one array per value, indexed by
+ * the slot each vehicle is given when it's created. Moving a vehicle then creates no objects at all,
+ * and updating every vehicle is just a copy of the new arrays over the current ones.
+ *
+ * Note that while the vehicles move, each vehicle writes only its own slot of the new arrays and
+ * nothing writes the current arrays, so the vehicles can safely move in parallel.
+ */
+class VehicleStateStore
+{
+	/* The number of slots to start with */
+	private static final int INITIALCAPACITY = 16;
+
+	/* The current locations and directions */
+	private double[] x;
+	private double[] y;
+	private double[] direction;
+
+	/* The newly calculated locations and directions */
+	private double[] newX;
+	private double[] newY;
+	private double[] newDirection;
+
+	/* The number of slots in use */
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	VehicleStateStore()
+	{
+		x = new double[INITIALCAPACITY];
+		y = new double[INITIALCAPACITY];
+		direction = new double[INITIALCAPACITY];
+		newX = new double[INITIALCAPACITY];
+		newY = new double[INITIALCAPACITY];
+		newDirection = new double[INITIALCAPACITY];
+	}
+
+	/**
+	 * Add a vehicle to the store. Until the vehicle first moves, its new location and direction are
+	 * the same as its starting location and direction.
+	 *
+	 * @param startX the starting x coordinate
+	 * @param startY the starting y coordinate
+	 * @param startDirection the starting direction
+	 * @return the slot of the vehicle
+	 */
+	int add(double startX, double startY, double startDirection)
+	{
+		if (size == x.length)
+		{
+			int capacity = size * 2;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			direction = Arrays.copyOf(direction, capacity);
+			newX = Arrays.copyOf(newX, capacity);
+			newY = Arrays.copyOf(newY, capacity);
+			newDirection = Arrays.copyOf(newDirection, capacity);
+		}
+
+		x[size] = startX;
+		y[size] = startY;
+		direction[size] = startDirection;
+		newX[size] = startX;
+		newY[size] = startY;
+		newDirection[size] = startDirection;
+
+		return size++;
+	}
+
+	/**
+	 * Remove all the vehicles from the store
+	 */
+	void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Get the number of vehicles in the store
+	 *
+	 * @return the number of vehicles
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Set the newly calculated location and direction of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @param nwX the new x coordinate
+	 * @param nwY the new y coordinate
+	 * @param nwDirection the new direction
+	 */
+	void setNew(int slot, double nwX, double nwY, double nwDirection)
+	{
+		newX[slot] = nwX;
+		newY[slot] = nwY;
+		newDirection[slot] = nwDirection;
+	}
+
+	/**
+	 * Update the location and direction of one vehicle to the newly calculated ones
+	 *
+	 * @param slot the slot of the vehicle
+	 */
+	void updateLocationDirection(int slot)
+	{
+		x[slot] = newX[slot];
+		y[slot] = newY[slot];
+		direction[slot] = newDirection[slot];
+	}
+
+	/**
+	 * Update the locations and directions of every vehicle to the newly calculated ones
+	 */
+	void updateLocationDirection()
+	{
+		System.arraycopy(newX, 0, x, 0, size);
+		System.arraycopy(newY, 0, y, 0, size);
+		System.arraycopy(newDirection, 0, direction, 0, size);
+	}
+
+	/**
+	 * Copy the current locations and directions of the first vehicles into arrays
+	 *
+	 * @param count the number of vehicles to copy
+	 * @param toX the array to copy the x coordinates into
+	 * @param toY the array to copy the y coordinates into
+	 * @param toDirection the array to copy the directions into
+	 */
+	void copyLocationDirection(int count, double[] toX, double[] toY, double[] toDirection)
+	{
+		System.arraycopy(x, 0, toX, 0, count);
+		System.arraycopy(y, 0, toY, 0, count);
+		System.arraycopy(direction, 0, toDirection, 0, count);
+	}
+
+	/* Accessors */
+
+	/**
+	 * Get the x coordinate of the current location of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the x coordinate
+	 */
+	double getX(int slot)
+	{
+		return x[slot];
+	}
+
+	/**
+	 * Get the y coordinate of the current location of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the y coordinate
+	 */
+	double getY(int slot)
+	{
+		return y[slot];
+	}
+
+	/**
+	 * Get the current direction of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the direction, in radians
+	 */
+	double getDirection(int slot)
+	{
+		return direction[slot];
+	}
+
+	/**
+	 * Get the x coordinate of the newly calculated location of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the new x coordinate
+	 */
+	double getNewX(int slot)
+	{
+		return newX[slot];
+	}
+
+	/**
+	 * Get the y coordinate of the newly calculated location of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the new y coordinate
+	 */
+	double getNewY(int slot)
+	{
+		return newY[slot];
+	}
+
+	/**
+	 * Get the newly calculated direction of a vehicle
+	 *
+	 * @param slot the slot of the vehicle
+	 * @return the new direction, in radians
+	 */
+	double getNewDirection(int slot)
+	{
+		return newDirection[slot];
+	}
+}